@@ -0,0 +1,204 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static android.content.Context.MODE_PRIVATE;
+
+/**
+ * Compares {@link MappedFileSettingsStorage} with {@link SharedPreferencesSettingsStorage} on a real device.
+ * <p>
+ * Cold read opens a file which was not loaded by this process yet and reads all settings (SharedPreferences are cached
+ * per process, so their file is copied under a new name). Write stores a snapshot which differs from the previous one
+ * and measures the time spent on the calling thread, SharedPreferences finish the write in background.
+ * Results are logged with the "SettingsBenchmark" tag: {@code adb logcat -s SettingsBenchmark}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DeveloperSettingsStorageBenchmark {
+
+    private static final String TAG = "SettingsBenchmark";
+    private static final int ITERATIONS = 50;
+
+    private static final DeveloperSettings.Snapshot FIRST = new DeveloperSettings.Snapshot.Builder()
+            .setStethoEnabled(true)
+            .setTinyDancerEnabled(true)
+            .setBlockDetectorEnabled(true)
+            .setBlockDetectorThresholdMs(250)
+            .setMemorySamplerEnabled(true)
+            .setMemorySamplerIntervalMs(500)
+            .setMethodTracingEnabled(true)
+            .setMethodTracingIntervalUs(100)
+            .setMethodTracingBufferSizeMb(16)
+            .setJankTraceFrames(3)
+            .setStrictModeProfile(StrictModeProxy.PROFILE_DISK)
+            .build();
+    private static final DeveloperSettings.Snapshot SECOND = new DeveloperSettings.Snapshot.Builder()
+            .setLeakCanaryEnabled(true)
+            .setFrameTimeRecorderEnabled(true)
+            .setBlockDetectorThresholdMs(16)
+            .setMemorySamplerIntervalMs(5_000)
+            .setMethodTracingIntervalUs(1_000)
+            .setMethodTracingBufferSizeMb(64)
+            .setStrictModeProfile(StrictModeProxy.PROFILE_ALL)
+            .build();
+
+    private Context context;
+
+    @Before
+    public void beforeEachTest() {
+        context = InstrumentationRegistry.getTargetContext();
+    }
+
+    @Test
+    public void coldRead() throws IOException {
+        final long[] sharedPreferencesNanos = new long[ITERATIONS];
+        final long[] mappedFileNanos = new long[ITERATIONS];
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            final String name = "settings_benchmark_cold_read_" + i;
+            final SharedPreferences sharedPreferences = context.getSharedPreferences(name, MODE_PRIVATE);
+            new SharedPreferencesSettingsStorage(sharedPreferences).write(FIRST);
+            // Storage writes with apply(), a synchronous commit of one more key makes sure the file is on disk.
+            sharedPreferences.edit().putBoolean("benchmark", true).commit();
+            copy(sharedPreferencesFile(name), sharedPreferencesFile(name + "_cold"));
+            writeMappedFile(name, FIRST);
+
+            long start = System.nanoTime();
+            new SharedPreferencesSettingsStorage(context.getSharedPreferences(name + "_cold", MODE_PRIVATE)).read();
+            sharedPreferencesNanos[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            new MappedFileSettingsStorage(mappedFile(name), new EmptyStorage()).read();
+            mappedFileNanos[i] = System.nanoTime() - start;
+
+            sharedPreferences.edit().clear().commit();
+            context.getSharedPreferences(name + "_cold", MODE_PRIVATE).edit().clear().commit();
+            deleteMappedFile(name);
+        }
+
+        report("Cold read", sharedPreferencesNanos, mappedFileNanos);
+    }
+
+    @Test
+    public void write() {
+        final long[] sharedPreferencesNanos = new long[ITERATIONS];
+        final long[] mappedFileNanos = new long[ITERATIONS];
+        final String name = "settings_benchmark_write";
+
+        final DeveloperSettingsStorage sharedPreferencesStorage = new SharedPreferencesSettingsStorage(context.getSharedPreferences(name, MODE_PRIVATE));
+        final DeveloperSettingsStorage mappedFileStorage = new MappedFileSettingsStorage(mappedFile(name), new EmptyStorage());
+        sharedPreferencesStorage.read();
+        mappedFileStorage.read();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            final DeveloperSettings.Snapshot snapshot = i % 2 == 0 ? FIRST : SECOND;
+
+            long start = System.nanoTime();
+            sharedPreferencesStorage.write(snapshot);
+            sharedPreferencesNanos[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            mappedFileStorage.write(snapshot);
+            mappedFileNanos[i] = System.nanoTime() - start;
+        }
+
+        sharedPreferencesStorage.clear();
+        deleteMappedFile(name);
+
+        report("Write", sharedPreferencesNanos, mappedFileNanos);
+    }
+
+    @NonNull
+    private File mappedFile(@NonNull String name) {
+        return new File(context.getFilesDir(), name + ".bin");
+    }
+
+    @NonNull
+    private File sharedPreferencesFile(@NonNull String name) {
+        return new File(new File(context.getApplicationInfo().dataDir, "shared_prefs"), name + ".xml");
+    }
+
+    private static void copy(@NonNull File from, @NonNull File to) throws IOException {
+        final InputStream input = new FileInputStream(from);
+
+        try {
+            final OutputStream output = new FileOutputStream(to);
+
+            try {
+                final byte[] buffer = new byte[4096];
+                int read;
+
+                while ((read = input.read(buffer)) != -1) {
+                    output.write(buffer, 0, read);
+                }
+            } finally {
+                output.close();
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    private void writeMappedFile(@NonNull String name, @NonNull DeveloperSettings.Snapshot snapshot) {
+        new MappedFileSettingsStorage(mappedFile(name), new EmptyStorage()).write(snapshot);
+    }
+
+    private void deleteMappedFile(@NonNull String name) {
+        if (!mappedFile(name).delete()) {
+            Log.w(TAG, "Can not delete " + mappedFile(name));
+        }
+    }
+
+    private static void report(@NonNull String title, @NonNull long[] sharedPreferencesNanos, @NonNull long[] mappedFileNanos) {
+        Log.i(TAG, String.format(Locale.US, "%s, median / max us: SharedPreferences %s, mapped file %s",
+                title, summary(sharedPreferencesNanos), summary(mappedFileNanos)));
+    }
+
+    @NonNull
+    private static String summary(@NonNull long[] nanos) {
+        final long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format(Locale.US, "%d / %d", sorted[sorted.length / 2] / 1000, sorted[sorted.length - 1] / 1000);
+    }
+
+    private static class EmptyStorage implements DeveloperSettingsStorage {
+
+        @NonNull
+        @Override
+        public DeveloperSettings.Snapshot read() {
+            return DeveloperSettings.DEFAULT_SNAPSHOT;
+        }
+
+        @Override
+        public void write(@NonNull DeveloperSettings.Snapshot snapshot) {
+            // no-op
+        }
+
+        @Override
+        public void writeNow(@NonNull DeveloperSettings.Snapshot snapshot) {
+            // no-op
+        }
+
+        @Override
+        public void clear() {
+            // no-op
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+import android.util.Log;
+import android.view.View;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import ru.yandex.yamblz.R;
+import ru.yandex.yamblz.ui.activities.MainActivity;
+import ru.yandex.yamblz.ui.fragments.DeveloperSettingsFragment;
+
+/**
+ * Compares the main thread time {@link MainActivityViewModifier#modify(View)} adds to the content of {@link MainActivity}
+ * when developer settings are deferred with the time it would add if they were inflated right away, on a real device.
+ * <p>
+ * Both variants inflate the activity layout, modify it and set it as the content view, the eager one also adds
+ * {@link DeveloperSettingsFragment} and executes the transaction, like the modifier did before the fragment was deferred.
+ * Results are logged with the "DrawerBenchmark" tag: {@code adb logcat -s DrawerBenchmark}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MainActivityViewModifierBenchmark {
+
+    private static final String TAG = "DrawerBenchmark";
+    private static final int ITERATIONS = 20;
+
+    @Rule
+    public ActivityTestRule<MainActivity> activityRule = new ActivityTestRule<>(MainActivity.class);
+
+    @SuppressLint("InflateParams") // Like MainActivity, the layout becomes the content view.
+    @Test
+    public void modify() {
+        final long[] eagerNanos = new long[ITERATIONS];
+        final long[] deferredNanos = new long[ITERATIONS];
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            final MainActivity activity = activityRule.getActivity();
+            final FragmentManager fragmentManager = activity.getSupportFragmentManager();
+            final MainActivityViewModifier viewModifier = new MainActivityViewModifier();
+
+            for (int i = 0; i < ITERATIONS; i++) {
+                // A new content view detaches the previous container, which cancels its deferred fragment.
+                removeDeveloperSettings(fragmentManager);
+                long start = System.nanoTime();
+                activity.setContentView(viewModifier.modify(activity.getLayoutInflater().inflate(R.layout.activity_main, null)));
+                deferredNanos[i] = System.nanoTime() - start;
+
+                removeDeveloperSettings(fragmentManager);
+                start = System.nanoTime();
+                activity.setContentView(viewModifier.modify(activity.getLayoutInflater().inflate(R.layout.activity_main, null)));
+                fragmentManager
+                        .beginTransaction()
+                        .add(R.id.developer_settings_container, new DeveloperSettingsFragment())
+                        .commitAllowingStateLoss();
+                fragmentManager.executePendingTransactions();
+                eagerNanos[i] = System.nanoTime() - start;
+            }
+
+            // The last container is still attached, a finishing activity does not get its deferred fragment.
+            activity.finish();
+        });
+
+        Log.i(TAG, String.format(Locale.US, "Modify, median / max us: eager %s, deferred %s", summary(eagerNanos), summary(deferredNanos)));
+    }
+
+    private static void removeDeveloperSettings(@NonNull FragmentManager fragmentManager) {
+        final Fragment fragment = fragmentManager.findFragmentById(R.id.developer_settings_container);
+
+        if (fragment != null) {
+            fragmentManager.beginTransaction().remove(fragment).commitAllowingStateLoss();
+            fragmentManager.executePendingTransactions();
+        }
+    }
+
+    @NonNull
+    private static String summary(@NonNull long[] nanos) {
+        final long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format(Locale.US, "%d / %d", sorted[sorted.length / 2] / 1000, sorted[sorted.length - 1] / 1000);
+    }
+}
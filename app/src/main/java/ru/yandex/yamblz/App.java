@@ -4,11 +4,24 @@ import android.app.Application;
 import android.content.Context;
 import android.support.annotation.NonNull;
 
+import dagger.Lazy;
 import ru.yandex.yamblz.developer_settings.DevMetricsProxy;
 import ru.yandex.yamblz.developer_settings.DeveloperSettingsModel;
+import ru.yandex.yamblz.logging.AsyncLogTree;
+import ru.yandex.yamblz.startup.StartupTask;
+import ru.yandex.yamblz.startup.StartupTracer;
+import ru.yandex.yamblz.startup.trace.StartupTrace;
 import timber.log.Timber;
 
+import static ru.yandex.yamblz.startup.StartupTask.Dispatcher.MAIN_IDLE;
+
 public class App extends Application {
+
+    private static final String TASK_DEV_METRICS = "dev_metrics";
+
+    // One tree for the first ContentFragment, the pool refills itself for the next one (e.g. after rotation).
+    private static final int CONTENT_VIEWS_POOL_SIZE = 1;
+
     private ApplicationComponent applicationComponent;
 
     // Prevent need in a singleton (global) reference to the application object.
@@ -17,20 +30,40 @@ public class App extends Application {
         return (App) context.getApplicationContext();
     }
 
+    @Override
+    protected void attachBaseContext(Context base) {
+        // The earliest point of the process lifetime we control, so it's the start of the startup trace.
+        StartupTracer.mark(StartupTrace.APP_ATTACH);
+        super.attachBaseContext(base);
+    }
+
     @Override
     public void onCreate() {
+        StartupTracer.mark(StartupTrace.APP_ON_CREATE);
         super.onCreate();
         applicationComponent = prepareApplicationComponent().build();
+        StartupTracer.mark(StartupTrace.APPLICATION_COMPONENT_BUILT);
+
+        // Inflated in background while the main thread creates MainActivity.
+        applicationComponent.asyncViewInflater().preInflate(R.layout.fragment_content, CONTENT_VIEWS_POOL_SIZE);
 
         if (BuildConfig.DEBUG) {
-            Timber.plant(new Timber.DebugTree());
+            // Log calls only claim a slot in a ring buffer, the tree formats and writes them on its own thread.
+            AsyncLogTree logTree = applicationComponent.asyncLogTree();
+            logTree.start();
+            Timber.plant(logTree);
 
             DeveloperSettingsModel developerSettingModel = applicationComponent.developerSettingModel();
-            developerSettingModel.apply();
+            Lazy<DevMetricsProxy> devMetricsProxy = applicationComponent.devMetricsProxy();
 
-            DevMetricsProxy devMetricsProxy = applicationComponent.devMetricsProxy();
-            devMetricsProxy.apply();
+            // Developer tools are not needed for the first frame, so they are initialized in background or after it.
+            applicationComponent.startupScheduler()
+                    .addAll(developerSettingModel.startupTasks())
+                    .add(new StartupTask(TASK_DEV_METRICS, MAIN_IDLE, () -> devMetricsProxy.get().apply()))
+                    .start();
         }
+
+        StartupTracer.mark(StartupTrace.APP_ON_CREATE_END);
     }
 
     @NonNull
@@ -7,12 +7,19 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 
 import dagger.Component;
+import dagger.Lazy;
 import ru.yandex.yamblz.developer_settings.DevMetricsProxy;
 import ru.yandex.yamblz.developer_settings.DeveloperSettingsComponent;
 import ru.yandex.yamblz.developer_settings.DeveloperSettingsModel;
 import ru.yandex.yamblz.developer_settings.DeveloperSettingsModule;
 import ru.yandex.yamblz.developer_settings.LeakCanaryProxy;
+import ru.yandex.yamblz.executors.AppExecutors;
+import ru.yandex.yamblz.logging.AsyncLogTree;
+import ru.yandex.yamblz.performance.ThreadContractTracker;
+import ru.yandex.yamblz.startup.StartupScheduler;
 import ru.yandex.yamblz.ui.activities.MainActivity;
+import ru.yandex.yamblz.ui.other.AsyncViewInflater;
+import ru.yandex.yamblz.ui.other.ViewUpdateDispatcher;
 
 @Singleton
 @Component(modules = {
@@ -22,18 +29,38 @@ import ru.yandex.yamblz.ui.activities.MainActivity;
 public interface ApplicationComponent {
 
     // Provide LeakCanary without injection to leave.
+    // Lazy because it's only needed once the first fragment is destroyed.
     @NonNull
-    LeakCanaryProxy leakCanaryProxy();
+    Lazy<LeakCanaryProxy> leakCanaryProxy();
 
     @NonNull
     DeveloperSettingsComponent plusDeveloperSettingsComponent();
 
     DeveloperSettingsModel developerSettingModel();
 
-    DevMetricsProxy devMetricsProxy();
+    // Lazy because it's applied by a deferred startup task.
+    Lazy<DevMetricsProxy> devMetricsProxy();
 
     @NonNull @Named(ApplicationModule.MAIN_THREAD_HANDLER)
     Handler mainThreadHandler();
 
+    @NonNull
+    ViewUpdateDispatcher viewUpdateDispatcher();
+
+    @NonNull
+    StartupScheduler startupScheduler();
+
+    @NonNull
+    AppExecutors appExecutors();
+
+    @NonNull
+    ThreadContractTracker threadContractTracker();
+
+    @NonNull
+    AsyncLogTree asyncLogTree();
+
+    @NonNull
+    AsyncViewInflater asyncViewInflater();
+
     void inject(@NonNull MainActivity mainActivity);
 }
@@ -3,18 +3,60 @@ package ru.yandex.yamblz;
 import android.app.Application;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
 import android.support.annotation.NonNull;
+import android.view.ContextThemeWrapper;
+
+import java.io.File;
+import java.util.concurrent.Executor;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
 
 import dagger.Module;
 import dagger.Provides;
+import ru.yandex.yamblz.executors.AppExecutors;
+import ru.yandex.yamblz.executors.InstrumentedExecutor;
+import ru.yandex.yamblz.executors.SerialLane;
+import ru.yandex.yamblz.logging.AsyncLogTree;
+import ru.yandex.yamblz.logging.MappedLogFile;
+import ru.yandex.yamblz.performance.InstanceTracker;
+import ru.yandex.yamblz.performance.ThreadContractTracker;
+import ru.yandex.yamblz.startup.MainThreadIdleExecutor;
+import ru.yandex.yamblz.startup.StartupScheduler;
+import ru.yandex.yamblz.ui.other.AsyncViewInflater;
+import ru.yandex.yamblz.ui.other.ViewUpdateDispatcher;
 
 @Module
 public class ApplicationModule {
 
     public static final String MAIN_THREAD_HANDLER = "main_thread_handler";
+    public static final String IO_EXECUTOR = "io_executor";
+    public static final String COMPUTATION_EXECUTOR = "computation_executor";
+    public static final String SERIAL_EXECUTOR = "serial_executor";
+
+    // Enough to overlap a few disk reads, IO tasks mostly wait.
+    private static final int IO_THREADS = 4;
+
+    // IO tasks mostly wait, so they get a core back as soon as the disk answers.
+    private static final int IO_PRIORITY = Process.THREAD_PRIORITY_BACKGROUND;
+
+    // Below IO: computations keep a core busy and must not delay the disk reads the UI waits for.
+    private static final int COMPUTATION_PRIORITY = Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_LESS_FAVORABLE;
+
+    // Above IO: the serial executor applies switches the user has just toggled.
+    private static final int SERIAL_PRIORITY = Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_MORE_FAVORABLE;
+
+    // Far above the depths seen at startup, hitting them means a runaway producer, see "rejected" in dumpapp perf executors.
+    private static final int IO_QUEUE_CAPACITY = 128;
+    private static final int COMPUTATION_QUEUE_CAPACITY = 256;
+    private static final int SERIAL_QUEUE_CAPACITY = 128;
+
+    private static final String LOG_FILE_NAME = "app.log";
+    private static final int LOG_FILE_SIZE = 1024 * 1024;
+
+    // Bursts bigger than this are dropped if the log writer can not keep up.
+    private static final int LOG_BUFFER_CAPACITY = 1024;
 
     @NonNull
     private final Application application;
@@ -33,4 +75,69 @@ public class ApplicationModule {
         return new Handler(Looper.getMainLooper());
     }
 
+    @Provides @NonNull @Singleton
+    public ViewUpdateDispatcher provideViewUpdateDispatcher(@NonNull @Named(MAIN_THREAD_HANDLER) Handler mainThreadHandler,
+                                                            @NonNull ThreadContractTracker threadContractTracker) {
+        return new ViewUpdateDispatcher(mainThreadHandler, threadContractTracker);
+    }
+
+    @Provides @NonNull @Singleton
+    public ThreadContractTracker provideThreadContractTracker() {
+        return new ThreadContractTracker();
+    }
+
+    @Provides @NonNull @Singleton
+    public InstanceTracker provideInstanceTracker() {
+        return new InstanceTracker();
+    }
+
+    @Provides @NonNull @Singleton
+    public MappedLogFile provideMappedLogFile() {
+        // Not getFilesDir(): it creates the dir on the main thread, the log file creates it on the writer thread.
+        final File filesDir = new File(application.getApplicationInfo().dataDir, "files");
+        return new MappedLogFile(new File(filesDir, LOG_FILE_NAME), LOG_FILE_SIZE);
+    }
+
+    @Provides @NonNull @Singleton
+    public AsyncLogTree provideAsyncLogTree(@NonNull MappedLogFile mappedLogFile) {
+        return new AsyncLogTree(mappedLogFile, LOG_BUFFER_CAPACITY);
+    }
+
+    @Provides @NonNull @Singleton
+    public AppExecutors provideAppExecutors() {
+        return new AppExecutors(
+                new InstrumentedExecutor("io", IO_THREADS, IO_PRIORITY, IO_QUEUE_CAPACITY),
+                new InstrumentedExecutor("computation", Math.max(1, Runtime.getRuntime().availableProcessors()), COMPUTATION_PRIORITY, COMPUTATION_QUEUE_CAPACITY),
+                new InstrumentedExecutor("serial", 1, SERIAL_PRIORITY, SERIAL_QUEUE_CAPACITY));
+    }
+
+    @Provides @NonNull @Named(IO_EXECUTOR)
+    public Executor provideIoExecutor(@NonNull AppExecutors appExecutors) {
+        return appExecutors.io();
+    }
+
+    @Provides @NonNull @Named(COMPUTATION_EXECUTOR)
+    public Executor provideComputationExecutor(@NonNull AppExecutors appExecutors) {
+        return appExecutors.computation();
+    }
+
+    @Provides @NonNull @Named(SERIAL_EXECUTOR)
+    public Executor provideSerialExecutor(@NonNull AppExecutors appExecutors) {
+        return appExecutors.serial();
+    }
+
+    @Provides @NonNull @Singleton
+    public StartupScheduler provideStartupScheduler(@NonNull @Named(IO_EXECUTOR) Executor ioExecutor,
+                                                    @NonNull @Named(MAIN_THREAD_HANDLER) Handler mainThreadHandler) {
+        // Startup tasks mostly read settings from disk.
+        return new StartupScheduler(ioExecutor, new MainThreadIdleExecutor(mainThreadHandler));
+    }
+
+    @Provides @NonNull @Singleton
+    public AsyncViewInflater provideAsyncViewInflater(@NonNull @Named(IO_EXECUTOR) Executor ioExecutor) {
+        // AsyncViewInflater uses one inflater clone which is not thread safe, so inflations go one by one.
+        // Own lane: the shared serial executor also switches tools and captures traces, inflation must not wait for them.
+        return new AsyncViewInflater(new ContextThemeWrapper(application, R.style.AppTheme), new SerialLane(ioExecutor));
+    }
+
 }
@@ -0,0 +1,20 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Detects main thread messages which run longer than a threshold and samples main thread stack while they run.
+ * Hidden behind the interface for the same reason as {@link LeakCanaryProxy}.
+ */
+public interface BlockDetectorProxy {
+
+    void start(long thresholdMs);
+
+    void stop();
+
+    /**
+     * @return short human readable summary of detected blocks and hottest sampled stacks.
+     */
+    @NonNull
+    String report();
+}
@@ -0,0 +1,215 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.app.Application;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Printer;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+import ru.yandex.yamblz.performance.AnyThread;
+import ru.yandex.yamblz.performance.FoldedStacks;
+import timber.log.Timber;
+
+/**
+ * Times every main looper message through {@link Looper#setMessageLogging(Printer)}.
+ * <p>
+ * Main thread only writes two volatile fields per message. The watchdog thread only samples the main thread stack:
+ * samples are folded on the computation executor and the folded stacks file is written on the io executor.
+ * Notice that main looper supports only one printer, so it replaces any other message logging.
+ */
+public class BlockDetectorProxyImpl implements BlockDetectorProxy, Printer {
+
+    static final String REPORT_FILE_NAME = "main_thread_blocks.folded";
+
+    private static final long NANOS_IN_MILLI = 1_000_000L;
+    private static final int MAX_UNIQUE_STACKS = 256;
+    private static final int SUMMARY_STACKS = 3;
+    private static final int SUMMARY_FRAMES = 8;
+
+    @NonNull
+    private final Application application;
+
+    // Both may drop tasks under load, the watchdog must keep sampling rather than wait or fail.
+    @NonNull
+    private final Executor computationExecutor;
+
+    @NonNull
+    private final Executor ioExecutor;
+
+    // Guarded by itself.
+    @NonNull
+    private final FoldedStacks foldedStacks = new FoldedStacks(MAX_UNIQUE_STACKS);
+
+    // Written by the main thread only.
+    private volatile long dispatchStartNanos;
+    private volatile int dispatchSequence;
+
+    @Nullable
+    private volatile Thread watchdog;
+
+    private volatile long thresholdNanos;
+
+    // Guarded by foldedStacks.
+    private int blocksCount;
+    private long longestBlockNanos;
+
+    public BlockDetectorProxyImpl(@NonNull Application application, @NonNull Executor computationExecutor, @NonNull Executor ioExecutor) {
+        this.application = application;
+        this.computationExecutor = computationExecutor;
+        this.ioExecutor = ioExecutor;
+    }
+
+    @Override
+    public synchronized void start(long thresholdMs) {
+        thresholdNanos = thresholdMs * NANOS_IN_MILLI;
+
+        if (watchdog != null) {
+            return;
+        }
+
+        final Thread thread = new Thread(this::watch, "main-thread-block-detector");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.setDaemon(true);
+        watchdog = thread;
+        thread.start();
+
+        Looper.getMainLooper().setMessageLogging(this);
+    }
+
+    @Override
+    public synchronized void stop() {
+        final Thread thread = watchdog;
+
+        if (thread == null) {
+            return;
+        }
+
+        Looper.getMainLooper().setMessageLogging(null);
+        dispatchStartNanos = 0;
+        watchdog = null;
+        thread.interrupt();
+    }
+
+    @Override
+    public void println(String x) {
+        // Looper prints ">>>>> Dispatching to …" before and "<<<<< Finished to …" after each message.
+        if (x.charAt(0) == '>') {
+            dispatchSequence++;
+            dispatchStartNanos = System.nanoTime();
+        } else {
+            dispatchStartNanos = 0;
+        }
+    }
+
+    @AnyThread
+    @NonNull
+    @Override
+    public String report() {
+        synchronized (foldedStacks) {
+            if (blocksCount == 0) {
+                return "No blocks detected";
+            }
+
+            return String.format(Locale.US, "%d blocks, longest %d ms, %d samples%n",
+                    blocksCount, longestBlockNanos / NANOS_IN_MILLI, foldedStacks.totalSamples())
+                    + foldedStacks.summary(SUMMARY_STACKS, SUMMARY_FRAMES);
+        }
+    }
+
+    private void watch() {
+        final Thread mainThread = Looper.getMainLooper().getThread();
+
+        int blockedSequence = -1;
+        long blockedStartNanos = 0;
+
+        while (watchdog == Thread.currentThread()) {
+            // Sample a few times per threshold to get meaningful stacks for a single block.
+            SystemClock.sleep(Math.max(1, thresholdNanos / NANOS_IN_MILLI / 4));
+
+            final int sequence = dispatchSequence;
+            final long startNanos = dispatchStartNanos;
+
+            if (blockedSequence != -1 && (startNanos == 0 || sequence != blockedSequence)) {
+                onBlockFinished(System.nanoTime() - blockedStartNanos);
+                blockedSequence = -1;
+            }
+
+            if (startNanos != 0 && System.nanoTime() - startNanos >= thresholdNanos) {
+                if (blockedSequence == -1) {
+                    blockedSequence = sequence;
+                    blockedStartNanos = startNanos;
+                }
+
+                final StackTraceElement[] stackTrace = mainThread.getStackTrace();
+
+                computationExecutor.execute(() -> {
+                    synchronized (foldedStacks) {
+                        foldedStacks.add(stackTrace);
+                    }
+                });
+            }
+        }
+    }
+
+    private void onBlockFinished(long durationNanos) {
+        synchronized (foldedStacks) {
+            blocksCount++;
+            longestBlockNanos = Math.max(longestBlockNanos, durationNanos);
+        }
+
+        Timber.w("Main thread was blocked for %d ms", durationNanos / NANOS_IN_MILLI);
+
+        // Samples of this block still being folded on other threads make it into the next report.
+        computationExecutor.execute(this::writeReport);
+    }
+
+    private void writeReport() {
+        // Copy under the lock so UI thread reading the report never waits for the disk.
+        final StringWriter folded = new StringWriter();
+
+        synchronized (foldedStacks) {
+            try {
+                foldedStacks.writeTo(folded);
+            } catch (IOException e) {
+                // StringWriter never throws.
+                throw new IllegalStateException(e);
+            }
+        }
+
+        ioExecutor.execute(() -> writeReportFile(folded.toString()));
+    }
+
+    private void writeReportFile(@NonNull String folded) {
+        final File file = new File(application.getFilesDir(), REPORT_FILE_NAME);
+
+        Writer writer = null;
+
+        try {
+            writer = new FileWriter(file);
+            writer.write(folded);
+        } catch (IOException e) {
+            Timber.e(e, "Can not write main thread blocks report");
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    private static void closeQuietly(@Nullable Writer writer) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                Timber.e(e, "Can not close main thread blocks report");
+            }
+        }
+    }
+}
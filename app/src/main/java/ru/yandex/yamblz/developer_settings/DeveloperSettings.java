@@ -1,46 +1,632 @@
 package ru.yandex.yamblz.developer_settings;
 
-import android.content.SharedPreferences;
+import android.os.Looper;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ru.yandex.yamblz.performance.AnyThread;
+import ru.yandex.yamblz.performance.MainThreadDiskReadListener;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 /**
- * Wrapper over {@link android.content.SharedPreferences} to store developer settings.
+ * Developer settings backed by a {@link DeveloperSettingsStorage}.
+ * <p>
+ * All settings live in an immutable {@link Snapshot} which is swapped atomically on every change, so reading a setting
+ * is a single volatile load. Changes are persisted in batches: all changes made during {@link #PERSIST_DELAY_MS}
+ * go to the storage with one write on the persist executor, the main thread never writes them.
+ * <p>
+ * Settings should be {@link #preload() preloaded} in background. If the main thread needs them while the preload
+ * is still running, it waits for at most {@link #PRELOAD_AWAIT_TIMEOUT_MS} and then reads them itself.
+ * Either way the block is reported to {@link MainThreadDiskReadListener}.
  */
 public class DeveloperSettings {
 
-    private static final String KEY_IS_STETHO_ENABLED = "is_stetho_enabled";
-    private static final String KEY_IS_LEAK_CANARY_ENABLED = "is_leak_canary_enabled";
-    private static final String KEY_IS_TINY_DANCER_ENABLED = "is_tiny_dancer_enabled";
+    @NonNull
+    public static final Snapshot DEFAULT_SNAPSHOT = new Snapshot.Builder()
+            .setBlockDetectorThresholdMs(100)
+            .setMemorySamplerIntervalMs(1_000)
+            .setMethodTracingIntervalUs(1_000)
+            .setMethodTracingBufferSizeMb(8)
+            .setStrictModeProfile(StrictModeProxy.PROFILE_OFF)
+            .build();
+
+    // Long enough to batch several switches flipped in a row, short enough to not lose them on a crash.
+    static final long PERSIST_DELAY_MS = 100;
+
+    // Reading the settings file normally takes a few milliseconds, if preload is not done by then, something is wrong.
+    static final long PRELOAD_AWAIT_TIMEOUT_MS = 50;
+
+    public interface Listener {
+
+        /**
+         * Called on the thread which changed the settings.
+         */
+        @AnyThread
+        void onDeveloperSettingsChanged(@NonNull Snapshot snapshot);
+    }
+
+    @NonNull
+    private final DeveloperSettingsStorage storage;
+
+    @NonNull
+    private final ScheduledExecutorService scheduler;
+
+    @NonNull
+    private final Executor persistExecutor;
+
+    @NonNull
+    private final MainThreadDiskReadListener diskReadListener;
+
+    // Null until settings are read for the first time, the first read may touch the disk.
+    @NonNull
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    @NonNull
+    private final AtomicBoolean persistScheduled = new AtomicBoolean();
+
+    @NonNull
+    private final AtomicBoolean preloadStarted = new AtomicBoolean();
+
+    @NonNull
+    private final CountDownLatch preloaded = new CountDownLatch(1);
+
+    @NonNull
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @NonNull
+    private final Runnable persistRunnable = () -> persist(false);
+
+    @NonNull
+    private final Runnable dispatchPersistRunnable = this::dispatchPersist;
+
+    @Nullable
+    private volatile ScheduledFuture<?> scheduledPersist;
+
+    // Only accessed in persist(), which is synchronized.
+    @Nullable
+    private Snapshot persistedSnapshot;
+
+    // Batches are written with DeveloperSettingsStorage.write(), which may still be in flight.
+    private boolean persistedDurably;
+
+    /**
+     * @param scheduler       only keeps the batch delay.
+     * @param persistExecutor writes batches, should run them one by one.
+     */
+    public DeveloperSettings(@NonNull DeveloperSettingsStorage storage,
+                             @NonNull ScheduledExecutorService scheduler,
+                             @NonNull Executor persistExecutor,
+                             @NonNull MainThreadDiskReadListener diskReadListener) {
+        this.storage = storage;
+        this.scheduler = scheduler;
+        this.persistExecutor = persistExecutor;
+        this.diskReadListener = diskReadListener;
+    }
+
+    /**
+     * Reads settings from the storage, so the main thread does not have to. Only the first call does anything.
+     */
+    @WorkerThread
+    public void preload() {
+        if (!preloadStarted.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            load();
+        } finally {
+            preloaded.countDown();
+        }
+    }
 
+    @AnyThread
     @NonNull
-    private final SharedPreferences sharedPreferences;
+    public Snapshot snapshot() {
+        final Snapshot current = snapshot.get();
 
-    public DeveloperSettings(@NonNull SharedPreferences sharedPreferences) {
-        this.sharedPreferences = sharedPreferences;
+        if (current != null) {
+            return current;
+        }
+
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            return load();
+        }
+
+        final long startNanos = System.nanoTime();
+        final Throwable stackTrace = new Throwable("Main thread read developer settings");
+
+        if (preloadStarted.get() && awaitPreload()) {
+            diskReadListener.onMainThreadDiskRead("Developer settings preload await", System.nanoTime() - startNanos, stackTrace);
+            return snapshot.get();
+        }
+
+        final Snapshot loaded = load();
+        diskReadListener.onMainThreadDiskRead("Developer settings read", System.nanoTime() - startNanos, stackTrace);
+        return loaded;
+    }
+
+    public void addListener(@NonNull Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(@NonNull Listener listener) {
+        listeners.remove(listener);
     }
 
     public boolean isStethoEnabled() {
-        return sharedPreferences.getBoolean(KEY_IS_STETHO_ENABLED, false);
+        return snapshot().stethoEnabled;
     }
 
     public void saveIsStethoEnabled(boolean isStethoEnabled) {
-        sharedPreferences.edit().putBoolean(KEY_IS_STETHO_ENABLED, isStethoEnabled).apply();
+        change(current -> current.toBuilder().setStethoEnabled(isStethoEnabled).build());
     }
 
     public boolean isLeakCanaryEnabled() {
-        return sharedPreferences.getBoolean(KEY_IS_LEAK_CANARY_ENABLED, false);
+        return snapshot().leakCanaryEnabled;
     }
 
     public void saveIsLeakCanaryEnabled(boolean isLeakCanaryEnabled) {
-        sharedPreferences.edit().putBoolean(KEY_IS_LEAK_CANARY_ENABLED, isLeakCanaryEnabled).apply();
+        change(current -> current.toBuilder().setLeakCanaryEnabled(isLeakCanaryEnabled).build());
     }
 
     public boolean isTinyDancerEnabled() {
-        return sharedPreferences.getBoolean(KEY_IS_TINY_DANCER_ENABLED, false);
+        return snapshot().tinyDancerEnabled;
     }
 
     public void saveIsTinyDancerEnabled(boolean isTinyDancerEnabled) {
-        sharedPreferences.edit().putBoolean(KEY_IS_TINY_DANCER_ENABLED, isTinyDancerEnabled).apply();
+        change(current -> current.toBuilder().setTinyDancerEnabled(isTinyDancerEnabled).build());
+    }
+
+    public boolean isFrameTimeRecorderEnabled() {
+        return snapshot().frameTimeRecorderEnabled;
+    }
+
+    public void saveIsFrameTimeRecorderEnabled(boolean isFrameTimeRecorderEnabled) {
+        change(current -> current.toBuilder().setFrameTimeRecorderEnabled(isFrameTimeRecorderEnabled).build());
+    }
+
+    public boolean isBlockDetectorEnabled() {
+        return snapshot().blockDetectorEnabled;
+    }
+
+    public void saveIsBlockDetectorEnabled(boolean isBlockDetectorEnabled) {
+        change(current -> current.toBuilder().setBlockDetectorEnabled(isBlockDetectorEnabled).build());
+    }
+
+    public long blockDetectorThresholdMs() {
+        return snapshot().blockDetectorThresholdMs;
+    }
+
+    public void saveBlockDetectorThresholdMs(long thresholdMs) {
+        change(current -> current.toBuilder().setBlockDetectorThresholdMs(thresholdMs).build());
+    }
+
+    public boolean isMemorySamplerEnabled() {
+        return snapshot().memorySamplerEnabled;
+    }
+
+    public void saveIsMemorySamplerEnabled(boolean isMemorySamplerEnabled) {
+        change(current -> current.toBuilder().setMemorySamplerEnabled(isMemorySamplerEnabled).build());
+    }
+
+    public long memorySamplerIntervalMs() {
+        return snapshot().memorySamplerIntervalMs;
+    }
+
+    public void saveMemorySamplerIntervalMs(long intervalMs) {
+        change(current -> current.toBuilder().setMemorySamplerIntervalMs(intervalMs).build());
+    }
+
+    public boolean isMethodTracingEnabled() {
+        return snapshot().methodTracingEnabled;
+    }
+
+    public void saveIsMethodTracingEnabled(boolean isMethodTracingEnabled) {
+        change(current -> current.toBuilder().setMethodTracingEnabled(isMethodTracingEnabled).build());
+    }
+
+    public int methodTracingIntervalUs() {
+        return snapshot().methodTracingIntervalUs;
+    }
+
+    public void saveMethodTracingIntervalUs(int intervalUs) {
+        change(current -> current.toBuilder().setMethodTracingIntervalUs(intervalUs).build());
+    }
+
+    public int methodTracingBufferSizeMb() {
+        return snapshot().methodTracingBufferSizeMb;
+    }
+
+    public void saveMethodTracingBufferSizeMb(int bufferSizeMb) {
+        change(current -> current.toBuilder().setMethodTracingBufferSizeMb(bufferSizeMb).build());
+    }
+
+    /**
+     * @return number of janky frames in a row which start a method trace, 0 if traces are not captured on jank.
+     */
+    public int jankTraceFrames() {
+        return snapshot().jankTraceFrames;
+    }
+
+    public void saveJankTraceFrames(int frames) {
+        change(current -> current.toBuilder().setJankTraceFrames(frames).build());
+    }
+
+    /**
+     * @return one of {@link StrictModeProxy} profiles.
+     */
+    public int strictModeProfile() {
+        return snapshot().strictModeProfile;
+    }
+
+    public void saveStrictModeProfile(int profile) {
+        change(current -> current.toBuilder().setStrictModeProfile(profile).build());
+    }
+
+    /**
+     * Writes pending changes right away instead of waiting for the batch, for example before the process is killed.
+     * Blocks until settings are on disk, so it is only worth it on the main thread right before the process dies.
+     */
+    @AnyThread
+    public void persistNow() {
+        final ScheduledFuture<?> scheduled = scheduledPersist;
+
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+
+        persist(true);
+    }
+
+    @NonNull
+    private Snapshot load() {
+        final Snapshot loaded = storage.read();
+
+        // Another thread may load or even change settings meanwhile, its version wins.
+        snapshot.compareAndSet(null, loaded);
+        return snapshot.get();
     }
 
+    private boolean awaitPreload() {
+        try {
+            return preloaded.await(PRELOAD_AWAIT_TIMEOUT_MS, MILLISECONDS) && snapshot.get() != null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void change(@NonNull Change change) {
+        Snapshot current;
+        Snapshot changed;
+
+        do {
+            current = snapshot();
+            changed = change.apply(current);
+        } while (!snapshot.compareAndSet(current, changed));
+
+        if (changed.equals(current)) {
+            return;
+        }
+
+        if (persistScheduled.compareAndSet(false, true)) {
+            schedulePersist();
+        }
+
+        for (Listener listener : listeners) {
+            listener.onDeveloperSettingsChanged(changed);
+        }
+    }
+
+    private void schedulePersist() {
+        scheduledPersist = scheduler.schedule(dispatchPersistRunnable, PERSIST_DELAY_MS, MILLISECONDS);
+    }
+
+    private void dispatchPersist() {
+        try {
+            persistExecutor.execute(persistRunnable);
+        } catch (RejectedExecutionException e) {
+            // The batch is still pending, it is written after one more delay.
+            schedulePersist();
+        }
+    }
+
+    @WorkerThread
+    private synchronized void persist(boolean durably) {
+        // Reset before reading the snapshot: a change made after this point schedules one more batch.
+        persistScheduled.set(false);
+
+        final Snapshot current = snapshot.get();
+
+        if (current == null || (current.equals(persistedSnapshot) && (persistedDurably || !durably))) {
+            return;
+        }
+
+        if (durably) {
+            storage.writeNow(current);
+        } else {
+            storage.write(current);
+        }
+
+        persistedSnapshot = current;
+        persistedDurably = durably;
+    }
+
+    private interface Change {
+
+        @NonNull
+        Snapshot apply(@NonNull Snapshot current);
+    }
+
+    /**
+     * Immutable state of all developer settings.
+     */
+    public static final class Snapshot {
+
+        final boolean stethoEnabled;
+        final boolean leakCanaryEnabled;
+        final boolean tinyDancerEnabled;
+        final boolean frameTimeRecorderEnabled;
+        final boolean blockDetectorEnabled;
+        final long blockDetectorThresholdMs;
+        final boolean memorySamplerEnabled;
+        final long memorySamplerIntervalMs;
+        final boolean methodTracingEnabled;
+        final int methodTracingIntervalUs;
+        final int methodTracingBufferSizeMb;
+        final int jankTraceFrames;
+        final int strictModeProfile;
+
+        Snapshot(@NonNull Builder builder) {
+            this.stethoEnabled = builder.stethoEnabled;
+            this.leakCanaryEnabled = builder.leakCanaryEnabled;
+            this.tinyDancerEnabled = builder.tinyDancerEnabled;
+            this.frameTimeRecorderEnabled = builder.frameTimeRecorderEnabled;
+            this.blockDetectorEnabled = builder.blockDetectorEnabled;
+            this.blockDetectorThresholdMs = builder.blockDetectorThresholdMs;
+            this.memorySamplerEnabled = builder.memorySamplerEnabled;
+            this.memorySamplerIntervalMs = builder.memorySamplerIntervalMs;
+            this.methodTracingEnabled = builder.methodTracingEnabled;
+            this.methodTracingIntervalUs = builder.methodTracingIntervalUs;
+            this.methodTracingBufferSizeMb = builder.methodTracingBufferSizeMb;
+            this.jankTraceFrames = builder.jankTraceFrames;
+            this.strictModeProfile = builder.strictModeProfile;
+        }
+
+        public boolean isStethoEnabled() {
+            return stethoEnabled;
+        }
+
+        public boolean isLeakCanaryEnabled() {
+            return leakCanaryEnabled;
+        }
+
+        public boolean isTinyDancerEnabled() {
+            return tinyDancerEnabled;
+        }
+
+        public boolean isFrameTimeRecorderEnabled() {
+            return frameTimeRecorderEnabled;
+        }
+
+        public boolean isBlockDetectorEnabled() {
+            return blockDetectorEnabled;
+        }
+
+        public long blockDetectorThresholdMs() {
+            return blockDetectorThresholdMs;
+        }
+
+        public boolean isMemorySamplerEnabled() {
+            return memorySamplerEnabled;
+        }
+
+        public long memorySamplerIntervalMs() {
+            return memorySamplerIntervalMs;
+        }
+
+        public boolean isMethodTracingEnabled() {
+            return methodTracingEnabled;
+        }
+
+        public int methodTracingIntervalUs() {
+            return methodTracingIntervalUs;
+        }
+
+        public int methodTracingBufferSizeMb() {
+            return methodTracingBufferSizeMb;
+        }
+
+        public int jankTraceFrames() {
+            return jankTraceFrames;
+        }
+
+        public int strictModeProfile() {
+            return strictModeProfile;
+        }
+
+        @NonNull
+        public Builder toBuilder() {
+            return new Builder(this);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            final Snapshot that = (Snapshot) o;
+
+            return stethoEnabled == that.stethoEnabled
+                    && leakCanaryEnabled == that.leakCanaryEnabled
+                    && tinyDancerEnabled == that.tinyDancerEnabled
+                    && frameTimeRecorderEnabled == that.frameTimeRecorderEnabled
+                    && blockDetectorEnabled == that.blockDetectorEnabled
+                    && blockDetectorThresholdMs == that.blockDetectorThresholdMs
+                    && memorySamplerEnabled == that.memorySamplerEnabled
+                    && memorySamplerIntervalMs == that.memorySamplerIntervalMs
+                    && methodTracingEnabled == that.methodTracingEnabled
+                    && methodTracingIntervalUs == that.methodTracingIntervalUs
+                    && methodTracingBufferSizeMb == that.methodTracingBufferSizeMb
+                    && jankTraceFrames == that.jankTraceFrames
+                    && strictModeProfile == that.strictModeProfile;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = stethoEnabled ? 1 : 0;
+            result = 31 * result + (leakCanaryEnabled ? 1 : 0);
+            result = 31 * result + (tinyDancerEnabled ? 1 : 0);
+            result = 31 * result + (frameTimeRecorderEnabled ? 1 : 0);
+            result = 31 * result + (blockDetectorEnabled ? 1 : 0);
+            result = 31 * result + (int) (blockDetectorThresholdMs ^ (blockDetectorThresholdMs >>> 32));
+            result = 31 * result + (memorySamplerEnabled ? 1 : 0);
+            result = 31 * result + (int) (memorySamplerIntervalMs ^ (memorySamplerIntervalMs >>> 32));
+            result = 31 * result + (methodTracingEnabled ? 1 : 0);
+            result = 31 * result + methodTracingIntervalUs;
+            result = 31 * result + methodTracingBufferSizeMb;
+            result = 31 * result + jankTraceFrames;
+            result = 31 * result + strictModeProfile;
+            return result;
+        }
+
+        /**
+         * Starts from zeroes and {@code false}, use {@link Snapshot#toBuilder()} of {@link #DEFAULT_SNAPSHOT} to start from defaults.
+         */
+        public static final class Builder {
+
+            private boolean stethoEnabled;
+            private boolean leakCanaryEnabled;
+            private boolean tinyDancerEnabled;
+            private boolean frameTimeRecorderEnabled;
+            private boolean blockDetectorEnabled;
+            private long blockDetectorThresholdMs;
+            private boolean memorySamplerEnabled;
+            private long memorySamplerIntervalMs;
+            private boolean methodTracingEnabled;
+            private int methodTracingIntervalUs;
+            private int methodTracingBufferSizeMb;
+            private int jankTraceFrames;
+            private int strictModeProfile;
+
+            public Builder() {
+            }
+
+            Builder(@NonNull Snapshot snapshot) {
+                stethoEnabled = snapshot.stethoEnabled;
+                leakCanaryEnabled = snapshot.leakCanaryEnabled;
+                tinyDancerEnabled = snapshot.tinyDancerEnabled;
+                frameTimeRecorderEnabled = snapshot.frameTimeRecorderEnabled;
+                blockDetectorEnabled = snapshot.blockDetectorEnabled;
+                blockDetectorThresholdMs = snapshot.blockDetectorThresholdMs;
+                memorySamplerEnabled = snapshot.memorySamplerEnabled;
+                memorySamplerIntervalMs = snapshot.memorySamplerIntervalMs;
+                methodTracingEnabled = snapshot.methodTracingEnabled;
+                methodTracingIntervalUs = snapshot.methodTracingIntervalUs;
+                methodTracingBufferSizeMb = snapshot.methodTracingBufferSizeMb;
+                jankTraceFrames = snapshot.jankTraceFrames;
+                strictModeProfile = snapshot.strictModeProfile;
+            }
+
+            @NonNull
+            public Builder setStethoEnabled(boolean stethoEnabled) {
+                this.stethoEnabled = stethoEnabled;
+                return this;
+            }
+
+            @NonNull
+            public Builder setLeakCanaryEnabled(boolean leakCanaryEnabled) {
+                this.leakCanaryEnabled = leakCanaryEnabled;
+                return this;
+            }
+
+            @NonNull
+            public Builder setTinyDancerEnabled(boolean tinyDancerEnabled) {
+                this.tinyDancerEnabled = tinyDancerEnabled;
+                return this;
+            }
+
+            @NonNull
+            public Builder setFrameTimeRecorderEnabled(boolean frameTimeRecorderEnabled) {
+                this.frameTimeRecorderEnabled = frameTimeRecorderEnabled;
+                return this;
+            }
+
+            @NonNull
+            public Builder setBlockDetectorEnabled(boolean blockDetectorEnabled) {
+                this.blockDetectorEnabled = blockDetectorEnabled;
+                return this;
+            }
+
+            @NonNull
+            public Builder setBlockDetectorThresholdMs(long blockDetectorThresholdMs) {
+                this.blockDetectorThresholdMs = blockDetectorThresholdMs;
+                return this;
+            }
+
+            @NonNull
+            public Builder setMemorySamplerEnabled(boolean memorySamplerEnabled) {
+                this.memorySamplerEnabled = memorySamplerEnabled;
+                return this;
+            }
+
+            @NonNull
+            public Builder setMemorySamplerIntervalMs(long memorySamplerIntervalMs) {
+                this.memorySamplerIntervalMs = memorySamplerIntervalMs;
+                return this;
+            }
+
+            @NonNull
+            public Builder setMethodTracingEnabled(boolean methodTracingEnabled) {
+                this.methodTracingEnabled = methodTracingEnabled;
+                return this;
+            }
+
+            @NonNull
+            public Builder setMethodTracingIntervalUs(int methodTracingIntervalUs) {
+                this.methodTracingIntervalUs = methodTracingIntervalUs;
+                return this;
+            }
+
+            @NonNull
+            public Builder setMethodTracingBufferSizeMb(int methodTracingBufferSizeMb) {
+                this.methodTracingBufferSizeMb = methodTracingBufferSizeMb;
+                return this;
+            }
+
+            @NonNull
+            public Builder setJankTraceFrames(int jankTraceFrames) {
+                this.jankTraceFrames = jankTraceFrames;
+                return this;
+            }
+
+            @NonNull
+            public Builder setStrictModeProfile(int strictModeProfile) {
+                this.strictModeProfile = strictModeProfile;
+                return this;
+            }
+
+            @NonNull
+            public Snapshot build() {
+                return new Snapshot(this);
+            }
+        }
+    }
 }
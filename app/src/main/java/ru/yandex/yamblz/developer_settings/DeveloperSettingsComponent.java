@@ -3,10 +3,13 @@ package ru.yandex.yamblz.developer_settings;
 import android.support.annotation.NonNull;
 
 import ru.yandex.yamblz.ui.fragments.DeveloperSettingsFragment;
+import ru.yandex.yamblz.ui.fragments.LogViewerFragment;
 
 import dagger.Subcomponent;
 
 @Subcomponent
 public interface DeveloperSettingsComponent {
     void inject(@NonNull DeveloperSettingsFragment developerSettingsFragment);
+
+    void inject(@NonNull LogViewerFragment logViewerFragment);
 }
@@ -1,9 +1,22 @@
 package ru.yandex.yamblz.developer_settings;
 
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+import ru.yandex.yamblz.startup.StartupTask;
+
 public interface DeveloperSettingsModel {
 
     /**
-     * Applies developer settings to the app.
+     * Name of the task which loads developer settings, other startup tasks may depend on it.
+     */
+    @NonNull
+    String TASK_DEVELOPER_SETTINGS = "developer_settings";
+
+    /**
+     * Tasks which apply developer settings to the app, so the work can be deferred and parallelized during app startup.
      */
-    void apply();
+    @NonNull
+    List<StartupTask> startupTasks();
 }
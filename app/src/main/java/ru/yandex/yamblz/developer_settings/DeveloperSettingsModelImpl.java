@@ -1,46 +1,108 @@
 package ru.yandex.yamblz.developer_settings;
 
-import android.app.Application;
+import android.os.Handler;
 import android.support.annotation.NonNull;
-import android.util.DisplayMetrics;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
 
-import com.codemonkeylabs.fpslibrary.TinyDancer;
-import com.facebook.stetho.Stetho;
-
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.io.File;
+import java.util.List;
 
+import dagger.Lazy;
 import ru.yandex.yamblz.BuildConfig;
-import timber.log.Timber;
+import ru.yandex.yamblz.executors.AppExecutors;
+import ru.yandex.yamblz.performance.FrameTimeRecorder;
+import ru.yandex.yamblz.performance.MemorySampler;
+import ru.yandex.yamblz.performance.ThreadContractTracker;
+import ru.yandex.yamblz.startup.StartupTask;
 
-import static android.view.Gravity.START;
-import static android.view.Gravity.TOP;
+import static java.util.Arrays.asList;
+import static ru.yandex.yamblz.startup.StartupTask.Dispatcher.BACKGROUND;
+import static ru.yandex.yamblz.startup.StartupTask.Dispatcher.MAIN_IDLE;
 
 public class DeveloperSettingsModelImpl implements DeveloperSettingsModel {
 
+    private static final String TASK_STETHO = "stetho";
+    private static final String TASK_LEAK_CANARY = "leak_canary";
+    private static final String TASK_TINY_DANCER = "tiny_dancer";
+    private static final String TASK_FRAME_TIME_RECORDER = "frame_time_recorder";
+    private static final String TASK_BLOCK_DETECTOR = "block_detector";
+    private static final String TASK_MEMORY_SAMPLER = "memory_sampler";
+    private static final String TASK_METHOD_TRACING = "method_tracing";
+    private static final String TASK_STRICT_MODE = "strict_mode";
+
+    public interface ExportCallback {
+
+        /**
+         * @param file exported file, {@code null} if it could not be written.
+         */
+        @WorkerThread
+        void onExported(@Nullable File file);
+    }
+
+    // Tools are lazy: model is created in App.onCreate, but tools are only needed once their startup tasks run.
+    @NonNull
+    private final Lazy<DeveloperSettings> developerSettings;
+
+    @NonNull
+    private final Lazy<LeakCanaryProxy> leakCanaryProxy;
+
+    // Not lazy: recorder has to see the first activity resume to know what to record later.
+    @NonNull
+    private final FrameTimeRecorder frameTimeRecorder;
+
+    @NonNull
+    private final Lazy<BlockDetectorProxy> blockDetectorProxy;
+
+    @NonNull
+    private final Lazy<StethoProxy> stethoProxy;
+
+    @NonNull
+    private final Lazy<TinyDancerProxy> tinyDancerProxy;
+
+    // Its serial lane switches tools, so their initialization never blocks the settings screen.
     @NonNull
-    private final Application application;
+    private final AppExecutors appExecutors;
 
     @NonNull
-    private final DeveloperSettings developerSettings;
+    private final Handler mainThreadHandler;
 
     @NonNull
-    private final LeakCanaryProxy leakCanaryProxy;
+    private final ThreadContractTracker threadContractTracker;
 
     @NonNull
-    private final AtomicBoolean stethoAlreadyEnabled = new AtomicBoolean();
+    private final Lazy<MemorySampler> memorySampler;
 
     @NonNull
-    private final AtomicBoolean leakCanaryAlreadyEnabled = new AtomicBoolean();
+    private final Lazy<MethodTracingController> methodTracingController;
 
     @NonNull
-    private final AtomicBoolean tinyDancerDisplayed = new AtomicBoolean();
+    private final Lazy<StrictModeProxy> strictModeProxy;
 
-    public DeveloperSettingsModelImpl(@NonNull Application application,
-                                      @NonNull DeveloperSettings developerSettings,
-                                      @NonNull LeakCanaryProxy leakCanaryProxy) {
-        this.application = application;
+    public DeveloperSettingsModelImpl(@NonNull Lazy<DeveloperSettings> developerSettings,
+                                      @NonNull Lazy<LeakCanaryProxy> leakCanaryProxy,
+                                      @NonNull FrameTimeRecorder frameTimeRecorder,
+                                      @NonNull Lazy<BlockDetectorProxy> blockDetectorProxy,
+                                      @NonNull Lazy<StethoProxy> stethoProxy,
+                                      @NonNull Lazy<TinyDancerProxy> tinyDancerProxy,
+                                      @NonNull AppExecutors appExecutors,
+                                      @NonNull Handler mainThreadHandler,
+                                      @NonNull ThreadContractTracker threadContractTracker,
+                                      @NonNull Lazy<MemorySampler> memorySampler,
+                                      @NonNull Lazy<MethodTracingController> methodTracingController,
+                                      @NonNull Lazy<StrictModeProxy> strictModeProxy) {
         this.developerSettings = developerSettings;
         this.leakCanaryProxy = leakCanaryProxy;
+        this.frameTimeRecorder = frameTimeRecorder;
+        this.blockDetectorProxy = blockDetectorProxy;
+        this.stethoProxy = stethoProxy;
+        this.tinyDancerProxy = tinyDancerProxy;
+        this.appExecutors = appExecutors;
+        this.mainThreadHandler = mainThreadHandler;
+        this.threadContractTracker = threadContractTracker;
+        this.memorySampler = memorySampler;
+        this.methodTracingController = methodTracingController;
+        this.strictModeProxy = strictModeProxy;
     }
 
     @NonNull
@@ -54,61 +116,304 @@ public class DeveloperSettingsModelImpl implements DeveloperSettingsModel {
     }
 
     public boolean isStethoEnabled() {
-        return developerSettings.isStethoEnabled();
+        return developerSettings.get().isStethoEnabled();
     }
 
-    public void changeStethoState(boolean enabled) {
-        developerSettings.saveIsStethoEnabled(enabled);
-        apply();
+    /**
+     * Saves the setting right away and starts Stetho in background.
+     *
+     * @param onApplied called on a background thread once Stetho is switched.
+     */
+    public void changeStethoState(boolean enabled, @NonNull Runnable onApplied) {
+        developerSettings.get().saveIsStethoEnabled(enabled);
+        appExecutors.serial().execute(() -> {
+            applyStetho();
+            onApplied.run();
+        });
+    }
+
+    /**
+     * @return true if Stetho runs in this process, it keeps running until restart even after it's disabled.
+     */
+    public boolean isStethoRunning() {
+        return stethoProxy.get().isRunning();
     }
 
     public boolean isLeakCanaryEnabled() {
-        return developerSettings.isLeakCanaryEnabled();
+        return developerSettings.get().isLeakCanaryEnabled();
     }
 
-    public void changeLeakCanaryState(boolean enabled) {
-        developerSettings.saveIsLeakCanaryEnabled(enabled);
-        apply();
+    /**
+     * Saves the setting right away and switches LeakCanary in background.
+     *
+     * @param onApplied called on a background thread once LeakCanary is switched.
+     */
+    public void changeLeakCanaryState(boolean enabled, @NonNull Runnable onApplied) {
+        developerSettings.get().saveIsLeakCanaryEnabled(enabled);
+        appExecutors.serial().execute(() -> {
+            applyLeakCanary();
+            onApplied.run();
+        });
     }
 
     public boolean isTinyDancerEnabled() {
-        return developerSettings.isTinyDancerEnabled();
+        return developerSettings.get().isTinyDancerEnabled();
+    }
+
+    /**
+     * Saves the setting right away and switches TinyDancer after the current frame.
+     * TinyDancer adds a window, so unlike other tools it has to be switched on the main thread.
+     *
+     * @param onApplied called on the main thread once TinyDancer is switched.
+     */
+    public void changeTinyDancerState(boolean enabled, @NonNull Runnable onApplied) {
+        developerSettings.get().saveIsTinyDancerEnabled(enabled);
+        mainThreadHandler.post(() -> {
+            applyTinyDancer();
+            onApplied.run();
+        });
+    }
+
+    public boolean isFrameTimeRecorderEnabled() {
+        return developerSettings.get().isFrameTimeRecorderEnabled();
+    }
+
+    public void changeFrameTimeRecorderState(boolean enabled) {
+        developerSettings.get().saveIsFrameTimeRecorderEnabled(enabled);
+        applyFrameTimeRecorder();
+    }
+
+    @NonNull
+    public String getFrameTimeReport() {
+        return frameTimeRecorder.report();
     }
 
-    public void changeTinyDancerState(boolean enabled) {
-        developerSettings.saveIsTinyDancerEnabled(enabled);
-        apply();
+    public void resetFrameTimeReport() {
+        frameTimeRecorder.reset();
     }
 
+    public boolean isBlockDetectorEnabled() {
+        return developerSettings.get().isBlockDetectorEnabled();
+    }
+
+    public void changeBlockDetectorState(boolean enabled) {
+        developerSettings.get().saveIsBlockDetectorEnabled(enabled);
+        applyBlockDetector();
+    }
+
+    public long getBlockDetectorThresholdMs() {
+        return developerSettings.get().blockDetectorThresholdMs();
+    }
+
+    public void changeBlockDetectorThresholdMs(long thresholdMs) {
+        developerSettings.get().saveBlockDetectorThresholdMs(thresholdMs);
+        applyBlockDetector();
+    }
+
+    public boolean isMemorySamplerEnabled() {
+        return developerSettings.get().isMemorySamplerEnabled();
+    }
+
+    public void changeMemorySamplerState(boolean enabled) {
+        developerSettings.get().saveIsMemorySamplerEnabled(enabled);
+        applyMemorySampler();
+    }
+
+    public long getMemorySamplerIntervalMs() {
+        return developerSettings.get().memorySamplerIntervalMs();
+    }
+
+    public void changeMemorySamplerIntervalMs(long intervalMs) {
+        developerSettings.get().saveMemorySamplerIntervalMs(intervalMs);
+        applyMemorySampler();
+    }
+
+    @NonNull
+    public String getMemoryReport() {
+        return memorySampler.get().report();
+    }
+
+    /**
+     * @param listener called on an io thread after every sample while the sampler is enabled.
+     */
+    public void addMemorySampleListener(@NonNull MemorySampler.Listener listener) {
+        memorySampler.get().addListener(listener);
+    }
+
+    public void removeMemorySampleListener(@NonNull MemorySampler.Listener listener) {
+        memorySampler.get().removeListener(listener);
+    }
+
+    /**
+     * Writes recorded memory samples to a file on the io executor.
+     */
+    public void exportMemorySamples(@NonNull ExportCallback callback) {
+        appExecutors.io().execute(() -> callback.onExported(memorySampler.get().export()));
+    }
+
+    public boolean isMethodTracingEnabled() {
+        return developerSettings.get().isMethodTracingEnabled();
+    }
+
+    /**
+     * Saves the setting right away and starts or stops the trace in background: stopping writes the whole buffer to disk.
+     */
+    public void changeMethodTracingState(boolean enabled) {
+        developerSettings.get().saveIsMethodTracingEnabled(enabled);
+        appExecutors.serial().execute(this::applyMethodTracing);
+    }
+
+    public int getMethodTracingIntervalUs() {
+        return developerSettings.get().methodTracingIntervalUs();
+    }
+
+    public void changeMethodTracingIntervalUs(int intervalUs) {
+        developerSettings.get().saveMethodTracingIntervalUs(intervalUs);
+        appExecutors.serial().execute(this::applyMethodTracing);
+    }
+
+    public int getMethodTracingBufferSizeMb() {
+        return developerSettings.get().methodTracingBufferSizeMb();
+    }
+
+    public void changeMethodTracingBufferSizeMb(int bufferSizeMb) {
+        developerSettings.get().saveMethodTracingBufferSizeMb(bufferSizeMb);
+        appExecutors.serial().execute(this::applyMethodTracing);
+    }
+
+    /**
+     * @return number of janky frames in a row which start a trace of {@link MethodTracingController#JANK_TRACE_DURATION_MS}, 0 if it's off.
+     */
+    public int getJankTraceFrames() {
+        return developerSettings.get().jankTraceFrames();
+    }
+
+    /**
+     * Janky frames are only seen while the frame time recorder is enabled.
+     */
+    public void changeJankTraceFrames(int frames) {
+        developerSettings.get().saveJankTraceFrames(frames);
+        methodTracingController.get().applyJankTrace();
+    }
+
+    @NonNull
+    public String getMethodTracingReport() {
+        return methodTracingController.get().report();
+    }
+
+    /**
+     * @return one of {@link StrictModeProxy} profiles.
+     */
+    public int getStrictModeProfile() {
+        return developerSettings.get().strictModeProfile();
+    }
+
+    /**
+     * Saves the setting right away and applies the profile after the current frame: thread policy is set per thread,
+     * so it has to be set on the main thread.
+     */
+    public void changeStrictModeProfile(int profile) {
+        developerSettings.get().saveStrictModeProfile(profile);
+        mainThreadHandler.post(this::applyStrictMode);
+    }
+
+    @NonNull
+    public String getStrictModeReport() {
+        return strictModeProxy.get().report();
+    }
+
+    public void resetStrictModeReport() {
+        strictModeProxy.get().resetReport();
+    }
+
+    public void addSettingsListener(@NonNull DeveloperSettings.Listener listener) {
+        developerSettings.get().addListener(listener);
+    }
+
+    public void removeSettingsListener(@NonNull DeveloperSettings.Listener listener) {
+        developerSettings.get().removeListener(listener);
+    }
+
+    /**
+     * Writes batched changes to disk right away, call it before the process is killed.
+     */
+    public void persistSettings() {
+        developerSettings.get().persistNow();
+    }
+
+    @NonNull
+    public String getBlockReport() {
+        return blockDetectorProxy.get().report();
+    }
+
+    @NonNull
+    public String getExecutorsReport() {
+        return appExecutors.report();
+    }
+
+    @NonNull
+    public String getThreadContractsReport() {
+        return threadContractTracker.report();
+    }
+
+    @NonNull
     @Override
-    public void apply() {
-        // Stetho can not be enabled twice.
-        if (stethoAlreadyEnabled.compareAndSet(false, true) && isStethoEnabled()) {
-            Stetho.initializeWithDefaults(application);
+    public List<StartupTask> startupTasks() {
+        return asList(
+                // Reading settings touches the disk, so do it once in background for all tools and the settings screen.
+                new StartupTask(TASK_DEVELOPER_SETTINGS, BACKGROUND, () -> developerSettings.get().preload()),
+                new StartupTask(TASK_STETHO, BACKGROUND, this::applyStetho, TASK_DEVELOPER_SETTINGS),
+                new StartupTask(TASK_BLOCK_DETECTOR, BACKGROUND, this::applyBlockDetector, TASK_DEVELOPER_SETTINGS),
+                new StartupTask(TASK_MEMORY_SAMPLER, BACKGROUND, this::applyMemorySampler, TASK_DEVELOPER_SETTINGS),
+                new StartupTask(TASK_METHOD_TRACING, BACKGROUND, this::applyMethodTracing, TASK_DEVELOPER_SETTINGS),
+                new StartupTask(TASK_LEAK_CANARY, MAIN_IDLE, this::applyLeakCanary, TASK_DEVELOPER_SETTINGS),
+                new StartupTask(TASK_TINY_DANCER, MAIN_IDLE, this::applyTinyDancer, TASK_DEVELOPER_SETTINGS),
+                new StartupTask(TASK_FRAME_TIME_RECORDER, MAIN_IDLE, this::applyFrameTimeRecorder, TASK_DEVELOPER_SETTINGS),
+                new StartupTask(TASK_STRICT_MODE, MAIN_IDLE, this::applyStrictMode, TASK_DEVELOPER_SETTINGS)
+        );
+    }
+
+    private void applyStetho() {
+        stethoProxy.get().setEnabled(isStethoEnabled());
+    }
+
+    private void applyLeakCanary() {
+        leakCanaryProxy.get().setEnabled(isLeakCanaryEnabled());
+    }
+
+    private void applyTinyDancer() {
+        tinyDancerProxy.get().setEnabled(isTinyDancerEnabled());
+    }
+
+    private void applyFrameTimeRecorder() {
+        if (isFrameTimeRecorderEnabled()) {
+            frameTimeRecorder.start();
+        } else {
+            frameTimeRecorder.stop();
         }
+    }
 
-        // LeakCanary can not be enabled twice.
-        if (leakCanaryAlreadyEnabled.compareAndSet(false, true) && isLeakCanaryEnabled()) {
-            leakCanaryProxy.init();
+    private void applyBlockDetector() {
+        if (isBlockDetectorEnabled()) {
+            blockDetectorProxy.get().start(getBlockDetectorThresholdMs());
+        } else {
+            blockDetectorProxy.get().stop();
         }
+    }
 
-        if (isTinyDancerEnabled() && tinyDancerDisplayed.compareAndSet(false, true)) {
-            final DisplayMetrics displayMetrics = application.getResources().getDisplayMetrics();
-
-            TinyDancer.create()
-                    .redFlagPercentage(0.2f)
-                    .yellowFlagPercentage(0.05f)
-                    .startingGravity(TOP | START)
-                    .startingXPosition(displayMetrics.widthPixels / 10)
-                    .startingYPosition(displayMetrics.heightPixels / 4)
-                    .show(application);
-        } else if (tinyDancerDisplayed.compareAndSet(true, false)) {
-            try {
-                TinyDancer.hide(application);
-            } catch (Exception e) {
-                // In some cases TinyDancer can not be hidden without exception: for example when you start it first time on Android 6.
-                Timber.e(e, "Can not hide TinyDancer");
-            }
+    private void applyMemorySampler() {
+        if (isMemorySamplerEnabled()) {
+            memorySampler.get().start(getMemorySamplerIntervalMs());
+        } else {
+            memorySampler.get().stop();
         }
     }
+
+    private void applyMethodTracing() {
+        methodTracingController.get().apply();
+    }
+
+    private void applyStrictMode() {
+        strictModeProxy.get().apply(getStrictModeProfile());
+    }
 }
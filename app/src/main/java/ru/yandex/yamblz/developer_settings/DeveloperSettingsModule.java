@@ -1,17 +1,33 @@
 package ru.yandex.yamblz.developer_settings;
 
 import android.app.Application;
+import android.os.Handler;
 import android.support.annotation.NonNull;
 
-import com.github.pedrovgs.lynx.LynxConfig;
+import java.io.File;
+import java.util.concurrent.Executor;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import dagger.Lazy;
 import dagger.Module;
 import dagger.Provides;
+import ru.yandex.yamblz.ApplicationModule;
+import ru.yandex.yamblz.executors.AppExecutors;
+import ru.yandex.yamblz.logging.LogIndex;
+import ru.yandex.yamblz.logging.MappedLogFile;
+import ru.yandex.yamblz.performance.FrameTimeRecorder;
+import ru.yandex.yamblz.performance.InstanceTracker;
+import ru.yandex.yamblz.performance.MainThreadDiskReadListener;
+import ru.yandex.yamblz.performance.MemorySampler;
+import ru.yandex.yamblz.performance.StrictModeDiskReadReporter;
+import ru.yandex.yamblz.performance.ThreadContractTracker;
+import ru.yandex.yamblz.performance.ViolationCounter;
+import ru.yandex.yamblz.ui.other.AsyncViewInflater;
 import ru.yandex.yamblz.ui.other.ViewModifier;
 import ru.yandex.yamblz.ui.presenters.DeveloperSettingsPresenter;
+import ru.yandex.yamblz.ui.presenters.LogViewerPresenter;
 
 import static android.content.Context.MODE_PRIVATE;
 
@@ -21,6 +37,8 @@ public class DeveloperSettingsModule {
     @NonNull
     public static final String MAIN_ACTIVITY_VIEW_MODIFIER = "main_activity_view_modifier";
 
+    private static final int MAX_VIOLATION_SIGNATURES = 100;
+
     @Provides
     @NonNull
     @Named(MAIN_ACTIVITY_VIEW_MODIFIER)
@@ -37,37 +55,161 @@ public class DeveloperSettingsModule {
     @Provides
     @NonNull
     @Singleton
-    public DeveloperSettings provideDeveloperSettings(@NonNull Application application) {
-        return new DeveloperSettings(application.getSharedPreferences("developer_settings", MODE_PRIVATE));
+    public DeveloperSettings provideDeveloperSettings(@NonNull TimedSettingsStorage storage,
+                                                      @NonNull AppExecutors appExecutors,
+                                                      @NonNull MainThreadDiskReadListener diskReadListener) {
+        // Batches are written one by one off the main thread.
+        return new DeveloperSettings(storage, appExecutors.scheduler(), appExecutors.serial(), diskReadListener);
+    }
+
+    // Singleton: latency counters are read by PerformanceDumperPlugin.
+    @Provides
+    @NonNull
+    @Singleton
+    public TimedSettingsStorage provideDeveloperSettingsStorage(@NonNull Application application) {
+        // Settings used to live in SharedPreferences, they are migrated to the mapped file on the first read.
+        final DeveloperSettingsStorage legacyStorage = new SharedPreferencesSettingsStorage(application.getSharedPreferences("developer_settings", MODE_PRIVATE));
+        final File file = new File(application.getFilesDir(), "developer_settings.bin");
+        return new TimedSettingsStorage(new MappedFileSettingsStorage(file, legacyStorage));
+    }
+
+    @Provides
+    @NonNull
+    public MainThreadDiskReadListener provideMainThreadDiskReadListener(@NonNull ViolationCounter violationCounter,
+                                                                        @NonNull AppExecutors appExecutors) {
+        // Folding the stack is CPU work, and a read which is not counted under load is better than a queue of them.
+        return new StrictModeDiskReadReporter(violationCounter, appExecutors.computation()::tryExecute);
+    }
+
+    // Singleton: violations are counted for the whole process, not per settings screen.
+    @Provides
+    @NonNull
+    @Singleton
+    public ViolationCounter provideViolationCounter() {
+        return new ViolationCounter(MAX_VIOLATION_SIGNATURES);
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    public StrictModeProxy provideStrictModeProxy(@NonNull ViolationCounter violationCounter, @NonNull AppExecutors appExecutors) {
+        // A violation repeated on every frame would fill any queue, dropped ones are still in logcat.
+        return new StrictModeProxyImpl(violationCounter, appExecutors.computation()::tryExecute);
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    public LeakCanaryProxy provideLeakCanaryProxy(@NonNull Application application, @NonNull AppExecutors appExecutors) {
+        return new LeakCanaryProxyImpl(application, appExecutors.scheduler(), appExecutors.computation());
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    public FrameTimeRecorder provideFrameTimeRecorder(@NonNull Application application) {
+        return new FrameTimeRecorder(application);
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    public BlockDetectorProxy provideBlockDetectorProxy(@NonNull Application application, @NonNull AppExecutors appExecutors) {
+        return new BlockDetectorProxyImpl(application, appExecutors.computation()::tryExecute, appExecutors.io()::tryExecute);
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    public StethoProxy provideStethoProxy(@NonNull Application application, @NonNull Lazy<PerformanceDumperPlugin> performanceDumperPlugin) {
+        return new StethoProxyImpl(application, performanceDumperPlugin);
+    }
+
+    @Provides
+    @NonNull
+    public PerformanceDumperPlugin providePerformanceDumperPlugin(@NonNull FrameTimeRecorder frameTimeRecorder,
+                                                                  @NonNull AppExecutors appExecutors,
+                                                                  @NonNull TimedSettingsStorage settingsStorage,
+                                                                  @NonNull MemorySampler memorySampler,
+                                                                  @NonNull AsyncViewInflater asyncViewInflater) {
+        return new PerformanceDumperPlugin(frameTimeRecorder, appExecutors, settingsStorage, memorySampler, asyncViewInflater);
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    public TinyDancerProxy provideTinyDancerProxy(@NonNull Application application) {
+        return new TinyDancerProxyImpl(application);
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    public MemorySampler provideMemorySampler(@NonNull Application application, @NonNull AppExecutors appExecutors) {
+        return new MemorySampler(application, appExecutors.scheduler(), appExecutors.io());
+    }
+
+    @Provides
+    @NonNull
+    @Singleton
+    public MethodTracingProxy provideMethodTracingProxy(@NonNull Application application) {
+        return new MethodTracingProxyImpl(application);
     }
 
     @Provides
     @NonNull
     @Singleton
-    public LeakCanaryProxy provideLeakCanaryProxy(@NonNull Application application) {
-        return new LeakCanaryProxyImpl(application);
+    public MethodTracingController provideMethodTracingController(@NonNull Lazy<DeveloperSettings> developerSettings,
+                                                                  @NonNull Lazy<MethodTracingProxy> methodTracingProxy,
+                                                                  @NonNull FrameTimeRecorder frameTimeRecorder,
+                                                                  @NonNull AppExecutors appExecutors,
+                                                                  @NonNull @Named(ApplicationModule.MAIN_THREAD_HANDLER) Handler mainThreadHandler) {
+        return new MethodTracingController(developerSettings, methodTracingProxy, frameTimeRecorder, appExecutors, mainThreadHandler);
     }
 
     // We will use this concrete type for debug code, but main code will see only DeveloperSettingsModel interface.
     @Provides
     @NonNull
     @Singleton
-    public DeveloperSettingsModelImpl provideDeveloperSettingsModelImpl(@NonNull Application application,
-                                                                        @NonNull DeveloperSettings developerSettings,
-                                                                        @NonNull LeakCanaryProxy leakCanaryProxy) {
-        return new DeveloperSettingsModelImpl(application, developerSettings, leakCanaryProxy);
+    public DeveloperSettingsModelImpl provideDeveloperSettingsModelImpl(@NonNull Lazy<DeveloperSettings> developerSettings,
+                                                                        @NonNull Lazy<LeakCanaryProxy> leakCanaryProxy,
+                                                                        @NonNull FrameTimeRecorder frameTimeRecorder,
+                                                                        @NonNull Lazy<BlockDetectorProxy> blockDetectorProxy,
+                                                                        @NonNull Lazy<StethoProxy> stethoProxy,
+                                                                        @NonNull Lazy<TinyDancerProxy> tinyDancerProxy,
+                                                                        @NonNull AppExecutors appExecutors,
+                                                                        @NonNull @Named(ApplicationModule.MAIN_THREAD_HANDLER) Handler mainThreadHandler,
+                                                                        @NonNull ThreadContractTracker threadContractTracker,
+                                                                        @NonNull Lazy<MemorySampler> memorySampler,
+                                                                        @NonNull Lazy<MethodTracingController> methodTracingController,
+                                                                        @NonNull Lazy<StrictModeProxy> strictModeProxy) {
+        return new DeveloperSettingsModelImpl(developerSettings, leakCanaryProxy, frameTimeRecorder, blockDetectorProxy, stethoProxy, tinyDancerProxy,
+                appExecutors, mainThreadHandler, threadContractTracker, memorySampler, methodTracingController, strictModeProxy);
     }
 
     @Provides
     @NonNull
-    public DeveloperSettingsPresenter provideDeveloperSettingsPresenter(@NonNull DeveloperSettingsModelImpl developerSettingsModelImpl) {
-        return new DeveloperSettingsPresenter(developerSettingsModelImpl);
+    public DeveloperSettingsPresenter provideDeveloperSettingsPresenter(@NonNull DeveloperSettingsModelImpl developerSettingsModelImpl,
+                                                                        @NonNull InstanceTracker instanceTracker) {
+        return new DeveloperSettingsPresenter(developerSettingsModelImpl, instanceTracker);
     }
 
+    // Singleton: the index is kept up to date incrementally, so it outlives log viewer screens.
     @NonNull
     @Provides
-    public LynxConfig provideLynxConfig() {
-        return new LynxConfig();
+    @Singleton
+    public LogIndex provideLogIndex(@NonNull MappedLogFile mappedLogFile) {
+        return new LogIndex(mappedLogFile);
+    }
+
+    @Provides
+    @NonNull
+    public LogViewerPresenter provideLogViewerPresenter(@NonNull LogIndex logIndex,
+                                                        @NonNull @Named(ApplicationModule.SERIAL_EXECUTOR) Executor serialExecutor,
+                                                        @NonNull @Named(ApplicationModule.MAIN_THREAD_HANDLER) Handler mainThreadHandler,
+                                                        @NonNull InstanceTracker instanceTracker) {
+        // Serial: the index and the filter are not thread safe.
+        return new LogViewerPresenter(logIndex, serialExecutor, mainThreadHandler, instanceTracker);
     }
 
     @NonNull
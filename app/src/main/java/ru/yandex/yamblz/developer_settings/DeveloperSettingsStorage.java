@@ -0,0 +1,35 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+/**
+ * Persistent storage behind {@link DeveloperSettings}, it only deals with whole snapshots:
+ * batching, caching and notifications are done by {@link DeveloperSettings}.
+ */
+public interface DeveloperSettingsStorage {
+
+    /**
+     * May touch the disk on the first call.
+     *
+     * @return stored settings or {@link DeveloperSettings#DEFAULT_SNAPSHOT} if nothing was stored yet.
+     */
+    @WorkerThread
+    @NonNull
+    DeveloperSettings.Snapshot read();
+
+    /**
+     * May finish the write in background, use {@link #writeNow(DeveloperSettings.Snapshot)} when it has to be durable.
+     */
+    void write(@NonNull DeveloperSettings.Snapshot snapshot);
+
+    /**
+     * Blocks until the snapshot is on disk, so it survives the process being killed right after.
+     */
+    void writeNow(@NonNull DeveloperSettings.Snapshot snapshot);
+
+    /**
+     * Removes everything stored, next {@link #read()} returns defaults.
+     */
+    void clear();
+}
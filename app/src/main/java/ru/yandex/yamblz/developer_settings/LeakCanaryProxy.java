@@ -9,6 +9,12 @@ import android.support.annotation.NonNull;
  * use in debug builds but not in release. Also, this interface is tinier than LeakCanary's no-op one.
  */
 public interface LeakCanaryProxy {
-    void init();
+
+    /**
+     * Starts or stops watching destroyed activities and objects passed to {@link #watch(Object)}.
+     * Can be switched any number of times without restarting the app.
+     */
+    void setEnabled(boolean enabled);
+
     void watch(@NonNull Object object);
 }
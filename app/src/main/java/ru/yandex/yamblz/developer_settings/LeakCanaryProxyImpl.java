@@ -4,29 +4,94 @@ import android.app.Application;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.squareup.leakcanary.ActivityRefWatcher;
+import com.squareup.leakcanary.AndroidExcludedRefs;
+import com.squareup.leakcanary.DisplayLeakService;
 import com.squareup.leakcanary.LeakCanary;
 import com.squareup.leakcanary.RefWatcher;
 
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Watches destroyed objects with a {@link RetainedObjectWatcher} first and hands them to LeakCanary
+ * only when {@link #RETAINED_THRESHOLD} of them survive a GC, so destroying screens does not wait for leak detection.
+ */
 public class LeakCanaryProxyImpl implements LeakCanaryProxy {
 
+    // One retained fragment may still be waiting for a transition to finish, several of them are a pattern.
+    static final int RETAINED_THRESHOLD = 3;
+
     @NonNull
     private final Application yamblzApp;
 
+    @NonNull
+    private final RetainedObjectWatcher retainedObjectWatcher;
+
+    // Built once: LeakCanary.install() can not be undone, so we do what it does ourselves but keep the switch.
+    @Nullable
+    private volatile RefWatcher refWatcher;
+
     @Nullable
-    private RefWatcher refWatcher;
+    private ActivityRefWatcher activityRefWatcher;
+
+    private volatile boolean enabled;
 
-    public LeakCanaryProxyImpl(@NonNull Application yamblzApp) {
+    /**
+     * @param executor runs leak checks, keep it off the io pool: a forced GC holds a thread for a while.
+     */
+    public LeakCanaryProxyImpl(@NonNull Application yamblzApp, @NonNull ScheduledExecutorService scheduler, @NonNull Executor executor) {
         this.yamblzApp = yamblzApp;
+        this.retainedObjectWatcher = new RetainedObjectWatcher(RETAINED_THRESHOLD, RetainedObjectWatcher.DEFAULT_RETAIN_DELAY_MS, this::onObjectsRetained,
+                scheduler, executor);
     }
 
     @Override
-    public void init() {
-        refWatcher = LeakCanary.install(yamblzApp);
+    public synchronized void setEnabled(boolean enabled) {
+        if (this.enabled == enabled) {
+            return; // no-op
+        }
+
+        if (enabled) {
+            if (activityRefWatcher == null) {
+                final RefWatcher refWatcher = LeakCanary.refWatcher(yamblzApp)
+                        .listenerServiceClass(DisplayLeakService.class)
+                        .excludedRefs(AndroidExcludedRefs.createAppDefaults().build())
+                        .build();
+
+                LeakCanary.enableDisplayLeakActivity(yamblzApp);
+                activityRefWatcher = new ActivityRefWatcher(yamblzApp, refWatcher);
+                this.refWatcher = refWatcher;
+            }
+
+            activityRefWatcher.watchActivities();
+            retainedObjectWatcher.start();
+        } else if (activityRefWatcher != null) {
+            // Objects which are already handed to LeakCanary are still analyzed, only new ones are ignored.
+            activityRefWatcher.stopWatchingActivities();
+            retainedObjectWatcher.stop();
+        }
+
+        this.enabled = enabled;
     }
 
     @Override
     public void watch(@NonNull Object object) {
-        if (refWatcher != null) {
+        if (enabled) {
+            retainedObjectWatcher.watch(object);
+        }
+    }
+
+    private void onObjectsRetained(@NonNull List<Object> retainedObjects) {
+        final RefWatcher refWatcher = this.refWatcher;
+
+        if (!enabled || refWatcher == null) {
+            return;
+        }
+
+        // LeakCanary makes sure they are really leaked before dumping the heap.
+        for (Object object : retainedObjects) {
             refWatcher.watch(object);
         }
     }
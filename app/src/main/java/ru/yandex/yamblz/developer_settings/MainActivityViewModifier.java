@@ -1,27 +1,137 @@
 package ru.yandex.yamblz.developer_settings;
 
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.support.annotation.NonNull;
+import android.support.v4.app.FragmentActivity;
+import android.support.v4.app.FragmentManager;
 import android.support.v4.widget.DrawerLayout;
 import android.view.Gravity;
-import android.view.LayoutInflater;
 import android.view.View;
+import android.widget.FrameLayout;
 
+import ru.yandex.yamblz.R;
+import ru.yandex.yamblz.ui.fragments.DeveloperSettingsFragment;
 import ru.yandex.yamblz.ui.other.ViewModifier;
+import timber.log.Timber;
 
 import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
 
 public class MainActivityViewModifier implements ViewModifier {
 
+    private static final double NANOS_IN_MILLI = 1_000_000d;
+
     @NonNull
     @Override
     public <T extends View> T modify(@NonNull T view) {
         // Basically, what we do here is adding a Developer Setting Fragment to a DrawerLayout!
-        DrawerLayout drawerLayout = (DrawerLayout) view.findViewById(ru.yandex.yamblz.R.id.main_drawer_layout);
+        // But only an empty container is added on startup, the fragment is inflated later, see DeferredDeveloperSettings.
+        DrawerLayout drawerLayout = (DrawerLayout) view.findViewById(R.id.main_drawer_layout);
 
         DrawerLayout.LayoutParams layoutParams = new DrawerLayout.LayoutParams(MATCH_PARENT, MATCH_PARENT);
         layoutParams.gravity = Gravity.END;
 
-        drawerLayout.addView(LayoutInflater.from(view.getContext()).inflate(ru.yandex.yamblz.R.layout.developer_settings_view, drawerLayout, false), layoutParams);
+        FrameLayout container = new FrameLayout(view.getContext());
+        container.setId(R.id.developer_settings_container);
+        drawerLayout.addView(container, layoutParams);
+
+        FragmentActivity activity = (FragmentActivity) view.getContext();
+
+        // Fragment restored after recreation is attached to the container by the FragmentManager itself.
+        if (activity.getSupportFragmentManager().findFragmentById(R.id.developer_settings_container) == null) {
+            DeferredDeveloperSettings deferredDeveloperSettings = new DeferredDeveloperSettings(activity, drawerLayout);
+            drawerLayout.addDrawerListener(deferredDeveloperSettings);
+            container.addOnAttachStateChangeListener(deferredDeveloperSettings);
+            Looper.myQueue().addIdleHandler(deferredDeveloperSettings);
+        }
+
         return view;
     }
+
+    /**
+     * Adds {@link DeveloperSettingsFragment} when the main thread becomes idle for the first time after startup
+     * or when user starts to drag the drawer, whatever happens first.
+     * <p>
+     * Fragment has to be created on the main thread, so "idle" is the cheapest moment we have:
+     * the first frame is already drawn and nothing else waits for the looper.
+     * <p>
+     * The idle handler belongs to the looper, not to the activity, so it's removed when the container is detached:
+     * an activity destroyed before the looper gets idle, e.g. on rotation, has a FragmentManager which throws on commit.
+     * Once the fragment is added, both the idle handler and the drawer listener are removed.
+     */
+    static class DeferredDeveloperSettings extends DrawerLayout.SimpleDrawerListener
+            implements MessageQueue.IdleHandler, View.OnAttachStateChangeListener {
+
+        @NonNull
+        private final FragmentActivity activity;
+
+        @NonNull
+        private final DrawerLayout drawerLayout;
+
+        private boolean added;
+
+        private boolean cancelled;
+
+        DeferredDeveloperSettings(@NonNull FragmentActivity activity, @NonNull DrawerLayout drawerLayout) {
+            this.activity = activity;
+            this.drawerLayout = drawerLayout;
+        }
+
+        @Override
+        public boolean queueIdle() {
+            addFragment();
+            return false;
+        }
+
+        @Override
+        public void onDrawerStateChanged(int newState) {
+            if (newState != DrawerLayout.STATE_IDLE) {
+                addFragment();
+            }
+        }
+
+        @Override
+        public void onViewAttachedToWindow(@NonNull View view) {
+            // Nothing to do, the fragment waits for the idle looper or the drawer.
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(@NonNull View view) {
+            cancelled = true;
+            stopWaiting();
+        }
+
+        boolean isAdded() {
+            return added;
+        }
+
+        private void addFragment() {
+            // A finishing activity will not show the drawer anymore, inflating it would only delay the next screen.
+            if (added || cancelled || activity.isFinishing()) {
+                return;
+            }
+
+            added = true;
+            stopWaiting();
+
+            final long startNanos = System.nanoTime();
+            final FragmentManager fragmentManager = activity.getSupportFragmentManager();
+
+            // Activity may already be stopped when the looper becomes idle: the fragment added after its state is saved
+            // is not restored, so recreated activity defers it again. State of the never shown drawer is not worth a crash.
+            fragmentManager
+                    .beginTransaction()
+                    .add(R.id.developer_settings_container, new DeveloperSettingsFragment())
+                    .commitAllowingStateLoss();
+            fragmentManager.executePendingTransactions();
+
+            Timber.d("Developer settings drawer inflated in %.1f ms", (System.nanoTime() - startNanos) / NANOS_IN_MILLI);
+        }
+
+        // DrawerLayout dispatches state changes in reverse order, so the listener can remove itself from the callback.
+        private void stopWaiting() {
+            Looper.myQueue().removeIdleHandler(this);
+            drawerLayout.removeDrawerListener(this);
+        }
+    }
 }
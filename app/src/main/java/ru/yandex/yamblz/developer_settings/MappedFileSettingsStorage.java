@@ -0,0 +1,366 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import timber.log.Timber;
+
+/**
+ * Stores developer settings in a tiny memory-mapped file: no parsing on the first read, no file rewrite on a write.
+ * <p>
+ * The file holds two copies of a fixed-layout record, each with a sequence number and a CRC32.
+ * A write goes to the older copy and becomes visible only when its CRC matches, so a write torn by a crash
+ * leaves the previous settings intact. Readers take the valid copy with the biggest sequence number.
+ * A write rewrites the whole record rather than only the changed slot, so one CRC covers a consistent snapshot.
+ * <p>
+ * A file written with an older layout is upgraded when it is opened: its newest valid record is read with
+ * the defaults for the slots it does not have yet and written back in the current layout. The old record stays
+ * valid until the upgraded one is forced to disk, so a crash during the upgrade only makes it start over.
+ * <p>
+ * If the file has no valid copy (first launch or damaged file), settings are migrated once from
+ * the storage passed as {@code legacyStorage}, which is cleared afterwards. The legacy storage is also used
+ * if the file can not be mapped at all.
+ */
+public class MappedFileSettingsStorage implements DeveloperSettingsStorage {
+
+    static final int RECORD_SIZE = 56;
+    static final int FILE_SIZE = 2 * RECORD_SIZE;
+
+    static final int MAGIC = 0x59445354; // "YDST".
+    static final int VERSION = 4;
+
+    // Record size of each layout version, the version is the index. A new setting gets a new slot right before
+    // the CRC, so older layouts are prefixes of the current one and can be upgraded without losing settings.
+    static final int[] RECORD_SIZES = {0, 32, 40, 52, RECORD_SIZE};
+
+    // Fixed slots, offsets inside a record. New settings need a new slot, a version bump and a new record size above.
+    static final int SLOT_MAGIC = 0;
+    static final int SLOT_VERSION = 4;
+    static final int SLOT_SEQUENCE = 8;
+    static final int SLOT_FLAGS = 16;
+    static final int SLOT_BLOCK_DETECTOR_THRESHOLD_MS = 20;
+    static final int SLOT_MEMORY_SAMPLER_INTERVAL_MS = 28;
+    static final int SLOT_METHOD_TRACING_INTERVAL_US = 36;
+    static final int SLOT_METHOD_TRACING_BUFFER_SIZE_MB = 40;
+    static final int SLOT_JANK_TRACE_FRAMES = 44;
+    static final int SLOT_STRICT_MODE_PROFILE = 48;
+    static final int SLOT_CRC = 52;
+
+    private static final int FLAG_STETHO_ENABLED = 1;
+    private static final int FLAG_LEAK_CANARY_ENABLED = 1 << 1;
+    private static final int FLAG_TINY_DANCER_ENABLED = 1 << 2;
+    private static final int FLAG_FRAME_TIME_RECORDER_ENABLED = 1 << 3;
+    private static final int FLAG_BLOCK_DETECTOR_ENABLED = 1 << 4;
+    private static final int FLAG_MEMORY_SAMPLER_ENABLED = 1 << 5;
+    private static final int FLAG_METHOD_TRACING_ENABLED = 1 << 6;
+
+    private static final int NO_RECORD = -1;
+
+    @NonNull
+    private final File file;
+
+    @NonNull
+    private final DeveloperSettingsStorage legacyStorage;
+
+    // All fields below are guarded by this.
+    @NonNull
+    private final CRC32 crc = new CRC32();
+
+    @NonNull
+    private final byte[] crcScratch = new byte[SLOT_CRC];
+
+    @Nullable
+    private MappedByteBuffer buffer;
+
+    private boolean opened;
+    private int newestRecord = NO_RECORD;
+    private long sequence;
+
+    public MappedFileSettingsStorage(@NonNull File file, @NonNull DeveloperSettingsStorage legacyStorage) {
+        this.file = file;
+        this.legacyStorage = legacyStorage;
+    }
+
+    @NonNull
+    @Override
+    public synchronized DeveloperSettings.Snapshot read() {
+        final MappedByteBuffer buffer = buffer();
+
+        if (buffer == null) {
+            return legacyStorage.read();
+        }
+
+        if (newestRecord == NO_RECORD) {
+            final DeveloperSettings.Snapshot migrated = legacyStorage.read();
+            writeRecord(buffer, migrated);
+            legacyStorage.clear();
+            Timber.i("Developer settings migrated to %s", file);
+            return migrated;
+        }
+
+        return decode(buffer, newestRecord * RECORD_SIZE, VERSION);
+    }
+
+    @Override
+    public synchronized void write(@NonNull DeveloperSettings.Snapshot snapshot) {
+        final MappedByteBuffer buffer = buffer();
+
+        if (buffer == null) {
+            legacyStorage.write(snapshot);
+        } else {
+            writeRecord(buffer, snapshot);
+        }
+    }
+
+    @Override
+    public synchronized void writeNow(@NonNull DeveloperSettings.Snapshot snapshot) {
+        final MappedByteBuffer buffer = buffer();
+
+        if (buffer == null) {
+            legacyStorage.writeNow(snapshot);
+        } else {
+            writeRecord(buffer, snapshot);
+            // Dirty pages survive a killed process anyway, force() makes them survive a power loss too.
+            buffer.force();
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        final MappedByteBuffer buffer = buffer();
+
+        if (buffer == null) {
+            legacyStorage.clear();
+            return;
+        }
+
+        for (int i = 0; i < FILE_SIZE; i++) {
+            buffer.put(i, (byte) 0);
+        }
+
+        newestRecord = NO_RECORD;
+        sequence = 0;
+    }
+
+    @Nullable
+    private MappedByteBuffer buffer() {
+        if (opened) {
+            return buffer;
+        }
+
+        opened = true;
+
+        RandomAccessFile randomAccessFile = null;
+        final MappedByteBuffer mapped;
+
+        try {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+
+            // Older layouts are shorter, growing the file keeps their records where they are.
+            if (randomAccessFile.length() != FILE_SIZE) {
+                randomAccessFile.setLength(FILE_SIZE);
+            }
+
+            // Mapping stays valid after the file is closed.
+            mapped = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        } catch (IOException e) {
+            Timber.e(e, "Can not map %s, falling back to legacy storage", file);
+            return null;
+        } finally {
+            closeQuietly(randomAccessFile);
+        }
+
+        buffer = mapped;
+        newestRecord = newestRecord(mapped, VERSION);
+
+        if (newestRecord != NO_RECORD) {
+            sequence = mapped.getLong(newestRecord * RECORD_SIZE + SLOT_SEQUENCE);
+        } else {
+            upgradeOlderLayout(mapped);
+        }
+
+        return mapped;
+    }
+
+    /**
+     * Upgrades the newest record of an older layout, either right after the file was grown or after an upgrade
+     * interrupted by a crash. Older records are shorter than the current ones, so an old record in the first slot
+     * never overlaps the second slot of the current layout: the upgraded record is written there and forced to disk
+     * before the old one is wiped.
+     */
+    private void upgradeOlderLayout(@NonNull MappedByteBuffer mapped) {
+        for (int version = 1; version < VERSION; version++) {
+            final int record = newestRecord(mapped, version);
+
+            if (record == NO_RECORD) {
+                continue;
+            }
+
+            if (record == 1) {
+                // Both slots of the current layout overlap the second old record, it goes to the first one first.
+                moveToFirstSlot(mapped, RECORD_SIZES[version]);
+                mapped.force();
+            }
+
+            final DeveloperSettings.Snapshot upgraded = decode(mapped, 0, version);
+
+            // The old record is in the first slot, so writeRecord() takes the second one.
+            newestRecord = 0;
+            sequence = mapped.getLong(SLOT_SEQUENCE);
+            writeRecord(mapped, upgraded);
+            mapped.force();
+
+            for (int i = 0; i < RECORD_SIZE; i++) {
+                mapped.put(i, (byte) 0);
+            }
+
+            Timber.i("Developer settings in %s upgraded from version %d to %d", file, version, VERSION);
+            return;
+        }
+    }
+
+    /**
+     * Copies the second record of an older layout into the first slot as a newer one, the copy becomes valid
+     * with its CRC, which is written last.
+     */
+    private void moveToFirstSlot(@NonNull ByteBuffer buffer, int recordSize) {
+        final int crcSlot = recordSize - 4;
+
+        for (int i = 0; i < crcSlot; i++) {
+            buffer.put(i, buffer.get(recordSize + i));
+        }
+
+        buffer.putLong(SLOT_SEQUENCE, buffer.getLong(recordSize + SLOT_SEQUENCE) + 1);
+        buffer.putInt(crcSlot, crc(buffer, 0, crcSlot));
+    }
+
+    private int newestRecord(@NonNull ByteBuffer buffer, int version) {
+        final int recordSize = RECORD_SIZES[version];
+        int newest = NO_RECORD;
+        long newestSequence = 0;
+
+        for (int record = 0; record < 2; record++) {
+            final int base = record * recordSize;
+
+            if (isValid(buffer, base, version) && (newest == NO_RECORD || buffer.getLong(base + SLOT_SEQUENCE) > newestSequence)) {
+                newest = record;
+                newestSequence = buffer.getLong(base + SLOT_SEQUENCE);
+            }
+        }
+
+        return newest;
+    }
+
+    private boolean isValid(@NonNull ByteBuffer buffer, int base, int version) {
+        final int crcSlot = RECORD_SIZES[version] - 4;
+
+        return buffer.getInt(base + SLOT_MAGIC) == MAGIC
+                && buffer.getInt(base + SLOT_VERSION) == version
+                && buffer.getInt(base + crcSlot) == crc(buffer, base, crcSlot);
+    }
+
+    /**
+     * Slots which did not exist in the given layout version are filled from {@link DeveloperSettings#DEFAULT_SNAPSHOT},
+     * flags of such settings were always written as zeroes.
+     */
+    @NonNull
+    private static DeveloperSettings.Snapshot decode(@NonNull ByteBuffer buffer, int base, int version) {
+        final DeveloperSettings.Snapshot defaults = DeveloperSettings.DEFAULT_SNAPSHOT;
+        final int crcSlot = RECORD_SIZES[version] - 4;
+        final int flags = buffer.getInt(base + SLOT_FLAGS);
+
+        final DeveloperSettings.Snapshot.Builder builder = defaults.toBuilder()
+                .setStethoEnabled((flags & FLAG_STETHO_ENABLED) != 0)
+                .setLeakCanaryEnabled((flags & FLAG_LEAK_CANARY_ENABLED) != 0)
+                .setTinyDancerEnabled((flags & FLAG_TINY_DANCER_ENABLED) != 0)
+                .setFrameTimeRecorderEnabled((flags & FLAG_FRAME_TIME_RECORDER_ENABLED) != 0)
+                .setBlockDetectorEnabled((flags & FLAG_BLOCK_DETECTOR_ENABLED) != 0)
+                .setMemorySamplerEnabled((flags & FLAG_MEMORY_SAMPLER_ENABLED) != 0)
+                .setMethodTracingEnabled((flags & FLAG_METHOD_TRACING_ENABLED) != 0);
+
+        if (SLOT_BLOCK_DETECTOR_THRESHOLD_MS < crcSlot) {
+            builder.setBlockDetectorThresholdMs(buffer.getLong(base + SLOT_BLOCK_DETECTOR_THRESHOLD_MS));
+        }
+
+        if (SLOT_MEMORY_SAMPLER_INTERVAL_MS < crcSlot) {
+            builder.setMemorySamplerIntervalMs(buffer.getLong(base + SLOT_MEMORY_SAMPLER_INTERVAL_MS));
+        }
+
+        if (SLOT_METHOD_TRACING_INTERVAL_US < crcSlot) {
+            builder.setMethodTracingIntervalUs(buffer.getInt(base + SLOT_METHOD_TRACING_INTERVAL_US));
+        }
+
+        if (SLOT_METHOD_TRACING_BUFFER_SIZE_MB < crcSlot) {
+            builder.setMethodTracingBufferSizeMb(buffer.getInt(base + SLOT_METHOD_TRACING_BUFFER_SIZE_MB));
+        }
+
+        if (SLOT_JANK_TRACE_FRAMES < crcSlot) {
+            builder.setJankTraceFrames(buffer.getInt(base + SLOT_JANK_TRACE_FRAMES));
+        }
+
+        if (SLOT_STRICT_MODE_PROFILE < crcSlot) {
+            builder.setStrictModeProfile(buffer.getInt(base + SLOT_STRICT_MODE_PROFILE));
+        }
+
+        return builder.build();
+    }
+
+    private void writeRecord(@NonNull MappedByteBuffer buffer, @NonNull DeveloperSettings.Snapshot snapshot) {
+        // Always overwrite the older copy, the newest one stays valid until the CRC of this one is written.
+        final int record = newestRecord == NO_RECORD ? 0 : 1 - newestRecord;
+        final int base = record * RECORD_SIZE;
+        final long nextSequence = sequence + 1;
+
+        int flags = 0;
+        flags |= snapshot.stethoEnabled ? FLAG_STETHO_ENABLED : 0;
+        flags |= snapshot.leakCanaryEnabled ? FLAG_LEAK_CANARY_ENABLED : 0;
+        flags |= snapshot.tinyDancerEnabled ? FLAG_TINY_DANCER_ENABLED : 0;
+        flags |= snapshot.frameTimeRecorderEnabled ? FLAG_FRAME_TIME_RECORDER_ENABLED : 0;
+        flags |= snapshot.blockDetectorEnabled ? FLAG_BLOCK_DETECTOR_ENABLED : 0;
+        flags |= snapshot.memorySamplerEnabled ? FLAG_MEMORY_SAMPLER_ENABLED : 0;
+        flags |= snapshot.methodTracingEnabled ? FLAG_METHOD_TRACING_ENABLED : 0;
+
+        buffer.putInt(base + SLOT_MAGIC, MAGIC);
+        buffer.putInt(base + SLOT_VERSION, VERSION);
+        buffer.putLong(base + SLOT_SEQUENCE, nextSequence);
+        buffer.putInt(base + SLOT_FLAGS, flags);
+        buffer.putLong(base + SLOT_BLOCK_DETECTOR_THRESHOLD_MS, snapshot.blockDetectorThresholdMs);
+        buffer.putLong(base + SLOT_MEMORY_SAMPLER_INTERVAL_MS, snapshot.memorySamplerIntervalMs);
+        buffer.putInt(base + SLOT_METHOD_TRACING_INTERVAL_US, snapshot.methodTracingIntervalUs);
+        buffer.putInt(base + SLOT_METHOD_TRACING_BUFFER_SIZE_MB, snapshot.methodTracingBufferSizeMb);
+        buffer.putInt(base + SLOT_JANK_TRACE_FRAMES, snapshot.jankTraceFrames);
+        buffer.putInt(base + SLOT_STRICT_MODE_PROFILE, snapshot.strictModeProfile);
+        buffer.putInt(base + SLOT_CRC, crc(buffer, base, SLOT_CRC));
+
+        newestRecord = record;
+        sequence = nextSequence;
+    }
+
+    private int crc(@NonNull ByteBuffer buffer, int base, int length) {
+        for (int i = 0; i < length; i++) {
+            crcScratch[i] = buffer.get(base + i);
+        }
+
+        crc.reset();
+        crc.update(crcScratch, 0, length);
+        return (int) crc.getValue();
+    }
+
+    private static void closeQuietly(@Nullable RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                Timber.e(e, "Can not close settings file");
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+
+import dagger.Lazy;
+import ru.yandex.yamblz.executors.AppExecutors;
+import ru.yandex.yamblz.performance.FrameTimeRecorder;
+import timber.log.Timber;
+
+/**
+ * Keeps method tracing in line with developer settings: the manual trace and traces captured on jank.
+ * <p>
+ * Traces are started and stopped on the serial lane of {@link AppExecutors} because they create and write files.
+ */
+public class MethodTracingController {
+
+    // Long enough to see what keeps the frames janky, short enough to fit the default buffer.
+    static final long JANK_TRACE_DURATION_MS = 5_000;
+
+    private static final int BYTES_IN_MB = 1024 * 1024;
+
+    @NonNull
+    private final Lazy<DeveloperSettings> developerSettings;
+
+    @NonNull
+    private final Lazy<MethodTracingProxy> methodTracingProxy;
+
+    @NonNull
+    private final FrameTimeRecorder frameTimeRecorder;
+
+    @NonNull
+    private final AppExecutors appExecutors;
+
+    @NonNull
+    private final Handler mainThreadHandler;
+
+    @NonNull
+    private final FrameTimeRecorder.JankListener jankListener = this::onJank;
+
+    // Trace captured because of jank until it's stopped, null if there is none.
+    @Nullable
+    private volatile File jankTrace;
+
+    public MethodTracingController(@NonNull Lazy<DeveloperSettings> developerSettings,
+                                   @NonNull Lazy<MethodTracingProxy> methodTracingProxy,
+                                   @NonNull FrameTimeRecorder frameTimeRecorder,
+                                   @NonNull AppExecutors appExecutors,
+                                   @NonNull Handler mainThreadHandler) {
+        this.developerSettings = developerSettings;
+        this.methodTracingProxy = methodTracingProxy;
+        this.frameTimeRecorder = frameTimeRecorder;
+        this.appExecutors = appExecutors;
+        this.mainThreadHandler = mainThreadHandler;
+    }
+
+    /**
+     * Starts, restarts or stops the manual trace and switches traces on jank, call it on the serial lane.
+     */
+    public void apply() {
+        applyJankTrace();
+
+        final DeveloperSettings settings = developerSettings.get();
+        final MethodTracingProxy proxy = methodTracingProxy.get();
+
+        if (settings.isMethodTracingEnabled()) {
+            // Restarts a running trace, so a new interval or buffer size applies right away.
+            proxy.start(settings.methodTracingIntervalUs(), settings.methodTracingBufferSizeMb() * BYTES_IN_MB);
+            return;
+        }
+
+        final File current = proxy.currentTrace();
+
+        // A trace captured on jank stops by itself.
+        if (current != null && !current.equals(jankTrace)) {
+            proxy.stop();
+        }
+    }
+
+    /**
+     * Switches only traces on jank, janky frames are seen while the frame time recorder is enabled.
+     */
+    public void applyJankTrace() {
+        final int frames = developerSettings.get().jankTraceFrames();
+        frameTimeRecorder.setJankListener(frames, frames > 0 ? jankListener : null);
+    }
+
+    @NonNull
+    public String report() {
+        return methodTracingProxy.get().report();
+    }
+
+    private void onJank(int frames) {
+        // Called on the main thread, the trace is started on the serial lane because it creates a file.
+        appExecutors.serial().execute(() -> captureJankTrace(frames));
+    }
+
+    private void captureJankTrace(int frames) {
+        final DeveloperSettings settings = developerSettings.get();
+        final MethodTracingProxy proxy = methodTracingProxy.get();
+
+        // A running trace, manual or captured on previous jank, already covers these frames.
+        if (proxy.currentTrace() != null) {
+            return;
+        }
+
+        final File trace = proxy.start(settings.methodTracingIntervalUs(), settings.methodTracingBufferSizeMb() * BYTES_IN_MB);
+
+        if (trace == null) {
+            return;
+        }
+
+        Timber.w("%d janky frames in a row, capturing method trace to %s", frames, trace);
+        jankTrace = trace;
+        mainThreadHandler.postDelayed(() -> appExecutors.serial().execute(() -> stopJankTrace(trace)), JANK_TRACE_DURATION_MS);
+    }
+
+    private void stopJankTrace(@NonNull File trace) {
+        final MethodTracingProxy proxy = methodTracingProxy.get();
+
+        // Tracing may be switched on meanwhile, then the captured trace is already saved and the running one is not ours.
+        if (trace.equals(proxy.currentTrace())) {
+            proxy.stop();
+        }
+
+        if (trace.equals(jankTrace)) {
+            jankTrace = null;
+        }
+    }
+}
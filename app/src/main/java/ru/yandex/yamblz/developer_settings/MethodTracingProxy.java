@@ -0,0 +1,41 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+
+/**
+ * Sampling method tracing of the whole process into trace files which can be opened in Android Studio.
+ * Hidden behind the interface for the same reason as {@link DevMetricsProxy}.
+ */
+public interface MethodTracingProxy {
+
+    /**
+     * Starts a new trace, a running one is stopped and saved first.
+     *
+     * @return file the trace goes to, {@code null} if tracing could not be started.
+     */
+    @Nullable
+    File start(int intervalUs, int bufferSizeBytes);
+
+    /**
+     * Stops and saves the running trace.
+     *
+     * @return file of the trace, {@code null} if nothing was traced.
+     */
+    @Nullable
+    File stop();
+
+    /**
+     * @return file of the running trace, {@code null} if nothing is traced.
+     */
+    @Nullable
+    File currentTrace();
+
+    /**
+     * @return human readable list of saved traces, the newest first.
+     */
+    @NonNull
+    String report();
+}
@@ -0,0 +1,165 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.app.Application;
+import android.os.Build;
+import android.os.Debug;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+import timber.log.Timber;
+
+/**
+ * Traces with {@link Debug#startMethodTracingSampling(String, int, int)}: the runtime samples stacks of all threads
+ * at the interval instead of instrumenting every method, so timings stay close to real ones.
+ * <p>
+ * Traces go to {@value #TRACES_DIR_NAME} in app files, only the last {@value #MAX_TRACES} of them are kept.
+ * Pull one with {@code adb shell run-as <package> cat files/traces/<name> > <name>}.
+ * The runtime stops recording once the buffer is full, so a long trace keeps only its beginning.
+ */
+public class MethodTracingProxyImpl implements MethodTracingProxy {
+
+    static final String TRACES_DIR_NAME = "traces";
+    static final String TRACE_FILE_EXTENSION = ".trace";
+    static final int MAX_TRACES = 5;
+
+    private static final long BYTES_IN_KB = 1024;
+
+    @NonNull
+    private final Application application;
+
+    // Guarded by this.
+    @Nullable
+    private File currentTrace;
+
+    public MethodTracingProxyImpl(@NonNull Application application) {
+        this.application = application;
+    }
+
+    @Nullable
+    @Override
+    public synchronized File start(int intervalUs, int bufferSizeBytes) {
+        stop();
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            Timber.w("Sampling method tracing needs Android 5.0");
+            return null;
+        }
+
+        final File directory = tracesDir();
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            Timber.e("Can not create dir for method traces %s", directory);
+            return null;
+        }
+
+        // Leave room for the new one.
+        deleteOldTraces(directory, MAX_TRACES - 1);
+
+        final File trace = new File(directory, new SimpleDateFormat("yyyyMMdd-HHmmss-SSS", Locale.US).format(new Date()) + TRACE_FILE_EXTENSION);
+
+        try {
+            Debug.startMethodTracingSampling(trace.getPath(), bufferSizeBytes, intervalUs);
+        } catch (RuntimeException e) {
+            // Thrown if the file can not be opened.
+            Timber.e(e, "Can not start method tracing to %s", trace);
+            return null;
+        }
+
+        currentTrace = trace;
+        Timber.i("Method tracing started, interval %d us, buffer %d KB", intervalUs, bufferSizeBytes / BYTES_IN_KB);
+        return trace;
+    }
+
+    @Nullable
+    @Override
+    public synchronized File stop() {
+        final File trace = currentTrace;
+
+        if (trace == null) {
+            return null;
+        }
+
+        // Writes the buffer to the file, may take a while for a big buffer.
+        Debug.stopMethodTracing();
+        currentTrace = null;
+        Timber.i("Method trace saved to %s", trace);
+        return trace;
+    }
+
+    @Nullable
+    @Override
+    public synchronized File currentTrace() {
+        return currentTrace;
+    }
+
+    @NonNull
+    @Override
+    public String report() {
+        final File[] traces = traces(tracesDir());
+        final File current = currentTrace();
+
+        if (traces.length == 0) {
+            return "No traces";
+        }
+
+        final StringBuilder report = new StringBuilder();
+
+        for (int i = traces.length - 1; i >= 0; i--) {
+            if (report.length() > 0) {
+                report.append('\n');
+            }
+
+            report.append(traces[i].getName());
+
+            if (traces[i].equals(current)) {
+                report.append(", tracing");
+            } else {
+                report.append(String.format(Locale.US, ", %d KB", traces[i].length() / BYTES_IN_KB));
+            }
+        }
+
+        return report.toString();
+    }
+
+    @NonNull
+    private File tracesDir() {
+        return new File(application.getFilesDir(), TRACES_DIR_NAME);
+    }
+
+    /**
+     * Deletes the oldest traces so at most {@code keep} of them are left.
+     */
+    @VisibleForTesting
+    static void deleteOldTraces(@NonNull File directory, int keep) {
+        final File[] traces = traces(directory);
+
+        for (int i = 0; i < traces.length - keep; i++) {
+            if (!traces[i].delete()) {
+                Timber.w("Can not delete old method trace %s", traces[i]);
+            }
+        }
+    }
+
+    /**
+     * @return traces from the oldest to the newest, names start with the time so they sort by it.
+     */
+    @VisibleForTesting
+    @NonNull
+    static File[] traces(@NonNull File directory) {
+        final File[] traces = directory.listFiles((dir, name) -> name.endsWith(TRACE_FILE_EXTENSION));
+
+        if (traces == null) {
+            return new File[0];
+        }
+
+        Arrays.sort(traces);
+        return traces;
+    }
+}
@@ -0,0 +1,178 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.support.annotation.NonNull;
+
+import com.facebook.stetho.dumpapp.DumpException;
+import com.facebook.stetho.dumpapp.DumpUsageException;
+import com.facebook.stetho.dumpapp.DumperContext;
+import com.facebook.stetho.dumpapp.DumperPlugin;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+
+import ru.yandex.yamblz.executors.AppExecutors;
+import ru.yandex.yamblz.performance.FrameTimeRecorder;
+import ru.yandex.yamblz.performance.MemorySampler;
+import ru.yandex.yamblz.performance.TimingCounter;
+import ru.yandex.yamblz.ui.custom.HorizontalLinearLayout;
+import ru.yandex.yamblz.ui.other.AsyncViewInflater;
+
+/**
+ * Prints live performance counters with Stetho's dumpapp script: {@code dumpapp perf [command]}.
+ * <p>
+ * Without a command all counters are printed. {@code raw} prints the latest durations kept by timing counters,
+ * one counter per line, and {@code raw memory} writes recorded memory samples in the binary format of
+ * {@link ru.yandex.yamblz.performance.MemorySampleBuffer}, so redirect it to a file.
+ */
+public class PerformanceDumperPlugin implements DumperPlugin {
+
+    static final String NAME = "perf";
+
+    private static final String USAGE = "Usage: dumpapp " + NAME + " [layout|frames|executors|settings|views|reset|raw [memory]]";
+
+    @NonNull
+    private final FrameTimeRecorder frameTimeRecorder;
+
+    @NonNull
+    private final AppExecutors appExecutors;
+
+    @NonNull
+    private final TimedSettingsStorage settingsStorage;
+
+    @NonNull
+    private final MemorySampler memorySampler;
+
+    @NonNull
+    private final AsyncViewInflater asyncViewInflater;
+
+    public PerformanceDumperPlugin(@NonNull FrameTimeRecorder frameTimeRecorder,
+                                   @NonNull AppExecutors appExecutors,
+                                   @NonNull TimedSettingsStorage settingsStorage,
+                                   @NonNull MemorySampler memorySampler,
+                                   @NonNull AsyncViewInflater asyncViewInflater) {
+        this.frameTimeRecorder = frameTimeRecorder;
+        this.appExecutors = appExecutors;
+        this.settingsStorage = settingsStorage;
+        this.memorySampler = memorySampler;
+        this.asyncViewInflater = asyncViewInflater;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void dump(DumperContext dumpContext) throws DumpException {
+        final PrintStream output = dumpContext.getStdout();
+        final List<String> args = dumpContext.getArgsAsList();
+
+        if (args.isEmpty()) {
+            printLayout(output);
+            printFrames(output);
+            printExecutors(output);
+            printSettings(output);
+            printViews(output);
+            return;
+        }
+
+        switch (args.get(0)) {
+            case "layout":
+                printLayout(output);
+                break;
+            case "frames":
+                printFrames(output);
+                break;
+            case "executors":
+                printExecutors(output);
+                break;
+            case "settings":
+                printSettings(output);
+                break;
+            case "views":
+                printViews(output);
+                break;
+            case "reset":
+                reset();
+                output.println("Counters reset");
+                break;
+            case "raw":
+                if (args.size() > 1 && "memory".equals(args.get(1))) {
+                    writeMemorySamples(output);
+                } else {
+                    printRaw(output);
+                }
+                break;
+            default:
+                throw new DumpUsageException(USAGE);
+        }
+    }
+
+    private void printLayout(@NonNull PrintStream output) {
+        if (!HorizontalLinearLayout.RECORD_PASSES) {
+            output.println("Layout passes are recorded only in debug builds");
+        }
+
+        output.println("Own time of a pass, nested HorizontalLinearLayouts are excluded");
+        output.println(HorizontalLinearLayout.MEASURE_COUNTER.report());
+        output.println(HorizontalLinearLayout.LAYOUT_COUNTER.report());
+    }
+
+    private void printFrames(@NonNull PrintStream output) {
+        if (!frameTimeRecorder.isStarted()) {
+            output.println("Frame time recorder is disabled in developer settings");
+        }
+
+        output.println(frameTimeRecorder.report());
+    }
+
+    private void printExecutors(@NonNull PrintStream output) {
+        output.println(appExecutors.report());
+    }
+
+    private void printSettings(@NonNull PrintStream output) {
+        output.println(settingsStorage.readCounter().report());
+        output.println(settingsStorage.writeCounter().report());
+    }
+
+    private void printViews(@NonNull PrintStream output) {
+        output.println(asyncViewInflater.report());
+    }
+
+    private void printRaw(@NonNull PrintStream output) {
+        for (TimingCounter counter : timingCounters()) {
+            output.println(counter.raw());
+        }
+    }
+
+    private void writeMemorySamples(@NonNull PrintStream output) throws DumpException {
+        try {
+            final DataOutputStream dataOutput = new DataOutputStream(output);
+            memorySampler.writeTo(dataOutput);
+            dataOutput.flush();
+        } catch (IOException e) {
+            throw new DumpException("Can not write memory samples: " + e);
+        }
+    }
+
+    private void reset() {
+        for (TimingCounter counter : timingCounters()) {
+            counter.reset();
+        }
+
+        frameTimeRecorder.reset();
+        appExecutors.resetMetrics();
+    }
+
+    @NonNull
+    private TimingCounter[] timingCounters() {
+        return new TimingCounter[]{
+                HorizontalLinearLayout.MEASURE_COUNTER,
+                HorizontalLinearLayout.LAYOUT_COUNTER,
+                settingsStorage.readCounter(),
+                settingsStorage.writeCounter()
+        };
+    }
+}
@@ -0,0 +1,231 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+import ru.yandex.yamblz.executors.PeriodicTask;
+import ru.yandex.yamblz.performance.AnyThread;
+import timber.log.Timber;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Cheap first line of leak detection: watches objects with weak references in checks run by a {@link PeriodicTask}
+ * and reports objects which outlive {@link #retainDelayMs} only when there are at least {@link #retainedThreshold} of them.
+ * <p>
+ * {@link #watch(Object)} only puts a reference into a lock-free queue, so destroying a screen never waits for leak detection.
+ * Every check drains the queue in a batch, polls a {@link ReferenceQueue} for collected objects
+ * and forces a GC only when the threshold is crossed.
+ */
+public class RetainedObjectWatcher {
+
+    // Same thing LeakCanary waits for before the first check.
+    static final long DEFAULT_RETAIN_DELAY_MS = 5_000;
+
+    // Objects are retained only after DEFAULT_RETAIN_DELAY_MS, checking more often would not report them sooner.
+    private static final long CHECK_INTERVAL_MS = 1_000;
+
+    // Gives finalizers a chance to run after the forced GC, same as LeakCanary's GcTrigger.
+    private static final long GC_WAIT_MS = 100;
+
+    public interface Listener {
+
+        /**
+         * Called on the executor with objects which survived a forced GC.
+         */
+        @WorkerThread
+        void onObjectsRetained(@NonNull List<Object> retainedObjects);
+    }
+
+    private final int retainedThreshold;
+
+    private final long retainDelayMs;
+
+    @NonNull
+    private final Listener listener;
+
+    @NonNull
+    private final PeriodicTask periodicTask;
+
+    @NonNull
+    private final Queue<WatchedReference> pending = new ConcurrentLinkedQueue<>();
+
+    @NonNull
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+    // Guarded by itself: checks run one by one, but tests look into it from their own thread.
+    // Not held while waiting for the forced GC.
+    @NonNull
+    private final Set<WatchedReference> watched = new HashSet<>();
+
+    // Set by stop(), the next check starts from scratch.
+    private volatile boolean forgetWatched;
+
+    /**
+     * @param executor runs the checks, a check which forces a GC holds its thread for {@link #GC_WAIT_MS}.
+     */
+    public RetainedObjectWatcher(int retainedThreshold, long retainDelayMs, @NonNull Listener listener,
+                                 @NonNull ScheduledExecutorService scheduler, @NonNull Executor executor) {
+        this.retainedThreshold = retainedThreshold;
+        this.retainDelayMs = retainDelayMs;
+        this.listener = listener;
+        this.periodicTask = new PeriodicTask(scheduler, executor, this::checkNow);
+    }
+
+    @AnyThread
+    public void watch(@NonNull Object object) {
+        pending.offer(new WatchedReference(object, System.nanoTime(), collected));
+    }
+
+    @AnyThread
+    public void start() {
+        periodicTask.start(CHECK_INTERVAL_MS);
+    }
+
+    /**
+     * Stops watching and forgets objects watched so far: new requests right away, the rest on the next check.
+     */
+    @AnyThread
+    public void stop() {
+        periodicTask.stop();
+        pending.clear();
+        forgetWatched = true;
+    }
+
+    @WorkerThread
+    private void checkNow() {
+        try {
+            check(System.nanoTime());
+        } catch (InterruptedException e) {
+            // Interrupted while waiting for finalizers, the next check will look at these objects again.
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Drains new watch requests, forgets collected objects and, if enough objects are retained, reports them.
+     *
+     * @return number of retained objects after the check.
+     */
+    @VisibleForTesting
+    @WorkerThread
+    int check(long nowNanos) throws InterruptedException {
+        synchronized (watched) {
+            if (forgetWatched) {
+                forgetWatched = false;
+                watched.clear();
+            }
+
+            WatchedReference reference;
+
+            while ((reference = pending.poll()) != null) {
+                watched.add(reference);
+            }
+
+            forgetCollected();
+
+            if (countRetained(nowNanos) < retainedThreshold) {
+                return 0;
+            }
+        }
+
+        // Objects may just be waiting for the next GC, don't bother LeakCanary with them.
+        // Checks never overlap, so the lock is released while waiting.
+        Runtime.getRuntime().gc();
+        MILLISECONDS.sleep(GC_WAIT_MS);
+        System.runFinalization();
+
+        final List<Object> retainedObjects = new ArrayList<>();
+
+        synchronized (watched) {
+            forgetCollected();
+            collectRetained(nowNanos, retainedObjects);
+        }
+
+        if (retainedObjects.isEmpty()) {
+            return 0;
+        }
+
+        Timber.w("%d objects are retained after GC", retainedObjects.size());
+        listener.onObjectsRetained(retainedObjects);
+        return retainedObjects.size();
+    }
+
+    /**
+     * Moves retained objects to the given list and stops watching them if there are enough of them to report.
+     */
+    private void collectRetained(long nowNanos, @NonNull List<Object> retainedObjects) {
+        final List<WatchedReference> retainedReferences = new ArrayList<>();
+
+        for (WatchedReference watchedReference : watched) {
+            final Object object = watchedReference.get();
+
+            if (object != null && watchedReference.isRetained(nowNanos, retainDelayMs)) {
+                retainedReferences.add(watchedReference);
+                retainedObjects.add(object);
+            }
+        }
+
+        if (retainedObjects.size() < retainedThreshold) {
+            retainedObjects.clear();
+            return;
+        }
+
+        // Reported objects are LeakCanary's business from now on.
+        watched.removeAll(retainedReferences);
+    }
+
+    @VisibleForTesting
+    int watchedCount() {
+        synchronized (watched) {
+            return watched.size();
+        }
+    }
+
+    private void forgetCollected() {
+        Reference<?> reference;
+
+        while ((reference = collected.poll()) != null) {
+            watched.remove(reference);
+        }
+    }
+
+    private int countRetained(long nowNanos) {
+        int retained = 0;
+
+        for (WatchedReference reference : watched) {
+            if (reference.isRetained(nowNanos, retainDelayMs)) {
+                retained++;
+            }
+        }
+
+        return retained;
+    }
+
+    private static class WatchedReference extends WeakReference<Object> {
+
+        private final long watchedAtNanos;
+
+        WatchedReference(@NonNull Object referent, long watchedAtNanos, @NonNull ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.watchedAtNanos = watchedAtNanos;
+        }
+
+        boolean isRetained(long nowNanos, long retainDelayMs) {
+            return nowNanos - watchedAtNanos >= MILLISECONDS.toNanos(retainDelayMs);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+
+import timber.log.Timber;
+
+/**
+ * Original storage of developer settings: one key per setting in a {@link SharedPreferences} xml file.
+ * Kept to migrate settings to {@link MappedFileSettingsStorage} and as a fallback.
+ */
+public class SharedPreferencesSettingsStorage implements DeveloperSettingsStorage {
+
+    private static final String KEY_IS_STETHO_ENABLED = "is_stetho_enabled";
+    private static final String KEY_IS_LEAK_CANARY_ENABLED = "is_leak_canary_enabled";
+    private static final String KEY_IS_TINY_DANCER_ENABLED = "is_tiny_dancer_enabled";
+    private static final String KEY_IS_FRAME_TIME_RECORDER_ENABLED = "is_frame_time_recorder_enabled";
+    private static final String KEY_IS_BLOCK_DETECTOR_ENABLED = "is_block_detector_enabled";
+    private static final String KEY_BLOCK_DETECTOR_THRESHOLD_MS = "block_detector_threshold_ms";
+    private static final String KEY_IS_MEMORY_SAMPLER_ENABLED = "is_memory_sampler_enabled";
+    private static final String KEY_MEMORY_SAMPLER_INTERVAL_MS = "memory_sampler_interval_ms";
+    private static final String KEY_IS_METHOD_TRACING_ENABLED = "is_method_tracing_enabled";
+    private static final String KEY_METHOD_TRACING_INTERVAL_US = "method_tracing_interval_us";
+    private static final String KEY_METHOD_TRACING_BUFFER_SIZE_MB = "method_tracing_buffer_size_mb";
+    private static final String KEY_JANK_TRACE_FRAMES = "jank_trace_frames";
+    private static final String KEY_STRICT_MODE_PROFILE = "strict_mode_profile";
+
+    @NonNull
+    private final SharedPreferences sharedPreferences;
+
+    public SharedPreferencesSettingsStorage(@NonNull SharedPreferences sharedPreferences) {
+        this.sharedPreferences = sharedPreferences;
+    }
+
+    @NonNull
+    @Override
+    public DeveloperSettings.Snapshot read() {
+        final DeveloperSettings.Snapshot defaults = DeveloperSettings.DEFAULT_SNAPSHOT;
+
+        return new DeveloperSettings.Snapshot.Builder()
+                .setStethoEnabled(sharedPreferences.getBoolean(KEY_IS_STETHO_ENABLED, defaults.stethoEnabled))
+                .setLeakCanaryEnabled(sharedPreferences.getBoolean(KEY_IS_LEAK_CANARY_ENABLED, defaults.leakCanaryEnabled))
+                .setTinyDancerEnabled(sharedPreferences.getBoolean(KEY_IS_TINY_DANCER_ENABLED, defaults.tinyDancerEnabled))
+                .setFrameTimeRecorderEnabled(sharedPreferences.getBoolean(KEY_IS_FRAME_TIME_RECORDER_ENABLED, defaults.frameTimeRecorderEnabled))
+                .setBlockDetectorEnabled(sharedPreferences.getBoolean(KEY_IS_BLOCK_DETECTOR_ENABLED, defaults.blockDetectorEnabled))
+                .setBlockDetectorThresholdMs(sharedPreferences.getLong(KEY_BLOCK_DETECTOR_THRESHOLD_MS, defaults.blockDetectorThresholdMs))
+                .setMemorySamplerEnabled(sharedPreferences.getBoolean(KEY_IS_MEMORY_SAMPLER_ENABLED, defaults.memorySamplerEnabled))
+                .setMemorySamplerIntervalMs(sharedPreferences.getLong(KEY_MEMORY_SAMPLER_INTERVAL_MS, defaults.memorySamplerIntervalMs))
+                .setMethodTracingEnabled(sharedPreferences.getBoolean(KEY_IS_METHOD_TRACING_ENABLED, defaults.methodTracingEnabled))
+                .setMethodTracingIntervalUs(sharedPreferences.getInt(KEY_METHOD_TRACING_INTERVAL_US, defaults.methodTracingIntervalUs))
+                .setMethodTracingBufferSizeMb(sharedPreferences.getInt(KEY_METHOD_TRACING_BUFFER_SIZE_MB, defaults.methodTracingBufferSizeMb))
+                .setJankTraceFrames(sharedPreferences.getInt(KEY_JANK_TRACE_FRAMES, defaults.jankTraceFrames))
+                .setStrictModeProfile(sharedPreferences.getInt(KEY_STRICT_MODE_PROFILE, defaults.strictModeProfile))
+                .build();
+    }
+
+    @Override
+    public void write(@NonNull DeveloperSettings.Snapshot snapshot) {
+        edit(snapshot).apply();
+    }
+
+    @Override
+    public void writeNow(@NonNull DeveloperSettings.Snapshot snapshot) {
+        if (!edit(snapshot).commit()) {
+            Timber.e("Can not write developer settings");
+        }
+    }
+
+    @NonNull
+    private SharedPreferences.Editor edit(@NonNull DeveloperSettings.Snapshot snapshot) {
+        return sharedPreferences.edit()
+                .putBoolean(KEY_IS_STETHO_ENABLED, snapshot.stethoEnabled)
+                .putBoolean(KEY_IS_LEAK_CANARY_ENABLED, snapshot.leakCanaryEnabled)
+                .putBoolean(KEY_IS_TINY_DANCER_ENABLED, snapshot.tinyDancerEnabled)
+                .putBoolean(KEY_IS_FRAME_TIME_RECORDER_ENABLED, snapshot.frameTimeRecorderEnabled)
+                .putBoolean(KEY_IS_BLOCK_DETECTOR_ENABLED, snapshot.blockDetectorEnabled)
+                .putLong(KEY_BLOCK_DETECTOR_THRESHOLD_MS, snapshot.blockDetectorThresholdMs)
+                .putBoolean(KEY_IS_MEMORY_SAMPLER_ENABLED, snapshot.memorySamplerEnabled)
+                .putLong(KEY_MEMORY_SAMPLER_INTERVAL_MS, snapshot.memorySamplerIntervalMs)
+                .putBoolean(KEY_IS_METHOD_TRACING_ENABLED, snapshot.methodTracingEnabled)
+                .putInt(KEY_METHOD_TRACING_INTERVAL_US, snapshot.methodTracingIntervalUs)
+                .putInt(KEY_METHOD_TRACING_BUFFER_SIZE_MB, snapshot.methodTracingBufferSizeMb)
+                .putInt(KEY_JANK_TRACE_FRAMES, snapshot.jankTraceFrames)
+                .putInt(KEY_STRICT_MODE_PROFILE, snapshot.strictModeProfile);
+    }
+
+    @Override
+    public void clear() {
+        sharedPreferences.edit().clear().apply();
+    }
+}
@@ -0,0 +1,17 @@
+package ru.yandex.yamblz.developer_settings;
+
+/**
+ * Hides Stetho from main source set, same as {@link LeakCanaryProxy}.
+ */
+public interface StethoProxy {
+
+    /**
+     * Stetho can be started at any moment, but it can not be stopped: disabling only takes effect after restart.
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return true if Stetho was started in this process and still runs even if it's disabled now.
+     */
+    boolean isRunning();
+}
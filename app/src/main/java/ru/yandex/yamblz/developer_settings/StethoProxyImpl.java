@@ -0,0 +1,51 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.app.Application;
+import android.support.annotation.NonNull;
+
+import com.facebook.stetho.Stetho;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import dagger.Lazy;
+import timber.log.Timber;
+
+public class StethoProxyImpl implements StethoProxy {
+
+    @NonNull
+    private final Application application;
+
+    @NonNull
+    private final Lazy<PerformanceDumperPlugin> performanceDumperPlugin;
+
+    @NonNull
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public StethoProxyImpl(@NonNull Application application, @NonNull Lazy<PerformanceDumperPlugin> performanceDumperPlugin) {
+        this.application = application;
+        this.performanceDumperPlugin = performanceDumperPlugin;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        if (enabled) {
+            // Stetho can not be initialized twice.
+            if (running.compareAndSet(false, true)) {
+                // Same as initializeWithDefaults() plus our dumpapp plugin.
+                Stetho.initialize(Stetho.newInitializerBuilder(application)
+                        .enableDumpapp(() -> new Stetho.DefaultDumperPluginsBuilder(application)
+                                .provide(performanceDumperPlugin.get())
+                                .finish())
+                        .enableWebKitInspector(Stetho.defaultInspectorModulesProvider(application))
+                        .build());
+            }
+        } else if (running.get()) {
+            Timber.i("Stetho can not be stopped, it will be disabled after restart");
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+
+/**
+ * Switches {@link android.os.StrictMode} policies and collects what they catch.
+ * Hidden behind the interface for the same reason as {@link LeakCanaryProxy}.
+ */
+public interface StrictModeProxy {
+
+    int PROFILE_OFF = 0;
+
+    /**
+     * Disk reads, disk writes and custom slow calls on the main thread, plus leaked closeables.
+     */
+    int PROFILE_DISK = 1;
+
+    /**
+     * Everything StrictMode detects on the main thread, e.g. network access, plus leaked SQLite objects,
+     * activities and registrations.
+     */
+    int PROFILE_ALL = 2;
+
+    /**
+     * Thread policy only applies to the calling thread, so it has to be the main one.
+     *
+     * @param profile one of {@code PROFILE_*} constants.
+     */
+    @MainThread
+    void apply(int profile);
+
+    /**
+     * @return violations ranked by how often they happened.
+     */
+    @NonNull
+    String report();
+
+    void resetReport();
+}
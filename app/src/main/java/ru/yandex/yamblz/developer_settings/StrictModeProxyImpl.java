@@ -0,0 +1,132 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.os.Build;
+import android.os.StrictMode;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Executor;
+
+import ru.yandex.yamblz.performance.ViolationCounter;
+import timber.log.Timber;
+
+/**
+ * Sets StrictMode policies of a profile and counts violations in a {@link ViolationCounter}.
+ * <p>
+ * Violations can only be delivered to the app with {@code penaltyListener()}, which appeared in Android 9,
+ * after our compile SDK, so it's looked up with reflection. Older versions only log violations,
+ * main thread disk reads of our own code are counted everywhere by {@link ru.yandex.yamblz.performance.StrictModeDiskReadReporter}.
+ */
+public class StrictModeProxyImpl implements StrictModeProxy, InvocationHandler {
+
+    private static final int ANDROID_P = 28;
+
+    private static final int REPORT_VIOLATIONS = 10;
+    private static final int REPORT_FRAMES = 3;
+
+    // Custom violations are our own disk read reports, they are already counted.
+    private static final String CUSTOM_VIOLATION = "CustomViolation";
+
+    @NonNull
+    private final ViolationCounter violationCounter;
+
+    // Listeners are called on it, so counting never slows the thread which violated the policy.
+    @NonNull
+    private final Executor executor;
+
+    public StrictModeProxyImpl(@NonNull ViolationCounter violationCounter, @NonNull Executor executor) {
+        this.violationCounter = violationCounter;
+        this.executor = executor;
+    }
+
+    @Override
+    public void apply(int profile) {
+        if (profile == PROFILE_OFF) {
+            StrictMode.setThreadPolicy(StrictMode.ThreadPolicy.LAX);
+            StrictMode.setVmPolicy(StrictMode.VmPolicy.LAX);
+            return;
+        }
+
+        final StrictMode.ThreadPolicy.Builder threadPolicy = new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .detectCustomSlowCalls()
+                .penaltyLog();
+
+        // A closeable which is never closed keeps its file open, so it belongs to the disk profile.
+        final StrictMode.VmPolicy.Builder vmPolicy = new StrictMode.VmPolicy.Builder()
+                .detectLeakedClosableObjects()
+                .penaltyLog();
+
+        if (profile == PROFILE_ALL) {
+            threadPolicy.detectAll();
+            vmPolicy.detectLeakedSqlLiteObjects()
+                    .detectActivityLeaks()
+                    .detectLeakedRegistrationObjects();
+        }
+
+        addPenaltyListener(threadPolicy, "android.os.StrictMode$OnThreadViolationListener");
+        addPenaltyListener(vmPolicy, "android.os.StrictMode$OnVmViolationListener");
+
+        StrictMode.setThreadPolicy(threadPolicy.build());
+        StrictMode.setVmPolicy(vmPolicy.build());
+    }
+
+    @NonNull
+    @Override
+    public String report() {
+        final String report = violationCounter.report(REPORT_VIOLATIONS, REPORT_FRAMES);
+        return Build.VERSION.SDK_INT < ANDROID_P ? report + "\nOther StrictMode violations are only logged before Android 9" : report;
+    }
+
+    @Override
+    public void resetReport() {
+        violationCounter.reset();
+    }
+
+    /**
+     * Both listener interfaces have a single method which takes the violation.
+     */
+    @Nullable
+    @Override
+    @SuppressWarnings("PMD.CompareObjectsWithEquals")
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "StrictMode listener";
+            }
+        }
+
+        final Throwable violation = (Throwable) args[0];
+        final String type = violation.getClass().getSimpleName();
+
+        if (!CUSTOM_VIOLATION.equals(type)) {
+            violationCounter.record(type, violation);
+        }
+
+        return null;
+    }
+
+    private void addPenaltyListener(@NonNull Object policyBuilder, @NonNull String listenerClassName) {
+        if (Build.VERSION.SDK_INT < ANDROID_P) {
+            return;
+        }
+
+        try {
+            final Class<?> listenerClass = Class.forName(listenerClassName);
+            final Object listener = Proxy.newProxyInstance(listenerClass.getClassLoader(), new Class<?>[]{listenerClass}, this);
+            policyBuilder.getClass().getMethod("penaltyListener", Executor.class, listenerClass).invoke(policyBuilder, executor, listener);
+        } catch (Exception e) {
+            // Not a multi-catch: reflective exceptions share a supertype only since API 19, older versions fail to verify it.
+            Timber.e(e, "Can not set StrictMode penalty listener, violations will only be logged");
+        }
+    }
+}
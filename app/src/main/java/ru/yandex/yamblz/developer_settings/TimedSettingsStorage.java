@@ -0,0 +1,76 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.support.annotation.NonNull;
+
+import ru.yandex.yamblz.performance.TimingCounter;
+
+/**
+ * Measures reads and writes of another {@link DeveloperSettingsStorage}, printed by {@link PerformanceDumperPlugin}.
+ */
+public class TimedSettingsStorage implements DeveloperSettingsStorage {
+
+    // Settings are read once per process and written in batches, a few dozen calls is plenty.
+    private static final int COUNTER_CAPACITY = 32;
+
+    @NonNull
+    private final DeveloperSettingsStorage storage;
+
+    @NonNull
+    private final TimingCounter readCounter = new TimingCounter("Settings read", COUNTER_CAPACITY);
+
+    @NonNull
+    private final TimingCounter writeCounter = new TimingCounter("Settings write", COUNTER_CAPACITY);
+
+    public TimedSettingsStorage(@NonNull DeveloperSettingsStorage storage) {
+        this.storage = storage;
+    }
+
+    @NonNull
+    @Override
+    public DeveloperSettings.Snapshot read() {
+        final long startNanos = System.nanoTime();
+
+        try {
+            return storage.read();
+        } finally {
+            readCounter.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    @Override
+    public void write(@NonNull DeveloperSettings.Snapshot snapshot) {
+        final long startNanos = System.nanoTime();
+
+        try {
+            storage.write(snapshot);
+        } finally {
+            writeCounter.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    @Override
+    public void writeNow(@NonNull DeveloperSettings.Snapshot snapshot) {
+        final long startNanos = System.nanoTime();
+
+        try {
+            storage.writeNow(snapshot);
+        } finally {
+            writeCounter.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    @Override
+    public void clear() {
+        storage.clear();
+    }
+
+    @NonNull
+    public TimingCounter readCounter() {
+        return readCounter;
+    }
+
+    @NonNull
+    public TimingCounter writeCounter() {
+        return writeCounter;
+    }
+}
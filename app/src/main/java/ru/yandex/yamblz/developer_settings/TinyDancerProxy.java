@@ -0,0 +1,12 @@
+package ru.yandex.yamblz.developer_settings;
+
+/**
+ * Hides TinyDancer from main source set, same as {@link LeakCanaryProxy}.
+ */
+public interface TinyDancerProxy {
+
+    /**
+     * Shows or hides the fps meter, can be switched any number of times.
+     */
+    void setEnabled(boolean enabled);
+}
@@ -0,0 +1,49 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.app.Application;
+import android.support.annotation.NonNull;
+import android.util.DisplayMetrics;
+
+import com.codemonkeylabs.fpslibrary.TinyDancer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import timber.log.Timber;
+
+import static android.view.Gravity.START;
+import static android.view.Gravity.TOP;
+
+public class TinyDancerProxyImpl implements TinyDancerProxy {
+
+    @NonNull
+    private final Application application;
+
+    @NonNull
+    private final AtomicBoolean displayed = new AtomicBoolean();
+
+    public TinyDancerProxyImpl(@NonNull Application application) {
+        this.application = application;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        if (enabled && displayed.compareAndSet(false, true)) {
+            final DisplayMetrics displayMetrics = application.getResources().getDisplayMetrics();
+
+            TinyDancer.create()
+                    .redFlagPercentage(0.2f)
+                    .yellowFlagPercentage(0.05f)
+                    .startingGravity(TOP | START)
+                    .startingXPosition(displayMetrics.widthPixels / 10)
+                    .startingYPosition(displayMetrics.heightPixels / 4)
+                    .show(application);
+        } else if (!enabled && displayed.compareAndSet(true, false)) {
+            try {
+                TinyDancer.hide(application);
+            } catch (Exception e) {
+                // In some cases TinyDancer can not be hidden without exception: for example when you start it first time on Android 6.
+                Timber.e(e, "Can not hide TinyDancer");
+            }
+        }
+    }
+}
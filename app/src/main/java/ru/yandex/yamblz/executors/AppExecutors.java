@@ -0,0 +1,90 @@
+package ru.yandex.yamblz.executors;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import ru.yandex.yamblz.performance.AnyThread;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Executors shared by the whole app, use them instead of creating threads ad hoc.
+ * Periodic work goes through {@link PeriodicTask}, not a thread which sleeps in between.
+ */
+public class AppExecutors {
+
+    // Same as the pools: an idle thread is not worth keeping.
+    private static final long SCHEDULER_KEEP_ALIVE_SECONDS = 1;
+
+    @NonNull
+    private final InstrumentedExecutor io;
+
+    @NonNull
+    private final InstrumentedExecutor computation;
+
+    @NonNull
+    private final InstrumentedExecutor serial;
+
+    @NonNull
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public AppExecutors(@NonNull InstrumentedExecutor io, @NonNull InstrumentedExecutor computation, @NonNull InstrumentedExecutor serial) {
+        this.io = io;
+        this.computation = computation;
+        this.serial = serial;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("scheduler", Process.THREAD_PRIORITY_BACKGROUND));
+        scheduler.setKeepAliveTime(SCHEDULER_KEEP_ALIVE_SECONDS, SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * For disk and network access: tasks mostly wait, so there are more threads than cores.
+     */
+    @NonNull
+    public InstrumentedExecutor io() {
+        return io;
+    }
+
+    /**
+     * For CPU bound work such as folding stack traces, one thread per core at most.
+     */
+    @NonNull
+    public InstrumentedExecutor computation() {
+        return computation;
+    }
+
+    /**
+     * Runs tasks one by one in submission order, for work which is not thread safe.
+     */
+    @NonNull
+    public InstrumentedExecutor serial() {
+        return serial;
+    }
+
+    /**
+     * Keeps delays only, its single thread must hand tasks over to one of the executors rather than run them.
+     */
+    @NonNull
+    public ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    @AnyThread
+    public void resetMetrics() {
+        io.resetMetrics();
+        computation.resetMetrics();
+        serial.resetMetrics();
+    }
+
+    /**
+     * @return metrics of all executors, one line per executor.
+     */
+    @AnyThread
+    @NonNull
+    public String report() {
+        return io.report() + "\n" + computation.report() + "\n" + serial.report();
+    }
+}
@@ -0,0 +1,229 @@
+package ru.yandex.yamblz.executors;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ru.yandex.yamblz.performance.AnyThread;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Fixed size thread pool with named threads of the given priority which measures how long tasks wait in the queue
+ * and how long they run.
+ * <p>
+ * The queue is bounded: a task which does not fit is rejected with {@link RejectedExecutionException} and counted,
+ * so a runaway producer shows up in the report instead of growing the heap. Use {@link #tryExecute(Runnable)}
+ * for work which may be skipped under load.
+ * <p>
+ * Metrics are kept in atomic counters, so measuring never blocks the tasks.
+ */
+public class InstrumentedExecutor extends ThreadPoolExecutor {
+
+    private static final double NANOS_IN_MILLI = 1_000_000d;
+
+    // Idle threads are not worth keeping: most of the work happens during startup.
+    private static final long KEEP_ALIVE_SECONDS = 1;
+
+    @NonNull
+    private final String name;
+
+    @NonNull
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    @NonNull
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    private final int queueCapacity;
+
+    @NonNull
+    private final AtomicLong rejected = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong completed = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong totalRunNanos = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    /**
+     * @param threadPriority priority from {@link Process}, e.g. {@link Process#THREAD_PRIORITY_BACKGROUND}.
+     */
+    public InstrumentedExecutor(@NonNull String name, int threads, int threadPriority, int queueCapacity) {
+        super(threads, threads, KEEP_ALIVE_SECONDS, SECONDS, new LinkedBlockingQueue<>(queueCapacity), new NamedThreadFactory(name, threadPriority));
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        allowCoreThreadTimeOut(true);
+        setRejectedExecutionHandler((task, executor) -> {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException(name + (executor.isShutdown() ? " is shut down" : " queue is full"));
+        });
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        final int depth = queueDepth.incrementAndGet();
+
+        try {
+            super.execute(new MeasuredTask(command));
+        } catch (RuntimeException e) {
+            queueDepth.decrementAndGet();
+            throw e;
+        }
+
+        // Rejected tasks never were in the queue.
+        updateMax(maxQueueDepth, depth);
+    }
+
+    /**
+     * Runs the task unless the queue is full, for work such as counting samples which is better dropped than queued.
+     *
+     * @return {@code false} if the task was rejected, it's counted in the metrics anyway.
+     */
+    @AnyThread
+    public boolean tryExecute(@NonNull Runnable command) {
+        try {
+            execute(command);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    @NonNull
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return number of tasks waiting for a thread right now.
+     */
+    @AnyThread
+    public int queueDepth() {
+        return queueDepth.get();
+    }
+
+    @AnyThread
+    public int maxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    @AnyThread
+    public long rejectedTasks() {
+        return rejected.get();
+    }
+
+    @AnyThread
+    public long completedTasks() {
+        return completed.get();
+    }
+
+    @AnyThread
+    public long maxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    @AnyThread
+    public long maxRunNanos() {
+        return maxRunNanos.get();
+    }
+
+    /**
+     * Starts metrics over. Tasks waiting right now stay in the queue depth, they are still there.
+     * Counters are reset one by one, so a task finishing meanwhile may be counted only partially.
+     */
+    @AnyThread
+    public void resetMetrics() {
+        maxQueueDepth.set(queueDepth.get());
+        completed.set(0);
+        rejected.set(0);
+        totalWaitNanos.set(0);
+        maxWaitNanos.set(0);
+        totalRunNanos.set(0);
+        maxRunNanos.set(0);
+    }
+
+    @AnyThread
+    @NonNull
+    public String report() {
+        final long tasks = completed.get();
+
+        return String.format(Locale.US, "%s: %d tasks, queue %d (max %d of %d), %d rejected, wait avg %.1f ms max %.1f ms, run avg %.1f ms max %.1f ms",
+                name,
+                tasks,
+                queueDepth.get(),
+                maxQueueDepth.get(),
+                queueCapacity,
+                rejected.get(),
+                average(totalWaitNanos.get(), tasks),
+                maxWaitNanos.get() / NANOS_IN_MILLI,
+                average(totalRunNanos.get(), tasks),
+                maxRunNanos.get() / NANOS_IN_MILLI);
+    }
+
+    private static double average(long totalNanos, long count) {
+        return count == 0 ? 0 : totalNanos / NANOS_IN_MILLI / count;
+    }
+
+    private static void updateMax(@NonNull AtomicInteger max, int value) {
+        int current;
+
+        do {
+            current = max.get();
+        } while (value > current && !max.compareAndSet(current, value));
+    }
+
+    private static void updateMax(@NonNull AtomicLong max, long value) {
+        long current;
+
+        do {
+            current = max.get();
+        } while (value > current && !max.compareAndSet(current, value));
+    }
+
+    private class MeasuredTask implements Runnable {
+
+        @NonNull
+        private final Runnable command;
+
+        private final long enqueuedNanos = System.nanoTime();
+
+        MeasuredTask(@NonNull Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            final long startNanos = System.nanoTime();
+            final long waitNanos = startNanos - enqueuedNanos;
+
+            queueDepth.decrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            updateMax(maxWaitNanos, waitNanos);
+
+            try {
+                command.run();
+            } finally {
+                final long runNanos = System.nanoTime() - startNanos;
+
+                totalRunNanos.addAndGet(runNanos);
+                updateMax(maxRunNanos, runNanos);
+                completed.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ru.yandex.yamblz.executors;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Names threads after their executor and sets the given {@link Process} priority when they start.
+ */
+class NamedThreadFactory implements ThreadFactory {
+
+    @NonNull
+    private final String name;
+
+    private final int threadPriority;
+
+    @NonNull
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    NamedThreadFactory(@NonNull String name, int threadPriority) {
+        this.name = name;
+        this.threadPriority = threadPriority;
+    }
+
+    @Override
+    public Thread newThread(@NonNull Runnable runnable) {
+        return new Thread(() -> {
+            Process.setThreadPriority(threadPriority);
+            runnable.run();
+        }, name + "-" + threadNumber.incrementAndGet());
+    }
+}
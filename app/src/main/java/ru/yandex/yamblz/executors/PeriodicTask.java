@@ -0,0 +1,128 @@
+package ru.yandex.yamblz.executors;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import ru.yandex.yamblz.performance.AnyThread;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Runs a task on an executor again and again while started, waiting for the period between the end of a run
+ * and the start of the next one.
+ * <p>
+ * The wait is kept by {@link AppExecutors#scheduler()}, which only hands runs over to the executor:
+ * no thread of the executor is held between runs and the main looper is never woken up for them.
+ * At most one run is in flight, even if the task is restarted before a stopped run has finished.
+ */
+public class PeriodicTask {
+
+    @NonNull
+    private final ScheduledExecutorService scheduler;
+
+    @NonNull
+    private final Executor executor;
+
+    @NonNull
+    private final Runnable task;
+
+    @NonNull
+    private final Runnable runTask = this::run;
+
+    @NonNull
+    private final Runnable dispatchTask = this::dispatch;
+
+    // All guarded by this.
+    private boolean started;
+
+    // A run is queued, running or waiting for the period to pass.
+    private boolean scheduled;
+
+    @Nullable
+    private ScheduledFuture<?> delayed;
+
+    private long periodMs;
+
+    public PeriodicTask(@NonNull ScheduledExecutorService scheduler, @NonNull Executor executor, @NonNull Runnable task) {
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.task = task;
+    }
+
+    /**
+     * Runs the task right away or, if it's already started, only changes the period starting from the next run.
+     */
+    @AnyThread
+    public synchronized void start(long periodMs) {
+        this.periodMs = periodMs;
+
+        if (started) {
+            return;
+        }
+
+        started = true;
+
+        if (!scheduled) {
+            scheduled = true;
+            dispatch();
+        }
+    }
+
+    /**
+     * Cancels the waiting run, a run which is already queued or running still finishes.
+     */
+    @AnyThread
+    public synchronized void stop() {
+        started = false;
+
+        if (delayed != null && delayed.cancel(false)) {
+            delayed = null;
+            scheduled = false;
+        }
+    }
+
+    @AnyThread
+    public synchronized boolean isStarted() {
+        return started;
+    }
+
+    private synchronized void dispatch() {
+        delayed = null;
+
+        if (!started) {
+            scheduled = false;
+            return;
+        }
+
+        try {
+            executor.execute(runTask);
+        } catch (RejectedExecutionException e) {
+            // The executor is overloaded, skipping a run is better than adding to its queue.
+            delayed = scheduler.schedule(dispatchTask, periodMs, MILLISECONDS);
+        }
+    }
+
+    private void run() {
+        try {
+            // Stopped while waiting in the queue.
+            if (isStarted()) {
+                task.run();
+            }
+        } finally {
+            scheduleNext();
+        }
+    }
+
+    private synchronized void scheduleNext() {
+        if (started) {
+            delayed = scheduler.schedule(dispatchTask, periodMs, MILLISECONDS);
+        } else {
+            scheduled = false;
+        }
+    }
+}
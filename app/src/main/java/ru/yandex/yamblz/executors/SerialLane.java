@@ -0,0 +1,62 @@
+package ru.yandex.yamblz.executors;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs tasks one by one in submission order on threads of another executor, so work which is not thread safe
+ * does not need a dedicated thread and does not queue behind unrelated tasks of {@link AppExecutors#serial()}.
+ * <p>
+ * At most one task of the lane is in the backing executor at a time, the rest wait here.
+ * If the backing executor rejects a task, the task is dropped and the rest wait for the next {@link #execute(Runnable)}.
+ */
+public class SerialLane implements Executor {
+
+    @NonNull
+    private final Executor executor;
+
+    // Both guarded by this.
+    @NonNull
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    @Nullable
+    private Runnable active;
+
+    public SerialLane(@NonNull Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public synchronized void execute(@NonNull Runnable command) {
+        tasks.add(() -> {
+            try {
+                command.run();
+            } finally {
+                scheduleNext();
+            }
+        });
+
+        if (active == null) {
+            scheduleNext();
+        }
+    }
+
+    private synchronized void scheduleNext() {
+        active = tasks.poll();
+
+        if (active != null) {
+            try {
+                executor.execute(active);
+            } catch (RejectedExecutionException e) {
+                // Otherwise the lane would wait for a task which never runs.
+                active = null;
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package ru.yandex.yamblz.logging;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import ru.yandex.yamblz.performance.AnyThread;
+import timber.log.ExplicitTagTree;
+import timber.log.Timber;
+
+/**
+ * Timber tree which only copies a log call into a preallocated ring buffer, formatting and writing happen on its own thread.
+ * <p>
+ * {@link Timber.DebugTree} formats the message, walks the stack for a tag and writes to logcat on the calling thread,
+ * which is noticeable when the main thread logs in a hot path. Here the caller claims a slot with one compare-and-set,
+ * stores references to the template, arguments and throwable and publishes the slot. Mutable arguments are turned
+ * into values first, the caller may change them right after the call. The writer thread formats events
+ * in order, writes them to logcat and appends them to a {@link MappedLogFile}, which survives a crash of the process.
+ * <p>
+ * If the writer falls behind by the whole buffer, new events are dropped and counted instead of blocking the caller.
+ * Events are tagged with the tag given to {@link Timber#tag(String)}, or else with the name of the calling thread:
+ * a class tag would need the stack walk this tree avoids.
+ */
+public class AsyncLogTree extends ExplicitTagTree {
+
+    static final String TAG = "Yamblz";
+
+    // Logcat truncates longer messages.
+    private static final int MAX_LOGCAT_LENGTH = 4000;
+
+    private static final long NOT_PUBLISHED = -1;
+
+    @NonNull
+    private static final Object[] NO_ARGS = new Object[0];
+
+    @NonNull
+    private final MappedLogFile logFile;
+
+    private final int capacity;
+
+    private final int mask;
+
+    // Next sequence to claim by callers.
+    @NonNull
+    private final AtomicLong claimed = new AtomicLong();
+
+    // Sequence of the event stored in a slot, a slot is readable once it's published with the expected sequence.
+    @NonNull
+    private final AtomicLongArray published;
+
+    // Next sequence to read by the writer, slots before it can be reused by callers.
+    private volatile long consumed;
+
+    @NonNull
+    private final AtomicInteger dropped = new AtomicInteger();
+
+    // Slots, written by a caller before publishing and read by the writer after it.
+    @NonNull
+    private final int[] priorities;
+
+    @NonNull
+    private final long[] timesMs;
+
+    @NonNull
+    private final String[] tags;
+
+    @NonNull
+    private final String[] messages;
+
+    @NonNull
+    private final Object[][] args;
+
+    @NonNull
+    private final Throwable[] throwables;
+
+    // Only used by the writer.
+    @NonNull
+    private final StringBuilder line = new StringBuilder();
+
+    @NonNull
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+
+    @NonNull
+    private final Date date = new Date();
+
+    @Nullable
+    private volatile Thread writer;
+
+    private volatile boolean writerParked;
+
+    /**
+     * @param capacity number of slots, a power of two.
+     */
+    public AsyncLogTree(@NonNull MappedLogFile logFile, int capacity) {
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("Capacity has to be a power of two, capacity = " + capacity);
+        }
+
+        this.logFile = logFile;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+
+        published = new AtomicLongArray(capacity);
+
+        for (int slot = 0; slot < capacity; slot++) {
+            published.set(slot, NOT_PUBLISHED);
+        }
+
+        priorities = new int[capacity];
+        timesMs = new long[capacity];
+        tags = new String[capacity];
+        messages = new String[capacity];
+        args = new Object[capacity][];
+        throwables = new Throwable[capacity];
+    }
+
+    @AnyThread
+    public synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+
+        final Thread thread = new Thread(this::write, "log-writer");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    /**
+     * Blocks until events published before the call are written.
+     */
+    @AnyThread
+    public synchronized void stop() {
+        final Thread thread = writer;
+
+        if (thread == null) {
+            return;
+        }
+
+        writer = null;
+        LockSupport.unpark(thread);
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            // The writer still drains the buffer, just not while we wait.
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void v(String message, Object... args) {
+        enqueue(Log.VERBOSE, takeExplicitTag(), null, message, args);
+    }
+
+    @Override
+    public void v(Throwable t, String message, Object... args) {
+        enqueue(Log.VERBOSE, takeExplicitTag(), t, message, args);
+    }
+
+    @Override
+    public void d(String message, Object... args) {
+        enqueue(Log.DEBUG, takeExplicitTag(), null, message, args);
+    }
+
+    @Override
+    public void d(Throwable t, String message, Object... args) {
+        enqueue(Log.DEBUG, takeExplicitTag(), t, message, args);
+    }
+
+    @Override
+    public void i(String message, Object... args) {
+        enqueue(Log.INFO, takeExplicitTag(), null, message, args);
+    }
+
+    @Override
+    public void i(Throwable t, String message, Object... args) {
+        enqueue(Log.INFO, takeExplicitTag(), t, message, args);
+    }
+
+    @Override
+    public void w(String message, Object... args) {
+        enqueue(Log.WARN, takeExplicitTag(), null, message, args);
+    }
+
+    @Override
+    public void w(Throwable t, String message, Object... args) {
+        enqueue(Log.WARN, takeExplicitTag(), t, message, args);
+    }
+
+    @Override
+    public void e(String message, Object... args) {
+        enqueue(Log.ERROR, takeExplicitTag(), null, message, args);
+    }
+
+    @Override
+    public void e(Throwable t, String message, Object... args) {
+        enqueue(Log.ERROR, takeExplicitTag(), t, message, args);
+    }
+
+    @Override
+    public void wtf(String message, Object... args) {
+        enqueue(Log.ASSERT, takeExplicitTag(), null, message, args);
+    }
+
+    @Override
+    public void wtf(Throwable t, String message, Object... args) {
+        enqueue(Log.ASSERT, takeExplicitTag(), t, message, args);
+    }
+
+    /**
+     * Only reached through methods of {@link Timber.Tree} which are not overridden here, the message is already formatted.
+     */
+    @Override
+    protected void log(int priority, String tag, String message, Throwable t) {
+        enqueue(priority, tag, null, message, NO_ARGS);
+    }
+
+    /**
+     * @return number of events dropped because the buffer was full, since the last report of dropped events.
+     */
+    @AnyThread
+    public int droppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Formats and writes all published events, called by the writer thread.
+     *
+     * @return {@code true} if there were any events.
+     */
+    @VisibleForTesting
+    @WorkerThread
+    boolean drain() {
+        boolean drained = false;
+        long sequence = consumed;
+
+        while (published.get((int) sequence & mask) == sequence) {
+            final int slot = (int) sequence & mask;
+            final int priority = priorities[slot];
+            final long timeMs = timesMs[slot];
+            final String tag = tags[slot];
+            final String message = messages[slot];
+            final Object[] arguments = args[slot];
+            final Throwable throwable = throwables[slot];
+
+            // Do not keep arguments reachable until the slot is reused.
+            tags[slot] = null;
+            messages[slot] = null;
+            args[slot] = null;
+            throwables[slot] = null;
+
+            sequence++;
+            consumed = sequence;
+
+            writeEvent(priority, timeMs, tag, format(message, arguments, throwable));
+            drained = true;
+        }
+
+        final int droppedCount = dropped.getAndSet(0);
+
+        if (droppedCount > 0) {
+            writeEvent(Log.WARN, System.currentTimeMillis(), Thread.currentThread().getName(), droppedCount + " log events were dropped, the buffer was full");
+        }
+
+        return drained;
+    }
+
+    // The only work done on the calling thread.
+    private void enqueue(int priority, @Nullable String tag, @Nullable Throwable t, @Nullable String message, @Nullable Object[] arguments) {
+        if (message == null && t == null) {
+            return;
+        }
+
+        long sequence;
+
+        do {
+            sequence = claimed.get();
+
+            if (sequence - consumed >= capacity) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        final int slot = (int) sequence & mask;
+        priorities[slot] = priority;
+        timesMs[slot] = System.currentTimeMillis();
+        tags[slot] = tag != null ? tag : Thread.currentThread().getName();
+        messages[slot] = message;
+        args[slot] = snapshotArgs(arguments);
+        throwables[slot] = t;
+
+        published.set(slot, sequence);
+
+        if (writerParked) {
+            final Thread thread = writer;
+
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    @WorkerThread
+    private void write() {
+        while (writer == Thread.currentThread()) {
+            if (drain()) {
+                continue;
+            }
+
+            writerParked = true;
+
+            // A caller which published before the flag was set is seen here, one which published after it unparks us.
+            if (published.get((int) consumed & mask) != consumed) {
+                LockSupport.park(this);
+            }
+
+            writerParked = false;
+        }
+
+        // Stopped, events published before stop() are still written.
+        drain();
+    }
+
+    @WorkerThread
+    private void writeEvent(int priority, long timeMs, @Nullable String tag, @NonNull String message) {
+        for (int start = 0; start < message.length(); start += MAX_LOGCAT_LENGTH) {
+            Log.println(priority, TAG, "[" + tag + "] " + message.substring(start, Math.min(message.length(), start + MAX_LOGCAT_LENGTH)));
+        }
+
+        date.setTime(timeMs);
+
+        // "MM-dd HH:mm:ss.SSS P/tag: message", parsed back by LogIndex.
+        line.setLength(0);
+        line.append(timeFormat.format(date))
+                .append(' ')
+                .append(priorityLetter(priority))
+                .append('/')
+                .append(tag)
+                .append(": ")
+                .append(message)
+                .append('\n');
+
+        logFile.append(line);
+    }
+
+    /**
+     * Arguments are formatted later on the writer thread, so the ones the caller may still change are turned into values.
+     * Dates become milliseconds, which {@code %t} formats the same way, other mutable arguments become strings.
+     */
+    @Nullable
+    private static Object[] snapshotArgs(@Nullable Object[] arguments) {
+        if (arguments == null || arguments.length == 0) {
+            return arguments;
+        }
+
+        // The array itself may be reused by the caller too.
+        final Object[] snapshot = new Object[arguments.length];
+
+        for (int i = 0; i < arguments.length; i++) {
+            final Object argument = arguments[i];
+
+            if (isImmutable(argument)) {
+                snapshot[i] = argument;
+            } else if (argument instanceof Date) {
+                snapshot[i] = ((Date) argument).getTime();
+            } else if (argument instanceof Calendar) {
+                snapshot[i] = ((Calendar) argument).getTimeInMillis();
+            } else if (argument instanceof AtomicInteger || argument instanceof AtomicLong) {
+                snapshot[i] = ((Number) argument).longValue();
+            } else {
+                snapshot[i] = String.valueOf(argument);
+            }
+        }
+
+        return snapshot;
+    }
+
+    private static boolean isImmutable(@Nullable Object argument) {
+        return argument == null
+                || argument instanceof String
+                || argument instanceof Integer
+                || argument instanceof Long
+                || argument instanceof Double
+                || argument instanceof Float
+                || argument instanceof Short
+                || argument instanceof Byte
+                || argument instanceof BigInteger
+                || argument instanceof BigDecimal
+                || argument instanceof Boolean
+                || argument instanceof Character
+                || argument instanceof Enum;
+    }
+
+    @NonNull
+    private static String format(@Nullable String message, @Nullable Object[] arguments, @Nullable Throwable throwable) {
+        String formatted = message == null ? "" : message;
+
+        if (arguments != null && arguments.length > 0) {
+            try {
+                formatted = String.format(formatted, arguments);
+            } catch (RuntimeException e) {
+                // A broken template should not kill the writer, the raw template is still useful.
+                formatted = formatted + " (can not format: " + e + ")";
+            }
+        }
+
+        if (throwable != null) {
+            formatted = formatted.isEmpty() ? stackTrace(throwable) : formatted + '\n' + stackTrace(throwable);
+        }
+
+        return formatted;
+    }
+
+    @NonNull
+    private static String stackTrace(@NonNull Throwable throwable) {
+        final StringWriter writer = new StringWriter();
+        final PrintWriter printWriter = new PrintWriter(writer);
+        throwable.printStackTrace(printWriter);
+        printWriter.flush();
+        return writer.toString().trim();
+    }
+
+    private static char priorityLetter(int priority) {
+        switch (priority) {
+            case Log.VERBOSE:
+                return 'V';
+            case Log.DEBUG:
+                return 'D';
+            case Log.INFO:
+                return 'I';
+            case Log.WARN:
+                return 'W';
+            case Log.ERROR:
+                return 'E';
+            default:
+                return 'A';
+        }
+    }
+}
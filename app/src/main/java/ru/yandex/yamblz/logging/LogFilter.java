@@ -0,0 +1,178 @@
+package ru.yandex.yamblz.logging;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+
+import java.util.Arrays;
+
+import ru.yandex.yamblz.performance.AnyThread;
+
+/**
+ * Filters entries of a {@link LogIndex} and reuses the previous result whenever it can.
+ * <p>
+ * If the new query {@link LogQuery#narrows(LogQuery) narrows} the previous one, e.g. one more letter is typed,
+ * only previous matches and entries indexed since the previous call are checked. Otherwise the index is scanned
+ * from the first entry of the query's time range. Priority, tag and time are checked on index columns first,
+ * the text is looked for in the mapped file only for entries which passed them.
+ * <p>
+ * Not thread safe, call it on the thread which updates the index.
+ */
+public class LogFilter {
+
+    @NonNull
+    private final LogIndex index;
+
+    @Nullable
+    private LogQuery query;
+
+    @NonNull
+    private int[] matches = new int[256];
+
+    private int matchCount;
+
+    // Entries before this id were checked against the query.
+    private int checkedEnd;
+
+    private int lastCheckedCount;
+
+    public LogFilter(@NonNull LogIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * @return matching entries from the oldest to the newest.
+     */
+    @WorkerThread
+    @NonNull
+    public Result filter(@NonNull LogQuery query) {
+        final int firstId = index.firstId();
+        final int endId = index.endId();
+        final LogQuery previousQuery = this.query;
+        final int tagId = query.tag() == null ? -1 : index.findTag(query.tag());
+        final byte[] needle = query.text().getBytes(MappedLogFile.UTF_8);
+        final long sinceTimeKey = index.unwrapTimeKey(query.sinceTimeKey());
+
+        final int scanFrom;
+        int kept = 0;
+        lastCheckedCount = 0;
+
+        if (previousQuery != null && query.narrows(previousQuery)) {
+            final boolean same = query.equals(previousQuery);
+
+            for (int i = 0; i < matchCount; i++) {
+                final int id = matches[i];
+
+                // Forgotten entries are dropped, the others only need to be checked if the query changed.
+                if (id >= firstId && (same || matches(id, query, tagId, sinceTimeKey, needle))) {
+                    matches[kept++] = id;
+                }
+            }
+
+            scanFrom = checkedEnd;
+        } else {
+            scanFrom = sinceTimeKey == LogIndex.NO_TIME ? firstId : index.firstIdAtOrAfter(sinceTimeKey);
+        }
+
+        matchCount = kept;
+
+        for (int id = Math.max(scanFrom, firstId); id < endId; id++) {
+            if (matches(id, query, tagId, sinceTimeKey, needle)) {
+                if (matchCount == matches.length) {
+                    matches = Arrays.copyOf(matches, matches.length * 2);
+                }
+
+                matches[matchCount++] = id;
+            }
+        }
+
+        this.query = query;
+        checkedEnd = endId;
+
+        final byte[] priorities = new byte[matchCount];
+
+        for (int i = 0; i < matchCount; i++) {
+            priorities[i] = (byte) index.priority(matches[i]);
+        }
+
+        return new Result(index, query, Arrays.copyOf(matches, matchCount), priorities);
+    }
+
+    /**
+     * @return how many entries the last {@link #filter(LogQuery)} call had to check.
+     */
+    @VisibleForTesting
+    int lastCheckedCount() {
+        return lastCheckedCount;
+    }
+
+    private boolean matches(int id, @NonNull LogQuery query, int tagId, long sinceTimeKey, @NonNull byte[] needle) {
+        lastCheckedCount++;
+
+        if (index.priority(id) < query.minPriority()) {
+            return false;
+        }
+
+        if (query.tag() != null && index.tagId(id) != tagId) {
+            return false;
+        }
+
+        if (sinceTimeKey != LogIndex.NO_TIME && index.timeKey(id) < sinceTimeKey) {
+            return false;
+        }
+
+        return needle.length == 0 || index.contains(id, needle);
+    }
+
+    /**
+     * Immutable list of matching entries, text of an entry is read from the log file only when it's asked for.
+     */
+    public static final class Result {
+
+        @NonNull
+        private final LogIndex index;
+
+        @NonNull
+        private final LogQuery query;
+
+        @NonNull
+        private final int[] ids;
+
+        @NonNull
+        private final byte[] priorities;
+
+        Result(@NonNull LogIndex index, @NonNull LogQuery query, @NonNull int[] ids, @NonNull byte[] priorities) {
+            this.index = index;
+            this.query = query;
+            this.ids = ids;
+            this.priorities = priorities;
+        }
+
+        @NonNull
+        public LogQuery query() {
+            return query;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public int id(int position) {
+            return ids[position];
+        }
+
+        public int priority(int position) {
+            return priorities[position];
+        }
+
+        /**
+         * @return text of the entry, {@code null} if it's overwritten since the result was made.
+         */
+        @AnyThread
+        @Nullable
+        public String text(int position) {
+            return index.text(ids[position]);
+        }
+    }
+}
@@ -0,0 +1,490 @@
+package ru.yandex.yamblz.logging;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ru.yandex.yamblz.performance.AnyThread;
+
+/**
+ * Index of entries of a {@link MappedLogFile} written by {@link AsyncLogTree}: offset, priority, tag and time of every entry.
+ * <p>
+ * {@link #update()} parses only bytes appended since the previous update and forgets entries which are overwritten,
+ * so keeping the index fresh costs as much as the new logs. Text is not kept: rows are read from the mapped file
+ * when they are shown or matched, see {@link #text(int)}.
+ * <p>
+ * Entries are addressed by ids which only grow, so ids kept by a {@link LogFilter} stay valid while entries are forgotten.
+ * Columns are primitive arrays, filtering by priority, tag and time does not touch the file at all.
+ */
+public class LogIndex {
+
+    /**
+     * Time key of entries without a time and of queries for any time.
+     */
+    public static final long NO_TIME = -1;
+
+    // "MM-dd HH:mm:ss.SSS P/tag: message", see AsyncLogTree.
+    private static final int PRIORITY_POSITION = 19;
+    private static final int TAG_POSITION = 21;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    // The log format has no year: a key of a time within a year is below it, and it's added for every New Year passed.
+    private static final long YEAR_KEY = timeKey(13, 0, 0, 0, 0, 0);
+    private static final long HALF_YEAR_KEY = YEAR_KEY / 2;
+
+    @NonNull
+    private final MappedLogFile logFile;
+
+    // Guarded by this: updated on a worker thread, read by filters and the UI.
+    @NonNull
+    private long[] offsets = new long[INITIAL_CAPACITY];
+
+    // Without the trailing line break, includes continuation lines like stack traces.
+    @NonNull
+    private int[] lengths = new int[INITIAL_CAPACITY];
+
+    @NonNull
+    private byte[] priorities = new byte[INITIAL_CAPACITY];
+
+    @NonNull
+    private int[] tagIds = new int[INITIAL_CAPACITY];
+
+    @NonNull
+    private long[] timeKeys = new long[INITIAL_CAPACITY];
+
+    // Entries in the arrays, the first one has id forgotten.
+    private int size;
+    private int forgotten;
+
+    @NonNull
+    private final List<String> tags = new ArrayList<>();
+
+    @NonNull
+    private final Map<String, Integer> tagIdsByName = new HashMap<>();
+
+    // Only used by update(), under the lock.
+    private long indexedOffset;
+
+    // Added to keys of new entries, grows by YEAR_KEY when entries go from December to January.
+    private long yearOffset;
+
+    @NonNull
+    private byte[] scratch = new byte[0];
+
+    // Only used by contains(), under the lock.
+    @NonNull
+    private byte[] matchBuffer = new byte[0];
+
+    public LogIndex(@NonNull MappedLogFile logFile) {
+        this.logFile = logFile;
+    }
+
+    /**
+     * Indexes entries appended since the previous update and forgets overwritten ones.
+     *
+     * @return {@code true} if entries were added or forgotten.
+     */
+    @WorkerThread
+    public synchronized boolean update() {
+        final int previousEnd = endId();
+        final int previousForgotten = forgotten;
+
+        final long oldestLine = logFile.oldestLineOffset();
+        final long written = logFile.writtenOffset();
+
+        if (written < indexedOffset) {
+            // The file was recreated, e.g. its size changed.
+            forget(size);
+            indexedOffset = 0;
+        }
+
+        forgetOlderThan(oldestLine);
+
+        final long from = Math.max(oldestLine, indexedOffset);
+        final int length = (int) (written - from);
+
+        if (length > 0 && readIntoScratch(from, length)) {
+            int lineStart = 0;
+
+            for (int i = 0; i < length; i++) {
+                if (scratch[i] == '\n') {
+                    indexLine(from + lineStart, lineStart, i - lineStart);
+                    lineStart = i + 1;
+                }
+            }
+
+            // An incomplete last line is parsed by the next update.
+            indexedOffset = from + lineStart;
+        }
+
+        return endId() != previousEnd || forgotten != previousForgotten;
+    }
+
+    /**
+     * @return id of the oldest entry which is still indexed.
+     */
+    @AnyThread
+    public synchronized int firstId() {
+        return forgotten;
+    }
+
+    /**
+     * @return id which the next entry will get.
+     */
+    @AnyThread
+    public synchronized int endId() {
+        return forgotten + size;
+    }
+
+    /**
+     * @return priority of the entry like {@link Log#DEBUG}, the id has to be indexed.
+     */
+    @AnyThread
+    public synchronized int priority(int id) {
+        return priorities[index(id)];
+    }
+
+    @AnyThread
+    public synchronized int tagId(int id) {
+        return tagIds[index(id)];
+    }
+
+    /**
+     * @return time key of the entry, keys of later entries are greater even across New Year.
+     */
+    @AnyThread
+    public synchronized long timeKey(int id) {
+        return timeKeys[index(id)];
+    }
+
+    /**
+     * Places a key of {@link #timeKey(long)} into the year of the newest entry, or the year before or after it,
+     * whichever is closer, so it compares with {@link #timeKey(int) keys of entries}.
+     */
+    @AnyThread
+    public synchronized long unwrapTimeKey(long timeKey) {
+        if (timeKey == NO_TIME) {
+            return NO_TIME;
+        }
+
+        final long key = timeKey + yearOffset;
+
+        if (size == 0) {
+            return key;
+        }
+
+        final long newest = timeKeys[size - 1];
+
+        if (key > newest + HALF_YEAR_KEY) {
+            return key - YEAR_KEY;
+        }
+
+        return key < newest - HALF_YEAR_KEY ? key + YEAR_KEY : key;
+    }
+
+    /**
+     * @return id of the tag, {@code -1} if there were no entries with it.
+     */
+    @AnyThread
+    public synchronized int findTag(@NonNull String tag) {
+        final Integer tagId = tagIdsByName.get(tag);
+        return tagId == null ? -1 : tagId;
+    }
+
+    /**
+     * @return all tags seen so far in order of appearance, index in the list is the tag id.
+     */
+    @AnyThread
+    @NonNull
+    public synchronized List<String> tags() {
+        return Collections.unmodifiableList(new ArrayList<>(tags));
+    }
+
+    /**
+     * Entries are appended in time order, so the first entry at or after a time is found with a binary search.
+     *
+     * @return id of the first entry logged at or after the time key, {@link #endId()} if there is no such entry.
+     */
+    @AnyThread
+    public synchronized int firstIdAtOrAfter(long timeKey) {
+        int low = 0;
+        int high = size;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (timeKeys[middle] < timeKey) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return forgotten + low;
+    }
+
+    /**
+     * Reads the entry from the mapped file.
+     *
+     * @return text of the entry, {@code null} if it's forgotten or overwritten meanwhile.
+     */
+    @AnyThread
+    @Nullable
+    public String text(int id) {
+        final long offset;
+        final int length;
+
+        synchronized (this) {
+            if (id < forgotten || id >= forgotten + size) {
+                return null;
+            }
+
+            offset = offsets[index(id)];
+            length = lengths[index(id)];
+        }
+
+        final byte[] bytes = new byte[length];
+        return logFile.read(offset, bytes, length) ? new String(bytes, MappedLogFile.UTF_8) : null;
+    }
+
+    /**
+     * Looks for the bytes in the entry ignoring case of ASCII letters, without decoding the entry into a string.
+     *
+     * @param lowerCaseNeedle UTF-8 bytes to look for, ASCII letters have to be lower case.
+     * @return {@code false} if the entry does not contain them or is forgotten or overwritten.
+     */
+    @WorkerThread
+    public synchronized boolean contains(int id, @NonNull byte[] lowerCaseNeedle) {
+        if (id < forgotten || id >= forgotten + size) {
+            return false;
+        }
+
+        final int length = lengths[index(id)];
+
+        if (matchBuffer.length < length) {
+            matchBuffer = new byte[Math.max(length, matchBuffer.length * 2)];
+        }
+
+        return logFile.read(offsets[index(id)], matchBuffer, length) && indexOf(matchBuffer, length, lowerCaseNeedle) >= 0;
+    }
+
+    /**
+     * @return key of the time without the year, see {@link #unwrapTimeKey(long)}.
+     */
+    @AnyThread
+    public static long timeKey(long timeMs) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(timeMs);
+        return timeKey(calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH), calendar.get(Calendar.HOUR_OF_DAY),
+                calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND), calendar.get(Calendar.MILLISECOND));
+    }
+
+    private static long timeKey(int month, int day, int hour, int minute, int second, int millisecond) {
+        return ((((month * 32L + day) * 24 + hour) * 60 + minute) * 60 + second) * 1000 + millisecond;
+    }
+
+    // Called under the lock.
+    private void indexLine(long offset, int start, int length) {
+        final int priority = length > TAG_POSITION ? priority(scratch[start + PRIORITY_POSITION]) : -1;
+        final long timeKey = priority < 0 ? NO_TIME : parseTimeKey(start);
+        // Thread names may contain ':' like "Binder:123_1", the tag ends where the message starts.
+        final int tagEnd = timeKey == NO_TIME ? -1 : indexOfMessage(scratch, start + TAG_POSITION, start + length);
+
+        if (timeKey == NO_TIME || scratch[start + TAG_POSITION - 1] != '/' || tagEnd < 0) {
+            // A continuation line of the previous entry, e.g. a stack trace.
+            final int last = size - 1;
+
+            if (last >= 0 && offsets[last] + lengths[last] + 1 == offset) {
+                lengths[last] += length + 1;
+            }
+
+            return;
+        }
+
+        long key = timeKey + yearOffset;
+
+        if (size > 0 && key < timeKeys[size - 1] - HALF_YEAR_KEY) {
+            yearOffset += YEAR_KEY;
+            key += YEAR_KEY;
+        }
+
+        ensureCapacity(size + 1);
+        offsets[size] = offset;
+        lengths[size] = length;
+        priorities[size] = (byte) priority;
+        tagIds[size] = tagId(new String(scratch, start + TAG_POSITION, tagEnd - start - TAG_POSITION, MappedLogFile.UTF_8));
+        timeKeys[size] = key;
+        size++;
+    }
+
+    private int tagId(@NonNull String tag) {
+        final Integer tagId = tagIdsByName.get(tag);
+
+        if (tagId != null) {
+            return tagId;
+        }
+
+        tags.add(tag);
+        tagIdsByName.put(tag, tags.size() - 1);
+        return tags.size() - 1;
+    }
+
+    private long parseTimeKey(int start) {
+        final int month = parseDigits(start, 2);
+        final int day = parseDigits(start + 3, 2);
+        final int hour = parseDigits(start + 6, 2);
+        final int minute = parseDigits(start + 9, 2);
+        final int second = parseDigits(start + 12, 2);
+        final int millisecond = parseDigits(start + 15, 3);
+
+        if (month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0 || millisecond < 0) {
+            return NO_TIME;
+        }
+
+        return timeKey(month, day, hour, minute, second, millisecond);
+    }
+
+    private int parseDigits(int start, int count) {
+        int value = 0;
+
+        for (int i = start; i < start + count; i++) {
+            final int digit = scratch[i] - '0';
+
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+
+            value = value * 10 + digit;
+        }
+
+        return value;
+    }
+
+    private boolean readIntoScratch(long from, int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+
+        return logFile.read(from, scratch, length);
+    }
+
+    private void forgetOlderThan(long offset) {
+        int count = 0;
+
+        while (count < size && offsets[count] < offset) {
+            count++;
+        }
+
+        forget(count);
+    }
+
+    private void forget(int count) {
+        if (count == 0) {
+            return;
+        }
+
+        size -= count;
+        System.arraycopy(offsets, count, offsets, 0, size);
+        System.arraycopy(lengths, count, lengths, 0, size);
+        System.arraycopy(priorities, count, priorities, 0, size);
+        System.arraycopy(tagIds, count, tagIds, 0, size);
+        System.arraycopy(timeKeys, count, timeKeys, 0, size);
+        forgotten += count;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (offsets.length >= capacity) {
+            return;
+        }
+
+        final int newCapacity = Math.max(capacity, offsets.length * 2);
+        offsets = copyOf(offsets, newCapacity);
+        lengths = copyOf(lengths, newCapacity);
+        priorities = copyOf(priorities, newCapacity);
+        tagIds = copyOf(tagIds, newCapacity);
+        timeKeys = copyOf(timeKeys, newCapacity);
+    }
+
+    private int index(int id) {
+        if (id < forgotten || id >= forgotten + size) {
+            throw new IndexOutOfBoundsException("id = " + id + ", first id = " + forgotten + ", size = " + size);
+        }
+
+        return id - forgotten;
+    }
+
+    private static int priority(byte letter) {
+        switch (letter) {
+            case 'V':
+                return Log.VERBOSE;
+            case 'D':
+                return Log.DEBUG;
+            case 'I':
+                return Log.INFO;
+            case 'W':
+                return Log.WARN;
+            case 'E':
+                return Log.ERROR;
+            case 'A':
+                return Log.ASSERT;
+            default:
+                return -1;
+        }
+    }
+
+    // Position of ": " which separates the tag and the message.
+    private static int indexOfMessage(@NonNull byte[] bytes, int start, int end) {
+        for (int i = start; i < end - 1; i++) {
+            if (bytes[i] == ':' && bytes[i + 1] == ' ') {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int indexOf(@NonNull byte[] bytes, int length, @NonNull byte[] lowerCaseNeedle) {
+        outer:
+        for (int i = 0; i <= length - lowerCaseNeedle.length; i++) {
+            for (int j = 0; j < lowerCaseNeedle.length; j++) {
+                final byte b = bytes[i + j];
+                final byte lower = b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+
+                if (lower != lowerCaseNeedle[j]) {
+                    continue outer;
+                }
+            }
+
+            return i;
+        }
+
+        return -1;
+    }
+
+    private static long[] copyOf(long[] array, int length) {
+        final long[] copy = new long[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    private static int[] copyOf(int[] array, int length) {
+        final int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    private static byte[] copyOf(byte[] array, int length) {
+        final byte[] copy = new byte[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.yamblz.logging;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Immutable filter of log entries: minimum priority, tag, time and text, all of them have to match.
+ */
+public final class LogQuery {
+
+    @NonNull
+    public static final LogQuery ALL = new LogQuery(Log.VERBOSE, null, LogIndex.NO_TIME, "");
+
+    private final int minPriority;
+
+    @Nullable
+    private final String tag;
+
+    private final long sinceTimeKey;
+
+    // Lower case, matching ignores case.
+    @NonNull
+    private final String text;
+
+    /**
+     * @param tag          only entries with this tag match, {@code null} for any tag.
+     * @param sinceTimeKey only entries logged at or after this {@link LogIndex#timeKey(long) time key} match,
+     *                     {@link LogIndex#NO_TIME} for any time.
+     * @param text         only entries which contain the text ignoring case match.
+     */
+    public LogQuery(int minPriority, @Nullable String tag, long sinceTimeKey, @NonNull String text) {
+        this.minPriority = minPriority;
+        this.tag = tag;
+        this.sinceTimeKey = sinceTimeKey;
+        this.text = text.toLowerCase(Locale.US);
+    }
+
+    public int minPriority() {
+        return minPriority;
+    }
+
+    @Nullable
+    public String tag() {
+        return tag;
+    }
+
+    public long sinceTimeKey() {
+        return sinceTimeKey;
+    }
+
+    @NonNull
+    public String text() {
+        return text;
+    }
+
+    @NonNull
+    public LogQuery withMinPriority(int minPriority) {
+        return new LogQuery(minPriority, tag, sinceTimeKey, text);
+    }
+
+    @NonNull
+    public LogQuery withTag(@Nullable String tag) {
+        return new LogQuery(minPriority, tag, sinceTimeKey, text);
+    }
+
+    @NonNull
+    public LogQuery withSinceTimeKey(long sinceTimeKey) {
+        return new LogQuery(minPriority, tag, sinceTimeKey, text);
+    }
+
+    @NonNull
+    public LogQuery withText(@NonNull String text) {
+        return new LogQuery(minPriority, tag, sinceTimeKey, text);
+    }
+
+    /**
+     * @return {@code true} if every entry matching this query matches the other one too,
+     * e.g. this query only has more text or a higher priority, so it can filter results of the other one.
+     */
+    public boolean narrows(@NonNull LogQuery other) {
+        return minPriority >= other.minPriority
+                && (other.tag == null || other.tag.equals(tag))
+                && sinceTimeKey >= other.sinceTimeKey
+                && text.contains(other.text);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final LogQuery that = (LogQuery) o;
+
+        return minPriority == that.minPriority
+                && sinceTimeKey == that.sinceTimeKey
+                && (tag == null ? that.tag == null : tag.equals(that.tag))
+                && text.equals(that.text);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = minPriority;
+        result = 31 * result + (tag != null ? tag.hashCode() : 0);
+        result = 31 * result + (int) (sinceTimeKey ^ (sinceTimeKey >>> 32));
+        result = 31 * result + text.hashCode();
+        return result;
+    }
+}
@@ -0,0 +1,265 @@
+package ru.yandex.yamblz.logging;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import ru.yandex.yamblz.performance.AnyThread;
+
+/**
+ * Size-bounded log file which keeps the latest text appended to it and survives a crash of the process.
+ * <p>
+ * The file is memory-mapped, so an append is a memory copy and the kernel writes dirty pages even if the process dies.
+ * Text goes into a circular data area after a small header. Every byte has a logical offset which only grows,
+ * so readers like {@link LogIndex} can keep offsets of lines and read them later if they are not overwritten yet.
+ * The header holds the number of written bytes and is updated only after the text is copied, so a torn append is
+ * simply not counted.
+ * <p>
+ * Opened lazily by the first call, which should happen on a background thread.
+ */
+public class MappedLogFile {
+
+    @NonNull
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static final int HEADER_SIZE = 28;
+
+    private static final int MAGIC = 0x594C4F47; // "YLOG".
+    private static final int VERSION = 2;
+
+    private static final int SLOT_MAGIC = 0;
+    private static final int SLOT_VERSION = 4;
+    private static final int SLOT_SIZE = 8;
+    private static final int SLOT_WRITTEN = 12;
+    private static final int SLOT_FIRST = 20;
+
+    @NonNull
+    private final File file;
+
+    private final int size;
+
+    private final int capacity;
+
+    // All fields below are guarded by this.
+    @Nullable
+    private MappedByteBuffer buffer;
+
+    private boolean opened;
+
+    // Logical offset of the next byte to write.
+    private long written;
+
+    // Logical offset of the first byte after the last clear().
+    private long first;
+
+    /**
+     * @param size size of the whole file in bytes, including the header.
+     */
+    public MappedLogFile(@NonNull File file, int size) {
+        if (size <= HEADER_SIZE) {
+            throw new IllegalArgumentException("File has to be bigger than its header, size = " + size);
+        }
+
+        this.file = file;
+        this.size = size;
+        this.capacity = size - HEADER_SIZE;
+    }
+
+    @NonNull
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Appends the text, the oldest text is overwritten once the file is full.
+     */
+    @WorkerThread
+    public synchronized void append(@NonNull CharSequence text) {
+        final MappedByteBuffer buffer = buffer();
+
+        if (buffer == null) {
+            return;
+        }
+
+        final byte[] bytes = text.toString().getBytes(UTF_8);
+
+        // Text bigger than the whole file leaves only its tail.
+        final int skipped = Math.max(0, bytes.length - capacity);
+
+        for (int i = skipped; i < bytes.length; i++) {
+            buffer.put(physical(written + i), bytes[i]);
+        }
+
+        written += bytes.length;
+        buffer.putLong(SLOT_WRITTEN, written);
+    }
+
+    /**
+     * @return logical offset right after the last written byte.
+     */
+    @WorkerThread
+    public synchronized long writtenOffset() {
+        return buffer() == null ? 0 : written;
+    }
+
+    /**
+     * @return logical offset of the oldest line which is not overwritten yet, even partially.
+     */
+    @WorkerThread
+    public synchronized long oldestLineOffset() {
+        final MappedByteBuffer buffer = buffer();
+
+        if (buffer == null) {
+            return 0;
+        }
+
+        final long oldest = oldest();
+
+        if (oldest == first) {
+            return oldest;
+        }
+
+        // The line before the oldest byte is partially overwritten, skip its remains.
+        for (long offset = oldest; offset < written; offset++) {
+            if (buffer.get(physical(offset)) == '\n') {
+                return offset + 1;
+            }
+        }
+
+        return written;
+    }
+
+    /**
+     * Copies bytes starting at the logical offset.
+     *
+     * @return {@code false} if some of the bytes are overwritten or not written yet.
+     */
+    @AnyThread
+    public synchronized boolean read(long offset, @NonNull byte[] destination, int length) {
+        final MappedByteBuffer buffer = buffer();
+
+        if (buffer == null || offset < oldest() || offset + length > written) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            destination[i] = buffer.get(physical(offset + i));
+        }
+
+        return true;
+    }
+
+    /**
+     * @return text of the file from the oldest complete line to the newest one.
+     */
+    @WorkerThread
+    @NonNull
+    public synchronized String readText() {
+        final MappedByteBuffer buffer = buffer();
+
+        if (buffer == null) {
+            return "";
+        }
+
+        final long oldestLine = oldestLineOffset();
+        final byte[] bytes = new byte[(int) (written - oldestLine)];
+        read(oldestLine, bytes, bytes.length);
+        return new String(bytes, UTF_8);
+    }
+
+    @WorkerThread
+    public synchronized void clear() {
+        final MappedByteBuffer buffer = buffer();
+
+        if (buffer == null) {
+            return;
+        }
+
+        first = written;
+        buffer.putLong(SLOT_FIRST, first);
+    }
+
+    private long oldest() {
+        return Math.max(first, written - capacity);
+    }
+
+    private int physical(long offset) {
+        return HEADER_SIZE + (int) (offset % capacity);
+    }
+
+    @Nullable
+    private MappedByteBuffer buffer() {
+        if (opened) {
+            return buffer;
+        }
+
+        opened = true;
+
+        final File directory = file.getParentFile();
+
+        if (directory != null && !directory.exists() && !directory.mkdirs()) {
+            android.util.Log.e(AsyncLogTree.TAG, "Can not create dir for log file " + file);
+            return null;
+        }
+
+        RandomAccessFile randomAccessFile = null;
+
+        try {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+
+            if (randomAccessFile.length() != size) {
+                randomAccessFile.setLength(size);
+            }
+
+            // Mapping stays valid after the file is closed.
+            buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            // Can not log it with Timber: this class is where Timber logs go.
+            android.util.Log.e(AsyncLogTree.TAG, "Can not map log file " + file, e);
+            return null;
+        } finally {
+            closeQuietly(randomAccessFile);
+        }
+
+        written = buffer.getLong(SLOT_WRITTEN);
+        first = buffer.getLong(SLOT_FIRST);
+
+        final boolean valid = buffer.getInt(SLOT_MAGIC) == MAGIC
+                && buffer.getInt(SLOT_VERSION) == VERSION
+                && buffer.getInt(SLOT_SIZE) == size
+                && written >= 0
+                && first >= 0
+                && first <= written;
+
+        if (!valid) {
+            // New file, file of another version or of another size.
+            buffer.putInt(SLOT_MAGIC, MAGIC);
+            buffer.putInt(SLOT_VERSION, VERSION);
+            buffer.putInt(SLOT_SIZE, size);
+            written = 0;
+            first = 0;
+            buffer.putLong(SLOT_WRITTEN, written);
+            buffer.putLong(SLOT_FIRST, first);
+        }
+
+        return buffer;
+    }
+
+    private static void closeQuietly(@Nullable RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                // Same as above, Timber would log into this file.
+                android.util.Log.e(AsyncLogTree.TAG, "Can not close log file", e);
+            }
+        }
+    }
+}
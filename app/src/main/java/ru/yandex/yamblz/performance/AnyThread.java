@@ -6,13 +6,15 @@ import java.lang.annotation.Target;
 
 import static java.lang.annotation.ElementType.FIELD;
 import static java.lang.annotation.ElementType.METHOD;
-import static java.lang.annotation.RetentionPolicy.SOURCE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
 /**
  * Marker. Means that component may be accessed from any thread and implementation should be thread safe.
+ * <p>
+ * Kept at runtime so {@link ThreadContractTracker} can check it in debug builds.
  */
 @Target({METHOD, FIELD})
-@Retention(SOURCE)
+@Retention(RUNTIME)
 @Inherited
 public @interface AnyThread {
 }
@@ -0,0 +1,123 @@
+package ru.yandex.yamblz.performance;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates sampled stack traces in "folded" format: one line per unique stack, frames from root to leaf
+ * separated by ';' and followed by the number of samples. This is the input format of flame graph tools.
+ * <p>
+ * Not thread safe.
+ */
+public class FoldedStacks {
+
+    @NonNull
+    private final Map<String, int[]> samples = new HashMap<>();
+
+    private final int maxUniqueStacks;
+
+    private int totalSamples;
+    private int droppedSamples;
+
+    /**
+     * @param maxUniqueStacks bound for memory, samples of new stacks are dropped once it's reached.
+     */
+    public FoldedStacks(int maxUniqueStacks) {
+        this.maxUniqueStacks = maxUniqueStacks;
+    }
+
+    public void add(@NonNull StackTraceElement[] stackTrace) {
+        final String folded = fold(stackTrace);
+        final int[] count = samples.get(folded);
+
+        if (count != null) {
+            count[0]++;
+        } else if (samples.size() < maxUniqueStacks) {
+            samples.put(folded, new int[]{1});
+        } else {
+            droppedSamples++;
+            return;
+        }
+
+        totalSamples++;
+    }
+
+    public int totalSamples() {
+        return totalSamples;
+    }
+
+    public int droppedSamples() {
+        return droppedSamples;
+    }
+
+    public void clear() {
+        samples.clear();
+        totalSamples = 0;
+        droppedSamples = 0;
+    }
+
+    /**
+     * Writes all stacks in folded format.
+     */
+    public void writeTo(@NonNull Writer writer) throws IOException {
+        for (Map.Entry<String, int[]> entry : samples.entrySet()) {
+            writer.write(entry.getKey());
+            writer.write(' ');
+            writer.write(String.valueOf(entry.getValue()[0]));
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * @return the hottest stacks sorted by samples count, only leaf frames are kept to fit the screen.
+     */
+    @NonNull
+    public String summary(int maxStacks, int maxFrames) {
+        final List<Map.Entry<String, int[]>> entries = new ArrayList<>(samples.entrySet());
+        Collections.sort(entries, (first, second) -> second.getValue()[0] - first.getValue()[0]);
+
+        final StringBuilder summary = new StringBuilder();
+
+        for (int i = 0; i < entries.size() && i < maxStacks; i++) {
+            final Map.Entry<String, int[]> entry = entries.get(i);
+            final String[] frames = entry.getKey().split(";");
+
+            summary.append(entry.getValue()[0]).append(" samples:\n");
+
+            for (int frame = frames.length - 1; frame >= 0 && frame >= frames.length - maxFrames; frame--) {
+                summary.append("  ").append(frames[frame]).append('\n');
+            }
+        }
+
+        return summary.toString();
+    }
+
+    @NonNull
+    static String fold(@NonNull StackTraceElement[] stackTrace) {
+        final StringBuilder folded = new StringBuilder();
+
+        // Stack trace starts from the leaf, folded format starts from the root.
+        for (int i = stackTrace.length - 1; i >= 0; i--) {
+            final StackTraceElement element = stackTrace[i];
+
+            if (folded.length() > 0) {
+                folded.append(';');
+            }
+
+            folded.append(element.getClassName()).append('.').append(element.getMethodName());
+
+            if (element.getLineNumber() >= 0) {
+                folded.append(':').append(element.getLineNumber());
+            }
+        }
+
+        return folded.toString();
+    }
+}
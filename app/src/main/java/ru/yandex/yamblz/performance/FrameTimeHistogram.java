@@ -0,0 +1,123 @@
+package ru.yandex.yamblz.performance;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size log-bucketed histogram of frame durations.
+ * <p>
+ * Durations are stored in microseconds: values below {@link #LINEAR_BUCKETS} get their own bucket,
+ * larger values are split into {@link #SUB_BUCKETS} buckets per power of two, so relative error stays below 12.5%.
+ * Recording never allocates, all storage is created in the constructor.
+ * <p>
+ * Not thread safe, callers should synchronize on the histogram if it's read from another thread.
+ */
+public class FrameTimeHistogram {
+
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int FIRST_EXPONENT = 4; // log2(LINEAR_BUCKETS).
+    private static final int LAST_EXPONENT = 25; // ~67 seconds, everything above is clamped.
+    private static final int BUCKETS_COUNT = LINEAR_BUCKETS + (LAST_EXPONENT - FIRST_EXPONENT + 1) * SUB_BUCKETS;
+
+    private static final long NANOS_IN_MICRO = 1000;
+
+    private final long[] counts = new long[BUCKETS_COUNT];
+
+    private long totalFrames;
+    private long droppedFrames;
+    private long maxMicros;
+
+    /**
+     * Records single frame.
+     *
+     * @param durationNanos      time between two consecutive frames.
+     * @param frameIntervalNanos expected time between frames, used to count dropped ones.
+     */
+    public void record(long durationNanos, long frameIntervalNanos) {
+        if (durationNanos <= 0) {
+            return;
+        }
+
+        final long micros = durationNanos / NANOS_IN_MICRO;
+        counts[bucketIndex(micros)]++;
+        totalFrames++;
+        maxMicros = Math.max(maxMicros, micros);
+
+        if (frameIntervalNanos > 0) {
+            // Frame is considered dropped once it took at least one and a half vsync intervals.
+            final long skipped = (durationNanos + frameIntervalNanos / 2) / frameIntervalNanos - 1;
+
+            if (skipped > 0) {
+                droppedFrames += skipped;
+            }
+        }
+    }
+
+    /**
+     * @param percentile value in range (0, 100].
+     * @return upper bound of the bucket which contains requested percentile in microseconds or 0 if nothing was recorded.
+     */
+    public long percentileMicros(double percentile) {
+        if (totalFrames == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(totalFrames * percentile / 100d));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            seen += counts[i];
+
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxMicros);
+            }
+        }
+
+        return maxMicros;
+    }
+
+    public long maxMicros() {
+        return maxMicros;
+    }
+
+    public long totalFrames() {
+        return totalFrames;
+    }
+
+    public long droppedFrames() {
+        return droppedFrames;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalFrames = 0;
+        droppedFrames = 0;
+        maxMicros = 0;
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(micros);
+
+        if (exponent > LAST_EXPONENT) {
+            return BUCKETS_COUNT - 1;
+        }
+
+        final int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+
+        final int exponent = FIRST_EXPONENT + (index - LINEAR_BUCKETS) / SUB_BUCKETS;
+        final int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
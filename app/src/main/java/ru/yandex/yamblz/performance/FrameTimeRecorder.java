@@ -0,0 +1,272 @@
+package ru.yandex.yamblz.performance;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records durations of main thread frames into a {@link FrameTimeHistogram} per resumed activity.
+ * <p>
+ * Works on top of {@link Choreographer} so it measures the same thing TinyDancer does, but instead of
+ * instantaneous fps it keeps the whole distribution and reports percentiles and dropped frames.
+ * It also tells a {@link JankListener} when several janky frames come in a row, e.g. to capture a trace of them.
+ */
+public class FrameTimeRecorder implements Choreographer.FrameCallback, Application.ActivityLifecycleCallbacks {
+
+    private static final long NANOS_IN_SECOND = 1_000_000_000L;
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+
+    public interface JankListener {
+
+        /**
+         * Called on the main thread right after the last frame of the run, the counter starts over after it.
+         *
+         * @param frames number of janky frames in a row.
+         */
+        @MainThread
+        void onJank(int frames);
+    }
+
+    @NonNull
+    private final Application application;
+
+    // Guarded by itself, histograms are created on the main thread but may be reported from any thread.
+    @NonNull
+    private final Map<String, FrameTimeHistogram> histograms = new LinkedHashMap<>();
+
+    @Nullable
+    private FrameTimeHistogram currentHistogram;
+
+    private long frameIntervalNanos;
+    private long lastFrameTimeNanos;
+    private boolean started;
+
+    @Nullable
+    private String resumedActivityName;
+
+    @Nullable
+    private volatile JankListener jankListener;
+
+    private volatile int jankFrames;
+
+    // Main thread only.
+    private int jankyFramesInRow;
+
+    /**
+     * Should be created before the first activity so it knows which one is resumed when recording is started later.
+     */
+    public FrameTimeRecorder(@NonNull Application application) {
+        this.application = application;
+        application.registerActivityLifecycleCallbacks(this);
+    }
+
+    @MainThread
+    public void start() {
+        if (started) {
+            return;
+        }
+
+        started = true;
+        frameIntervalNanos = (long) (NANOS_IN_SECOND / refreshRate());
+
+        if (resumedActivityName != null) {
+            startRecording(resumedActivityName);
+        }
+    }
+
+    @MainThread
+    public void stop() {
+        if (!started) {
+            return;
+        }
+
+        started = false;
+        stopRecording();
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Frames are only seen while the recorder is started.
+     *
+     * @param frames   number of janky frames in a row to report, a frame is janky if it took at least one and a half vsync intervals.
+     * @param listener {@code null} to stop reporting.
+     */
+    @AnyThread
+    public void setJankListener(int frames, @Nullable JankListener listener) {
+        jankFrames = frames;
+        jankListener = listener;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        final FrameTimeHistogram histogram = currentHistogram;
+
+        if (histogram == null) {
+            return;
+        }
+
+        if (lastFrameTimeNanos != 0) {
+            final long durationNanos = frameTimeNanos - lastFrameTimeNanos;
+
+            synchronized (histogram) {
+                histogram.record(durationNanos, frameIntervalNanos);
+            }
+
+            countJank(durationNanos);
+        }
+
+        lastFrameTimeNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+        resumedActivityName = activity.getClass().getSimpleName();
+
+        if (started) {
+            startRecording(resumedActivityName);
+        }
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+        resumedActivityName = null;
+
+        // Frames between pause and next resume are not interesting and would be counted as one huge jank.
+        stopRecording();
+    }
+
+    private void startRecording(@NonNull String activityName) {
+        synchronized (histograms) {
+            FrameTimeHistogram histogram = histograms.get(activityName);
+
+            if (histogram == null) {
+                histogram = new FrameTimeHistogram();
+                histograms.put(activityName, histogram);
+            }
+
+            currentHistogram = histogram;
+        }
+
+        lastFrameTimeNanos = 0;
+        jankyFramesInRow = 0;
+        Choreographer.getInstance().removeFrameCallback(this);
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private void stopRecording() {
+        Choreographer.getInstance().removeFrameCallback(this);
+        currentHistogram = null;
+    }
+
+    private void countJank(long durationNanos) {
+        final JankListener listener = jankListener;
+
+        if (listener == null || jankFrames <= 0) {
+            return;
+        }
+
+        // Same threshold as dropped frames of FrameTimeHistogram.
+        if (durationNanos * 2 < frameIntervalNanos * 3) {
+            jankyFramesInRow = 0;
+            return;
+        }
+
+        jankyFramesInRow++;
+
+        if (jankyFramesInRow >= jankFrames) {
+            jankyFramesInRow = 0;
+            listener.onJank(jankFrames);
+        }
+    }
+
+    /**
+     * @return human readable report with percentiles and dropped frames per activity.
+     */
+    @AnyThread
+    @NonNull
+    public String report() {
+        final StringBuilder report = new StringBuilder();
+
+        synchronized (histograms) {
+            for (Map.Entry<String, FrameTimeHistogram> entry : histograms.entrySet()) {
+                final FrameTimeHistogram histogram = entry.getValue();
+
+                synchronized (histogram) {
+                    if (report.length() > 0) {
+                        report.append('\n');
+                    }
+
+                    report.append(entry.getKey())
+                            .append(String.format(Locale.US, ": %d frames, %d dropped%n", histogram.totalFrames(), histogram.droppedFrames()))
+                            .append(String.format(Locale.US, "p50 %.1f, p90 %.1f, p99 %.1f, max %.1f ms",
+                                    toMillis(histogram.percentileMicros(50)),
+                                    toMillis(histogram.percentileMicros(90)),
+                                    toMillis(histogram.percentileMicros(99)),
+                                    toMillis(histogram.maxMicros())));
+                }
+            }
+        }
+
+        return report.length() == 0 ? "No frames recorded" : report.toString();
+    }
+
+    @AnyThread
+    public void reset() {
+        synchronized (histograms) {
+            for (FrameTimeHistogram histogram : histograms.values()) {
+                synchronized (histogram) {
+                    histogram.reset();
+                }
+            }
+        }
+    }
+
+    private float refreshRate() {
+        final WindowManager windowManager = (WindowManager) application.getSystemService(Context.WINDOW_SERVICE);
+        final float refreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+        return refreshRate > 0 ? refreshRate : DEFAULT_REFRESH_RATE;
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000d;
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        // no-op
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        // no-op
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        // no-op
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        // no-op
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        // no-op
+    }
+}
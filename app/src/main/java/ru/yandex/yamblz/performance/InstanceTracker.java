@@ -0,0 +1,148 @@
+package ru.yandex.yamblz.performance;
+
+import android.support.annotation.NonNull;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts objects which should be garbage by now (unbound views, destroyed presenters) but are still not collected, per class.
+ * <p>
+ * Much lighter than LeakCanary: no heap dumps and no threads, collected objects are accounted lazily
+ * on the next call. A count which keeps growing means that instances of the class are retained.
+ */
+public class InstanceTracker {
+
+    @NonNull
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+    // Weak references have to be reachable themselves, otherwise they are never enqueued.
+    @NonNull
+    private final Set<TrackedReference> tracked = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    @NonNull
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Starts counting the object until it's collected, call it when the object is not needed anymore.
+     */
+    @AnyThread
+    public void track(@NonNull Object object) {
+        forgetCollected();
+
+        final String className = className(object.getClass());
+        Counter counter = counters.get(className);
+
+        if (counter == null) {
+            final Counter created = new Counter();
+            counter = counters.putIfAbsent(className, created);
+
+            if (counter == null) {
+                counter = created;
+            }
+        }
+
+        tracked.add(new TrackedReference(object, counter, collected));
+        counter.increment();
+    }
+
+    /**
+     * @return number of tracked instances of the class which are not collected yet.
+     */
+    @AnyThread
+    public int liveCount(@NonNull Class<?> type) {
+        forgetCollected();
+
+        final Counter counter = counters.get(className(type));
+        return counter == null ? 0 : counter.live.get();
+    }
+
+    /**
+     * @return live and max live instances per class, classes with more live instances go first.
+     */
+    @AnyThread
+    @NonNull
+    public String report() {
+        forgetCollected();
+
+        final List<Map.Entry<String, Counter>> entries = new ArrayList<>(counters.entrySet());
+
+        if (entries.isEmpty()) {
+            return "Nothing is tracked yet";
+        }
+
+        Collections.sort(entries, (first, second) -> second.getValue().live.get() - first.getValue().live.get());
+
+        final StringBuilder report = new StringBuilder();
+
+        for (Map.Entry<String, Counter> entry : entries) {
+            if (report.length() > 0) {
+                report.append('\n');
+            }
+
+            report.append(String.format(Locale.US, "%s: %d live (max %d)", entry.getKey(), entry.getValue().live.get(), entry.getValue().maxLive.get()));
+        }
+
+        return report.toString();
+    }
+
+    private void forgetCollected() {
+        Reference<?> reference;
+
+        while ((reference = collected.poll()) != null) {
+            if (tracked.remove(reference)) {
+                ((TrackedReference) reference).counter.live.decrementAndGet();
+            }
+        }
+    }
+
+    @NonNull
+    private static String className(@NonNull Class<?> type) {
+        // Views may be wrapped by ThreadContractTracker, "$Proxy3" says nothing about what's retained.
+        if (Proxy.isProxyClass(type) && type.getInterfaces().length > 0) {
+            return type.getInterfaces()[0].getSimpleName() + " proxy";
+        }
+
+        return type.getSimpleName();
+    }
+
+    private static class Counter {
+
+        @NonNull
+        final AtomicInteger live = new AtomicInteger();
+
+        @NonNull
+        final AtomicInteger maxLive = new AtomicInteger();
+
+        void increment() {
+            final int value = live.incrementAndGet();
+            int max;
+
+            do {
+                max = maxLive.get();
+            } while (value > max && !maxLive.compareAndSet(max, value));
+        }
+    }
+
+    private static class TrackedReference extends WeakReference<Object> {
+
+        @NonNull
+        final Counter counter;
+
+        TrackedReference(@NonNull Object referent, @NonNull Counter counter, @NonNull ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.counter = counter;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.yamblz.performance;
+
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+
+/**
+ * StrictMode-like hook for disk reads our own code knows about: StrictMode only sees reads which go through
+ * the framework, and it can not tell how long the main thread was blocked.
+ */
+public interface MainThreadDiskReadListener {
+
+    /**
+     * @param operation     what was read.
+     * @param durationNanos how long the main thread was blocked.
+     * @param stackTrace    where the read was requested from.
+     */
+    @MainThread
+    void onMainThreadDiskRead(@NonNull String operation, long durationNanos, @NonNull Throwable stackTrace);
+}
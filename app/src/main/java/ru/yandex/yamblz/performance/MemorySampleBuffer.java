@@ -0,0 +1,207 @@
+package ru.yandex.yamblz.performance;
+
+import android.support.annotation.NonNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Fixed-size ring buffer of memory samples, the oldest samples are overwritten when it's full.
+ * <p>
+ * Every sample is a row of {@link #COLUMNS} longs in one primitive array, so recording never allocates:
+ * the sampler must not produce garbage while it measures garbage.
+ * <p>
+ * Not thread safe, callers should synchronize on the buffer if it's read from another thread.
+ */
+public class MemorySampleBuffer {
+
+    public static final int COLUMN_TIME_MS = 0;
+    public static final int COLUMN_JAVA_HEAP_KB = 1;
+    public static final int COLUMN_NATIVE_HEAP_KB = 2;
+    public static final int COLUMN_TOTAL_PSS_KB = 3;
+    public static final int COLUMN_GC_COUNT = 4;
+    public static final int COLUMN_GC_TIME_MS = 5;
+    public static final int COLUMNS = 6;
+
+    /**
+     * Stored instead of a value which is not available on this device, e.g. GC stats before API 23.
+     */
+    public static final long UNKNOWN = -1;
+
+    private static final int MAGIC = 0x594D454D; // "YMEM".
+    private static final int VERSION = 1;
+
+    private static final long MILLIS_IN_SECOND = 1000;
+
+    private final long[] values;
+
+    private final int capacity;
+
+    // Index of the row which is written next.
+    private int head;
+    private int size;
+
+    public MemorySampleBuffer(int capacity) {
+        this.capacity = capacity;
+        this.values = new long[capacity * COLUMNS];
+    }
+
+    public void record(long timeMs, long javaHeapKb, long nativeHeapKb, long totalPssKb, long gcCount, long gcTimeMs) {
+        final int base = head * COLUMNS;
+
+        values[base + COLUMN_TIME_MS] = timeMs;
+        values[base + COLUMN_JAVA_HEAP_KB] = javaHeapKb;
+        values[base + COLUMN_NATIVE_HEAP_KB] = nativeHeapKb;
+        values[base + COLUMN_TOTAL_PSS_KB] = totalPssKb;
+        values[base + COLUMN_GC_COUNT] = gcCount;
+        values[base + COLUMN_GC_TIME_MS] = gcTimeMs;
+
+        head = (head + 1) % capacity;
+        size = Math.min(size + 1, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @param index 0 is the oldest sample, {@code size() - 1} is the newest one.
+     */
+    public long get(int index, int column) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index = " + index + ", size = " + size);
+        }
+
+        return values[((head - size + index + capacity) % capacity) * COLUMNS + column];
+    }
+
+    /**
+     * @return the newest value of the column minus the oldest one, 0 if there are less than two samples or the value is unknown.
+     */
+    public long change(int column) {
+        if (size < 2) {
+            return 0;
+        }
+
+        final long oldest = get(0, column);
+        final long newest = get(size - 1, column);
+        return oldest == UNKNOWN || newest == UNKNOWN ? 0 : newest - oldest;
+    }
+
+    public long durationMs() {
+        return size < 2 ? 0 : get(size - 1, COLUMN_TIME_MS) - get(0, COLUMN_TIME_MS);
+    }
+
+    /**
+     * Java heap only grows between collections, so the sum of its growth between samples is allocated memory.
+     * Objects allocated and collected between two samples are missed, so it's a lower bound.
+     *
+     * @return allocated kilobytes per second over all samples, 0 if there are less than two samples.
+     */
+    public long allocationRateKbPerSecond() {
+        final long durationMs = durationMs();
+
+        if (durationMs <= 0) {
+            return 0;
+        }
+
+        long allocatedKb = 0;
+
+        for (int index = 1; index < size; index++) {
+            final long growthKb = get(index, COLUMN_JAVA_HEAP_KB) - get(index - 1, COLUMN_JAVA_HEAP_KB);
+
+            if (growthKb > 0) {
+                allocatedKb += growthKb;
+            }
+        }
+
+        return allocatedKb * MILLIS_IN_SECOND / durationMs;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Writes samples from the oldest to the newest: a small header and then every value as a zig-zag varint delta
+     * from the same column of the previous sample. Neighbour samples are close, so most values take one or two bytes.
+     */
+    public void writeTo(@NonNull DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(COLUMNS);
+        output.writeInt(size);
+
+        for (int index = 0; index < size; index++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                final long previous = index == 0 ? 0 : get(index - 1, column);
+                writeVarLong(output, zigZag(get(index, column) - previous));
+            }
+        }
+    }
+
+    /**
+     * Reads samples written by {@link #writeTo(DataOutput)}, for tools which analyze exported files.
+     */
+    @NonNull
+    public static MemorySampleBuffer readFrom(@NonNull DataInput input) throws IOException {
+        if (input.readInt() != MAGIC || input.readInt() != VERSION || input.readInt() != COLUMNS) {
+            throw new IOException("Not a memory samples file");
+        }
+
+        final int size = input.readInt();
+        final MemorySampleBuffer buffer = new MemorySampleBuffer(Math.max(1, size));
+        final long[] row = new long[COLUMNS];
+
+        for (int index = 0; index < size; index++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                row[column] += unZigZag(readVarLong(input));
+            }
+
+            buffer.record(row[COLUMN_TIME_MS], row[COLUMN_JAVA_HEAP_KB], row[COLUMN_NATIVE_HEAP_KB],
+                    row[COLUMN_TOTAL_PSS_KB], row[COLUMN_GC_COUNT], row[COLUMN_GC_TIME_MS]);
+        }
+
+        return buffer;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(@NonNull DataOutput output, long value) throws IOException {
+        long remaining = value;
+
+        while ((remaining & ~0x7FL) != 0) {
+            output.writeByte((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+
+        output.writeByte((int) remaining);
+    }
+
+    private static long readVarLong(@NonNull DataInput input) throws IOException {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = input.readByte();
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed varint");
+    }
+}
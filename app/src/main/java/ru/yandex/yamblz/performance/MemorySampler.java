@@ -0,0 +1,246 @@
+package ru.yandex.yamblz.performance;
+
+import android.app.Application;
+import android.os.Build;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+import ru.yandex.yamblz.executors.PeriodicTask;
+import timber.log.Timber;
+
+import static ru.yandex.yamblz.performance.MemorySampleBuffer.COLUMN_GC_COUNT;
+import static ru.yandex.yamblz.performance.MemorySampleBuffer.COLUMN_GC_TIME_MS;
+import static ru.yandex.yamblz.performance.MemorySampleBuffer.COLUMN_JAVA_HEAP_KB;
+import static ru.yandex.yamblz.performance.MemorySampleBuffer.COLUMN_NATIVE_HEAP_KB;
+import static ru.yandex.yamblz.performance.MemorySampleBuffer.COLUMN_TOTAL_PSS_KB;
+import static ru.yandex.yamblz.performance.MemorySampleBuffer.UNKNOWN;
+
+/**
+ * Periodically samples Java heap, native heap, PSS and GC stats into a {@link MemorySampleBuffer}
+ * with a {@link PeriodicTask} on the io executor.
+ * <p>
+ * {@link Debug#getMemoryInfo(Debug.MemoryInfo)} may take tens of milliseconds, so it never runs on the main thread
+ * and the buffer is locked only to copy the finished sample. GC stats are read with {@link Debug#getRuntimeStat(String)},
+ * which needs API 23 and returns strings, the only allocation per sample.
+ */
+public class MemorySampler {
+
+    static final String EXPORT_FILE_NAME = "memory_samples.bin";
+
+    // Ten minutes of samples with the default interval of one second.
+    private static final int CAPACITY = 600;
+
+    private static final long BYTES_IN_KB = 1024;
+    private static final double KB_IN_MB = 1024d;
+
+    public interface Listener {
+
+        /**
+         * Called on an io executor thread after every sample, keep it cheap and allocation free.
+         */
+        @WorkerThread
+        void onMemorySampled(long javaHeapKb, long nativeHeapKb, long totalPssKb);
+    }
+
+    @NonNull
+    private final Application application;
+
+    // Guarded by itself.
+    @NonNull
+    private final MemorySampleBuffer buffer = new MemorySampleBuffer(CAPACITY);
+
+    @NonNull
+    private final PeriodicTask periodicTask;
+
+    // Only one sample is taken at a time, reused to not allocate per sample.
+    @NonNull
+    private final Debug.MemoryInfo memoryInfo = new Debug.MemoryInfo();
+
+    // Copied on write by hand: iterating a copy-on-write list would allocate an iterator per sample.
+    @NonNull
+    private volatile Listener[] listeners = new Listener[0];
+
+    public MemorySampler(@NonNull Application application, @NonNull ScheduledExecutorService scheduler, @NonNull Executor ioExecutor) {
+        this.application = application;
+        this.periodicTask = new PeriodicTask(scheduler, ioExecutor, this::sample);
+    }
+
+    /**
+     * Starts a new recording or only changes the interval if the sampler is already running.
+     */
+    @AnyThread
+    public synchronized void start(long intervalMs) {
+        if (!periodicTask.isStarted()) {
+            synchronized (buffer) {
+                buffer.clear();
+            }
+        }
+
+        periodicTask.start(intervalMs);
+    }
+
+    /**
+     * Takes no more samples, a sample which is already being taken still finishes.
+     */
+    @AnyThread
+    public void stop() {
+        periodicTask.stop();
+    }
+
+    @AnyThread
+    public synchronized void addListener(@NonNull Listener listener) {
+        final Listener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    @AnyThread
+    @SuppressWarnings("PMD.CompareObjectsWithEquals")
+    public synchronized void removeListener(@NonNull Listener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                final Listener[] updated = new Listener[listeners.length - 1];
+                System.arraycopy(listeners, 0, updated, 0, i);
+                System.arraycopy(listeners, i + 1, updated, i, listeners.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+
+    public boolean isStarted() {
+        return periodicTask.isStarted();
+    }
+
+    /**
+     * @return latest values, their change over the recorded period and the allocation rate.
+     */
+    @AnyThread
+    @NonNull
+    public String report() {
+        synchronized (buffer) {
+            final int size = buffer.size();
+
+            if (size == 0) {
+                return "No samples recorded";
+            }
+
+            final int newest = size - 1;
+            final StringBuilder report = new StringBuilder()
+                    .append(String.format(Locale.US, "%d samples over %d s%n", size, buffer.durationMs() / 1000))
+                    .append(String.format(Locale.US, "Java heap %.1f MB (%+.1f)%n", toMb(buffer.get(newest, COLUMN_JAVA_HEAP_KB)), toMb(buffer.change(COLUMN_JAVA_HEAP_KB))))
+                    .append(String.format(Locale.US, "Native heap %.1f MB (%+.1f)%n", toMb(buffer.get(newest, COLUMN_NATIVE_HEAP_KB)), toMb(buffer.change(COLUMN_NATIVE_HEAP_KB))))
+                    .append(String.format(Locale.US, "PSS %.1f MB (%+.1f)%n", toMb(buffer.get(newest, COLUMN_TOTAL_PSS_KB)), toMb(buffer.change(COLUMN_TOTAL_PSS_KB))));
+
+            if (buffer.get(newest, COLUMN_GC_COUNT) == UNKNOWN) {
+                report.append("GC stats need API 23\n");
+            } else {
+                report.append(String.format(Locale.US, "GC %d runs, %d ms (%+d runs, %+d ms)%n",
+                        buffer.get(newest, COLUMN_GC_COUNT), buffer.get(newest, COLUMN_GC_TIME_MS),
+                        buffer.change(COLUMN_GC_COUNT), buffer.change(COLUMN_GC_TIME_MS)));
+            }
+
+            return report.append(String.format(Locale.US, "Allocating at least %d KB/s", buffer.allocationRateKbPerSecond())).toString();
+        }
+    }
+
+    /**
+     * Writes recorded samples in the format of {@link MemorySampleBuffer#writeTo} to the app files dir.
+     *
+     * @return exported file, {@code null} if it could not be written.
+     */
+    @WorkerThread
+    @Nullable
+    public File export() {
+        final File file = new File(application.getFilesDir(), EXPORT_FILE_NAME);
+
+        DataOutputStream output = null;
+
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            writeTo(output);
+            output.flush();
+            return file;
+        } catch (IOException e) {
+            Timber.e(e, "Can not export memory samples");
+            return null;
+        } finally {
+            closeQuietly(output);
+        }
+    }
+
+    /**
+     * Writes recorded samples in the format of {@link MemorySampleBuffer#writeTo}.
+     */
+    @AnyThread
+    public void writeTo(@NonNull DataOutput output) throws IOException {
+        synchronized (buffer) {
+            buffer.writeTo(output);
+        }
+    }
+
+    @WorkerThread
+    private void sample() {
+        final Runtime runtime = Runtime.getRuntime();
+        final long timeMs = SystemClock.elapsedRealtime();
+        final long javaHeapKb = (runtime.totalMemory() - runtime.freeMemory()) / BYTES_IN_KB;
+        final long nativeHeapKb = Debug.getNativeHeapAllocatedSize() / BYTES_IN_KB;
+
+        Debug.getMemoryInfo(memoryInfo);
+
+        final long gcCount = runtimeStat("art.gc.gc-count");
+        final long gcTimeMs = runtimeStat("art.gc.gc-time");
+
+        final long totalPssKb = memoryInfo.getTotalPss();
+
+        synchronized (buffer) {
+            buffer.record(timeMs, javaHeapKb, nativeHeapKb, totalPssKb, gcCount, gcTimeMs);
+        }
+
+        for (Listener listener : listeners) {
+            listener.onMemorySampled(javaHeapKb, nativeHeapKb, totalPssKb);
+        }
+    }
+
+    private static long runtimeStat(@NonNull String name) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return UNKNOWN;
+        }
+
+        final String value = Debug.getRuntimeStat(name);
+
+        try {
+            return value == null ? UNKNOWN : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return UNKNOWN;
+        }
+    }
+
+    private static double toMb(long kb) {
+        return kb / KB_IN_MB;
+    }
+
+    private static void closeQuietly(@Nullable DataOutputStream output) {
+        if (output != null) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                Timber.e(e, "Can not close memory samples file");
+            }
+        }
+    }
+}
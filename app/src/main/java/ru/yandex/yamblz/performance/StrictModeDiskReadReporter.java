@@ -0,0 +1,36 @@
+package ru.yandex.yamblz.performance;
+
+import android.os.StrictMode;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+
+import timber.log.Timber;
+
+/**
+ * Logs main thread disk reads, counts them in a {@link ViolationCounter} and forwards them to {@link StrictMode}
+ * as custom slow calls, so they show up with the rest of StrictMode violations when {@code detectCustomSlowCalls()} is on.
+ */
+public class StrictModeDiskReadReporter implements MainThreadDiskReadListener {
+
+    private static final double NANOS_IN_MILLI = 1_000_000d;
+
+    @NonNull
+    private final ViolationCounter violationCounter;
+
+    // Counting folds the stack trace, it must not make the reported read even longer.
+    @NonNull
+    private final Executor executor;
+
+    public StrictModeDiskReadReporter(@NonNull ViolationCounter violationCounter, @NonNull Executor executor) {
+        this.violationCounter = violationCounter;
+        this.executor = executor;
+    }
+
+    @Override
+    public void onMainThreadDiskRead(@NonNull String operation, long durationNanos, @NonNull Throwable stackTrace) {
+        Timber.w(stackTrace, "%s blocked the main thread for %.1f ms", operation, durationNanos / NANOS_IN_MILLI);
+        executor.execute(() -> violationCounter.record(operation + " on the main thread", stackTrace));
+        StrictMode.noteSlowCall(operation);
+    }
+}
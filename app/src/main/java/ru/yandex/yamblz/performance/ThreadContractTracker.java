@@ -0,0 +1,295 @@
+package ru.yandex.yamblz.performance;
+
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * Debug tool which checks {@link AnyThread} contracts of interfaces at runtime.
+ * <p>
+ * {@link #wrap} returns a proxy which counts, per method, calls made on the main thread and calls made from other threads.
+ * A call from another thread has to hop to the main thread sooner or later. The view stamps what the call queues for
+ * the main thread with {@link #callInProgress()} and records the delay when it is applied: that's what the hop costs.
+ * Calls of methods without {@link AnyThread} from other threads are contract violations and are logged.
+ * <p>
+ * Reflection makes calls slow, wrap interfaces only in debug builds.
+ */
+public class ThreadContractTracker {
+
+    private static final double NANOS_IN_MILLI = 1_000_000d;
+
+    @NonNull
+    private final ConcurrentMap<String, MethodStats> stats = new ConcurrentHashMap<>();
+
+    @NonNull
+    private final ThreadLocal<MethodStats> callInProgress = new ThreadLocal<>();
+
+    @AnyThread
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public <T> T wrap(@NonNull Class<T> type, @NonNull T delegate) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new TrackingHandler(type, delegate));
+    }
+
+    /**
+     * @return stats of a method, {@code null} if it was never called through a wrapper.
+     */
+    @AnyThread
+    @Nullable
+    public MethodStats stats(@NonNull Class<?> type, @NonNull String methodName) {
+        return stats.get(key(type, methodName));
+    }
+
+    /**
+     * @return stats of the wrapped method which is being called from a background thread on this thread,
+     * {@code null} on the main thread or outside of wrapped calls. Work the call queues for the main thread
+     * reports how long it waited to {@link MethodStats#recordHop(long)}.
+     */
+    @AnyThread
+    @Nullable
+    public MethodStats callInProgress() {
+        return callInProgress.get();
+    }
+
+    /**
+     * @return one line per method, methods which hop to the main thread most often go first.
+     */
+    @AnyThread
+    @NonNull
+    public String report() {
+        final List<MethodStats> methods = new ArrayList<>(stats.values());
+
+        if (methods.isEmpty()) {
+            return "No calls yet";
+        }
+
+        // Long.compare() needs API 19.
+        Collections.sort(methods, (first, second) -> Long.valueOf(second.backgroundCalls.get()).compareTo(first.backgroundCalls.get()));
+
+        final StringBuilder report = new StringBuilder();
+
+        for (MethodStats method : methods) {
+            if (report.length() > 0) {
+                report.append('\n');
+            }
+
+            report.append(method.report());
+        }
+
+        return report.toString();
+    }
+
+    @NonNull
+    private MethodStats methodStats(@NonNull Class<?> type, @NonNull Method method) {
+        final String key = key(type, method.getName());
+        MethodStats methodStats = stats.get(key);
+
+        if (methodStats == null) {
+            final MethodStats created = new MethodStats(key, method.isAnnotationPresent(AnyThread.class));
+            methodStats = stats.putIfAbsent(key, created);
+
+            if (methodStats == null) {
+                methodStats = created;
+            }
+        }
+
+        return methodStats;
+    }
+
+    @NonNull
+    private static String key(@NonNull Class<?> type, @NonNull String methodName) {
+        return type.getSimpleName() + "." + methodName;
+    }
+
+    private class TrackingHandler implements InvocationHandler {
+
+        @NonNull
+        private final Class<?> type;
+
+        @NonNull
+        private final Object delegate;
+
+        TrackingHandler(@NonNull Class<?> type, @NonNull Object delegate) {
+            this.type = type;
+            this.delegate = delegate;
+        }
+
+        @Override
+        @SuppressWarnings("PMD.CompareObjectsWithEquals")
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                // Presenters compare views by identity, the wrapper has to be equal only to itself.
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return method.invoke(delegate, args);
+                }
+            }
+
+            final MethodStats outerCall = callInProgress.get();
+            callInProgress.set(track(method));
+
+            try {
+                return method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                callInProgress.set(outerCall);
+            }
+        }
+
+        /**
+         * @return stats of the method if it's called from a background thread, {@code null} otherwise.
+         */
+        @Nullable
+        private MethodStats track(@NonNull Method method) {
+            final MethodStats methodStats = methodStats(type, method);
+
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                methodStats.mainThreadCalls.incrementAndGet();
+                return null;
+            }
+
+            final String threadName = Thread.currentThread().getName();
+            methodStats.backgroundCalls.incrementAndGet();
+            methodStats.recordCaller(threadName);
+
+            if (!methodStats.anyThread) {
+                methodStats.violations.incrementAndGet();
+                Timber.w(new Throwable("Thread contract violation"), "%s is not @AnyThread, but it's called from %s", methodStats.name, threadName);
+            }
+
+            return methodStats;
+        }
+    }
+
+    public static class MethodStats {
+
+        @NonNull
+        final String name;
+
+        final boolean anyThread;
+
+        @NonNull
+        final AtomicLong mainThreadCalls = new AtomicLong();
+
+        @NonNull
+        final AtomicLong backgroundCalls = new AtomicLong();
+
+        @NonNull
+        final AtomicLong violations = new AtomicLong();
+
+        @NonNull
+        final AtomicLong hops = new AtomicLong();
+
+        @NonNull
+        final AtomicLong totalHopNanos = new AtomicLong();
+
+        @NonNull
+        final AtomicLong maxHopNanos = new AtomicLong();
+
+        @NonNull
+        final ConcurrentMap<String, AtomicInteger> callsByThread = new ConcurrentHashMap<>();
+
+        MethodStats(@NonNull String name, boolean anyThread) {
+            this.name = name;
+            this.anyThread = anyThread;
+        }
+
+        public long mainThreadCalls() {
+            return mainThreadCalls.get();
+        }
+
+        public long backgroundCalls() {
+            return backgroundCalls.get();
+        }
+
+        public long violations() {
+            return violations.get();
+        }
+
+        /**
+         * @return number of updates queued by background calls which were applied on the main thread,
+         * updates still waiting in the queue are not counted.
+         */
+        public long hops() {
+            return hops.get();
+        }
+
+        public long maxHopNanos() {
+            return maxHopNanos.get();
+        }
+
+        /**
+         * @return number of calls from the thread, only calls from background threads are counted.
+         */
+        public int callsFrom(@NonNull String threadName) {
+            final AtomicInteger calls = callsByThread.get(threadName);
+            return calls == null ? 0 : calls.get();
+        }
+
+        void recordCaller(@NonNull String threadName) {
+            AtomicInteger calls = callsByThread.get(threadName);
+
+            if (calls == null) {
+                final AtomicInteger created = new AtomicInteger();
+                calls = callsByThread.putIfAbsent(threadName, created);
+
+                if (calls == null) {
+                    calls = created;
+                }
+            }
+
+            calls.incrementAndGet();
+        }
+
+        /**
+         * Called on the main thread when work queued by a background call of the method is done.
+         */
+        @AnyThread
+        public void recordHop(long hopNanos) {
+            hops.incrementAndGet();
+            totalHopNanos.addAndGet(hopNanos);
+
+            long max;
+
+            do {
+                max = maxHopNanos.get();
+            } while (hopNanos > max && !maxHopNanos.compareAndSet(max, hopNanos));
+        }
+
+        @NonNull
+        String report() {
+            final long hopsCount = hops.get();
+
+            final String report = String.format(Locale.US, "%s: %d main, %d background %s, hop avg %.1f ms max %.1f ms",
+                    name,
+                    mainThreadCalls.get(),
+                    backgroundCalls.get(),
+                    callsByThread.keySet(),
+                    hopsCount == 0 ? 0 : totalHopNanos.get() / NANOS_IN_MILLI / hopsCount,
+                    maxHopNanos.get() / NANOS_IN_MILLI);
+
+            final long violationsCount = violations.get();
+            return violationsCount == 0 ? report : report + ", " + violationsCount + " violations";
+        }
+    }
+}
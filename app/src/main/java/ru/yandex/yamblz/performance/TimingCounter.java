@@ -0,0 +1,115 @@
+package ru.yandex.yamblz.performance;
+
+import android.support.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Counts calls of an operation and how long they took: totals, the maximum and a ring of the latest durations.
+ * <p>
+ * Recording never allocates, the ring is created in the constructor. Methods are synchronized: a counter is written
+ * by one thread and only read from time to time by another one, so the lock is practically never contended.
+ */
+public class TimingCounter {
+
+    private static final long NANOS_IN_MICRO = 1000;
+    private static final double NANOS_IN_MILLI = 1_000_000d;
+
+    @NonNull
+    private final String name;
+
+    // Latest durations in microseconds, int holds more than half an hour.
+    @NonNull
+    private final int[] latestMicros;
+
+    private int next;
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    /**
+     * @param capacity number of latest durations to keep.
+     */
+    public TimingCounter(@NonNull String name, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity has to be positive, capacity = " + capacity);
+        }
+
+        this.name = name;
+        this.latestMicros = new int[capacity];
+    }
+
+    @NonNull
+    public String name() {
+        return name;
+    }
+
+    @AnyThread
+    public synchronized void record(long durationNanos) {
+        latestMicros[next] = (int) Math.min(Integer.MAX_VALUE, durationNanos / NANOS_IN_MICRO);
+        next = (next + 1) % latestMicros.length;
+        count++;
+        totalNanos += durationNanos;
+        maxNanos = Math.max(maxNanos, durationNanos);
+    }
+
+    @AnyThread
+    public synchronized long count() {
+        return count;
+    }
+
+    @AnyThread
+    public synchronized long maxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * @return copy of the latest durations in microseconds from the oldest to the newest.
+     */
+    @AnyThread
+    @NonNull
+    public synchronized int[] latestMicros() {
+        final int size = (int) Math.min(count, latestMicros.length);
+        final int[] copy = new int[size];
+        final int oldest = size < latestMicros.length ? 0 : next;
+
+        for (int i = 0; i < size; i++) {
+            copy[i] = latestMicros[(oldest + i) % latestMicros.length];
+        }
+
+        return copy;
+    }
+
+    @AnyThread
+    public synchronized void reset() {
+        next = 0;
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    @AnyThread
+    @NonNull
+    public synchronized String report() {
+        return String.format(Locale.US, "%s: %d calls, avg %.2f ms, max %.2f ms",
+                name,
+                count,
+                count == 0 ? 0 : totalNanos / NANOS_IN_MILLI / count,
+                maxNanos / NANOS_IN_MILLI);
+    }
+
+    /**
+     * @return name and the latest durations in microseconds separated by spaces, from the oldest to the newest.
+     */
+    @AnyThread
+    @NonNull
+    public String raw() {
+        final StringBuilder raw = new StringBuilder(name.replace(' ', '_'));
+
+        for (int micros : latestMicros()) {
+            raw.append(' ').append(micros);
+        }
+
+        return raw.toString();
+    }
+}
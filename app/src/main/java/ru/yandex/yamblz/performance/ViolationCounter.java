@@ -0,0 +1,160 @@
+package ru.yandex.yamblz.performance;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Deduplicates reported violations (StrictMode ones and main thread disk reads) by type and stack signature
+ * and counts how often each of them happens, so a violation repeated on every frame is one line instead of a log flood.
+ * <p>
+ * Only the first stack trace of a signature is kept. Once {@code maxSignatures} different ones are seen,
+ * new signatures are only counted as dropped.
+ */
+public class ViolationCounter {
+
+    private static final String APP_PACKAGE = "ru.yandex.yamblz.";
+
+    // Violations are reported from inside the tools, their frames say nothing about the cause.
+    private static final String PERFORMANCE_PACKAGE = "ru.yandex.yamblz.performance.";
+
+    @NonNull
+    private final Map<String, Violation> violations = new HashMap<>();
+
+    private final int maxSignatures;
+
+    // Guarded by violations.
+    private int droppedCount;
+
+    public ViolationCounter(int maxSignatures) {
+        this.maxSignatures = maxSignatures;
+    }
+
+    /**
+     * @param type       kind of the violation, e.g. class name of a StrictMode violation.
+     * @param stackTrace where the violation happened.
+     */
+    @AnyThread
+    public void record(@NonNull String type, @NonNull Throwable stackTrace) {
+        final StackTraceElement[] frames = stackTrace.getStackTrace();
+        final String signature = type + ';' + FoldedStacks.fold(frames);
+
+        synchronized (violations) {
+            final Violation violation = violations.get(signature);
+
+            if (violation != null) {
+                violation.count++;
+            } else if (violations.size() < maxSignatures) {
+                violations.put(signature, new Violation(type, frames));
+            } else {
+                droppedCount++;
+            }
+        }
+    }
+
+    @AnyThread
+    public void reset() {
+        synchronized (violations) {
+            violations.clear();
+            droppedCount = 0;
+        }
+    }
+
+    /**
+     * @param maxViolations number of the most frequent violations to list.
+     * @param maxFrames     number of app frames to show per violation, starting from the one closest to the violation.
+     * @return violations ranked by how often they happened.
+     */
+    @AnyThread
+    @NonNull
+    public String report(int maxViolations, int maxFrames) {
+        final List<Violation> ranked;
+        final int dropped;
+
+        synchronized (violations) {
+            ranked = new ArrayList<>(violations.size());
+
+            // Copy counts under the lock, sorting and formatting happen outside of it.
+            for (Violation violation : violations.values()) {
+                ranked.add(new Violation(violation));
+            }
+
+            dropped = droppedCount;
+        }
+
+        if (ranked.isEmpty()) {
+            return "No violations";
+        }
+
+        Collections.sort(ranked, (first, second) -> second.count - first.count);
+
+        final StringBuilder report = new StringBuilder();
+
+        for (int i = 0; i < ranked.size() && i < maxViolations; i++) {
+            final Violation violation = ranked.get(i);
+
+            if (report.length() > 0) {
+                report.append('\n');
+            }
+
+            report.append(violation.count).append("x ").append(violation.type);
+            appendAppFrames(report, violation.frames, maxFrames);
+        }
+
+        if (ranked.size() > maxViolations) {
+            report.append(String.format(Locale.US, "%n%d more", ranked.size() - maxViolations));
+        }
+
+        if (dropped > 0) {
+            report.append(String.format(Locale.US, "%n%d of other kinds were not counted", dropped));
+        }
+
+        return report.toString();
+    }
+
+    private static void appendAppFrames(@NonNull StringBuilder report, @NonNull StackTraceElement[] frames, int maxFrames) {
+        int appended = 0;
+
+        for (int i = 0; i < frames.length && appended < maxFrames; i++) {
+            final String className = frames[i].getClassName();
+
+            if (className.startsWith(APP_PACKAGE) && !className.startsWith(PERFORMANCE_PACKAGE)) {
+                report.append("\n  at ").append(frames[i]);
+                appended++;
+            }
+        }
+
+        // Nothing of ours on the stack, e.g. a leaked closeable of a library: the top frame is the best hint.
+        if (appended == 0 && frames.length > 0) {
+            report.append("\n  at ").append(frames[0]);
+        }
+    }
+
+    private static class Violation {
+
+        @NonNull
+        final String type;
+
+        @NonNull
+        final StackTraceElement[] frames;
+
+        int count;
+
+        Violation(@NonNull String type, @NonNull StackTraceElement[] frames) {
+            this.type = type;
+            this.frames = frames;
+            this.count = 1;
+        }
+
+        Violation(@NonNull Violation violation) {
+            this.type = violation.type;
+            this.frames = violation.frames;
+            this.count = violation.count;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.yamblz.startup;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.NonNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs commands on the main thread when its looper has nothing else to do, one command per idle pass
+ * so the work never delays a frame more than a single command does.
+ */
+public class MainThreadIdleExecutor implements Executor, MessageQueue.IdleHandler {
+
+    @NonNull
+    private final Handler mainThreadHandler;
+
+    @NonNull
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+
+    @NonNull
+    private final AtomicBoolean idleHandlerAdded = new AtomicBoolean();
+
+    public MainThreadIdleExecutor(@NonNull Handler mainThreadHandler) {
+        this.mainThreadHandler = mainThreadHandler;
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        commands.add(command);
+
+        if (idleHandlerAdded.compareAndSet(false, true)) {
+            // Idle handlers can only be added to the queue of the current thread before API 23.
+            mainThreadHandler.post(() -> Looper.myQueue().addIdleHandler(this));
+        }
+    }
+
+    @Override
+    public boolean queueIdle() {
+        final Runnable command = commands.poll();
+
+        if (command != null) {
+            command.run();
+        }
+
+        if (!commands.isEmpty()) {
+            return true;
+        }
+
+        idleHandlerAdded.set(false);
+
+        // Command could be added between the check and the reset, in that case keep the handler.
+        return !commands.isEmpty() && idleHandlerAdded.compareAndSet(false, true);
+    }
+}
@@ -0,0 +1,228 @@
+package ru.yandex.yamblz.startup;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ru.yandex.yamblz.performance.AnyThread;
+import timber.log.Timber;
+
+/**
+ * Runs {@link StartupTask}s respecting their dependencies: task is dispatched as soon as all tasks it depends on
+ * are finished. Background tasks go to the background executor, main thread ones to the idle executor.
+ * <p>
+ * Records how long every task waited for its dependencies and executor and how long it actually ran,
+ * the summary is logged once all tasks are finished.
+ */
+public class StartupScheduler {
+
+    private static final double NANOS_IN_MILLI = 1_000_000d;
+
+    @NonNull
+    private final Executor backgroundExecutor;
+
+    @NonNull
+    private final Executor mainThreadIdleExecutor;
+
+    // Insertion order is kept to make the report readable.
+    @NonNull
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    @NonNull
+    private final AtomicInteger finishedTasks = new AtomicInteger();
+
+    private long startNanos;
+    private boolean started;
+
+    public StartupScheduler(@NonNull Executor backgroundExecutor, @NonNull Executor mainThreadIdleExecutor) {
+        this.backgroundExecutor = backgroundExecutor;
+        this.mainThreadIdleExecutor = mainThreadIdleExecutor;
+    }
+
+    @NonNull
+    public StartupScheduler add(@NonNull StartupTask task) {
+        if (started) {
+            throw new IllegalStateException("Scheduler is already started, can not add " + task);
+        }
+
+        if (nodes.put(task.name(), new Node(task)) != null) {
+            throw new IllegalArgumentException("Duplicate startup task name: " + task.name());
+        }
+
+        return this;
+    }
+
+    @NonNull
+    public StartupScheduler addAll(@NonNull List<StartupTask> tasks) {
+        for (StartupTask task : tasks) {
+            add(task);
+        }
+
+        return this;
+    }
+
+    /**
+     * Validates dependency graph and dispatches all tasks without dependencies.
+     *
+     * @throws IllegalArgumentException if a task depends on an unknown task or there is a cycle.
+     */
+    public void start() {
+        if (started) {
+            throw new IllegalStateException("Scheduler is already started");
+        }
+
+        started = true;
+        startNanos = System.nanoTime();
+
+        for (Node node : nodes.values()) {
+            for (String dependency : node.task.dependencies()) {
+                final Node dependencyNode = nodes.get(dependency);
+
+                if (dependencyNode == null) {
+                    throw new IllegalArgumentException("Unknown dependency " + dependency + " of " + node.task);
+                }
+
+                dependencyNode.dependents.add(node);
+            }
+
+            node.remainingDependencies.set(node.task.dependencies().size());
+        }
+
+        checkNoCycles();
+
+        final List<Node> roots = new ArrayList<>();
+
+        for (Node node : nodes.values()) {
+            if (node.remainingDependencies.get() == 0) {
+                roots.add(node);
+            }
+        }
+
+        // Collect roots first, otherwise quick tasks may dispatch their dependents while we still iterate.
+        for (Node root : roots) {
+            dispatch(root);
+        }
+    }
+
+    public boolean isFinished() {
+        return finishedTasks.get() == nodes.size();
+    }
+
+    /**
+     * @return per task timings: time spent waiting for dependencies and executor, and time spent running.
+     */
+    @AnyThread
+    @NonNull
+    public String report() {
+        final StringBuilder report = new StringBuilder("Startup tasks:");
+
+        for (Node node : nodes.values()) {
+            if (node.runStartNanos == 0) {
+                report.append(String.format(Locale.US, "%n%s: pending", node.task.name()));
+                continue;
+            }
+
+            report.append(String.format(Locale.US, "%n%s on %s: waited %.1f ms, ran %.1f ms",
+                    node.task.name(),
+                    node.threadName,
+                    (node.runStartNanos - startNanos) / NANOS_IN_MILLI,
+                    node.runNanos / NANOS_IN_MILLI));
+        }
+
+        return report.toString();
+    }
+
+    private void checkNoCycles() {
+        // Kahn's algorithm on a copy of the counters: if not every node can be reached, there is a cycle.
+        final Map<Node, Integer> remaining = new LinkedHashMap<>();
+        final List<Node> queue = new ArrayList<>();
+
+        for (Node node : nodes.values()) {
+            remaining.put(node, node.task.dependencies().size());
+
+            if (node.task.dependencies().isEmpty()) {
+                queue.add(node);
+            }
+        }
+
+        int visited = 0;
+
+        while (visited < queue.size()) {
+            final Node node = queue.get(visited++);
+
+            for (Node dependent : node.dependents) {
+                final int left = remaining.get(dependent) - 1;
+                remaining.put(dependent, left);
+
+                if (left == 0) {
+                    queue.add(dependent);
+                }
+            }
+        }
+
+        if (visited != nodes.size()) {
+            throw new IllegalArgumentException("Startup tasks have cyclic dependencies: " + nodes.keySet());
+        }
+    }
+
+    private void dispatch(@NonNull Node node) {
+        final Executor executor = node.task.dispatcher() == StartupTask.Dispatcher.BACKGROUND
+                ? backgroundExecutor
+                : mainThreadIdleExecutor;
+
+        executor.execute(() -> run(node));
+    }
+
+    private void run(@NonNull Node node) {
+        node.threadName = Thread.currentThread().getName();
+        node.runStartNanos = System.nanoTime();
+
+        try {
+            node.task.run();
+        } catch (RuntimeException e) {
+            // Developer tools should never crash the app, dependents are still executed.
+            Timber.e(e, "Startup task %s failed", node.task.name());
+        } finally {
+            node.runNanos = System.nanoTime() - node.runStartNanos;
+        }
+
+        Timber.d("Startup task %s took %.1f ms on %s", node.task.name(), node.runNanos / NANOS_IN_MILLI, node.threadName);
+
+        for (Node dependent : node.dependents) {
+            if (dependent.remainingDependencies.decrementAndGet() == 0) {
+                dispatch(dependent);
+            }
+        }
+
+        if (finishedTasks.incrementAndGet() == nodes.size()) {
+            Timber.d(report());
+        }
+    }
+
+    private static class Node {
+
+        @NonNull
+        final StartupTask task;
+
+        @NonNull
+        final List<Node> dependents = new ArrayList<>();
+
+        @NonNull
+        final AtomicInteger remainingDependencies = new AtomicInteger();
+
+        // Written by the thread which runs the task, published to readers through finishedTasks.
+        volatile String threadName = "not started";
+        volatile long runStartNanos;
+        volatile long runNanos;
+
+        Node(@NonNull StartupTask task) {
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.yamblz.startup;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Piece of work which should be done during app startup but is not needed to show the first frame.
+ */
+public final class StartupTask {
+
+    public enum Dispatcher {
+        /**
+         * Task does not touch UI or main thread only APIs and can run in parallel with the others.
+         */
+        BACKGROUND,
+
+        /**
+         * Task must run on the main thread, it will be executed once main looper becomes idle after the first frame.
+         */
+        MAIN_IDLE
+    }
+
+    @NonNull
+    private final String name;
+
+    @NonNull
+    private final Dispatcher dispatcher;
+
+    @NonNull
+    private final Runnable action;
+
+    @NonNull
+    private final List<String> dependencies;
+
+    public StartupTask(@NonNull String name, @NonNull Dispatcher dispatcher, @NonNull Runnable action, @NonNull String... dependencies) {
+        this.name = name;
+        this.dispatcher = dispatcher;
+        this.action = action;
+        this.dependencies = unmodifiableList(asList(dependencies));
+    }
+
+    @NonNull
+    public String name() {
+        return name;
+    }
+
+    @NonNull
+    public Dispatcher dispatcher() {
+        return dispatcher;
+    }
+
+    @NonNull
+    public List<String> dependencies() {
+        return dependencies;
+    }
+
+    void run() {
+        action.run();
+    }
+
+    @Override
+    public String toString() {
+        return "StartupTask{name='" + name + "', dispatcher=" + dispatcher + ", dependencies=" + dependencies + '}';
+    }
+}
@@ -0,0 +1,138 @@
+package ru.yandex.yamblz.startup;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ru.yandex.yamblz.startup.trace.StartupTrace;
+import timber.log.Timber;
+
+/**
+ * Records cold start milestones (see {@link StartupTrace} for the list) into preallocated arrays
+ * and flushes them to a file once the first frame is drawn.
+ * <p>
+ * It's static because tracing starts before the {@link ru.yandex.yamblz.ApplicationComponent} exists.
+ * Recording a mark is one atomic increment and two array writes, so it's fine to call it on the critical path.
+ */
+public final class StartupTracer {
+
+    public static final String TRACES_DIRECTORY = "startup_traces";
+
+    private static final int CAPACITY = 32;
+    private static final int MAX_TRACE_FILES = 50;
+
+    private static final int[] EVENTS = new int[CAPACITY];
+    private static final long[] TIMESTAMPS_NANOS = new long[CAPACITY];
+    private static final AtomicInteger COUNT = new AtomicInteger();
+    private static final AtomicBoolean FIRST_DRAW_TRACED = new AtomicBoolean();
+
+    private StartupTracer() {
+        throw new IllegalStateException("No instances please");
+    }
+
+    /**
+     * @param event one of {@link StartupTrace} event constants.
+     */
+    public static void mark(int event) {
+        final int index = COUNT.getAndIncrement();
+
+        if (index < CAPACITY) {
+            TIMESTAMPS_NANOS[index] = System.nanoTime();
+            EVENTS[index] = event;
+        }
+    }
+
+    /**
+     * Marks {@link StartupTrace#FIRST_DRAW} when the view is drawn for the first time and writes the trace
+     * to {@link #TRACES_DIRECTORY} in background. Only the first call per process does anything, later activities are not cold starts.
+     */
+    public static void traceFirstDraw(@NonNull View view) {
+        if (!FIRST_DRAW_TRACED.compareAndSet(false, true)) {
+            return;
+        }
+
+        final Context context = view.getContext().getApplicationContext();
+
+        final ViewTreeObserver.OnDrawListener onDrawListener = new ViewTreeObserver.OnDrawListener() {
+
+            private boolean drawn;
+
+            @Override
+            public void onDraw() {
+                if (drawn) {
+                    return;
+                }
+
+                drawn = true;
+                mark(StartupTrace.FIRST_DRAW);
+
+                final ViewTreeObserver.OnDrawListener listener = this;
+
+                // Listener can not be removed while observer dispatches draw.
+                new Handler(Looper.getMainLooper()).post(() -> view.getViewTreeObserver().removeOnDrawListener(listener));
+                AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> flush(new File(context.getFilesDir(), TRACES_DIRECTORY), System.currentTimeMillis()));
+            }
+        };
+
+        view.getViewTreeObserver().addOnDrawListener(onDrawListener);
+    }
+
+    static void flush(@NonNull File directory, long wallClockMillis) {
+        final int count = Math.min(COUNT.get(), CAPACITY);
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Timber.e("Can not create startup traces directory %s", directory);
+            return;
+        }
+
+        final File file = new File(directory, wallClockMillis + StartupTrace.FILE_SUFFIX);
+        DataOutputStream output = null;
+
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            StartupTrace.write(output, wallClockMillis, EVENTS, TIMESTAMPS_NANOS, count);
+        } catch (IOException e) {
+            Timber.e(e, "Can not write startup trace");
+        } finally {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (IOException e) {
+                    Timber.e(e, "Can not close startup trace");
+                }
+            }
+        }
+
+        deleteOldTraces(directory);
+    }
+
+    private static void deleteOldTraces(@NonNull File directory) {
+        final File[] traces = directory.listFiles();
+
+        if (traces == null || traces.length <= MAX_TRACE_FILES) {
+            return;
+        }
+
+        // File names start with the wall clock time, so the oldest traces come first.
+        Arrays.sort(traces);
+
+        for (int i = 0; i < traces.length - MAX_TRACE_FILES; i++) {
+            if (!traces[i].delete()) {
+                Timber.w("Can not delete old startup trace %s", traces[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.yamblz.ui.activities;
+
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+
+import ru.yandex.yamblz.R;
+import ru.yandex.yamblz.ui.fragments.LogViewerFragment;
+
+/**
+ * Shows logs persisted by {@link ru.yandex.yamblz.logging.AsyncLogTree}, opened from developer settings.
+ */
+public class LogViewerActivity extends BaseActivity {
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_log_viewer);
+
+        if (savedInstanceState == null) {
+            getSupportFragmentManager()
+                    .beginTransaction()
+                    .replace(R.id.log_viewer_frame_layout, new LogViewerFragment())
+                    .commit();
+        }
+    }
+}
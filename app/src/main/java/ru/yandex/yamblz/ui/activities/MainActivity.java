@@ -3,13 +3,17 @@ package ru.yandex.yamblz.ui.activities;
 import android.annotation.SuppressLint;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
+import android.view.View;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import ru.yandex.yamblz.App;
+import ru.yandex.yamblz.BuildConfig;
 import ru.yandex.yamblz.R;
 import ru.yandex.yamblz.developer_settings.DeveloperSettingsModule;
+import ru.yandex.yamblz.startup.StartupTracer;
+import ru.yandex.yamblz.startup.trace.StartupTrace;
 import ru.yandex.yamblz.ui.fragments.ContentFragment;
 import ru.yandex.yamblz.ui.other.ViewModifier;
 
@@ -21,16 +25,26 @@ public class MainActivity extends BaseActivity {
     @SuppressLint("InflateParams") // It's okay in our case.
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
+        StartupTracer.mark(StartupTrace.MAIN_ACTIVITY_ON_CREATE);
         super.onCreate(savedInstanceState);
         App.get(this).applicationComponent().inject(this);
 
-        setContentView(viewModifier.modify(getLayoutInflater().inflate(R.layout.activity_main, null)));
+        final View contentView = getLayoutInflater().inflate(R.layout.activity_main, null);
+        StartupTracer.mark(StartupTrace.MAIN_ACTIVITY_INFLATED);
+
+        setContentView(viewModifier.modify(contentView));
+        StartupTracer.mark(StartupTrace.MAIN_ACTIVITY_VIEW_MODIFIED);
 
         if (savedInstanceState == null) {
             getSupportFragmentManager()
                     .beginTransaction()
                     .replace(R.id.main_frame_layout, new ContentFragment())
                     .commit();
+            StartupTracer.mark(StartupTrace.CONTENT_FRAGMENT_COMMITTED);
+        }
+
+        if (BuildConfig.DEBUG) {
+            StartupTracer.traceFirstDraw(getWindow().getDecorView());
         }
     }
 }
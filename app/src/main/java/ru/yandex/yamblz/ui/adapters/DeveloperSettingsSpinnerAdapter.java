@@ -27,12 +27,38 @@ public class DeveloperSettingsSpinnerAdapter<T extends DeveloperSettingsSpinnerA
         this.layoutInflater = layoutInflater;
     }
 
+    /**
+     * Replaces options. Spinner's adapter can only report that everything changed, so nothing is reported
+     * if ids and titles of the options are the same, and rows of unchanged options are not rebound.
+     */
     public DeveloperSettingsSpinnerAdapter<T> setSelectionOptions(@NonNull List<? extends T> selectionOptions) {
+        final boolean changed = !sameOptions(this.selectionOptions, selectionOptions);
         this.selectionOptions = unmodifiableList(selectionOptions);
-        notifyDataSetChanged();
+
+        if (changed) {
+            notifyDataSetChanged();
+        }
+
         return this;
     }
 
+    static boolean sameOptions(@NonNull List<? extends SelectionOption> oldOptions, @NonNull List<? extends SelectionOption> newOptions) {
+        if (oldOptions.size() != newOptions.size()) {
+            return false;
+        }
+
+        for (int position = 0; position < oldOptions.size(); position++) {
+            final SelectionOption oldOption = oldOptions.get(position);
+            final SelectionOption newOption = newOptions.get(position);
+
+            if (oldOption.id() != newOption.id() || !oldOption.title().equals(newOption.title())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     @Override
     public int getCount() {
         return selectionOptions.size();
@@ -46,7 +72,12 @@ public class DeveloperSettingsSpinnerAdapter<T extends DeveloperSettingsSpinnerA
 
     @Override
     public long getItemId(int position) {
-        return position;
+        return selectionOptions.get(position).id();
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
     }
 
     @Override
@@ -90,17 +121,31 @@ public class DeveloperSettingsSpinnerAdapter<T extends DeveloperSettingsSpinnerA
         @NonNull
         private final TextView titleTextView;
 
+        // Setting the same text again still relayouts the row.
+        @Nullable
+        private String boundTitle;
+
         ViewHolder(@NonNull View itemView) {
             titleTextView = (TextView) itemView.findViewById(R.id.list_developer_settings_spinner_item_title_text_view);
         }
 
         public void bindItem(@NonNull SelectionOption selectionOption) {
-            titleTextView.setText(selectionOption.title());
+            final String title = selectionOption.title();
+
+            if (!title.equals(boundTitle)) {
+                titleTextView.setText(title);
+                boundTitle = title;
+            }
         }
     }
 
     public interface SelectionOption {
 
+        /**
+         * @return id that stays with the option when options are replaced, so the spinner keeps its selection.
+         */
+        long id();
+
         @NonNull
         String title();
     }
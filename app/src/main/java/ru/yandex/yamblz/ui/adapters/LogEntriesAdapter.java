@@ -0,0 +1,120 @@
+package ru.yandex.yamblz.ui.adapters;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import ru.yandex.yamblz.R;
+import ru.yandex.yamblz.logging.LogFilter;
+
+/**
+ * Shows filtered log entries, text of a row is read from the log file only when the row is bound.
+ */
+public class LogEntriesAdapter extends RecyclerView.Adapter<LogEntriesAdapter.ViewHolder> {
+
+    private static final int COLOR_VERBOSE = 0xFFBBBBBB;
+    private static final int COLOR_DEBUG = 0xFFDDDDDD;
+    private static final int COLOR_INFO = 0xFF8BC34A;
+    private static final int COLOR_WARN = 0xFFFFC107;
+    private static final int COLOR_ERROR = 0xFFF44336;
+
+    @NonNull
+    private final LayoutInflater layoutInflater;
+
+    @Nullable
+    private LogFilter.Result entries;
+
+    public LogEntriesAdapter(@NonNull LayoutInflater layoutInflater) {
+        this.layoutInflater = layoutInflater;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Tailing the log mostly appends entries to the same query, then only new rows are inserted.
+     */
+    public void setEntries(@NonNull LogFilter.Result entries) {
+        final LogFilter.Result previous = this.entries;
+        this.entries = entries;
+
+        if (previous != null && previous.query().equals(entries.query()) && startsWith(entries, previous)) {
+            if (entries.size() > previous.size()) {
+                notifyItemRangeInserted(previous.size(), entries.size() - previous.size());
+            }
+        } else {
+            notifyDataSetChanged();
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return entries == null ? 0 : entries.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        assert entries != null;
+        return entries.id(position);
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        return new ViewHolder(layoutInflater.inflate(R.layout.list_log_entry, parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        assert entries != null;
+        final String text = entries.text(position);
+        holder.bindEntry(text == null ? "(overwritten)" : text, entries.priority(position));
+    }
+
+    private static boolean startsWith(@NonNull LogFilter.Result entries, @NonNull LogFilter.Result prefix) {
+        if (entries.size() < prefix.size()) {
+            return false;
+        }
+
+        for (int position = 0; position < prefix.size(); position++) {
+            if (entries.id(position) != prefix.id(position)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+
+        @NonNull
+        private final TextView textView;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            textView = (TextView) itemView.findViewById(R.id.list_log_entry_text_view);
+        }
+
+        void bindEntry(@NonNull String text, int priority) {
+            textView.setText(text);
+            textView.setTextColor(color(priority));
+        }
+
+        private static int color(int priority) {
+            switch (priority) {
+                case Log.VERBOSE:
+                    return COLOR_VERBOSE;
+                case Log.DEBUG:
+                    return COLOR_DEBUG;
+                case Log.INFO:
+                    return COLOR_INFO;
+                case Log.WARN:
+                    return COLOR_WARN;
+                default:
+                    return COLOR_ERROR;
+            }
+        }
+    }
+}
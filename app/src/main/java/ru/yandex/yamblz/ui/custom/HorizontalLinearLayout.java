@@ -9,6 +9,9 @@ import android.view.ViewGroup;
 import java.util.ArrayList;
 import java.util.List;
 
+import ru.yandex.yamblz.BuildConfig;
+import ru.yandex.yamblz.performance.TimingCounter;
+
 /**
  * Simple layout which lays views using following rules:
  * 1) There can be any amount of wrap_content or fixed size width views but only one with match_parent width.
@@ -20,6 +23,27 @@ import java.util.List;
  */
 public class HorizontalLinearLayout extends ViewGroup {
 
+    private static final int COUNTER_CAPACITY = 256;
+
+    /**
+     * Passes are recorded only in debug builds, where the "perf" dumpapp plugin can print them.
+     */
+    public static final boolean RECORD_PASSES = BuildConfig.DEBUG;
+
+    /**
+     * Measure passes of all instances, printed by the "perf" dumpapp plugin. Only own time of a pass is recorded:
+     * a nested HorizontalLinearLayout records its pass separately and its time is excluded from the parent's one.
+     */
+    public static final TimingCounter MEASURE_COUNTER = new TimingCounter("HorizontalLinearLayout measure", COUNTER_CAPACITY);
+
+    /**
+     * Layout passes of all instances, same as {@link #MEASURE_COUNTER}.
+     */
+    public static final TimingCounter LAYOUT_COUNTER = new TimingCounter("HorizontalLinearLayout layout", COUNTER_CAPACITY);
+
+    // Time of nested passes within the current one. Main thread only, as measure and layout are.
+    private static long nestedPassNanos;
+
     /**
      * Just temp object for setting coordinates
      */
@@ -41,6 +65,8 @@ public class HorizontalLinearLayout extends ViewGroup {
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final long startNanos = RECORD_PASSES ? System.nanoTime() : 0;
+        final long outerNestedPassNanos = RECORD_PASSES ? beginPass() : 0;
 
         mMatchParentHeightViews.clear();
 
@@ -135,10 +161,16 @@ public class HorizontalLinearLayout extends ViewGroup {
         }
         setMeasuredDimension(resolveSizeAndState(filledHorizontalSpace, widthMeasureSpec, childState),
                 resolveSizeAndState(maxHeight + verticalPadding, heightMeasureSpec, childState << MEASURED_HEIGHT_STATE_SHIFT));
+
+        if (RECORD_PASSES) {
+            endPass(MEASURE_COUNTER, startNanos, outerNestedPassNanos);
+        }
     }
 
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        final long startNanos = RECORD_PASSES ? System.nanoTime() : 0;
+        final long outerNestedPassNanos = RECORD_PASSES ? beginPass() : 0;
         final int count = getChildCount();
         final int parentTop = getPaddingTop();
         int leftPos = getPaddingLeft();
@@ -162,6 +194,25 @@ public class HorizontalLinearLayout extends ViewGroup {
 
             leftPos = tmpRect.right;
         }
+
+        if (RECORD_PASSES) {
+            endPass(LAYOUT_COUNTER, startNanos, outerNestedPassNanos);
+        }
+    }
+
+    /**
+     * @return time of nested passes the outer pass has collected so far, to be handed back to {@link #endPass}.
+     */
+    private static long beginPass() {
+        final long outerNestedPassNanos = nestedPassNanos;
+        nestedPassNanos = 0;
+        return outerNestedPassNanos;
+    }
+
+    private static void endPass(TimingCounter counter, long startNanos, long outerNestedPassNanos) {
+        final long passNanos = System.nanoTime() - startNanos;
+        counter.record(passNanos - nestedPassNanos);
+        nestedPassNanos = outerNestedPassNanos + passNanos;
     }
 
     /**
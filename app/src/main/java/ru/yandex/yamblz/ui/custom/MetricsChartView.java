@@ -0,0 +1,324 @@
+package ru.yandex.yamblz.ui.custom;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.support.annotation.ColorInt;
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.AttributeSet;
+import android.view.View;
+
+import ru.yandex.yamblz.performance.AnyThread;
+
+/**
+ * Live line chart of several metrics which never allocates after it's configured, so it does not cause the GC it may be plotting.
+ * <p>
+ * Values of every series are kept in a primitive ring buffer of {@link #setHistoryLength(int) history length} points.
+ * The chart sweeps from left to right like a heart monitor: a new point only replaces the oldest one in its column,
+ * so only the new segment is drawn into an offscreen bitmap and only its strip of the view is invalidated.
+ * Everything is redrawn only when the size changes or the scale of a series changes: it grows when a value does not fit
+ * and shrinks when the largest value of the visible window leaves it and the rest would only use a small part of the height.
+ * <p>
+ * Points may be added from any thread, drawing happens on the main thread.
+ */
+public class MetricsChartView extends View {
+
+    private static final int DEFAULT_HISTORY_LENGTH = 120;
+
+    // A series' scale grows by this factor when a value does not fit, so the chart is not redrawn for every new maximum.
+    private static final float SCALE_GROWTH = 1.5f;
+
+    // A series' scale shrinks back to SCALE_GROWTH times its peak once it's this many times above the peak.
+    private static final float SCALE_SHRINK_THRESHOLD = SCALE_GROWTH * SCALE_GROWTH;
+
+    private static final float LINE_WIDTH_DP = 1.5f;
+    private static final float GAP_DP = 4f;
+
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private final Paint clearPaint = new Paint();
+
+    private final float gap;
+
+    // Guards everything below: points are added on any thread, but drawn on the main thread.
+    private final Object lock = new Object();
+
+    private int[] colors = new int[0];
+
+    // values[series][point % historyLength].
+    private float[][] values = new float[0][];
+
+    private float[] maxValues = new float[0];
+
+    // Largest value of every series within the history.
+    private float[] peakValues = new float[0];
+
+    private float[] pendingValues = new float[0];
+
+    private int historyLength = DEFAULT_HISTORY_LENGTH;
+
+    private long addedPoints;
+
+    private long drawnPoints;
+
+    private boolean redrawAll = true;
+
+    // Main thread only.
+    @Nullable
+    private Bitmap bitmap;
+
+    @Nullable
+    private Canvas bitmapCanvas;
+
+    private volatile int chartWidth;
+
+    private volatile int chartHeight;
+
+    public MetricsChartView(Context context) {
+        this(context, null);
+    }
+
+    public MetricsChartView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public MetricsChartView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+
+        final float density = getResources().getDisplayMetrics().density;
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeWidth(LINE_WIDTH_DP * density);
+        clearPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
+        gap = GAP_DP * density;
+    }
+
+    /**
+     * @return index of the new series, pass it to {@link #setPointValue(int, float)}.
+     */
+    @MainThread
+    public int addSeries(@ColorInt int color) {
+        synchronized (lock) {
+            final int series = colors.length;
+            colors = copyOf(colors, series + 1);
+            colors[series] = color;
+
+            final float[][] newValues = new float[series + 1][];
+            System.arraycopy(values, 0, newValues, 0, series);
+            newValues[series] = new float[historyLength];
+            values = newValues;
+
+            maxValues = copyOf(maxValues, series + 1);
+            peakValues = copyOf(peakValues, series + 1);
+            pendingValues = copyOf(pendingValues, series + 1);
+            return series;
+        }
+    }
+
+    /**
+     * Sets how many points are shown, points recorded so far are dropped.
+     */
+    @MainThread
+    public void setHistoryLength(int points) {
+        if (points < 2) {
+            throw new IllegalArgumentException("History needs at least two points, got " + points);
+        }
+
+        synchronized (lock) {
+            historyLength = points;
+
+            for (int series = 0; series < values.length; series++) {
+                values[series] = new float[points];
+                maxValues[series] = 0;
+                peakValues[series] = 0;
+            }
+
+            addedPoints = 0;
+            redrawAll = true;
+        }
+
+        invalidate();
+    }
+
+    /**
+     * Sets the value of the series for the next point, values which are not set repeat the previous point.
+     */
+    @AnyThread
+    public void setPointValue(int series, float value) {
+        synchronized (lock) {
+            pendingValues[series] = value;
+        }
+    }
+
+    /**
+     * Adds a point with values set by {@link #setPointValue(int, float)} and invalidates its segment.
+     */
+    @AnyThread
+    public void addPoint() {
+        final int column;
+        final int length;
+        boolean rescaled = false;
+
+        synchronized (lock) {
+            length = historyLength;
+            column = (int) (addedPoints % length);
+
+            for (int series = 0; series < values.length; series++) {
+                final float value = pendingValues[series];
+                final float overwritten = values[series][column];
+                values[series][column] = value;
+
+                if (value >= peakValues[series]) {
+                    peakValues[series] = value;
+                } else if (overwritten >= peakValues[series]) {
+                    // The peak leaves the window, it's the only case which needs a scan.
+                    peakValues[series] = max(values[series]);
+                }
+
+                if (value > maxValues[series]
+                        || maxValues[series] > peakValues[series] * SCALE_SHRINK_THRESHOLD) {
+                    maxValues[series] = peakValues[series] * SCALE_GROWTH;
+                    redrawAll = true;
+                    rescaled = true;
+                }
+            }
+
+            addedPoints++;
+        }
+
+        if (rescaled) {
+            postInvalidateOnAnimation();
+            return;
+        }
+
+        final int width = chartWidth;
+        final int left = (int) Math.floor(x(column - 1, width, length));
+        final int right = (int) Math.ceil(x(column, width, length) + gap);
+        postInvalidateOnAnimation(Math.max(0, left), 0, Math.min(width, right), chartHeight);
+    }
+
+    @VisibleForTesting
+    long addedPoints() {
+        synchronized (lock) {
+            return addedPoints;
+        }
+    }
+
+    @VisibleForTesting
+    float maxValue(int series) {
+        synchronized (lock) {
+            return maxValues[series];
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+
+        if (bitmap != null) {
+            bitmap.recycle();
+            bitmap = null;
+            bitmapCanvas = null;
+        }
+
+        if (width > 0 && height > 0) {
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            bitmapCanvas = new Canvas(bitmap);
+        }
+
+        chartWidth = width;
+        chartHeight = height;
+
+        synchronized (lock) {
+            redrawAll = true;
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        final Bitmap bitmap = this.bitmap;
+        final Canvas bitmapCanvas = this.bitmapCanvas;
+
+        if (bitmap == null || bitmapCanvas == null) {
+            return;
+        }
+
+        synchronized (lock) {
+            // Points may come faster than frames, segments overwritten meanwhile can only be redrawn from scratch.
+            if (redrawAll || addedPoints - drawnPoints >= historyLength) {
+                redrawAll = false;
+                bitmapCanvas.drawPaint(clearPaint);
+                // The oldest point in history only starts a segment, the point before it is overwritten.
+                drawnPoints = Math.max(0, addedPoints - historyLength + 1);
+            }
+
+            while (drawnPoints < addedPoints) {
+                drawSegment(bitmapCanvas, drawnPoints);
+                drawnPoints++;
+            }
+        }
+
+        canvas.drawBitmap(bitmap, 0, 0, null);
+    }
+
+    // Called under the lock.
+    private void drawSegment(Canvas canvas, long point) {
+        final int width = bitmap == null ? 0 : bitmap.getWidth();
+        final int column = (int) (point % historyLength);
+        final float x = x(column, width, historyLength);
+
+        // Erase what was left from the previous sweep under and in front of the new segment.
+        canvas.drawRect(x(column - 1, width, historyLength), 0, Math.min(width, x + gap), getHeight(), clearPaint);
+
+        // The first column starts a new sweep, there is nothing to connect it with.
+        if (column == 0) {
+            return;
+        }
+
+        final int previousColumn = column - 1;
+        final float previousX = x(previousColumn, width, historyLength);
+
+        for (int series = 0; series < values.length; series++) {
+            linePaint.setColor(colors[series]);
+            canvas.drawLine(previousX, y(values[series][previousColumn], maxValues[series]), x, y(values[series][column], maxValues[series]), linePaint);
+        }
+    }
+
+    private static float x(int column, int width, int historyLength) {
+        return Math.max(0, column) * (float) width / (historyLength - 1);
+    }
+
+    private float y(float value, float maxValue) {
+        final float height = getHeight() - getPaddingTop() - getPaddingBottom();
+        final float fraction = maxValue <= 0 ? 0 : Math.max(0, value) / maxValue;
+        return getPaddingTop() + height * (1 - fraction);
+    }
+
+    private static float max(float[] array) {
+        float max = 0;
+
+        for (float value : array) {
+            max = Math.max(max, value);
+        }
+
+        return max;
+    }
+
+    private static int[] copyOf(int[] array, int length) {
+        final int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    private static float[] copyOf(float[] array, int length) {
+        final float[] copy = new float[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+}
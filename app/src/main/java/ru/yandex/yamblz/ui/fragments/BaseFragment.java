@@ -4,6 +4,7 @@ import android.content.Context;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
@@ -12,17 +13,30 @@ import android.view.View;
 import butterknife.ButterKnife;
 import butterknife.Unbinder;
 import ru.yandex.yamblz.App;
+import ru.yandex.yamblz.performance.ThreadContractTracker;
+import ru.yandex.yamblz.ui.other.ViewUpdateDispatcher;
 
 @SuppressWarnings("PMD.AbstractClassWithoutAnyMethod")
 public abstract class BaseFragment extends Fragment {
 
     private Handler mainThreadHandler;
+    private ViewUpdateDispatcher viewUpdateDispatcher;
+    private ThreadContractTracker threadContractTracker;
     private Unbinder viewBinder;
 
+    @NonNull
+    private final ViewUpdateDispatcher.Target viewUpdateTarget = (property, value, objectValue) -> {
+        if (isFragmentAlive()) {
+            onViewUpdate(property, value, objectValue);
+        }
+    };
+
     @Override
     public void onAttach(Context context) {
         super.onAttach(context);
         mainThreadHandler = App.get(context).applicationComponent().mainThreadHandler();
+        viewUpdateDispatcher = App.get(context).applicationComponent().viewUpdateDispatcher();
+        threadContractTracker = App.get(context).applicationComponent().threadContractTracker();
     }
 
     @Override
@@ -36,7 +50,15 @@ public abstract class BaseFragment extends Fragment {
             runnable.run();
         } else {
             assert mainThreadHandler != null;
+            assert threadContractTracker != null;
+            final ThreadContractTracker.MethodStats hop = threadContractTracker.callInProgress();
+            final long postedNanos = System.nanoTime();
+
             mainThreadHandler.post(() -> {
+                if (hop != null) {
+                    hop.recordHop(System.nanoTime() - postedNanos);
+                }
+
                 if (isFragmentAlive()) {
                     runnable.run();
                 }
@@ -44,12 +66,52 @@ public abstract class BaseFragment extends Fragment {
         }
     }
 
+    /**
+     * Schedules the update to be applied in {@link #onViewUpdate} before the next frame.
+     * Only the last update of a property is applied if it's updated several times per frame.
+     */
+    protected void updateView(int property, boolean value) {
+        assert viewUpdateDispatcher != null;
+        viewUpdateDispatcher.dispatch(viewUpdateTarget, property, value);
+    }
+
+    /**
+     * @see #updateView(int, boolean)
+     */
+    protected void updateView(int property, long value) {
+        assert viewUpdateDispatcher != null;
+        viewUpdateDispatcher.dispatch(viewUpdateTarget, property, value);
+    }
+
+    /**
+     * @see #updateView(int, boolean)
+     */
+    protected void updateView(int property, @NonNull Object value) {
+        assert viewUpdateDispatcher != null;
+        viewUpdateDispatcher.dispatch(viewUpdateTarget, property, value);
+    }
+
+    /**
+     * Applies an update scheduled by {@code updateView()}, only called while the fragment is alive.
+     *
+     * @param value       value of a boolean ({@code 1} or {@code 0}) or long property.
+     * @param objectValue value of an object property, {@code null} for boolean and long properties.
+     */
+    @MainThread
+    protected void onViewUpdate(int property, long value, @Nullable Object objectValue) {
+        // no-op
+    }
+
     private boolean isFragmentAlive() {
         return getActivity() != null && isAdded() && !isDetached() && getView() != null && !isRemoving();
     }
 
     @Override
     public void onDestroyView() {
+        if (viewUpdateDispatcher != null) {
+            viewUpdateDispatcher.cancel(viewUpdateTarget);
+        }
+
         if (viewBinder != null) {
             viewBinder.unbind();
         }
@@ -58,7 +120,7 @@ public abstract class BaseFragment extends Fragment {
 
     @Override
     public void onDestroy() {
-        App.get(getContext()).applicationComponent().leakCanaryProxy().watch(this);
+        App.get(getContext()).applicationComponent().leakCanaryProxy().get().watch(this);
         super.onDestroy();
     }
 }
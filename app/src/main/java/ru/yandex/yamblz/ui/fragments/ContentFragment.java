@@ -7,12 +7,14 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
+import ru.yandex.yamblz.App;
 import ru.yandex.yamblz.R;
 
 public class ContentFragment extends BaseFragment {
     @NonNull
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
-        return inflater.inflate(R.layout.fragment_content, container, false);
+        // Pre-inflated in App.onCreate, falls back to the given inflater if the tree is not ready yet.
+        return App.get(getContext()).applicationComponent().asyncViewInflater().obtain(R.layout.fragment_content, inflater, container);
     }
 }
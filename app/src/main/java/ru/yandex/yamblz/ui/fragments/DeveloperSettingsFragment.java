@@ -1,41 +1,125 @@
 package ru.yandex.yamblz.ui.fragments;
 
 import android.annotation.SuppressLint;
-import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.FragmentActivity;
+import android.support.v4.content.ContextCompat;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.Spinner;
 import android.widget.Switch;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import com.github.pedrovgs.lynx.LynxActivity;
-import com.github.pedrovgs.lynx.LynxConfig;
 import com.jakewharton.processphoenix.ProcessPhoenix;
 
+import java.util.List;
+
 import javax.inject.Inject;
 
 import butterknife.BindView;
 import butterknife.OnCheckedChanged;
 import butterknife.OnClick;
+import butterknife.OnItemSelected;
 import ru.yandex.yamblz.App;
+import ru.yandex.yamblz.BuildConfig;
 import ru.yandex.yamblz.R;
+import ru.yandex.yamblz.developer_settings.StrictModeProxy;
 import ru.yandex.yamblz.performance.AnyThread;
+import ru.yandex.yamblz.performance.MemorySampler;
+import ru.yandex.yamblz.ui.activities.LogViewerActivity;
+import ru.yandex.yamblz.ui.adapters.DeveloperSettingsSpinnerAdapter;
+import ru.yandex.yamblz.ui.custom.MetricsChartView;
 import ru.yandex.yamblz.ui.presenters.DeveloperSettingsPresenter;
 import ru.yandex.yamblz.ui.views.DeveloperSettingsView;
 
+import static java.util.Arrays.asList;
+
 public class DeveloperSettingsFragment extends BaseFragment implements DeveloperSettingsView {
 
-    @Inject
-    DeveloperSettingsPresenter presenter;
+    // Properties updated through updateView(), pending updates of the same property are collapsed.
+    private static final int PROPERTY_BUILD_VERSION_CODE = 0;
+    private static final int PROPERTY_BUILD_VERSION_NAME = 1;
+    private static final int PROPERTY_STETHO_STATE = 2;
+    private static final int PROPERTY_LEAK_CANARY_STATE = 3;
+    private static final int PROPERTY_TINY_DANCER_STATE = 4;
+    private static final int PROPERTY_FRAME_TIME_RECORDER_STATE = 5;
+    private static final int PROPERTY_FRAME_TIME_REPORT = 6;
+    private static final int PROPERTY_BLOCK_DETECTOR_STATE = 7;
+    private static final int PROPERTY_BLOCK_DETECTOR_THRESHOLD = 8;
+    private static final int PROPERTY_BLOCK_REPORT = 9;
+    private static final int PROPERTY_EXECUTORS_REPORT = 10;
+    private static final int PROPERTY_THREAD_CONTRACTS_REPORT = 11;
+    private static final int PROPERTY_INSTANCES_REPORT = 12;
+    private static final int PROPERTY_MEMORY_SAMPLER_STATE = 13;
+    private static final int PROPERTY_MEMORY_SAMPLER_INTERVAL = 14;
+    private static final int PROPERTY_MEMORY_REPORT = 15;
+    private static final int PROPERTY_METHOD_TRACING_STATE = 16;
+    private static final int PROPERTY_METHOD_TRACING_INTERVAL = 17;
+    private static final int PROPERTY_METHOD_TRACING_BUFFER_SIZE = 18;
+    private static final int PROPERTY_JANK_TRACE_FRAMES = 19;
+    private static final int PROPERTY_METHOD_TRACING_REPORT = 20;
+    private static final int PROPERTY_STRICT_MODE_PROFILE = 21;
+    private static final int PROPERTY_STRICT_MODE_REPORT = 22;
+
+    @NonNull
+    private static final List<Option> BLOCK_THRESHOLD_OPTIONS = asList(
+            new Option(16, "16 ms"),
+            new Option(50, "50 ms"),
+            new Option(100, "100 ms"),
+            new Option(250, "250 ms"),
+            new Option(500, "500 ms")
+    );
+
+    @NonNull
+    private static final List<Option> MEMORY_SAMPLER_INTERVAL_OPTIONS = asList(
+            new Option(250, "250 ms"),
+            new Option(1_000, "1 s"),
+            new Option(5_000, "5 s"),
+            new Option(30_000, "30 s")
+    );
+
+    @NonNull
+    private static final List<Option> METHOD_TRACING_INTERVAL_OPTIONS = asList(
+            new Option(100, "100 µs"),
+            new Option(1_000, "1 ms"),
+            new Option(5_000, "5 ms")
+    );
+
+    @NonNull
+    private static final List<Option> METHOD_TRACING_BUFFER_SIZE_OPTIONS = asList(
+            new Option(8, "8 MB"),
+            new Option(16, "16 MB"),
+            new Option(32, "32 MB"),
+            new Option(64, "64 MB")
+    );
+
+    @NonNull
+    private static final List<Option> JANK_TRACE_FRAMES_OPTIONS = asList(
+            new Option(0, "Off"),
+            new Option(3, "3 frames in a row"),
+            new Option(5, "5 frames in a row"),
+            new Option(10, "10 frames in a row")
+    );
+
+    @NonNull
+    private static final List<Option> STRICT_MODE_PROFILE_OPTIONS = asList(
+            new Option(StrictModeProxy.PROFILE_OFF, "Off"),
+            new Option(StrictModeProxy.PROFILE_DISK, "Disk I/O"),
+            new Option(StrictModeProxy.PROFILE_ALL, "Everything")
+    );
+
+    // Five minutes of samples with the default interval of one second.
+    private static final int MEMORY_CHART_HISTORY_LENGTH = 300;
+
+    private static final int MEMORY_CHART_PSS_COLOR = 0xFFAAAAAA;
 
     @Inject
-    LynxConfig lynxConfig;
+    DeveloperSettingsPresenter presenter;
 
     @BindView(R.id.developer_settings_build_version_code_text_view)
     TextView buildVersionCodeTextView;
@@ -52,6 +136,81 @@ public class DeveloperSettingsFragment extends BaseFragment implements Developer
     @BindView(R.id.developer_settings_tiny_dancer_switch)
     Switch tinyDancerSwitch;
 
+    @BindView(R.id.developer_settings_frame_time_recorder_switch)
+    Switch frameTimeRecorderSwitch;
+
+    @BindView(R.id.developer_settings_frame_time_report_text_view)
+    TextView frameTimeReportTextView;
+
+    @BindView(R.id.developer_settings_block_detector_switch)
+    Switch blockDetectorSwitch;
+
+    @BindView(R.id.developer_settings_block_detector_threshold_spinner)
+    Spinner blockDetectorThresholdSpinner;
+
+    @BindView(R.id.developer_settings_block_report_text_view)
+    TextView blockReportTextView;
+
+    @BindView(R.id.developer_settings_memory_sampler_switch)
+    Switch memorySamplerSwitch;
+
+    @BindView(R.id.developer_settings_memory_sampler_interval_spinner)
+    Spinner memorySamplerIntervalSpinner;
+
+    @BindView(R.id.developer_settings_memory_report_text_view)
+    TextView memoryReportTextView;
+
+    @BindView(R.id.developer_settings_memory_chart_view)
+    MetricsChartView memoryChartView;
+
+    @BindView(R.id.developer_settings_method_tracing_switch)
+    Switch methodTracingSwitch;
+
+    @BindView(R.id.developer_settings_method_tracing_interval_spinner)
+    Spinner methodTracingIntervalSpinner;
+
+    @BindView(R.id.developer_settings_method_tracing_buffer_size_spinner)
+    Spinner methodTracingBufferSizeSpinner;
+
+    @BindView(R.id.developer_settings_jank_trace_frames_spinner)
+    Spinner jankTraceFramesSpinner;
+
+    @BindView(R.id.developer_settings_method_tracing_report_text_view)
+    TextView methodTracingReportTextView;
+
+    @BindView(R.id.developer_settings_strict_mode_profile_spinner)
+    Spinner strictModeProfileSpinner;
+
+    @BindView(R.id.developer_settings_strict_mode_report_text_view)
+    TextView strictModeReportTextView;
+
+    @BindView(R.id.developer_settings_executors_report_text_view)
+    TextView executorsReportTextView;
+
+    @BindView(R.id.developer_settings_thread_contracts_report_text_view)
+    TextView threadContractsReportTextView;
+
+    @BindView(R.id.developer_settings_instances_report_text_view)
+    TextView instancesReportTextView;
+
+    private DeveloperSettingsSpinnerAdapter<Option> blockDetectorThresholdAdapter;
+    private DeveloperSettingsSpinnerAdapter<Option> memorySamplerIntervalAdapter;
+    private DeveloperSettingsSpinnerAdapter<Option> methodTracingIntervalAdapter;
+    private DeveloperSettingsSpinnerAdapter<Option> methodTracingBufferSizeAdapter;
+    private DeveloperSettingsSpinnerAdapter<Option> jankTraceFramesAdapter;
+    private DeveloperSettingsSpinnerAdapter<Option> strictModeProfileAdapter;
+
+    // This fragment itself or its thread contract checking wrapper in debug builds.
+    private DeveloperSettingsView boundView;
+
+    private int javaHeapSeries;
+    private int nativeHeapSeries;
+    private int totalPssSeries;
+
+    // Handed to the presenter, so samples do not go through the wrapper of the view.
+    @NonNull
+    private final MemorySampler.Listener memorySampleListener = this::addMemorySample;
+
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -68,7 +227,29 @@ public class DeveloperSettingsFragment extends BaseFragment implements Developer
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        presenter.bindView(this);
+        final LayoutInflater layoutInflater = getLayoutInflater(savedInstanceState);
+        blockDetectorThresholdAdapter = new DeveloperSettingsSpinnerAdapter<Option>(layoutInflater).setSelectionOptions(BLOCK_THRESHOLD_OPTIONS);
+        blockDetectorThresholdSpinner.setAdapter(blockDetectorThresholdAdapter);
+        memorySamplerIntervalAdapter = new DeveloperSettingsSpinnerAdapter<Option>(layoutInflater).setSelectionOptions(MEMORY_SAMPLER_INTERVAL_OPTIONS);
+        memorySamplerIntervalSpinner.setAdapter(memorySamplerIntervalAdapter);
+        methodTracingIntervalAdapter = new DeveloperSettingsSpinnerAdapter<Option>(layoutInflater).setSelectionOptions(METHOD_TRACING_INTERVAL_OPTIONS);
+        methodTracingIntervalSpinner.setAdapter(methodTracingIntervalAdapter);
+        methodTracingBufferSizeAdapter = new DeveloperSettingsSpinnerAdapter<Option>(layoutInflater).setSelectionOptions(METHOD_TRACING_BUFFER_SIZE_OPTIONS);
+        methodTracingBufferSizeSpinner.setAdapter(methodTracingBufferSizeAdapter);
+        jankTraceFramesAdapter = new DeveloperSettingsSpinnerAdapter<Option>(layoutInflater).setSelectionOptions(JANK_TRACE_FRAMES_OPTIONS);
+        jankTraceFramesSpinner.setAdapter(jankTraceFramesAdapter);
+        strictModeProfileAdapter = new DeveloperSettingsSpinnerAdapter<Option>(layoutInflater).setSelectionOptions(STRICT_MODE_PROFILE_OPTIONS);
+        strictModeProfileSpinner.setAdapter(strictModeProfileAdapter);
+
+        memoryChartView.setHistoryLength(MEMORY_CHART_HISTORY_LENGTH);
+        javaHeapSeries = memoryChartView.addSeries(ContextCompat.getColor(getContext(), R.color.colorPrimary));
+        nativeHeapSeries = memoryChartView.addSeries(ContextCompat.getColor(getContext(), R.color.colorAccent));
+        totalPssSeries = memoryChartView.addSeries(MEMORY_CHART_PSS_COLOR);
+
+        boundView = BuildConfig.DEBUG
+                ? App.get(getContext()).applicationComponent().threadContractTracker().wrap(DeveloperSettingsView.class, this)
+                : this;
+        presenter.bindView(boundView);
     }
 
     @OnCheckedChanged(R.id.developer_settings_stetho_switch)
@@ -76,13 +257,126 @@ public class DeveloperSettingsFragment extends BaseFragment implements Developer
         presenter.changeStethoState(checked);
     }
 
+    @OnCheckedChanged(R.id.developer_settings_leak_canary_switch)
+    void onLeakCanarySwitchCheckedChanged(boolean checked) {
+        presenter.changeLeakCanaryState(checked);
+    }
+
     @OnCheckedChanged(R.id.developer_settings_tiny_dancer_switch)
     void onTinyDancerSwitchCheckedChanged(boolean checked) {
         presenter.changeTinyDancerState(checked);
     }
 
+    @OnCheckedChanged(R.id.developer_settings_frame_time_recorder_switch)
+    void onFrameTimeRecorderSwitchCheckedChanged(boolean checked) {
+        presenter.changeFrameTimeRecorderState(checked);
+    }
+
+    @OnClick(R.id.developer_settings_frame_time_refresh_button)
+    void onFrameTimeRefreshClick() {
+        presenter.refreshFrameTimeReport();
+    }
+
+    @OnClick(R.id.developer_settings_frame_time_reset_button)
+    void onFrameTimeResetClick() {
+        presenter.resetFrameTimeReport();
+    }
+
+    @OnCheckedChanged(R.id.developer_settings_block_detector_switch)
+    void onBlockDetectorSwitchCheckedChanged(boolean checked) {
+        presenter.changeBlockDetectorState(checked);
+    }
+
+    @OnItemSelected(R.id.developer_settings_block_detector_threshold_spinner)
+    void onBlockDetectorThresholdSelected(int position) {
+        presenter.changeBlockDetectorThreshold(BLOCK_THRESHOLD_OPTIONS.get(position).id());
+    }
+
+    @OnClick(R.id.developer_settings_block_report_refresh_button)
+    void onBlockReportRefreshClick() {
+        presenter.refreshBlockReport();
+    }
+
+    @OnCheckedChanged(R.id.developer_settings_memory_sampler_switch)
+    void onMemorySamplerSwitchCheckedChanged(boolean checked) {
+        presenter.changeMemorySamplerState(checked);
+    }
+
+    @OnItemSelected(R.id.developer_settings_memory_sampler_interval_spinner)
+    void onMemorySamplerIntervalSelected(int position) {
+        presenter.changeMemorySamplerInterval(MEMORY_SAMPLER_INTERVAL_OPTIONS.get(position).id());
+    }
+
+    @OnClick(R.id.developer_settings_memory_report_refresh_button)
+    void onMemoryReportRefreshClick() {
+        presenter.refreshMemoryReport();
+    }
+
+    @OnClick(R.id.developer_settings_memory_samples_export_button)
+    void onMemorySamplesExportClick() {
+        presenter.exportMemorySamples();
+    }
+
+    @OnCheckedChanged(R.id.developer_settings_method_tracing_switch)
+    void onMethodTracingSwitchCheckedChanged(boolean checked) {
+        presenter.changeMethodTracingState(checked);
+    }
+
+    @OnItemSelected(R.id.developer_settings_method_tracing_interval_spinner)
+    void onMethodTracingIntervalSelected(int position) {
+        presenter.changeMethodTracingInterval((int) METHOD_TRACING_INTERVAL_OPTIONS.get(position).id());
+    }
+
+    @OnItemSelected(R.id.developer_settings_method_tracing_buffer_size_spinner)
+    void onMethodTracingBufferSizeSelected(int position) {
+        presenter.changeMethodTracingBufferSize((int) METHOD_TRACING_BUFFER_SIZE_OPTIONS.get(position).id());
+    }
+
+    @OnItemSelected(R.id.developer_settings_jank_trace_frames_spinner)
+    void onJankTraceFramesSelected(int position) {
+        presenter.changeJankTraceFrames((int) JANK_TRACE_FRAMES_OPTIONS.get(position).id());
+    }
+
+    @OnClick(R.id.developer_settings_method_tracing_report_refresh_button)
+    void onMethodTracingReportRefreshClick() {
+        presenter.refreshMethodTracingReport();
+    }
+
+    @OnItemSelected(R.id.developer_settings_strict_mode_profile_spinner)
+    void onStrictModeProfileSelected(int position) {
+        presenter.changeStrictModeProfile((int) STRICT_MODE_PROFILE_OPTIONS.get(position).id());
+    }
+
+    @OnClick(R.id.developer_settings_strict_mode_report_refresh_button)
+    void onStrictModeReportRefreshClick() {
+        presenter.refreshStrictModeReport();
+    }
+
+    @OnClick(R.id.developer_settings_strict_mode_report_reset_button)
+    void onStrictModeReportResetClick() {
+        presenter.resetStrictModeReport();
+    }
+
+    @OnClick(R.id.developer_settings_executors_report_refresh_button)
+    void onExecutorsReportRefreshClick() {
+        presenter.refreshExecutorsReport();
+    }
+
+    @OnClick(R.id.developer_settings_thread_contracts_report_refresh_button)
+    void onThreadContractsReportRefreshClick() {
+        presenter.refreshThreadContractsReport();
+    }
+
+    @OnClick(R.id.developer_settings_instances_report_refresh_button)
+    void onInstancesReportRefreshClick() {
+        presenter.refreshInstancesReport();
+    }
+
     @OnClick(R.id.developer_settings_restart_app_button)
     void onRestartAppClick() {
+        // Settings are written in batches, make sure the last changes survive the restart.
+        presenter.persistSettings();
+
         final FragmentActivity activity = getActivity();
         ProcessPhoenix.triggerRebirth(activity, new Intent(activity, activity.getClass()));
     }
@@ -90,46 +384,262 @@ public class DeveloperSettingsFragment extends BaseFragment implements Developer
     @Override
     @AnyThread
     public void changeBuildVersionCode(@NonNull String versionCode) {
-        runOnUiThreadIfFragmentAlive(() -> {
-            assert buildVersionCodeTextView != null;
-            buildVersionCodeTextView.setText(versionCode);
-        });
+        updateView(PROPERTY_BUILD_VERSION_CODE, versionCode);
     }
 
     @Override
     @AnyThread
     public void changeBuildVersionName(@NonNull String versionName) {
-        runOnUiThreadIfFragmentAlive(() -> {
-            assert buildVersionNameTextView != null;
-            buildVersionNameTextView.setText(versionName);
-        });
+        updateView(PROPERTY_BUILD_VERSION_NAME, versionName);
     }
 
     @Override
     @AnyThread
     public void changeStethoState(boolean enabled) {
-        runOnUiThreadIfFragmentAlive(() -> {
-            assert stethoSwitch != null;
-            stethoSwitch.setChecked(enabled);
-        });
+        updateView(PROPERTY_STETHO_STATE, enabled);
     }
 
     @Override
     @AnyThread
     public void changeLeakCanaryState(boolean enabled) {
-        runOnUiThreadIfFragmentAlive(() -> {
-            assert leakCanarySwitch != null;
-            leakCanarySwitch.setChecked(enabled);
-        });
+        updateView(PROPERTY_LEAK_CANARY_STATE, enabled);
     }
 
     @Override
     @AnyThread
     public void changeTinyDancerState(boolean enabled) {
-        runOnUiThreadIfFragmentAlive(() -> {
-            assert tinyDancerSwitch != null;
-            tinyDancerSwitch.setChecked(enabled);
-        });
+        updateView(PROPERTY_TINY_DANCER_STATE, enabled);
+    }
+
+    @Override
+    @AnyThread
+    public void changeFrameTimeRecorderState(boolean enabled) {
+        updateView(PROPERTY_FRAME_TIME_RECORDER_STATE, enabled);
+    }
+
+    @Override
+    @AnyThread
+    public void changeFrameTimeReport(@NonNull String report) {
+        updateView(PROPERTY_FRAME_TIME_REPORT, report);
+    }
+
+    @Override
+    @AnyThread
+    public void changeBlockDetectorState(boolean enabled) {
+        updateView(PROPERTY_BLOCK_DETECTOR_STATE, enabled);
+    }
+
+    @Override
+    @AnyThread
+    public void changeBlockDetectorThreshold(long thresholdMs) {
+        updateView(PROPERTY_BLOCK_DETECTOR_THRESHOLD, thresholdMs);
+    }
+
+    @Override
+    @AnyThread
+    public void changeBlockReport(@NonNull String report) {
+        updateView(PROPERTY_BLOCK_REPORT, report);
+    }
+
+    @Override
+    @AnyThread
+    public void changeMemorySamplerState(boolean enabled) {
+        updateView(PROPERTY_MEMORY_SAMPLER_STATE, enabled);
+    }
+
+    @Override
+    @AnyThread
+    public void changeMemorySamplerInterval(long intervalMs) {
+        updateView(PROPERTY_MEMORY_SAMPLER_INTERVAL, intervalMs);
+    }
+
+    @Override
+    @AnyThread
+    public void changeMemoryReport(@NonNull String report) {
+        updateView(PROPERTY_MEMORY_REPORT, report);
+    }
+
+    @Override
+    @AnyThread
+    @NonNull
+    public MemorySampler.Listener memorySampleListener() {
+        return memorySampleListener;
+    }
+
+    // Called on an io thread for every sample: the chart is thread safe and invalidates only the new segment,
+    // going through updateView() would drop samples.
+    private void addMemorySample(long javaHeapKb, long nativeHeapKb, long totalPssKb) {
+        final MetricsChartView chart = memoryChartView;
+
+        if (chart != null) {
+            chart.setPointValue(javaHeapSeries, javaHeapKb);
+            chart.setPointValue(nativeHeapSeries, nativeHeapKb);
+            chart.setPointValue(totalPssSeries, totalPssKb);
+            chart.addPoint();
+        }
+    }
+
+    @Override
+    @AnyThread
+    public void changeMethodTracingState(boolean enabled) {
+        updateView(PROPERTY_METHOD_TRACING_STATE, enabled);
+    }
+
+    @Override
+    @AnyThread
+    public void changeMethodTracingInterval(int intervalUs) {
+        updateView(PROPERTY_METHOD_TRACING_INTERVAL, intervalUs);
+    }
+
+    @Override
+    @AnyThread
+    public void changeMethodTracingBufferSize(int bufferSizeMb) {
+        updateView(PROPERTY_METHOD_TRACING_BUFFER_SIZE, bufferSizeMb);
+    }
+
+    @Override
+    @AnyThread
+    public void changeJankTraceFrames(int frames) {
+        updateView(PROPERTY_JANK_TRACE_FRAMES, frames);
+    }
+
+    @Override
+    @AnyThread
+    public void changeMethodTracingReport(@NonNull String report) {
+        updateView(PROPERTY_METHOD_TRACING_REPORT, report);
+    }
+
+    @Override
+    @AnyThread
+    public void changeStrictModeProfile(int profile) {
+        updateView(PROPERTY_STRICT_MODE_PROFILE, profile);
+    }
+
+    @Override
+    @AnyThread
+    public void changeStrictModeReport(@NonNull String report) {
+        updateView(PROPERTY_STRICT_MODE_REPORT, report);
+    }
+
+    @Override
+    @AnyThread
+    public void changeExecutorsReport(@NonNull String report) {
+        updateView(PROPERTY_EXECUTORS_REPORT, report);
+    }
+
+    @Override
+    @AnyThread
+    public void changeThreadContractsReport(@NonNull String report) {
+        updateView(PROPERTY_THREAD_CONTRACTS_REPORT, report);
+    }
+
+    @Override
+    @AnyThread
+    public void changeInstancesReport(@NonNull String report) {
+        updateView(PROPERTY_INSTANCES_REPORT, report);
+    }
+
+    @Override
+    protected void onViewUpdate(int property, long value, @Nullable Object objectValue) {
+        switch (property) {
+            case PROPERTY_BUILD_VERSION_CODE:
+                assert buildVersionCodeTextView != null;
+                buildVersionCodeTextView.setText((String) objectValue);
+                break;
+            case PROPERTY_BUILD_VERSION_NAME:
+                assert buildVersionNameTextView != null;
+                buildVersionNameTextView.setText((String) objectValue);
+                break;
+            case PROPERTY_STETHO_STATE:
+                assert stethoSwitch != null;
+                stethoSwitch.setChecked(value != 0);
+                break;
+            case PROPERTY_LEAK_CANARY_STATE:
+                assert leakCanarySwitch != null;
+                leakCanarySwitch.setChecked(value != 0);
+                break;
+            case PROPERTY_TINY_DANCER_STATE:
+                assert tinyDancerSwitch != null;
+                tinyDancerSwitch.setChecked(value != 0);
+                break;
+            case PROPERTY_FRAME_TIME_RECORDER_STATE:
+                assert frameTimeRecorderSwitch != null;
+                frameTimeRecorderSwitch.setChecked(value != 0);
+                break;
+            case PROPERTY_FRAME_TIME_REPORT:
+                assert frameTimeReportTextView != null;
+                frameTimeReportTextView.setText((String) objectValue);
+                break;
+            case PROPERTY_BLOCK_DETECTOR_STATE:
+                assert blockDetectorSwitch != null;
+                blockDetectorSwitch.setChecked(value != 0);
+                break;
+            case PROPERTY_BLOCK_DETECTOR_THRESHOLD:
+                select(blockDetectorThresholdSpinner, blockDetectorThresholdAdapter, value);
+                break;
+            case PROPERTY_BLOCK_REPORT:
+                assert blockReportTextView != null;
+                blockReportTextView.setText((String) objectValue);
+                break;
+            case PROPERTY_MEMORY_SAMPLER_STATE:
+                assert memorySamplerSwitch != null;
+                memorySamplerSwitch.setChecked(value != 0);
+                break;
+            case PROPERTY_MEMORY_SAMPLER_INTERVAL:
+                select(memorySamplerIntervalSpinner, memorySamplerIntervalAdapter, value);
+                break;
+            case PROPERTY_MEMORY_REPORT:
+                assert memoryReportTextView != null;
+                memoryReportTextView.setText((String) objectValue);
+                break;
+            case PROPERTY_METHOD_TRACING_STATE:
+                assert methodTracingSwitch != null;
+                methodTracingSwitch.setChecked(value != 0);
+                break;
+            case PROPERTY_METHOD_TRACING_INTERVAL:
+                select(methodTracingIntervalSpinner, methodTracingIntervalAdapter, value);
+                break;
+            case PROPERTY_METHOD_TRACING_BUFFER_SIZE:
+                select(methodTracingBufferSizeSpinner, methodTracingBufferSizeAdapter, value);
+                break;
+            case PROPERTY_JANK_TRACE_FRAMES:
+                select(jankTraceFramesSpinner, jankTraceFramesAdapter, value);
+                break;
+            case PROPERTY_METHOD_TRACING_REPORT:
+                assert methodTracingReportTextView != null;
+                methodTracingReportTextView.setText((String) objectValue);
+                break;
+            case PROPERTY_STRICT_MODE_PROFILE:
+                select(strictModeProfileSpinner, strictModeProfileAdapter, value);
+                break;
+            case PROPERTY_STRICT_MODE_REPORT:
+                assert strictModeReportTextView != null;
+                strictModeReportTextView.setText((String) objectValue);
+                break;
+            case PROPERTY_EXECUTORS_REPORT:
+                assert executorsReportTextView != null;
+                executorsReportTextView.setText((String) objectValue);
+                break;
+            case PROPERTY_THREAD_CONTRACTS_REPORT:
+                assert threadContractsReportTextView != null;
+                threadContractsReportTextView.setText((String) objectValue);
+                break;
+            case PROPERTY_INSTANCES_REPORT:
+                assert instancesReportTextView != null;
+                instancesReportTextView.setText((String) objectValue);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown property " + property);
+        }
+    }
+
+    private static void select(@NonNull Spinner spinner, @NonNull DeveloperSettingsSpinnerAdapter<?> adapter, long id) {
+        for (int position = 0; position < adapter.getCount(); position++) {
+            if (adapter.getItemId(position) == id) {
+                spinner.setSelection(position);
+                return;
+            }
+        }
     }
 
     @SuppressLint("ShowToast") // Yeah, Lambdas and Lint are not good friends…
@@ -139,11 +649,6 @@ public class DeveloperSettingsFragment extends BaseFragment implements Developer
         runOnUiThreadIfFragmentAlive(() -> Toast.makeText(getContext(), message, Toast.LENGTH_SHORT).show());
     }
 
-    @OnCheckedChanged(R.id.developer_settings_leak_canary_switch)
-    void onLeakCanarySwitchCheckedChanged(boolean checked) {
-        presenter.changeLeakCanaryState(checked);
-    }
-
     @SuppressLint("ShowToast") // Yeah, Lambdas and Lint are not good friends…
     @Override
     @AnyThread
@@ -153,14 +658,42 @@ public class DeveloperSettingsFragment extends BaseFragment implements Developer
 
     @OnClick(R.id.b_show_log)
     void showLog() {
-        Context context = getActivity();
-        context.startActivity(LynxActivity.getIntent(context, lynxConfig));
+        startActivity(new Intent(getActivity(), LogViewerActivity.class));
     }
 
     @Override
     public void onDestroyView() {
-        presenter.unbindView(this);
+        presenter.unbindView(boundView);
         super.onDestroyView();
     }
 
+    @Override
+    public void onDestroy() {
+        presenter.destroy();
+        super.onDestroy();
+    }
+
+    static class Option implements DeveloperSettingsSpinnerAdapter.SelectionOption {
+
+        private final long id;
+
+        @NonNull
+        private final String title;
+
+        Option(long id, @NonNull String title) {
+            this.id = id;
+            this.title = title;
+        }
+
+        @Override
+        public long id() {
+            return id;
+        }
+
+        @NonNull
+        @Override
+        public String title() {
+            return title;
+        }
+    }
 }
@@ -0,0 +1,286 @@
+package ru.yandex.yamblz.ui.fragments;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Spinner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import butterknife.BindView;
+import butterknife.OnItemSelected;
+import butterknife.OnTextChanged;
+import ru.yandex.yamblz.App;
+import ru.yandex.yamblz.BuildConfig;
+import ru.yandex.yamblz.R;
+import ru.yandex.yamblz.logging.LogFilter;
+import ru.yandex.yamblz.logging.LogIndex;
+import ru.yandex.yamblz.performance.AnyThread;
+import ru.yandex.yamblz.ui.adapters.DeveloperSettingsSpinnerAdapter;
+import ru.yandex.yamblz.ui.adapters.LogEntriesAdapter;
+import ru.yandex.yamblz.ui.presenters.LogViewerPresenter;
+import ru.yandex.yamblz.ui.views.LogViewerView;
+
+import static java.util.Arrays.asList;
+
+public class LogViewerFragment extends BaseFragment implements LogViewerView {
+
+    // Properties updated through updateView(), pending updates of the same property are collapsed.
+    private static final int PROPERTY_ENTRIES = 0;
+    private static final int PROPERTY_TAGS = 1;
+
+    @NonNull
+    private static final List<PriorityOption> PRIORITY_OPTIONS = asList(
+            new PriorityOption(Log.VERBOSE, "Verbose"),
+            new PriorityOption(Log.DEBUG, "Debug"),
+            new PriorityOption(Log.INFO, "Info"),
+            new PriorityOption(Log.WARN, "Warn"),
+            new PriorityOption(Log.ERROR, "Error")
+    );
+
+    @NonNull
+    private static final List<SinceOption> SINCE_OPTIONS = asList(
+            new SinceOption(0, "Any time"),
+            new SinceOption(60_000, "Last minute"),
+            new SinceOption(5 * 60_000, "Last 5 minutes"),
+            new SinceOption(60 * 60_000, "Last hour")
+    );
+
+    @NonNull
+    private static final TagOption ALL_TAGS_OPTION = new TagOption(0, null);
+
+    @Inject
+    LogViewerPresenter presenter;
+
+    @BindView(R.id.log_viewer_priority_spinner)
+    Spinner prioritySpinner;
+
+    @BindView(R.id.log_viewer_tag_spinner)
+    Spinner tagSpinner;
+
+    @BindView(R.id.log_viewer_since_spinner)
+    Spinner sinceSpinner;
+
+    @BindView(R.id.log_viewer_entries_recycler_view)
+    RecyclerView entriesRecyclerView;
+
+    @Nullable
+    private LogEntriesAdapter entriesAdapter;
+
+    @Nullable
+    private DeveloperSettingsSpinnerAdapter<TagOption> tagsAdapter;
+
+    @Nullable
+    private LinearLayoutManager entriesLayoutManager;
+
+    @NonNull
+    private List<TagOption> tagOptions = new ArrayList<>(asList(ALL_TAGS_OPTION));
+
+    // This fragment itself or its thread contract checking wrapper in debug builds.
+    private LogViewerView boundView;
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        App.get(getContext()).applicationComponent().plusDeveloperSettingsComponent().inject(this);
+    }
+
+    @NonNull
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        return inflater.inflate(R.layout.fragment_log_viewer, container, false);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        final LayoutInflater layoutInflater = getLayoutInflater(savedInstanceState);
+        prioritySpinner.setAdapter(new DeveloperSettingsSpinnerAdapter<PriorityOption>(layoutInflater).setSelectionOptions(PRIORITY_OPTIONS));
+        sinceSpinner.setAdapter(new DeveloperSettingsSpinnerAdapter<SinceOption>(layoutInflater).setSelectionOptions(SINCE_OPTIONS));
+        tagsAdapter = new DeveloperSettingsSpinnerAdapter<TagOption>(layoutInflater).setSelectionOptions(tagOptions);
+        tagSpinner.setAdapter(tagsAdapter);
+
+        entriesAdapter = new LogEntriesAdapter(layoutInflater);
+        entriesLayoutManager = new LinearLayoutManager(getContext());
+        entriesRecyclerView.setLayoutManager(entriesLayoutManager);
+        entriesRecyclerView.setAdapter(entriesAdapter);
+
+        boundView = BuildConfig.DEBUG
+                ? App.get(getContext()).applicationComponent().threadContractTracker().wrap(LogViewerView.class, this)
+                : this;
+        presenter.bindView(boundView);
+    }
+
+    @OnItemSelected(R.id.log_viewer_priority_spinner)
+    void onPrioritySelected(int position) {
+        presenter.changeMinPriority(PRIORITY_OPTIONS.get(position).priority);
+    }
+
+    @OnItemSelected(R.id.log_viewer_tag_spinner)
+    void onTagSelected(int position) {
+        presenter.changeTag(tagOptions.get(position).tag);
+    }
+
+    @OnItemSelected(R.id.log_viewer_since_spinner)
+    void onSinceSelected(int position) {
+        final long periodMs = SINCE_OPTIONS.get(position).periodMs;
+        presenter.changeSinceTimeKey(periodMs == 0 ? LogIndex.NO_TIME : LogIndex.timeKey(System.currentTimeMillis() - periodMs));
+    }
+
+    @OnTextChanged(R.id.log_viewer_search_edit_text)
+    void onSearchTextChanged(CharSequence text) {
+        presenter.changeText(text.toString());
+    }
+
+    @Override
+    @AnyThread
+    public void changeEntries(@NonNull LogFilter.Result entries) {
+        updateView(PROPERTY_ENTRIES, entries);
+    }
+
+    @Override
+    @AnyThread
+    public void changeTags(@NonNull List<String> tags) {
+        updateView(PROPERTY_TAGS, tags);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void onViewUpdate(int property, long value, @Nullable Object objectValue) {
+        switch (property) {
+            case PROPERTY_ENTRIES:
+                showEntries((LogFilter.Result) objectValue);
+                break;
+            case PROPERTY_TAGS:
+                showTags((List<String>) objectValue);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown property " + property);
+        }
+    }
+
+    private void showEntries(@NonNull LogFilter.Result entries) {
+        assert entriesAdapter != null;
+        assert entriesLayoutManager != null;
+
+        // Keep following the tail of the log unless the user scrolled up.
+        final int lastPosition = entriesAdapter.getItemCount() - 1;
+        final boolean atEnd = lastPosition < 0 || entriesLayoutManager.findLastVisibleItemPosition() >= lastPosition;
+
+        entriesAdapter.setEntries(entries);
+
+        if (atEnd && entries.size() > 0) {
+            entriesRecyclerView.scrollToPosition(entries.size() - 1);
+        }
+    }
+
+    private void showTags(@NonNull List<String> tags) {
+        assert tagsAdapter != null;
+
+        // Tags are only appended, so the selected position keeps pointing to the same tag.
+        final List<TagOption> options = new ArrayList<>(tags.size() + 1);
+        options.add(ALL_TAGS_OPTION);
+
+        for (int i = 0; i < tags.size(); i++) {
+            options.add(new TagOption(i + 1, tags.get(i)));
+        }
+
+        tagOptions = options;
+        tagsAdapter.setSelectionOptions(options);
+    }
+
+    @Override
+    public void onDestroyView() {
+        presenter.unbindView(boundView);
+        super.onDestroyView();
+    }
+
+    @Override
+    public void onDestroy() {
+        presenter.destroy();
+        super.onDestroy();
+    }
+
+    static class PriorityOption implements DeveloperSettingsSpinnerAdapter.SelectionOption {
+
+        final int priority;
+
+        @NonNull
+        private final String title;
+
+        PriorityOption(int priority, @NonNull String title) {
+            this.priority = priority;
+            this.title = title;
+        }
+
+        @Override
+        public long id() {
+            return priority;
+        }
+
+        @NonNull
+        @Override
+        public String title() {
+            return title;
+        }
+    }
+
+    static class SinceOption implements DeveloperSettingsSpinnerAdapter.SelectionOption {
+
+        final long periodMs;
+
+        @NonNull
+        private final String title;
+
+        SinceOption(long periodMs, @NonNull String title) {
+            this.periodMs = periodMs;
+            this.title = title;
+        }
+
+        @Override
+        public long id() {
+            return periodMs;
+        }
+
+        @NonNull
+        @Override
+        public String title() {
+            return title;
+        }
+    }
+
+    static class TagOption implements DeveloperSettingsSpinnerAdapter.SelectionOption {
+
+        // Position of the tag in the appended list, so the ids are stable.
+        private final long id;
+
+        @Nullable
+        final String tag;
+
+        TagOption(long id, @Nullable String tag) {
+            this.id = id;
+            this.tag = tag;
+        }
+
+        @Override
+        public long id() {
+            return id;
+        }
+
+        @NonNull
+        @Override
+        public String title() {
+            return tag == null ? "All threads" : tag;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package ru.yandex.yamblz.ui.other;
+
+import android.content.Context;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ru.yandex.yamblz.performance.AnyThread;
+import timber.log.Timber;
+
+/**
+ * Inflates layouts in background and keeps a bounded pool of ready view trees per layout,
+ * so {@link android.support.v4.app.Fragment#onCreateView} can take a tree instead of inflating it on the main thread.
+ * <p>
+ * Views are inflated by a clone of the inflater which is only touched by the executor, so the executor must run commands
+ * one by one, e.g. a {@link ru.yandex.yamblz.executors.SerialLane}. Pooled views are created with the application (themed)
+ * context and {@link FrameLayout} layout params, use the pool only for layouts which do not need an activity context.
+ * <p>
+ * Pool metrics are printed by {@code dumpapp perf views}.
+ */
+public class AsyncViewInflater {
+
+    @NonNull
+    private final Context context;
+
+    @NonNull
+    private final Executor executor;
+
+    // Only used by the executor.
+    @NonNull
+    private final LayoutInflater backgroundInflater;
+
+    // Only used by the executor, gives root views layout params from their xml attributes.
+    @Nullable
+    private ViewGroup layoutParamsParent;
+
+    // Guarded by this.
+    @NonNull
+    private final SparseArray<Pool> pools = new SparseArray<>();
+
+    public AsyncViewInflater(@NonNull Context context, @NonNull Executor executor) {
+        this.context = context;
+        this.executor = executor;
+        this.backgroundInflater = LayoutInflater.from(context).cloneInContext(context);
+    }
+
+    /**
+     * Starts keeping up to {@code poolSize} pre-inflated trees of the layout, inflation happens in background.
+     */
+    @AnyThread
+    public void preInflate(@LayoutRes int layoutId, int poolSize) {
+        final Pool pool;
+
+        synchronized (this) {
+            pool = pool(layoutId);
+            pool.capacity = Math.max(pool.capacity, poolSize);
+        }
+
+        refill(pool);
+    }
+
+    /**
+     * @return pre-inflated tree if the pool has one, otherwise tree inflated synchronously by the given inflater.
+     */
+    @MainThread
+    @NonNull
+    public View obtain(@LayoutRes int layoutId, @NonNull LayoutInflater inflater, @Nullable ViewGroup container) {
+        final Pool pool;
+        final View view;
+
+        synchronized (this) {
+            pool = pool(layoutId);
+            view = pool.views.poll();
+        }
+
+        if (view == null) {
+            pool.misses.incrementAndGet();
+            return inflater.inflate(layoutId, container, false);
+        }
+
+        pool.hits.incrementAndGet();
+        refill(pool);
+        return view;
+    }
+
+    @AnyThread
+    public int hits(@LayoutRes int layoutId) {
+        synchronized (this) {
+            return pool(layoutId).hits.get();
+        }
+    }
+
+    @AnyThread
+    public int misses(@LayoutRes int layoutId) {
+        synchronized (this) {
+            return pool(layoutId).misses.get();
+        }
+    }
+
+    @AnyThread
+    public int pooled(@LayoutRes int layoutId) {
+        synchronized (this) {
+            return pool(layoutId).views.size();
+        }
+    }
+
+    /**
+     * @return hits, misses and pooled trees count per layout.
+     */
+    @AnyThread
+    @NonNull
+    public String report() {
+        final StringBuilder report = new StringBuilder("View pools:");
+
+        synchronized (this) {
+            for (int i = 0; i < pools.size(); i++) {
+                final Pool pool = pools.valueAt(i);
+
+                report.append(String.format(Locale.US, "%n%s: %d hits, %d misses, %d/%d pooled",
+                        context.getResources().getResourceEntryName(pool.layoutId),
+                        pool.hits.get(),
+                        pool.misses.get(),
+                        pool.views.size(),
+                        pool.capacity));
+            }
+        }
+
+        return report.toString();
+    }
+
+    // Should be called under the lock.
+    @NonNull
+    private Pool pool(@LayoutRes int layoutId) {
+        Pool pool = pools.get(layoutId);
+
+        if (pool == null) {
+            // Unknown layouts get an empty pool, so their misses are still counted.
+            pool = new Pool(layoutId);
+            pools.put(layoutId, pool);
+        }
+
+        return pool;
+    }
+
+    private void refill(@NonNull Pool pool) {
+        final int missing;
+
+        synchronized (this) {
+            missing = pool.capacity - pool.views.size() - pool.inflating;
+            pool.inflating += Math.max(0, missing);
+        }
+
+        for (int i = 0; i < missing; i++) {
+            executor.execute(() -> inflateInto(pool));
+        }
+    }
+
+    private void inflateInto(@NonNull Pool pool) {
+        View view = null;
+
+        try {
+            if (layoutParamsParent == null) {
+                layoutParamsParent = new FrameLayout(context);
+            }
+
+            view = backgroundInflater.inflate(pool.layoutId, layoutParamsParent, false);
+        } catch (RuntimeException e) {
+            // Not every view can be created in background, obtain() falls back to synchronous inflation then.
+            Timber.e(e, "Can not inflate %s in background", context.getResources().getResourceEntryName(pool.layoutId));
+        } finally {
+            synchronized (this) {
+                pool.inflating--;
+
+                if (view != null) {
+                    pool.views.add(view);
+                }
+            }
+        }
+    }
+
+    private static class Pool {
+
+        @LayoutRes
+        final int layoutId;
+
+        @NonNull
+        final Queue<View> views = new ArrayDeque<>();
+
+        @NonNull
+        final AtomicInteger hits = new AtomicInteger();
+
+        @NonNull
+        final AtomicInteger misses = new AtomicInteger();
+
+        // Both guarded by AsyncViewInflater.this.
+        int capacity;
+        int inflating;
+
+        Pool(@LayoutRes int layoutId) {
+            this.layoutId = layoutId;
+        }
+    }
+}
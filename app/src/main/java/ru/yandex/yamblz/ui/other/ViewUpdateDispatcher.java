@@ -0,0 +1,233 @@
+package ru.yandex.yamblz.ui.other;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+import ru.yandex.yamblz.performance.AnyThread;
+import ru.yandex.yamblz.performance.ThreadContractTracker;
+
+/**
+ * Buffers view updates and applies them in one {@link Choreographer} callback right before the next frame.
+ * <p>
+ * Updates are keyed by target and property: if a property is updated several times before the frame,
+ * only the last value is applied. Updates are kept in pooled records, so dispatching does not allocate
+ * once the pool is warmed up.
+ * <p>
+ * An update queued by a call wrapped by {@link ThreadContractTracker} is stamped when queued, the delay until it's applied
+ * is the cost of the hop to the main thread.
+ */
+public class ViewUpdateDispatcher implements Choreographer.FrameCallback {
+
+    // Enough for every property of the biggest screen we have, more records are simply not pooled.
+    private static final int MAX_POOL_SIZE = 32;
+
+    public interface Target {
+
+        /**
+         * @param value       value of a boolean ({@code 1} or {@code 0}) or long property.
+         * @param objectValue value of an object property, {@code null} for boolean and long properties.
+         */
+        @MainThread
+        void applyViewUpdate(int property, long value, @Nullable Object objectValue);
+    }
+
+    @NonNull
+    private final Handler mainThreadHandler;
+
+    @NonNull
+    private final ThreadContractTracker threadContractTracker;
+
+    @NonNull
+    private final Runnable postFrameCallback = () -> Choreographer.getInstance().postFrameCallback(this);
+
+    // Guarded by this.
+    @NonNull
+    private ArrayList<Update> pending = new ArrayList<>();
+
+    // Guarded by this, swapped with pending before applying, so targets are called without the lock.
+    @NonNull
+    private ArrayList<Update> applying = new ArrayList<>();
+
+    // Guarded by this.
+    @Nullable
+    private Update pool;
+    private int pooled;
+    private boolean frameScheduled;
+
+    public ViewUpdateDispatcher(@NonNull Handler mainThreadHandler, @NonNull ThreadContractTracker threadContractTracker) {
+        this.mainThreadHandler = mainThreadHandler;
+        this.threadContractTracker = threadContractTracker;
+    }
+
+    @AnyThread
+    public void dispatch(@NonNull Target target, int property, boolean value) {
+        dispatch(target, property, value ? 1 : 0, null);
+    }
+
+    @AnyThread
+    public void dispatch(@NonNull Target target, int property, long value) {
+        dispatch(target, property, value, null);
+    }
+
+    @AnyThread
+    public void dispatch(@NonNull Target target, int property, @NonNull Object value) {
+        dispatch(target, property, 0, value);
+    }
+
+    /**
+     * Drops all pending updates of the target, for example when its views are destroyed.
+     */
+    @AnyThread
+    public synchronized void cancel(@NonNull Target target) {
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            final Update update = pending.get(i);
+
+            if (update.target == target) {
+                pending.remove(i);
+                recycle(update);
+            }
+        }
+    }
+
+    @MainThread
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        final ArrayList<Update> updates;
+
+        synchronized (this) {
+            frameScheduled = false;
+            updates = pending;
+            pending = applying;
+            applying = updates;
+        }
+
+        // Indexed loop: iterator would allocate on every frame.
+        for (int i = 0; i < updates.size(); i++) {
+            final Update update = updates.get(i);
+            update.target.applyViewUpdate(update.property, update.value, update.objectValue);
+
+            if (update.hop != null) {
+                update.hop.recordHop(System.nanoTime() - update.queuedNanos);
+            }
+        }
+
+        synchronized (this) {
+            for (int i = 0; i < updates.size(); i++) {
+                recycle(updates.get(i));
+            }
+
+            updates.clear();
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    @VisibleForTesting
+    synchronized int pooledCount() {
+        return pooled;
+    }
+
+    @SuppressWarnings("PMD.CompareObjectsWithEquals")
+    private void dispatch(@NonNull Target target, int property, long value, @Nullable Object objectValue) {
+        final ThreadContractTracker.MethodStats hop = threadContractTracker.callInProgress();
+
+        synchronized (this) {
+            Update update = null;
+
+            for (int i = 0; i < pending.size(); i++) {
+                final Update candidate = pending.get(i);
+
+                if (candidate.target == target && candidate.property == property) {
+                    update = candidate;
+                    break;
+                }
+            }
+
+            if (update == null) {
+                update = obtain();
+                update.target = target;
+                update.property = property;
+                pending.add(update);
+            }
+
+            // Last write wins.
+            update.value = value;
+            update.objectValue = objectValue;
+
+            // A collapsed update keeps the stamp of the first hop, it has been waiting since then.
+            if (hop != null && update.hop == null) {
+                update.hop = hop;
+                update.queuedNanos = System.nanoTime();
+            }
+
+            if (frameScheduled) {
+                return;
+            }
+
+            frameScheduled = true;
+        }
+
+        // Choreographer is per thread, frame callbacks have to be posted from the main thread.
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            postFrameCallback.run();
+        } else {
+            mainThreadHandler.post(postFrameCallback);
+        }
+    }
+
+    // Should be called under the lock.
+    @NonNull
+    private Update obtain() {
+        final Update update = pool;
+
+        if (update == null) {
+            return new Update();
+        }
+
+        pool = update.next;
+        update.next = null;
+        pooled--;
+        return update;
+    }
+
+    // Should be called under the lock.
+    private void recycle(@NonNull Update update) {
+        update.target = null;
+        update.objectValue = null;
+        update.hop = null;
+
+        if (pooled < MAX_POOL_SIZE) {
+            update.next = pool;
+            pool = update;
+            pooled++;
+        }
+    }
+
+    private static class Update {
+
+        Target target;
+        int property;
+        long value;
+
+        @Nullable
+        Object objectValue;
+
+        // Set if the update was queued by a call wrapped by ThreadContractTracker.
+        @Nullable
+        ThreadContractTracker.MethodStats hop;
+        long queuedNanos;
+
+        @Nullable
+        Update next;
+    }
+}
@@ -1,8 +1,13 @@
 package ru.yandex.yamblz.ui.presenters;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
+import ru.yandex.yamblz.developer_settings.DeveloperSettings;
 import ru.yandex.yamblz.developer_settings.DeveloperSettingsModelImpl;
+import ru.yandex.yamblz.developer_settings.StrictModeProxy;
+import ru.yandex.yamblz.performance.InstanceTracker;
+import ru.yandex.yamblz.performance.MemorySampler;
 import ru.yandex.yamblz.ui.views.DeveloperSettingsView;
 
 public class DeveloperSettingsPresenter extends Presenter<DeveloperSettingsView> {
@@ -10,7 +15,16 @@ public class DeveloperSettingsPresenter extends Presenter<DeveloperSettingsView>
     @NonNull
     private final DeveloperSettingsModelImpl developerSettingsModel;
 
-    public DeveloperSettingsPresenter(@NonNull DeveloperSettingsModelImpl developerSettingsModel) {
+    // Keeps the view in sync when settings are changed by somebody else, e.g. another view or a startup task.
+    @NonNull
+    private final DeveloperSettings.Listener settingsListener = this::showSettings;
+
+    // Streams samples to the view's chart while the view is bound, called on an io thread.
+    @Nullable
+    private MemorySampler.Listener memorySampleListener;
+
+    public DeveloperSettingsPresenter(@NonNull DeveloperSettingsModelImpl developerSettingsModel, @NonNull InstanceTracker instanceTracker) {
+        super(instanceTracker);
         this.developerSettingsModel = developerSettingsModel;
     }
 
@@ -23,6 +37,39 @@ public class DeveloperSettingsPresenter extends Presenter<DeveloperSettingsView>
         view.changeStethoState(developerSettingsModel.isStethoEnabled());
         view.changeLeakCanaryState(developerSettingsModel.isLeakCanaryEnabled());
         view.changeTinyDancerState(developerSettingsModel.isTinyDancerEnabled());
+        view.changeFrameTimeRecorderState(developerSettingsModel.isFrameTimeRecorderEnabled());
+        view.changeFrameTimeReport(developerSettingsModel.getFrameTimeReport());
+        view.changeBlockDetectorState(developerSettingsModel.isBlockDetectorEnabled());
+        view.changeBlockDetectorThreshold(developerSettingsModel.getBlockDetectorThresholdMs());
+        view.changeBlockReport(developerSettingsModel.getBlockReport());
+        view.changeMemorySamplerState(developerSettingsModel.isMemorySamplerEnabled());
+        view.changeMemorySamplerInterval(developerSettingsModel.getMemorySamplerIntervalMs());
+        view.changeMemoryReport(developerSettingsModel.getMemoryReport());
+        view.changeMethodTracingState(developerSettingsModel.isMethodTracingEnabled());
+        view.changeMethodTracingInterval(developerSettingsModel.getMethodTracingIntervalUs());
+        view.changeMethodTracingBufferSize(developerSettingsModel.getMethodTracingBufferSizeMb());
+        view.changeJankTraceFrames(developerSettingsModel.getJankTraceFrames());
+        view.changeMethodTracingReport(developerSettingsModel.getMethodTracingReport());
+        view.changeStrictModeProfile(developerSettingsModel.getStrictModeProfile());
+        view.changeStrictModeReport(developerSettingsModel.getStrictModeReport());
+        view.changeExecutorsReport(developerSettingsModel.getExecutorsReport());
+        view.changeThreadContractsReport(developerSettingsModel.getThreadContractsReport());
+        view.changeInstancesReport(instanceTracker().report());
+
+        developerSettingsModel.addSettingsListener(settingsListener);
+        memorySampleListener = view.memorySampleListener();
+        developerSettingsModel.addMemorySampleListener(memorySampleListener);
+    }
+
+    @Override
+    public void unbindView(@NonNull DeveloperSettingsView view) {
+        developerSettingsModel.removeSettingsListener(settingsListener);
+        if (memorySampleListener != null) {
+            developerSettingsModel.removeMemorySampleListener(memorySampleListener);
+            memorySampleListener = null;
+        }
+
+        super.unbindView(view);
     }
 
     public void changeStethoState(boolean enabled) {
@@ -30,47 +77,245 @@ public class DeveloperSettingsPresenter extends Presenter<DeveloperSettingsView>
             return; // no-op
         }
 
-        boolean stethoWasEnabled = developerSettingsModel.isStethoEnabled();
+        // Stetho is started in background, the view is notified once it's done.
+        developerSettingsModel.changeStethoState(enabled, () -> {
+            final DeveloperSettingsView view = view();
+
+            if (view != null) {
+                view.showMessage("Stetho was " + booleanToEnabledDisabled(enabled));
+
+                // Stetho can be started at any moment, but once started it runs until the process dies.
+                if (!enabled && developerSettingsModel.isStethoRunning()) {
+                    view.showAppNeedsToBeRestarted();
+                }
+            }
+        });
+    }
+
+    public void changeLeakCanaryState(boolean enabled) {
+        if (developerSettingsModel.isLeakCanaryEnabled() == enabled) {
+            return; // no-op
+        }
+
+        developerSettingsModel.changeLeakCanaryState(enabled, () -> showMessage("LeakCanary was " + booleanToEnabledDisabled(enabled)));
+    }
 
-        developerSettingsModel.changeStethoState(enabled);
+    public void changeTinyDancerState(boolean enabled) {
+        if (developerSettingsModel.isTinyDancerEnabled() == enabled) {
+            return; // no-op
+        }
+
+        developerSettingsModel.changeTinyDancerState(enabled, () -> showMessage("TinyDancer was " + booleanToEnabledDisabled(enabled)));
+    }
+
+    public void changeFrameTimeRecorderState(boolean enabled) {
+        if (developerSettingsModel.isFrameTimeRecorderEnabled() == enabled) {
+            return; // no-op
+        }
+
+        developerSettingsModel.changeFrameTimeRecorderState(enabled);
 
         final DeveloperSettingsView view = view();
 
         if (view != null) {
-            view.showMessage("Stetho was " + booleanToEnabledDisabled(enabled));
+            view.showMessage("Frame time recorder was " + booleanToEnabledDisabled(enabled));
+        }
+    }
 
-            if (stethoWasEnabled) {
-                view.showAppNeedsToBeRestarted();
-            }
+    public void refreshFrameTimeReport() {
+        final DeveloperSettingsView view = view();
+
+        if (view != null) {
+            view.changeFrameTimeReport(developerSettingsModel.getFrameTimeReport());
         }
     }
 
-    public void changeLeakCanaryState(boolean enabled) {
-        if (developerSettingsModel.isLeakCanaryEnabled() == enabled) {
+    public void resetFrameTimeReport() {
+        developerSettingsModel.resetFrameTimeReport();
+        refreshFrameTimeReport();
+    }
+
+    public void changeBlockDetectorState(boolean enabled) {
+        if (developerSettingsModel.isBlockDetectorEnabled() == enabled) {
             return; // no-op
         }
 
-        developerSettingsModel.changeLeakCanaryState(enabled);
+        developerSettingsModel.changeBlockDetectorState(enabled);
 
         final DeveloperSettingsView view = view();
 
         if (view != null) {
-            view.showMessage("LeakCanary was " + booleanToEnabledDisabled(enabled));
-            view.showAppNeedsToBeRestarted(); // LeakCanary can not be enabled on demand (or it's possible?)
+            view.showMessage("Block detector was " + booleanToEnabledDisabled(enabled));
         }
     }
 
-    public void changeTinyDancerState(boolean enabled) {
-        if (developerSettingsModel.isTinyDancerEnabled() == enabled) {
+    public void changeBlockDetectorThreshold(long thresholdMs) {
+        if (developerSettingsModel.getBlockDetectorThresholdMs() == thresholdMs) {
+            return; // no-op
+        }
+
+        developerSettingsModel.changeBlockDetectorThresholdMs(thresholdMs);
+    }
+
+    public void refreshBlockReport() {
+        final DeveloperSettingsView view = view();
+
+        if (view != null) {
+            view.changeBlockReport(developerSettingsModel.getBlockReport());
+        }
+    }
+
+    public void changeMemorySamplerState(boolean enabled) {
+        if (developerSettingsModel.isMemorySamplerEnabled() == enabled) {
+            return; // no-op
+        }
+
+        developerSettingsModel.changeMemorySamplerState(enabled);
+        showMessage("Memory sampler was " + booleanToEnabledDisabled(enabled));
+    }
+
+    public void changeMemorySamplerInterval(long intervalMs) {
+        if (developerSettingsModel.getMemorySamplerIntervalMs() == intervalMs) {
+            return; // no-op
+        }
+
+        developerSettingsModel.changeMemorySamplerIntervalMs(intervalMs);
+    }
+
+    public void refreshMemoryReport() {
+        final DeveloperSettingsView view = view();
+
+        if (view != null) {
+            view.changeMemoryReport(developerSettingsModel.getMemoryReport());
+        }
+    }
+
+    public void exportMemorySamples() {
+        developerSettingsModel.exportMemorySamples(file -> showMessage(file == null
+                ? "Memory samples were not exported, see the log"
+                : "Memory samples were exported to " + file));
+    }
+
+    public void changeMethodTracingState(boolean enabled) {
+        if (developerSettingsModel.isMethodTracingEnabled() == enabled) {
+            return; // no-op
+        }
+
+        developerSettingsModel.changeMethodTracingState(enabled);
+        showMessage("Method tracing was " + booleanToEnabledDisabled(enabled));
+    }
+
+    public void changeMethodTracingInterval(int intervalUs) {
+        if (developerSettingsModel.getMethodTracingIntervalUs() == intervalUs) {
+            return; // no-op
+        }
+
+        developerSettingsModel.changeMethodTracingIntervalUs(intervalUs);
+    }
+
+    public void changeMethodTracingBufferSize(int bufferSizeMb) {
+        if (developerSettingsModel.getMethodTracingBufferSizeMb() == bufferSizeMb) {
+            return; // no-op
+        }
+
+        developerSettingsModel.changeMethodTracingBufferSizeMb(bufferSizeMb);
+    }
+
+    public void changeJankTraceFrames(int frames) {
+        if (developerSettingsModel.getJankTraceFrames() == frames) {
             return; // no-op
         }
 
-        developerSettingsModel.changeTinyDancerState(enabled);
+        developerSettingsModel.changeJankTraceFrames(frames);
+
+        if (frames > 0 && !developerSettingsModel.isFrameTimeRecorderEnabled()) {
+            showMessage("Janky frames are only seen while frame time recorder is enabled");
+        }
+    }
+
+    public void refreshMethodTracingReport() {
+        final DeveloperSettingsView view = view();
+
+        if (view != null) {
+            view.changeMethodTracingReport(developerSettingsModel.getMethodTracingReport());
+        }
+    }
+
+    public void changeStrictModeProfile(int profile) {
+        if (developerSettingsModel.getStrictModeProfile() == profile) {
+            return; // no-op
+        }
+
+        developerSettingsModel.changeStrictModeProfile(profile);
+        showMessage(profile == StrictModeProxy.PROFILE_OFF ? "StrictMode was disabled" : "StrictMode was enabled");
+    }
+
+    public void refreshStrictModeReport() {
+        final DeveloperSettingsView view = view();
+
+        if (view != null) {
+            view.changeStrictModeReport(developerSettingsModel.getStrictModeReport());
+        }
+    }
+
+    public void resetStrictModeReport() {
+        developerSettingsModel.resetStrictModeReport();
+        refreshStrictModeReport();
+    }
+
+    public void refreshExecutorsReport() {
+        final DeveloperSettingsView view = view();
+
+        if (view != null) {
+            view.changeExecutorsReport(developerSettingsModel.getExecutorsReport());
+        }
+    }
+
+    public void refreshThreadContractsReport() {
+        final DeveloperSettingsView view = view();
+
+        if (view != null) {
+            view.changeThreadContractsReport(developerSettingsModel.getThreadContractsReport());
+        }
+    }
+
+    public void refreshInstancesReport() {
+        final DeveloperSettingsView view = view();
+
+        if (view != null) {
+            view.changeInstancesReport(instanceTracker().report());
+        }
+    }
+
+    public void persistSettings() {
+        developerSettingsModel.persistSettings();
+    }
+
+    private void showMessage(@NonNull String message) {
+        final DeveloperSettingsView view = view();
+
+        if (view != null) {
+            view.showMessage(message);
+        }
+    }
 
+    private void showSettings(@NonNull DeveloperSettings.Snapshot settings) {
         final DeveloperSettingsView view = view();
 
         if (view != null) {
-            view.showMessage("TinyDancer was " + booleanToEnabledDisabled(enabled));
+            view.changeStethoState(settings.isStethoEnabled());
+            view.changeLeakCanaryState(settings.isLeakCanaryEnabled());
+            view.changeTinyDancerState(settings.isTinyDancerEnabled());
+            view.changeFrameTimeRecorderState(settings.isFrameTimeRecorderEnabled());
+            view.changeBlockDetectorState(settings.isBlockDetectorEnabled());
+            view.changeBlockDetectorThreshold(settings.blockDetectorThresholdMs());
+            view.changeMemorySamplerState(settings.isMemorySamplerEnabled());
+            view.changeMemorySamplerInterval(settings.memorySamplerIntervalMs());
+            view.changeMethodTracingState(settings.isMethodTracingEnabled());
+            view.changeMethodTracingInterval(settings.methodTracingIntervalUs());
+            view.changeMethodTracingBufferSize(settings.methodTracingBufferSizeMb());
+            view.changeJankTraceFrames(settings.jankTraceFrames());
+            view.changeStrictModeProfile(settings.strictModeProfile());
         }
     }
 
@@ -0,0 +1,154 @@
+package ru.yandex.yamblz.ui.presenters;
+
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import ru.yandex.yamblz.logging.LogFilter;
+import ru.yandex.yamblz.logging.LogIndex;
+import ru.yandex.yamblz.logging.LogQuery;
+import ru.yandex.yamblz.performance.InstanceTracker;
+import ru.yandex.yamblz.ui.views.LogViewerView;
+
+/**
+ * Tails the log file while the view is bound: new entries are indexed and filtered every second,
+ * query changes are applied right away. All index and filter work happens on the serial executor,
+ * at most one refresh waits there at a time, so a busy executor does not pile them up.
+ */
+public class LogViewerPresenter extends Presenter<LogViewerView> {
+
+    private static final long REFRESH_INTERVAL_MS = 1_000;
+
+    @NonNull
+    private final LogIndex logIndex;
+
+    @NonNull
+    private final Executor serialExecutor;
+
+    @NonNull
+    private final Handler mainThreadHandler;
+
+    @NonNull
+    private final LogFilter logFilter;
+
+    @NonNull
+    private volatile LogQuery query = LogQuery.ALL;
+
+    // Only used by refresh(), on the serial executor.
+    @Nullable
+    private LogQuery shownQuery;
+
+    private int shownTagsCount = -1;
+
+    @NonNull
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    @NonNull
+    private final Runnable refreshRunnable = this::refresh;
+
+    @NonNull
+    private final Runnable scheduledRefreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            requestRefresh();
+            mainThreadHandler.postDelayed(this, REFRESH_INTERVAL_MS);
+        }
+    };
+
+    public LogViewerPresenter(@NonNull LogIndex logIndex,
+                              @NonNull Executor serialExecutor,
+                              @NonNull Handler mainThreadHandler,
+                              @NonNull InstanceTracker instanceTracker) {
+        super(instanceTracker);
+        this.logIndex = logIndex;
+        this.serialExecutor = serialExecutor;
+        this.mainThreadHandler = mainThreadHandler;
+        this.logFilter = new LogFilter(logIndex);
+    }
+
+    @Override
+    public void bindView(@NonNull LogViewerView view) {
+        super.bindView(view);
+
+        // The new view has to get entries even if nothing changed since the previous one.
+        serialExecutor.execute(() -> {
+            shownQuery = null;
+            shownTagsCount = -1;
+        });
+
+        mainThreadHandler.post(scheduledRefreshRunnable);
+    }
+
+    @Override
+    public void unbindView(@NonNull LogViewerView view) {
+        mainThreadHandler.removeCallbacks(scheduledRefreshRunnable);
+        super.unbindView(view);
+    }
+
+    public void changeMinPriority(int minPriority) {
+        changeQuery(query.withMinPriority(minPriority));
+    }
+
+    /**
+     * @param tag {@code null} to show entries of all tags.
+     */
+    public void changeTag(@Nullable String tag) {
+        changeQuery(query.withTag(tag));
+    }
+
+    /**
+     * @param sinceTimeKey {@link LogIndex#NO_TIME} to show entries of any time.
+     */
+    public void changeSinceTimeKey(long sinceTimeKey) {
+        changeQuery(query.withSinceTimeKey(sinceTimeKey));
+    }
+
+    public void changeText(@NonNull String text) {
+        changeQuery(query.withText(text));
+    }
+
+    private void changeQuery(@NonNull LogQuery changed) {
+        if (changed.equals(query)) {
+            return; // no-op
+        }
+
+        query = changed;
+        requestRefresh();
+    }
+
+    private void requestRefresh() {
+        if (refreshPending.compareAndSet(false, true)) {
+            serialExecutor.execute(refreshRunnable);
+        }
+    }
+
+    @WorkerThread
+    private void refresh() {
+        // Cleared before the query is read, so a query changed from now on gets a refresh of its own.
+        refreshPending.set(false);
+
+        final boolean indexChanged = logIndex.update();
+        final LogQuery currentQuery = query;
+        final LogViewerView view = view();
+
+        if (view == null || !indexChanged && currentQuery.equals(shownQuery)) {
+            return;
+        }
+
+        final LogFilter.Result entries = logFilter.filter(currentQuery);
+        shownQuery = currentQuery;
+        view.changeEntries(entries);
+
+        final List<String> tags = logIndex.tags();
+
+        if (tags.size() != shownTagsCount) {
+            shownTagsCount = tags.size();
+            view.changeTags(tags);
+        }
+    }
+}
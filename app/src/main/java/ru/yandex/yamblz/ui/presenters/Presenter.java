@@ -4,16 +4,27 @@ import android.support.annotation.CallSuper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import ru.yandex.yamblz.performance.InstanceTracker;
+
 /**
  * Base presenter implementation.
+ * <p>
+ * Unbound views and destroyed presenters are passed to {@link InstanceTracker}, so retained ones show up in developer settings.
  *
  * @param <V> view.
  */
 public class Presenter<V> {
 
+    @NonNull
+    private final InstanceTracker instanceTracker;
+
     @Nullable
     private volatile V view;
 
+    public Presenter(@NonNull InstanceTracker instanceTracker) {
+        this.instanceTracker = instanceTracker;
+    }
+
     @CallSuper
     public void bindView(@NonNull V view) {
         final V previousView = this.view;
@@ -37,8 +48,22 @@ public class Presenter<V> {
 
         if (previousView == view) {
             this.view = null;
+            instanceTracker.track(view);
         } else {
             throw new IllegalStateException("Unexpected view! previousView = " + previousView + ", view to unbind = " + view);
         }
     }
+
+    /**
+     * Call it when the presenter is not needed anymore, for example in {@code Fragment.onDestroy()}.
+     */
+    @CallSuper
+    public void destroy() {
+        instanceTracker.track(this);
+    }
+
+    @NonNull
+    protected InstanceTracker instanceTracker() {
+        return instanceTracker;
+    }
 }
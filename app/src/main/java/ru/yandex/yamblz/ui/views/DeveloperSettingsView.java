@@ -3,6 +3,7 @@ package ru.yandex.yamblz.ui.views;
 import android.support.annotation.NonNull;
 
 import ru.yandex.yamblz.performance.AnyThread;
+import ru.yandex.yamblz.performance.MemorySampler;
 
 public interface DeveloperSettingsView {
 
@@ -21,6 +22,71 @@ public interface DeveloperSettingsView {
     @AnyThread
     void changeTinyDancerState(boolean enabled);
 
+    @AnyThread
+    void changeFrameTimeRecorderState(boolean enabled);
+
+    @AnyThread
+    void changeFrameTimeReport(@NonNull String report);
+
+    @AnyThread
+    void changeBlockDetectorState(boolean enabled);
+
+    @AnyThread
+    void changeBlockDetectorThreshold(long thresholdMs);
+
+    @AnyThread
+    void changeBlockReport(@NonNull String report);
+
+    @AnyThread
+    void changeMemorySamplerState(boolean enabled);
+
+    @AnyThread
+    void changeMemorySamplerInterval(long intervalMs);
+
+    @AnyThread
+    void changeMemoryReport(@NonNull String report);
+
+    /**
+     * @return listener which shows every memory sample, unlike other updates samples are not collapsed.
+     * Samples go to it directly rather than through the view, which may be wrapped by a debug proxy.
+     */
+    @AnyThread
+    @NonNull
+    MemorySampler.Listener memorySampleListener();
+
+    @AnyThread
+    void changeMethodTracingState(boolean enabled);
+
+    @AnyThread
+    void changeMethodTracingInterval(int intervalUs);
+
+    @AnyThread
+    void changeMethodTracingBufferSize(int bufferSizeMb);
+
+    @AnyThread
+    void changeJankTraceFrames(int frames);
+
+    @AnyThread
+    void changeMethodTracingReport(@NonNull String report);
+
+    /**
+     * @param profile one of {@link ru.yandex.yamblz.developer_settings.StrictModeProxy} profiles.
+     */
+    @AnyThread
+    void changeStrictModeProfile(int profile);
+
+    @AnyThread
+    void changeStrictModeReport(@NonNull String report);
+
+    @AnyThread
+    void changeExecutorsReport(@NonNull String report);
+
+    @AnyThread
+    void changeThreadContractsReport(@NonNull String report);
+
+    @AnyThread
+    void changeInstancesReport(@NonNull String report);
+
     @AnyThread
     void showMessage(@NonNull String message);
 
@@ -0,0 +1,20 @@
+package ru.yandex.yamblz.ui.views;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+import ru.yandex.yamblz.logging.LogFilter;
+import ru.yandex.yamblz.performance.AnyThread;
+
+public interface LogViewerView {
+
+    @AnyThread
+    void changeEntries(@NonNull LogFilter.Result entries);
+
+    /**
+     * @param tags all tags seen in the log so far, in order of appearance.
+     */
+    @AnyThread
+    void changeTags(@NonNull List<String> tags);
+}
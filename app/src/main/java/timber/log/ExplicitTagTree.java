@@ -0,0 +1,18 @@
+package timber.log;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Tree which formats messages itself and still needs the tag given to {@link Timber#tag(String)}:
+ * Timber keeps it package private and only hands it to {@code log()}, after formatting. Lives in Timber's package for that.
+ */
+public abstract class ExplicitTagTree extends Timber.Tree {
+
+    /**
+     * @return tag given to {@link Timber#tag(String)} for this call, it's cleared like Timber itself does.
+     */
+    @Nullable
+    protected final String takeExplicitTag() {
+        return getTag();
+    }
+}
@@ -0,0 +1,125 @@
+package ru.yandex.yamblz;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import ru.yandex.yamblz.developer_settings.DeveloperSettingsModelImpl;
+import ru.yandex.yamblz.developer_settings.DeveloperSettingsModule;
+import ru.yandex.yamblz.performance.FrameTimeRecorder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Startup budget regression check: counts and times objects provided by the Dagger modules on the main thread while App.onCreate runs.
+ * Both modules are wrapped as a whole, so new providers are measured without touching this test.
+ * If you really need one more object there, update the expectations consciously.
+ */
+@RunWith(YamblzRobolectricUnitTestRunner.class)
+public class AppStartupBudgetTest {
+
+    // Generous on purpose: the check is about order of magnitude, not about exact numbers on a CI machine.
+    private static final long INSTANTIATION_BUDGET_MS = 100;
+
+    @Test
+    public void onCreate_shouldInstantiateOnlyModelAndFrameTimeRecorderOfDeveloperToolsOnMainThread() {
+        CountingApp app = new CountingApp();
+        app.attachBaseContext(RuntimeEnvironment.application.getBaseContext());
+
+        app.onCreate();
+
+        // Copy right away: startup tasks instantiate the rest in background, but those are not counted.
+        Map<String, Long> developerTools = app.developerSettingsModuleTimer.snapshot();
+        Map<String, Long> application = app.applicationModuleTimer.snapshot();
+
+        assertThat(developerTools).containsOnlyKeys(
+                DeveloperSettingsModelImpl.class.getSimpleName(),
+                FrameTimeRecorder.class.getSimpleName()
+        );
+
+        assertThat((sum(developerTools) + sum(application)) / 1_000_000).isLessThan(INSTANTIATION_BUDGET_MS);
+    }
+
+    private static long sum(@NonNull Map<String, Long> nanosByType) {
+        long totalNanos = 0;
+
+        for (long nanos : nanosByType.values()) {
+            totalNanos += nanos;
+        }
+
+        return totalNanos;
+    }
+
+    static class CountingApp extends UnitTestApp {
+
+        final ProviderTimer applicationModuleTimer = new ProviderTimer(Thread.currentThread());
+        final ProviderTimer developerSettingsModuleTimer = new ProviderTimer(Thread.currentThread());
+
+        @NonNull
+        @Override
+        protected ApplicationModule applicationModule() {
+            return applicationModuleTimer.wrap(super.applicationModule());
+        }
+
+        @NonNull
+        @Override
+        protected DeveloperSettingsModule developerSettingsModule() {
+            return developerSettingsModuleTimer.wrap(super.developerSettingsModule());
+        }
+    }
+
+    /**
+     * Times every provider call of a wrapped module which happens on the main thread, keyed by the type of the provided instance.
+     */
+    static class ProviderTimer implements Answer<Object> {
+
+        @NonNull
+        private final Thread mainThread;
+
+        // Guarded by this.
+        @NonNull
+        private final Map<String, Long> nanosByType = new HashMap<>();
+
+        ProviderTimer(@NonNull Thread mainThread) {
+            this.mainThread = mainThread;
+        }
+
+        @SuppressWarnings("unchecked")
+        @NonNull
+        <T> T wrap(@NonNull T module) {
+            return mock((Class<T>) module.getClass(), withSettings().spiedInstance(module).defaultAnswer(this));
+        }
+
+        @Override
+        public Object answer(@NonNull InvocationOnMock invocation) throws Throwable {
+            final long start = System.nanoTime();
+            final Object instance = invocation.callRealMethod();
+
+            if (instance != null && Thread.currentThread() == mainThread) {
+                record(instance.getClass().getSimpleName(), System.nanoTime() - start);
+            }
+
+            return instance;
+        }
+
+        @NonNull
+        synchronized Map<String, Long> snapshot() {
+            return new HashMap<>(nanosByType);
+        }
+
+        // Bindings such as DeveloperSettingsModel hand out an instance of another provider, so time is summed per type.
+        private synchronized void record(@NonNull String type, long nanos) {
+            final Long previous = nanosByType.get(type);
+            nanosByType.put(type, previous == null ? nanos : previous + nanos);
+        }
+    }
+}
@@ -3,8 +3,11 @@ package ru.yandex.yamblz;
 import android.app.Application;
 import android.support.annotation.NonNull;
 
+import java.util.concurrent.Executor;
+
 import ru.yandex.yamblz.developer_settings.DevMetricsProxy;
 import ru.yandex.yamblz.developer_settings.DeveloperSettingsModule;
+import ru.yandex.yamblz.ui.other.AsyncViewInflater;
 
 public class UnitTestApp extends App {
 
@@ -12,13 +15,42 @@ public class UnitTestApp extends App {
     @Override
     protected DaggerApplicationComponent.Builder prepareApplicationComponent() {
         return super.prepareApplicationComponent()
-                .developerSettingsModule(new DeveloperSettingsModule() {
-                    @NonNull
-                    public DevMetricsProxy provideDevMetricsProxy(@NonNull Application application) {
-                        return () -> {
-                            //No Op
-                        };
-                    }
-                });
+                .applicationModule(applicationModule())
+                .developerSettingsModule(developerSettingsModule());
+    }
+
+    @NonNull
+    protected ApplicationModule applicationModule() {
+        return new UnitTestApplicationModule(this);
+    }
+
+    @NonNull
+    protected DeveloperSettingsModule developerSettingsModule() {
+        return new UnitTestDeveloperSettingsModule();
+    }
+
+    public static class UnitTestApplicationModule extends ApplicationModule {
+
+        public UnitTestApplicationModule(@NonNull Application application) {
+            super(application);
+        }
+
+        @NonNull
+        @Override
+        public AsyncViewInflater provideAsyncViewInflater(@NonNull Executor ioExecutor) {
+            // Background inflation would race with the test, inflate right away instead.
+            return new AsyncViewInflater(provideYamblzApp(), Runnable::run);
+        }
+    }
+
+    public static class UnitTestDeveloperSettingsModule extends DeveloperSettingsModule {
+
+        @NonNull
+        @Override
+        public DevMetricsProxy provideDevMetricsProxy(@NonNull Application application) {
+            return () -> {
+                //No Op
+            };
+        }
     }
 }
@@ -1,6 +1,11 @@
 package ru.yandex.yamblz.developer_settings;
 
-import ru.yandex.yamblz.App;
+import android.os.Handler;
+
+import ru.yandex.yamblz.executors.AppExecutors;
+import ru.yandex.yamblz.performance.FrameTimeRecorder;
+import ru.yandex.yamblz.performance.MemorySampler;
+import ru.yandex.yamblz.performance.ThreadContractTracker;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -28,9 +33,18 @@ public class DeveloperSettingsModelImplTest {
         paperwork = mock(Paperwork.class);
 
         developerSettingsModel = new DeveloperSettingsModelImpl(
-                mock(App.class),
-                developerSettings,
-                mock(LeakCanaryProxy.class),
+                () -> developerSettings,
+                () -> mock(LeakCanaryProxy.class),
+                mock(FrameTimeRecorder.class),
+                () -> mock(BlockDetectorProxy.class),
+                () -> mock(StethoProxy.class),
+                () -> mock(TinyDancerProxy.class),
+                mock(AppExecutors.class),
+                mock(Handler.class),
+                mock(ThreadContractTracker.class),
+                () -> mock(MemorySampler.class),
+                () -> mock(MethodTracingController.class),
+                () -> mock(StrictModeProxy.class),
                 paperwork
         );
     }
@@ -140,7 +154,7 @@ public class DeveloperSettingsModelImplTest {
         verify(developerSettings, times(2)).isTinyDancerEnabled();
     }
 
-    // To test apply() method we will need a lof of abstractions over the libraries used
+    // To test startupTasks() we will need a lof of abstractions over the libraries used
     // for Developer Settings, because most of them initialized statically and hardly mockable/verifiable :(
-    // So, sorry, no tests for apply(). But, feel free to PR!
+    // So, sorry, no tests for startupTasks(). But, feel free to PR!
 }
\ No newline at end of file
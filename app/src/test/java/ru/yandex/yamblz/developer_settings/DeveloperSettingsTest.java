@@ -1,23 +1,58 @@
 package ru.yandex.yamblz.developer_settings;
 
+import android.content.SharedPreferences;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RuntimeEnvironment;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+
 import ru.yandex.yamblz.YamblzRobolectricUnitTestRunner;
+import ru.yandex.yamblz.performance.MainThreadDiskReadListener;
 
 import static android.content.Context.MODE_PRIVATE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 @RunWith(YamblzRobolectricUnitTestRunner.class)
 public class DeveloperSettingsTest {
 
+    private SharedPreferences sharedPreferences;
+    private MainThreadDiskReadListener diskReadListener;
+    private ScheduledExecutorService scheduler;
+    private List<Runnable> delayedTasks;
     private DeveloperSettings developerSettings;
 
     @Before
+    @SuppressWarnings("unchecked")
     public void beforeEachTest() {
-        developerSettings = new DeveloperSettings(RuntimeEnvironment.application.getSharedPreferences("developer_settings", MODE_PRIVATE));
+        sharedPreferences = RuntimeEnvironment.application.getSharedPreferences("developer_settings", MODE_PRIVATE);
+        diskReadListener = mock(MainThreadDiskReadListener.class);
+        delayedTasks = new ArrayList<>();
+        scheduler = mock(ScheduledExecutorService.class);
+        when(scheduler.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class))).thenAnswer(invocation -> {
+            delayedTasks.add((Runnable) invocation.getArguments()[0]);
+            return mock(ScheduledFuture.class);
+        });
+        developerSettings = new DeveloperSettings(new SharedPreferencesSettingsStorage(sharedPreferences), scheduler, Runnable::run, diskReadListener);
     }
 
     @Test
@@ -62,4 +97,250 @@ public class DeveloperSettingsTest {
         assertThat(developerSettings.isTinyDancerEnabled()).isFalse();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void isBlockDetectorEnabled_shouldReturnFalseByDefault() {
+        assertThat(developerSettings.isBlockDetectorEnabled()).isFalse();
+    }
+
+    @Test
+    public void saveIsBlockDetectorEnabled_isBlockDetectorEnabled() {
+        developerSettings.saveIsBlockDetectorEnabled(true);
+        assertThat(developerSettings.isBlockDetectorEnabled()).isTrue();
+
+        developerSettings.saveIsBlockDetectorEnabled(false);
+        assertThat(developerSettings.isBlockDetectorEnabled()).isFalse();
+    }
+
+    @Test
+    public void saveBlockDetectorThresholdMs_blockDetectorThresholdMs() {
+        assertThat(developerSettings.blockDetectorThresholdMs()).isEqualTo(100);
+
+        developerSettings.saveBlockDetectorThresholdMs(250);
+        assertThat(developerSettings.blockDetectorThresholdMs()).isEqualTo(250);
+    }
+
+    @Test
+    public void saveIsMemorySamplerEnabled_isMemorySamplerEnabled() {
+        assertThat(developerSettings.isMemorySamplerEnabled()).isFalse();
+
+        developerSettings.saveIsMemorySamplerEnabled(true);
+        assertThat(developerSettings.isMemorySamplerEnabled()).isTrue();
+    }
+
+    @Test
+    public void saveMemorySamplerIntervalMs_memorySamplerIntervalMs() {
+        assertThat(developerSettings.memorySamplerIntervalMs()).isEqualTo(1_000);
+
+        developerSettings.saveMemorySamplerIntervalMs(250);
+        assertThat(developerSettings.memorySamplerIntervalMs()).isEqualTo(250);
+    }
+
+    @Test
+    public void saveMethodTracingSettings_methodTracingSettings() {
+        assertThat(developerSettings.isMethodTracingEnabled()).isFalse();
+        assertThat(developerSettings.methodTracingIntervalUs()).isEqualTo(1_000);
+        assertThat(developerSettings.methodTracingBufferSizeMb()).isEqualTo(8);
+
+        developerSettings.saveIsMethodTracingEnabled(true);
+        developerSettings.saveMethodTracingIntervalUs(100);
+        developerSettings.saveMethodTracingBufferSizeMb(32);
+
+        assertThat(developerSettings.isMethodTracingEnabled()).isTrue();
+        assertThat(developerSettings.methodTracingIntervalUs()).isEqualTo(100);
+        assertThat(developerSettings.methodTracingBufferSizeMb()).isEqualTo(32);
+    }
+
+    @Test
+    public void saveJankTraceFrames_jankTraceFrames() {
+        assertThat(developerSettings.jankTraceFrames()).isEqualTo(0);
+
+        developerSettings.saveJankTraceFrames(5);
+        assertThat(developerSettings.jankTraceFrames()).isEqualTo(5);
+    }
+
+    @Test
+    public void saveStrictModeProfile_strictModeProfile() {
+        assertThat(developerSettings.strictModeProfile()).isEqualTo(StrictModeProxy.PROFILE_OFF);
+
+        developerSettings.saveStrictModeProfile(StrictModeProxy.PROFILE_DISK);
+        assertThat(developerSettings.strictModeProfile()).isEqualTo(StrictModeProxy.PROFILE_DISK);
+    }
+
+    @Test
+    public void save_shouldPersistChangesInOneBatchAfterDelay() {
+        developerSettings.saveIsStethoEnabled(true);
+        developerSettings.saveIsTinyDancerEnabled(true);
+        assertThat(sharedPreferences.getAll()).isEmpty();
+        verify(scheduler).schedule(any(Runnable.class), eq(DeveloperSettings.PERSIST_DELAY_MS), eq(MILLISECONDS));
+
+        runDelayedTasks();
+        assertThat(sharedPreferences.getBoolean("is_stetho_enabled", false)).isTrue();
+        assertThat(sharedPreferences.getBoolean("is_tiny_dancer_enabled", false)).isTrue();
+    }
+
+    @Test
+    public void save_shouldRetryBatchRejectedByPersistExecutor() {
+        List<Runnable> persistTasks = new ArrayList<>();
+        developerSettings = new DeveloperSettings(new SharedPreferencesSettingsStorage(sharedPreferences), scheduler, command -> {
+            if (persistTasks.isEmpty()) {
+                persistTasks.add(command);
+                throw new RejectedExecutionException("test");
+            }
+
+            command.run();
+        }, diskReadListener);
+
+        developerSettings.saveIsStethoEnabled(true);
+        runDelayedTasks();
+        assertThat(sharedPreferences.getAll()).isEmpty();
+
+        runDelayedTasks();
+        assertThat(sharedPreferences.getBoolean("is_stetho_enabled", false)).isTrue();
+    }
+
+    @Test
+    public void persistNow_shouldPersistChangesRightAway() {
+        developerSettings.saveIsLeakCanaryEnabled(true);
+        developerSettings.persistNow();
+
+        assertThat(sharedPreferences.getBoolean("is_leak_canary_enabled", false)).isTrue();
+    }
+
+    @Test
+    public void persistNow_shouldWriteDurablyBeforeReturning() {
+        DeveloperSettingsStorage storage = mock(DeveloperSettingsStorage.class);
+        when(storage.read()).thenReturn(DeveloperSettings.DEFAULT_SNAPSHOT);
+        developerSettings = new DeveloperSettings(storage, scheduler, Runnable::run, diskReadListener);
+
+        developerSettings.saveIsLeakCanaryEnabled(true);
+        developerSettings.persistNow();
+
+        verify(storage).writeNow(DeveloperSettings.DEFAULT_SNAPSHOT.toBuilder().setLeakCanaryEnabled(true).build());
+        verify(storage, never()).write(any(DeveloperSettings.Snapshot.class));
+    }
+
+    @Test
+    public void persistNow_shouldRewriteBatchWhichMayStillBeInFlight() {
+        DeveloperSettingsStorage storage = mock(DeveloperSettingsStorage.class);
+        when(storage.read()).thenReturn(DeveloperSettings.DEFAULT_SNAPSHOT);
+        developerSettings = new DeveloperSettings(storage, scheduler, Runnable::run, diskReadListener);
+
+        developerSettings.saveIsLeakCanaryEnabled(true);
+        runDelayedTasks();
+        verify(storage).write(DeveloperSettings.DEFAULT_SNAPSHOT.toBuilder().setLeakCanaryEnabled(true).build());
+
+        developerSettings.persistNow();
+        developerSettings.persistNow();
+        verify(storage).writeNow(DeveloperSettings.DEFAULT_SNAPSHOT.toBuilder().setLeakCanaryEnabled(true).build());
+    }
+
+    @Test
+    public void snapshot_shouldBeReadFromPreferences() {
+        sharedPreferences.edit().putBoolean("is_block_detector_enabled", true).putLong("block_detector_threshold_ms", 16).commit();
+
+        DeveloperSettings.Snapshot snapshot = developerSettings.snapshot();
+
+        assertThat(snapshot.isBlockDetectorEnabled()).isTrue();
+        assertThat(snapshot.blockDetectorThresholdMs()).isEqualTo(16);
+        assertThat(developerSettings.snapshot()).isSameAs(snapshot);
+    }
+
+    @Test
+    public void save_shouldNotifyListenersOnlyAboutRealChanges() {
+        List<DeveloperSettings.Snapshot> snapshots = new ArrayList<>();
+        developerSettings.addListener(snapshots::add);
+
+        developerSettings.saveIsFrameTimeRecorderEnabled(true);
+        developerSettings.saveIsFrameTimeRecorderEnabled(true);
+
+        assertThat(snapshots).hasSize(1);
+        assertThat(snapshots.get(0).isFrameTimeRecorderEnabled()).isTrue();
+    }
+
+    @Test
+    public void removeListener_shouldStopNotifications() {
+        List<DeveloperSettings.Snapshot> snapshots = new ArrayList<>();
+        DeveloperSettings.Listener listener = snapshots::add;
+        developerSettings.addListener(listener);
+        developerSettings.removeListener(listener);
+
+        developerSettings.saveIsStethoEnabled(true);
+
+        assertThat(snapshots).isEmpty();
+    }
+
+    @Test
+    public void snapshot_shouldHaveValueEquality() {
+        EqualsVerifier.forClass(DeveloperSettings.Snapshot.class).verify();
+    }
+
+    @Test
+    public void snapshot_shouldReportReadOnMainThreadWithoutPreload() {
+        developerSettings.snapshot();
+
+        verify(diskReadListener).onMainThreadDiskRead(eq("Developer settings read"), anyLong(), any(Throwable.class));
+    }
+
+    @Test
+    public void snapshot_shouldNotReportReadAfterPreload() {
+        developerSettings.preload();
+        developerSettings.snapshot();
+
+        verifyZeroInteractions(diskReadListener);
+    }
+
+    @Test
+    public void snapshot_shouldNotReportReadOnBackgroundThread() throws InterruptedException {
+        Thread thread = new Thread(developerSettings::snapshot);
+        thread.start();
+        thread.join();
+
+        verifyZeroInteractions(diskReadListener);
+    }
+
+    @Test
+    public void snapshot_shouldReadOnMainThreadIfPreloadTakesTooLong() throws InterruptedException {
+        CountDownLatch preloadStarted = new CountDownLatch(1);
+        CountDownLatch releasePreload = new CountDownLatch(1);
+        Thread mainThread = Thread.currentThread();
+
+        DeveloperSettingsStorage slowStorage = new SharedPreferencesSettingsStorage(sharedPreferences) {
+            @Override
+            public DeveloperSettings.Snapshot read() {
+                if (Thread.currentThread() != mainThread) {
+                    preloadStarted.countDown();
+
+                    try {
+                        releasePreload.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                return super.read();
+            }
+        };
+
+        developerSettings = new DeveloperSettings(slowStorage, scheduler, Runnable::run, diskReadListener);
+        Thread preloadThread = new Thread(developerSettings::preload);
+        preloadThread.start();
+        preloadStarted.await();
+
+        long startNanos = System.nanoTime();
+        assertThat(developerSettings.snapshot()).isEqualTo(DeveloperSettings.DEFAULT_SNAPSHOT);
+        assertThat((System.nanoTime() - startNanos) / 1_000_000).isGreaterThanOrEqualTo(DeveloperSettings.PRELOAD_AWAIT_TIMEOUT_MS);
+        verify(diskReadListener).onMainThreadDiskRead(eq("Developer settings read"), anyLong(), any(Throwable.class));
+
+        releasePreload.countDown();
+        preloadThread.join();
+    }
+
+    private void runDelayedTasks() {
+        List<Runnable> tasks = new ArrayList<>(delayedTasks);
+        delayedTasks.clear();
+
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+}
@@ -2,17 +2,26 @@ package ru.yandex.yamblz.developer_settings;
 
 import org.junit.Test;
 
+import java.util.concurrent.ScheduledExecutorService;
+
 import ru.yandex.yamblz.App;
 
 import static org.mockito.Mockito.mock;
 
 public class LeakCanaryProxyImplTest {
 
-    // Unfortunately, we can not really test init method since launching LeakCanary in the tests is not a great idea.
+    // Unfortunately, we can not really test enabling since launching LeakCanary in the tests is not a great idea.
+
+    @Test
+    public void watch_shouldNoOpIfLeakCanaryWasNeverEnabled() {
+        LeakCanaryProxy leakCanaryProxy = new LeakCanaryProxyImpl(mock(App.class), mock(ScheduledExecutorService.class), Runnable::run);
+        leakCanaryProxy.watch(new Object()); // No exceptions expected.
+    }
 
     @Test
-    public void watch_shouldNoOpIfInitWasNotCalledCaseWhenLeakCanaryDisabled() {
-        LeakCanaryProxy leakCanaryProxy = new LeakCanaryProxyImpl(mock(App.class));
+    public void setEnabled_shouldNoOpIfLeakCanaryWasNeverEnabled() {
+        LeakCanaryProxy leakCanaryProxy = new LeakCanaryProxyImpl(mock(App.class), mock(ScheduledExecutorService.class), Runnable::run);
+        leakCanaryProxy.setEnabled(false);
         leakCanaryProxy.watch(new Object()); // No exceptions expected.
     }
 }
\ No newline at end of file
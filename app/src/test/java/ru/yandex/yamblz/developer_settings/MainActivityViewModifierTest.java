@@ -0,0 +1,125 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentActivity;
+import android.support.v4.app.FragmentManager;
+import android.support.v4.app.FragmentTransaction;
+import android.support.v4.widget.DrawerLayout;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import ru.yandex.yamblz.R;
+import ru.yandex.yamblz.YamblzRobolectricUnitTestRunner;
+import ru.yandex.yamblz.developer_settings.MainActivityViewModifier.DeferredDeveloperSettings;
+import ru.yandex.yamblz.ui.fragments.DeveloperSettingsFragment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(YamblzRobolectricUnitTestRunner.class)
+public class MainActivityViewModifierTest {
+
+    private FragmentActivity activity;
+    private FragmentManager fragmentManager;
+    private FragmentTransaction fragmentTransaction;
+    private DrawerLayout drawerLayout;
+    private DeferredDeveloperSettings deferredDeveloperSettings;
+
+    @Before
+    public void beforeEachTest() {
+        fragmentManager = mock(FragmentManager.class);
+        fragmentTransaction = mock(FragmentTransaction.class);
+        when(fragmentManager.beginTransaction()).thenReturn(fragmentTransaction);
+        when(fragmentTransaction.add(anyInt(), any(Fragment.class))).thenReturn(fragmentTransaction);
+        activity = mock(FragmentActivity.class);
+        when(activity.getSupportFragmentManager()).thenReturn(fragmentManager);
+
+        drawerLayout = mock(DrawerLayout.class);
+
+        deferredDeveloperSettings = new DeferredDeveloperSettings(activity, drawerLayout);
+    }
+
+    @Test
+    public void modify_shouldAddEmptyContainerWithoutInflatingDeveloperSettings() {
+        FragmentActivity activity = Robolectric.buildActivity(FragmentActivity.class).create().get();
+        DrawerLayout drawerLayout = new DrawerLayout(activity);
+        drawerLayout.setId(R.id.main_drawer_layout);
+
+        new MainActivityViewModifier().modify(drawerLayout);
+
+        FrameLayout container = (FrameLayout) drawerLayout.findViewById(R.id.developer_settings_container);
+        assertThat(container).isNotNull();
+        assertThat(container.getChildCount()).isEqualTo(0);
+        assertThat(activity.getSupportFragmentManager().findFragmentById(R.id.developer_settings_container)).isNull();
+    }
+
+    @Test
+    public void queueIdle_shouldAddFragmentAndRemoveIdleHandler() {
+        assertThat(deferredDeveloperSettings.queueIdle()).isFalse();
+
+        assertThat(deferredDeveloperSettings.isAdded()).isTrue();
+        verify(fragmentTransaction).commitAllowingStateLoss();
+        verify(fragmentManager).executePendingTransactions();
+        verify(drawerLayout).removeDrawerListener(deferredDeveloperSettings);
+    }
+
+    @Test
+    public void onDrawerStateChanged_shouldAddFragmentWhenDrawerStartsMoving() {
+        deferredDeveloperSettings.onDrawerStateChanged(DrawerLayout.STATE_DRAGGING);
+
+        assertThat(deferredDeveloperSettings.isAdded()).isTrue();
+        verify(fragmentTransaction).add(anyInt(), isA(DeveloperSettingsFragment.class));
+        verify(drawerLayout).removeDrawerListener(deferredDeveloperSettings);
+    }
+
+    @Test
+    public void onDrawerStateChanged_shouldNotAddFragmentWhenDrawerIsIdle() {
+        deferredDeveloperSettings.onDrawerStateChanged(DrawerLayout.STATE_IDLE);
+
+        assertThat(deferredDeveloperSettings.isAdded()).isFalse();
+        verifyZeroInteractions(fragmentManager);
+    }
+
+    @Test
+    public void queueIdle_shouldNotAddFragmentWhenActivityIsFinishing() {
+        when(activity.isFinishing()).thenReturn(true);
+
+        assertThat(deferredDeveloperSettings.queueIdle()).isFalse();
+
+        assertThat(deferredDeveloperSettings.isAdded()).isFalse();
+        verifyZeroInteractions(fragmentManager);
+    }
+
+    @Test
+    public void onViewDetachedFromWindow_shouldCancelAddingFragment() {
+        deferredDeveloperSettings.onViewDetachedFromWindow(mock(View.class));
+
+        deferredDeveloperSettings.queueIdle();
+        deferredDeveloperSettings.onDrawerStateChanged(DrawerLayout.STATE_DRAGGING);
+
+        assertThat(deferredDeveloperSettings.isAdded()).isFalse();
+        verifyZeroInteractions(fragmentManager);
+        verify(drawerLayout).removeDrawerListener(deferredDeveloperSettings);
+    }
+
+    @Test
+    public void fragmentShouldBeAddedOnlyOnce() {
+        deferredDeveloperSettings.onDrawerStateChanged(DrawerLayout.STATE_SETTLING);
+        deferredDeveloperSettings.queueIdle();
+        deferredDeveloperSettings.onDrawerStateChanged(DrawerLayout.STATE_DRAGGING);
+
+        verify(fragmentManager, times(1)).beginTransaction();
+    }
+}
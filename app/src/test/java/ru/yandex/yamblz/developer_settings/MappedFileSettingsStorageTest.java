@@ -0,0 +1,251 @@
+package ru.yandex.yamblz.developer_settings;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MappedFileSettingsStorageTest {
+
+    private static final DeveloperSettings.Snapshot LEGACY_SNAPSHOT = new DeveloperSettings.Snapshot.Builder()
+            .setStethoEnabled(true)
+            .setTinyDancerEnabled(true)
+            .setBlockDetectorEnabled(true)
+            .setBlockDetectorThresholdMs(250)
+            .setMemorySamplerEnabled(true)
+            .setMemorySamplerIntervalMs(500)
+            .setMethodTracingEnabled(true)
+            .setMethodTracingIntervalUs(100)
+            .setMethodTracingBufferSizeMb(16)
+            .setJankTraceFrames(3)
+            .setStrictModeProfile(StrictModeProxy.PROFILE_DISK)
+            .build();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+    private DeveloperSettingsStorage legacyStorage;
+
+    @Before
+    public void beforeEachTest() throws IOException {
+        file = new File(temporaryFolder.getRoot(), "developer_settings.bin");
+        legacyStorage = mock(DeveloperSettingsStorage.class);
+        when(legacyStorage.read()).thenReturn(LEGACY_SNAPSHOT);
+    }
+
+    @Test
+    public void read_shouldMigrateFromLegacyStorageOnce() {
+        assertThat(new MappedFileSettingsStorage(file, legacyStorage).read()).isEqualTo(LEGACY_SNAPSHOT);
+        verify(legacyStorage).clear();
+
+        DeveloperSettingsStorage otherLegacyStorage = mock(DeveloperSettingsStorage.class);
+        assertThat(new MappedFileSettingsStorage(file, otherLegacyStorage).read()).isEqualTo(LEGACY_SNAPSHOT);
+        verify(otherLegacyStorage, never()).read();
+    }
+
+    @Test
+    public void write_shouldBeVisibleAfterReopen() {
+        DeveloperSettings.Snapshot snapshot = new DeveloperSettings.Snapshot.Builder()
+                .setLeakCanaryEnabled(true)
+                .setFrameTimeRecorderEnabled(true)
+                .setBlockDetectorThresholdMs(16)
+                .setMemorySamplerEnabled(true)
+                .setMemorySamplerIntervalMs(250)
+                .setMethodTracingIntervalUs(5_000)
+                .setMethodTracingBufferSizeMb(64)
+                .setJankTraceFrames(10)
+                .setStrictModeProfile(StrictModeProxy.PROFILE_ALL)
+                .build();
+        MappedFileSettingsStorage storage = new MappedFileSettingsStorage(file, legacyStorage);
+        storage.read();
+
+        storage.write(DeveloperSettings.DEFAULT_SNAPSHOT);
+        storage.write(snapshot);
+
+        assertThat(new MappedFileSettingsStorage(file, legacyStorage).read()).isEqualTo(snapshot);
+        assertThat(file.length()).isEqualTo(MappedFileSettingsStorage.FILE_SIZE);
+    }
+
+    @Test
+    public void writeNow_shouldBeVisibleAfterReopen() {
+        MappedFileSettingsStorage storage = new MappedFileSettingsStorage(file, legacyStorage);
+        storage.read();
+
+        storage.writeNow(DeveloperSettings.DEFAULT_SNAPSHOT);
+
+        assertThat(new MappedFileSettingsStorage(file, legacyStorage).read()).isEqualTo(DeveloperSettings.DEFAULT_SNAPSHOT);
+    }
+
+    @Test
+    public void read_shouldReturnPreviousSettingsIfLastWriteIsTorn() throws IOException {
+        DeveloperSettings.Snapshot snapshot = new DeveloperSettings.Snapshot.Builder()
+                .setLeakCanaryEnabled(true)
+                .setFrameTimeRecorderEnabled(true)
+                .setBlockDetectorThresholdMs(16)
+                .setMemorySamplerEnabled(true)
+                .setMemorySamplerIntervalMs(250)
+                .setMethodTracingIntervalUs(5_000)
+                .setMethodTracingBufferSizeMb(64)
+                .setJankTraceFrames(10)
+                .setStrictModeProfile(StrictModeProxy.PROFILE_ALL)
+                .build();
+        MappedFileSettingsStorage storage = new MappedFileSettingsStorage(file, legacyStorage);
+        storage.read(); // Migration writes LEGACY_SNAPSHOT to the first record.
+        storage.write(snapshot); // Goes to the second record.
+
+        corruptByte(MappedFileSettingsStorage.RECORD_SIZE + MappedFileSettingsStorage.SLOT_FLAGS);
+
+        assertThat(new MappedFileSettingsStorage(file, legacyStorage).read()).isEqualTo(LEGACY_SNAPSHOT);
+    }
+
+    @Test
+    public void read_shouldMigrateAgainIfBothRecordsAreDamaged() throws IOException {
+        new MappedFileSettingsStorage(file, legacyStorage).read();
+        corruptByte(MappedFileSettingsStorage.SLOT_FLAGS);
+        corruptByte(MappedFileSettingsStorage.RECORD_SIZE + MappedFileSettingsStorage.SLOT_FLAGS);
+
+        DeveloperSettingsStorage clearedLegacyStorage = mock(DeveloperSettingsStorage.class);
+        when(clearedLegacyStorage.read()).thenReturn(DeveloperSettings.DEFAULT_SNAPSHOT);
+
+        assertThat(new MappedFileSettingsStorage(file, clearedLegacyStorage).read()).isEqualTo(DeveloperSettings.DEFAULT_SNAPSHOT);
+    }
+
+    @Test
+    public void clear_shouldResetToLegacyStorage() {
+        MappedFileSettingsStorage storage = new MappedFileSettingsStorage(file, legacyStorage);
+        storage.write(new DeveloperSettings.Snapshot.Builder()
+                .setBlockDetectorThresholdMs(500)
+                .setMemorySamplerIntervalMs(5_000)
+                .setMethodTracingIntervalUs(1_000)
+                .setMethodTracingBufferSizeMb(8)
+                .build());
+
+        storage.clear();
+
+        assertThat(storage.read()).isEqualTo(LEGACY_SNAPSHOT);
+    }
+
+    @Test
+    public void shouldFallBackToLegacyStorageIfFileCanNotBeMapped() {
+        File directory = temporaryFolder.getRoot(); // Directory can not be opened as a file.
+        MappedFileSettingsStorage storage = new MappedFileSettingsStorage(directory, legacyStorage);
+
+        assertThat(storage.read()).isEqualTo(LEGACY_SNAPSHOT);
+
+        storage.write(DeveloperSettings.DEFAULT_SNAPSHOT);
+        verify(legacyStorage).write(DeveloperSettings.DEFAULT_SNAPSHOT);
+    }
+
+    @Test
+    public void read_shouldUpgradeRecordOfPreviousVersionWithDefaultsForNewSettings() throws IOException {
+        // Version 3 had everything up to jank trace frames, StrictMode profile was added in version 4.
+        writeOldRecord(3, 0b1110101, 250, 500, 100, 16, 3);
+
+        MappedFileSettingsStorage storage = new MappedFileSettingsStorage(file, legacyStorage);
+
+        assertThat(storage.read()).isEqualTo(LEGACY_SNAPSHOT.toBuilder().setStrictModeProfile(DeveloperSettings.DEFAULT_SNAPSHOT.strictModeProfile()).build());
+        verify(legacyStorage, never()).read();
+        assertThat(file.length()).isEqualTo(MappedFileSettingsStorage.FILE_SIZE);
+
+        storage.write(LEGACY_SNAPSHOT);
+        assertThat(new MappedFileSettingsStorage(file, legacyStorage).read()).isEqualTo(LEGACY_SNAPSHOT);
+    }
+
+    @Test
+    public void read_shouldUpgradeRecordOfFirstVersion() throws IOException {
+        writeOldRecord(1, 0b10101, 250, 0, 0, 0, 0);
+
+        DeveloperSettings.Snapshot expected = DeveloperSettings.DEFAULT_SNAPSHOT.toBuilder()
+                .setStethoEnabled(true)
+                .setTinyDancerEnabled(true)
+                .setBlockDetectorEnabled(true)
+                .setBlockDetectorThresholdMs(250)
+                .build();
+
+        assertThat(new MappedFileSettingsStorage(file, legacyStorage).read()).isEqualTo(expected);
+        verify(legacyStorage, never()).read();
+    }
+
+    @Test
+    public void read_shouldFinishUpgradeInterruptedAfterFileWasGrown() throws IOException {
+        writeOldRecord(3, 0b1110101, 250, 500, 100, 16, 3);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+
+        try {
+            randomAccessFile.setLength(MappedFileSettingsStorage.FILE_SIZE);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        DeveloperSettings.Snapshot expected = LEGACY_SNAPSHOT.toBuilder().setStrictModeProfile(DeveloperSettings.DEFAULT_SNAPSHOT.strictModeProfile()).build();
+        assertThat(new MappedFileSettingsStorage(file, legacyStorage).read()).isEqualTo(expected);
+        assertThat(new MappedFileSettingsStorage(file, legacyStorage).read()).isEqualTo(expected);
+        verify(legacyStorage, never()).read();
+    }
+
+    // Writes the same record twice as a file of the given layout version would have it, slots it did not have are skipped.
+    private void writeOldRecord(int version, int flags, long blockThresholdMs, long memoryIntervalMs,
+                                int tracingIntervalUs, int tracingBufferSizeMb, int jankTraceFrames) throws IOException {
+        int recordSize = MappedFileSettingsStorage.RECORD_SIZES[version];
+        int crcSlot = recordSize - 4;
+        ByteBuffer buffer = ByteBuffer.allocate(2 * recordSize);
+
+        for (int record = 0; record < 2; record++) {
+            int base = record * recordSize;
+            buffer.putInt(base + MappedFileSettingsStorage.SLOT_MAGIC, MappedFileSettingsStorage.MAGIC);
+            buffer.putInt(base + MappedFileSettingsStorage.SLOT_VERSION, version);
+            buffer.putLong(base + MappedFileSettingsStorage.SLOT_SEQUENCE, record + 1);
+            buffer.putInt(base + MappedFileSettingsStorage.SLOT_FLAGS, flags);
+            buffer.putLong(base + MappedFileSettingsStorage.SLOT_BLOCK_DETECTOR_THRESHOLD_MS, blockThresholdMs);
+
+            if (version >= 2) {
+                buffer.putLong(base + MappedFileSettingsStorage.SLOT_MEMORY_SAMPLER_INTERVAL_MS, memoryIntervalMs);
+            }
+
+            if (version >= 3) {
+                buffer.putInt(base + MappedFileSettingsStorage.SLOT_METHOD_TRACING_INTERVAL_US, tracingIntervalUs);
+                buffer.putInt(base + MappedFileSettingsStorage.SLOT_METHOD_TRACING_BUFFER_SIZE_MB, tracingBufferSizeMb);
+                buffer.putInt(base + MappedFileSettingsStorage.SLOT_JANK_TRACE_FRAMES, jankTraceFrames);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), base, crcSlot);
+            buffer.putInt(base + crcSlot, (int) crc.getValue());
+        }
+
+        FileOutputStream outputStream = new FileOutputStream(file);
+
+        try {
+            outputStream.write(buffer.array());
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private void corruptByte(int position) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+
+        try {
+            randomAccessFile.seek(position);
+            final int value = randomAccessFile.read();
+            randomAccessFile.seek(position);
+            randomAccessFile.write(value ^ 0xFF);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ru.yandex.yamblz.developer_settings;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+
+import ru.yandex.yamblz.YamblzRobolectricUnitTestRunner;
+import ru.yandex.yamblz.executors.AppExecutors;
+import ru.yandex.yamblz.executors.InstrumentedExecutor;
+import ru.yandex.yamblz.performance.FrameTimeRecorder;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(YamblzRobolectricUnitTestRunner.class)
+public class MethodTracingControllerTest {
+
+    private DeveloperSettings developerSettings;
+    private MethodTracingProxy methodTracingProxy;
+    private FrameTimeRecorder frameTimeRecorder;
+    private MethodTracingController controller;
+
+    @Before
+    public void beforeEachTest() {
+        developerSettings = mock(DeveloperSettings.class);
+        methodTracingProxy = mock(MethodTracingProxy.class);
+        frameTimeRecorder = mock(FrameTimeRecorder.class);
+
+        InstrumentedExecutor serialExecutor = mock(InstrumentedExecutor.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[0]).run();
+            return null;
+        }).when(serialExecutor).execute(any(Runnable.class));
+
+        AppExecutors appExecutors = mock(AppExecutors.class);
+        when(appExecutors.serial()).thenReturn(serialExecutor);
+
+        when(developerSettings.methodTracingIntervalUs()).thenReturn(1_000);
+        when(developerSettings.methodTracingBufferSizeMb()).thenReturn(8);
+
+        controller = new MethodTracingController(() -> developerSettings, () -> methodTracingProxy, frameTimeRecorder,
+                appExecutors, new Handler(Looper.getMainLooper()));
+    }
+
+    @Test
+    public void apply_shouldStartTraceIfEnabled() {
+        when(developerSettings.isMethodTracingEnabled()).thenReturn(true);
+
+        controller.apply();
+
+        verify(methodTracingProxy).start(1_000, 8 * 1024 * 1024);
+    }
+
+    @Test
+    public void apply_shouldStopManualTraceIfDisabled() {
+        when(methodTracingProxy.currentTrace()).thenReturn(new File("manual.trace"));
+
+        controller.apply();
+
+        verify(methodTracingProxy).stop();
+    }
+
+    @Test
+    public void apply_shouldSwitchJankListenerOffIfJankTraceFramesAreZero() {
+        controller.apply();
+
+        verify(frameTimeRecorder).setJankListener(0, null);
+    }
+
+    @Test
+    public void onJank_shouldCaptureTraceWhichApplyDoesNotStop() {
+        File jankTrace = new File("jank.trace");
+        when(developerSettings.jankTraceFrames()).thenReturn(3);
+        when(methodTracingProxy.start(anyInt(), anyInt())).thenReturn(jankTrace);
+
+        controller.applyJankTrace();
+        ArgumentCaptor<FrameTimeRecorder.JankListener> listener = ArgumentCaptor.forClass(FrameTimeRecorder.JankListener.class);
+        verify(frameTimeRecorder).setJankListener(eq(3), listener.capture());
+
+        ShadowLooper.pauseMainLooper();
+        listener.getValue().onJank(3);
+        verify(methodTracingProxy).start(1_000, 8 * 1024 * 1024);
+
+        when(methodTracingProxy.currentTrace()).thenReturn(jankTrace);
+        controller.apply();
+        verify(methodTracingProxy, never()).stop();
+    }
+
+    @Test
+    public void onJank_shouldStopCapturedTraceAfterDuration() {
+        File jankTrace = new File("jank.trace");
+        when(developerSettings.jankTraceFrames()).thenReturn(3);
+        when(methodTracingProxy.start(anyInt(), anyInt())).thenReturn(jankTrace);
+
+        controller.applyJankTrace();
+        ArgumentCaptor<FrameTimeRecorder.JankListener> listener = ArgumentCaptor.forClass(FrameTimeRecorder.JankListener.class);
+        verify(frameTimeRecorder).setJankListener(eq(3), listener.capture());
+        ShadowLooper.pauseMainLooper();
+        listener.getValue().onJank(3);
+        when(methodTracingProxy.currentTrace()).thenReturn(jankTrace);
+
+        ShadowLooper.idleMainLooper(MethodTracingController.JANK_TRACE_DURATION_MS - 1);
+        verify(methodTracingProxy, never()).stop();
+
+        ShadowLooper.idleMainLooper(1);
+        verify(methodTracingProxy).stop();
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.yamblz.developer_settings;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import ru.yandex.yamblz.App;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class MethodTracingProxyImplTest {
+
+    // Starting real method tracing in the tests is not possible, only files are checked here.
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void deleteOldTraces_shouldKeepNewestTracesOnly() throws IOException {
+        File directory = temporaryFolder.getRoot();
+
+        for (int second = 10; second < 17; second++) {
+            assertThat(new File(directory, "20261019-1200" + second + "-000.trace").createNewFile()).isTrue();
+        }
+
+        assertThat(new File(directory, "notes.txt").createNewFile()).isTrue();
+
+        MethodTracingProxyImpl.deleteOldTraces(directory, 4);
+
+        File[] traces = MethodTracingProxyImpl.traces(directory);
+        assertThat(traces).hasSize(4);
+        assertThat(traces[0].getName()).isEqualTo("20261019-120013-000.trace");
+        assertThat(traces[3].getName()).isEqualTo("20261019-120016-000.trace");
+        assertThat(new File(directory, "notes.txt").exists()).isTrue();
+    }
+
+    @Test
+    public void traces_shouldBeEmptyIfThereIsNoDirectory() {
+        assertThat(MethodTracingProxyImpl.traces(new File(temporaryFolder.getRoot(), "traces"))).isEmpty();
+    }
+
+    @Test
+    public void stop_shouldNoOpIfNothingIsTraced() {
+        MethodTracingProxy methodTracingProxy = new MethodTracingProxyImpl(mock(App.class));
+
+        assertThat(methodTracingProxy.stop()).isNull();
+        assertThat(methodTracingProxy.currentTrace()).isNull();
+    }
+}
@@ -0,0 +1,105 @@
+package ru.yandex.yamblz.developer_settings;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class RetainedObjectWatcherTest {
+
+    private static final int THRESHOLD = 2;
+    private static final long RETAIN_DELAY_MS = 5_000;
+
+    private List<Object> reported;
+    private List<Runnable> pendingTasks;
+    private RetainedObjectWatcher retainedObjectWatcher;
+
+    @Before
+    public void beforeEachTest() {
+        reported = new ArrayList<>();
+        pendingTasks = new ArrayList<>();
+        retainedObjectWatcher = new RetainedObjectWatcher(THRESHOLD, RETAIN_DELAY_MS, reported::addAll, mock(ScheduledExecutorService.class), pendingTasks::add);
+    }
+
+    @Test
+    public void watch_shouldOnlyQueueObjectUntilCheck() throws InterruptedException {
+        Object object = new Object();
+        retainedObjectWatcher.watch(object);
+
+        assertThat(retainedObjectWatcher.watchedCount()).isEqualTo(0);
+
+        retainedObjectWatcher.check(System.nanoTime());
+        assertThat(retainedObjectWatcher.watchedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void check_shouldNotReportObjectsYoungerThanRetainDelay() throws InterruptedException {
+        Object first = new Object();
+        Object second = new Object();
+        retainedObjectWatcher.watch(first);
+        retainedObjectWatcher.watch(second);
+
+        assertThat(retainedObjectWatcher.check(System.nanoTime())).isEqualTo(0);
+        assertThat(reported).isEmpty();
+    }
+
+    @Test
+    public void check_shouldNotReportRetainedObjectsBelowThreshold() throws InterruptedException {
+        Object object = new Object();
+        retainedObjectWatcher.watch(object);
+
+        assertThat(retainedObjectWatcher.check(afterRetainDelay())).isEqualTo(0);
+        assertThat(reported).isEmpty();
+        assertThat(retainedObjectWatcher.watchedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void check_shouldReportAllRetainedObjectsOnceThresholdIsCrossed() throws InterruptedException {
+        Object first = new Object();
+        Object second = new Object();
+        retainedObjectWatcher.watch(first);
+        retainedObjectWatcher.watch(second);
+
+        assertThat(retainedObjectWatcher.check(afterRetainDelay())).isEqualTo(2);
+        assertThat(reported).containsOnly(first, second);
+
+        // Reported objects are not watched anymore.
+        assertThat(retainedObjectWatcher.watchedCount()).isEqualTo(0);
+        assertThat(retainedObjectWatcher.check(afterRetainDelay())).isEqualTo(0);
+        assertThat(reported).hasSize(2);
+    }
+
+    @Test
+    public void stop_shouldForgetWatchedObjectsByNextCheck() throws InterruptedException {
+        retainedObjectWatcher.watch(new Object());
+        retainedObjectWatcher.check(System.nanoTime());
+        retainedObjectWatcher.watch(new Object());
+
+        retainedObjectWatcher.stop();
+        retainedObjectWatcher.start();
+        assertThat(pendingTasks).hasSize(1);
+
+        pendingTasks.remove(0).run();
+        assertThat(retainedObjectWatcher.watchedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void start_shouldRunChecksOnExecutor() {
+        retainedObjectWatcher.watch(new Object());
+
+        retainedObjectWatcher.start();
+        pendingTasks.remove(0).run();
+
+        assertThat(retainedObjectWatcher.watchedCount()).isEqualTo(1);
+    }
+
+    private static long afterRetainDelay() {
+        return System.nanoTime() + MILLISECONDS.toNanos(RETAIN_DELAY_MS);
+    }
+}
@@ -0,0 +1,174 @@
+package ru.yandex.yamblz.executors;
+
+import android.os.Process;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ru.yandex.yamblz.YamblzRobolectricUnitTestRunner;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+@RunWith(YamblzRobolectricUnitTestRunner.class)
+public class InstrumentedExecutorTest {
+
+    private static final int QUEUE_CAPACITY = 2;
+
+    private InstrumentedExecutor executor;
+
+    @Before
+    public void beforeEachTest() {
+        executor = new InstrumentedExecutor("test", 1, Process.THREAD_PRIORITY_BACKGROUND, QUEUE_CAPACITY);
+    }
+
+    @After
+    public void afterEachTest() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, SECONDS);
+    }
+
+    @Test
+    public void execute_shouldRunTaskOnNamedThread() throws InterruptedException {
+        AtomicReference<String> threadName = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            threadName.set(Thread.currentThread().getName());
+            done.countDown();
+        });
+
+        assertThat(done.await(5, SECONDS)).isTrue();
+        assertThat(threadName.get()).isEqualTo("test-1");
+    }
+
+    @Test
+    public void execute_shouldTrackQueueDepth() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        assertThat(started.await(5, SECONDS)).isTrue();
+
+        executor.execute(() -> { });
+        executor.execute(() -> { });
+
+        assertThat(executor.queueDepth()).isEqualTo(2);
+        assertThat(executor.maxQueueDepth()).isGreaterThanOrEqualTo(2);
+
+        release.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, SECONDS)).isTrue();
+
+        assertThat(executor.queueDepth()).isEqualTo(0);
+        assertThat(executor.completedTasks()).isEqualTo(3);
+    }
+
+    @Test
+    public void execute_shouldRejectAndCountTasksWhichDoNotFitIntoQueue() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        assertThat(started.await(5, SECONDS)).isTrue();
+
+        for (int i = 0; i < QUEUE_CAPACITY; i++) {
+            executor.execute(() -> { });
+        }
+
+        try {
+            executor.execute(() -> { });
+            failBecauseExceptionWasNotThrown(RejectedExecutionException.class);
+        } catch (RejectedExecutionException expected) {
+            // Callers which can not skip the work learn about it.
+        }
+
+        assertThat(executor.tryExecute(() -> { })).isFalse();
+        assertThat(executor.rejectedTasks()).isEqualTo(2);
+        assertThat(executor.queueDepth()).isEqualTo(QUEUE_CAPACITY);
+
+        release.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, SECONDS)).isTrue();
+        assertThat(executor.completedTasks()).isEqualTo(1 + QUEUE_CAPACITY);
+    }
+
+    @Test
+    public void execute_shouldMeasureWaitAndRunTime() throws InterruptedException {
+        executor.execute(() -> sleepQuietly(20));
+        executor.execute(() -> { });
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, SECONDS)).isTrue();
+
+        // Second task waited while the first one slept.
+        assertThat(executor.maxRunNanos()).isGreaterThanOrEqualTo(20_000_000L);
+        assertThat(executor.maxWaitNanos()).isGreaterThanOrEqualTo(20_000_000L);
+    }
+
+    @Test
+    public void execute_shouldCountFailedTasks() throws InterruptedException {
+        executor.execute(() -> {
+            throw new IllegalStateException("test");
+        });
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, SECONDS)).isTrue();
+        assertThat(executor.completedTasks()).isEqualTo(1);
+    }
+
+    @Test
+    public void report_shouldContainNameAndCounters() throws InterruptedException {
+        executor.execute(() -> { });
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, SECONDS)).isTrue();
+        assertThat(executor.report()).startsWith("test: 1 tasks, queue 0 (max 1 of 2), 0 rejected");
+    }
+
+    @Test
+    public void resetMetrics_shouldStartCountersOver() throws InterruptedException {
+        executor.execute(() -> sleepQuietly(20));
+        executor.execute(() -> { });
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, SECONDS)).isTrue();
+
+        executor.resetMetrics();
+
+        assertThat(executor.completedTasks()).isEqualTo(0);
+        assertThat(executor.maxQueueDepth()).isEqualTo(0);
+        assertThat(executor.maxWaitNanos()).isEqualTo(0);
+        assertThat(executor.maxRunNanos()).isEqualTo(0);
+        assertThat(executor.report()).startsWith("test: 0 tasks, queue 0 (max 0 of 2), 0 rejected");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ru.yandex.yamblz.executors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PeriodicTaskTest {
+
+    private static final long PERIOD_MS = 1_000;
+
+    private List<Runnable> pendingTasks;
+    private List<Runnable> delayedTasks;
+    private ScheduledFuture<?> delayedFuture;
+    private int runs;
+    private PeriodicTask periodicTask;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void beforeEachTest() {
+        pendingTasks = new ArrayList<>();
+        delayedTasks = new ArrayList<>();
+        delayedFuture = mock(ScheduledFuture.class);
+        when(delayedFuture.cancel(false)).thenReturn(true);
+
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        when(scheduler.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class))).thenAnswer(invocation -> {
+            delayedTasks.add((Runnable) invocation.getArguments()[0]);
+            return delayedFuture;
+        });
+
+        periodicTask = new PeriodicTask(scheduler, pendingTasks::add, () -> runs++);
+    }
+
+    @Test
+    public void start_shouldRunTaskAndWaitForPeriodBeforeNextRun() {
+        periodicTask.start(PERIOD_MS);
+        assertThat(pendingTasks).hasSize(1);
+
+        pendingTasks.remove(0).run();
+        assertThat(runs).isEqualTo(1);
+        assertThat(pendingTasks).isEmpty();
+        assertThat(delayedTasks).hasSize(1);
+
+        delayedTasks.remove(0).run();
+        pendingTasks.remove(0).run();
+        assertThat(runs).isEqualTo(2);
+    }
+
+    @Test
+    public void stop_shouldCancelWaitingRun() {
+        periodicTask.start(PERIOD_MS);
+        pendingTasks.remove(0).run();
+
+        periodicTask.stop();
+        verify(delayedFuture).cancel(false);
+
+        // Nothing is in flight anymore, so starting again runs right away.
+        periodicTask.start(PERIOD_MS);
+        assertThat(pendingTasks).hasSize(1);
+    }
+
+    @Test
+    public void start_shouldNotRunTwiceWhenRestartedBeforeStoppedRunFinished() {
+        periodicTask.start(PERIOD_MS);
+        periodicTask.stop();
+        periodicTask.start(PERIOD_MS);
+        assertThat(pendingTasks).hasSize(1);
+
+        pendingTasks.remove(0).run();
+        assertThat(runs).isEqualTo(1);
+        assertThat(delayedTasks).hasSize(1);
+    }
+
+    @Test
+    public void run_shouldSkipTaskStoppedWhileQueued() {
+        periodicTask.start(PERIOD_MS);
+        periodicTask.stop();
+
+        pendingTasks.remove(0).run();
+        assertThat(runs).isEqualTo(0);
+        assertThat(delayedTasks).isEmpty();
+
+        periodicTask.start(PERIOD_MS);
+        assertThat(pendingTasks).hasSize(1);
+    }
+
+    @Test
+    public void start_shouldSkipRunRejectedByExecutor() {
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        periodicTask = new PeriodicTask(scheduler, command -> {
+            throw new RejectedExecutionException("test");
+        }, () -> runs++);
+
+        periodicTask.start(PERIOD_MS);
+
+        assertThat(runs).isEqualTo(0);
+        verify(scheduler).schedule(any(Runnable.class), eq(PERIOD_MS), eq(MILLISECONDS));
+    }
+}
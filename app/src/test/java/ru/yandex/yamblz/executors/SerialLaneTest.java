@@ -0,0 +1,81 @@
+package ru.yandex.yamblz.executors;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class SerialLaneTest {
+
+    @Test
+    public void execute_shouldHandOverOneTaskAtATimeInOrder() {
+        List<Runnable> backingQueue = new ArrayList<>();
+        List<Integer> runs = new ArrayList<>();
+        SerialLane lane = new SerialLane(backingQueue::add);
+
+        lane.execute(() -> runs.add(1));
+        lane.execute(() -> runs.add(2));
+        assertThat(backingQueue).hasSize(1);
+
+        backingQueue.remove(0).run();
+        assertThat(runs).containsExactly(1);
+        assertThat(backingQueue).hasSize(1);
+
+        backingQueue.remove(0).run();
+        assertThat(runs).containsExactly(1, 2);
+        assertThat(backingQueue).isEmpty();
+    }
+
+    @Test
+    public void execute_shouldGoOnAfterFailedTask() {
+        List<Runnable> backingQueue = new ArrayList<>();
+        List<Integer> runs = new ArrayList<>();
+        SerialLane lane = new SerialLane(backingQueue::add);
+
+        lane.execute(() -> {
+            throw new IllegalStateException("test");
+        });
+        lane.execute(() -> runs.add(2));
+
+        try {
+            backingQueue.remove(0).run();
+        } catch (IllegalStateException expected) {
+            // The backing executor deals with it.
+        }
+
+        backingQueue.remove(0).run();
+        assertThat(runs).containsExactly(2);
+    }
+
+    @Test
+    public void execute_shouldGoOnAfterRejectedTask() {
+        List<Runnable> backingQueue = new ArrayList<>();
+        List<Integer> runs = new ArrayList<>();
+        boolean[] rejecting = {true};
+        SerialLane lane = new SerialLane(command -> {
+            if (rejecting[0]) {
+                throw new RejectedExecutionException("test");
+            }
+
+            backingQueue.add(command);
+        });
+
+        try {
+            lane.execute(() -> runs.add(1));
+            failBecauseExceptionWasNotThrown(RejectedExecutionException.class);
+        } catch (RejectedExecutionException expected) {
+            // The caller learns that the task is dropped.
+        }
+
+        rejecting[0] = false;
+        lane.execute(() -> runs.add(2));
+
+        backingQueue.remove(0).run();
+        assertThat(runs).containsExactly(2);
+        assertThat(backingQueue).isEmpty();
+    }
+}
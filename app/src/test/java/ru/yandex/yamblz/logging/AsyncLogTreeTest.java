@@ -0,0 +1,143 @@
+package ru.yandex.yamblz.logging;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.Date;
+
+import ru.yandex.yamblz.YamblzRobolectricUnitTestRunner;
+import timber.log.Timber;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+@RunWith(YamblzRobolectricUnitTestRunner.class)
+public class AsyncLogTreeTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MappedLogFile logFile;
+    private AsyncLogTree tree;
+    private String thread;
+
+    @Before
+    public void beforeEachTest() {
+        logFile = new MappedLogFile(new File(temporaryFolder.getRoot(), "app.log"), 64 * 1024);
+        tree = new AsyncLogTree(logFile, 4);
+        thread = Thread.currentThread().getName();
+    }
+
+    @Test
+    public void log_shouldNotWriteAnythingOnCallingThread() {
+        tree.d("Value is %d", 42);
+
+        assertThat(logFile.readText()).isEmpty();
+    }
+
+    @Test
+    public void drain_shouldFormatEventsInOrder() {
+        tree.d("Value is %d", 42);
+        tree.e(new IllegalStateException("Broken"), "Can not do it");
+
+        assertThat(tree.drain()).isTrue();
+
+        String text = logFile.readText();
+        assertThat(text).contains(" D/" + thread + ": Value is 42\n");
+        assertThat(text).contains(" E/" + thread + ": Can not do it\njava.lang.IllegalStateException: Broken");
+        assertThat(text.indexOf("Value is 42")).isLessThan(text.indexOf("Can not do it"));
+    }
+
+    @Test
+    public void drain_shouldUseExplicitTagOnlyForItsCall() {
+        Timber.plant(tree);
+
+        try {
+            Timber.tag("Settings").d("Loaded %d settings", 3);
+            Timber.d("Untagged");
+        } finally {
+            Timber.uproot(tree);
+        }
+
+        tree.drain();
+
+        String text = logFile.readText();
+        assertThat(text).contains(" D/Settings: Loaded 3 settings\n");
+        assertThat(text).contains(" D/" + thread + ": Untagged\n");
+    }
+
+    @Test
+    public void log_shouldDropAndCountEventsWhenBufferIsFull() {
+        for (int event = 0; event < 6; event++) {
+            tree.i("Event %d", event);
+        }
+
+        assertThat(tree.droppedCount()).isEqualTo(2);
+
+        tree.drain();
+
+        String text = logFile.readText();
+        assertThat(text).contains("Event 3").doesNotContain("Event 4");
+        assertThat(text).contains("W/" + thread + ": 2 log events were dropped, the buffer was full");
+        assertThat(tree.droppedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void drain_shouldFreeSlotsForNewEvents() {
+        for (int event = 0; event < 4; event++) {
+            tree.i("Event %d", event);
+        }
+
+        tree.drain();
+        tree.i("Event %d", 4);
+        tree.drain();
+
+        assertThat(logFile.readText()).contains("Event 4");
+        assertThat(tree.droppedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void drain_shouldKeepTemplateWhichCanNotBeFormatted() {
+        tree.w("Value is %d", "not a number");
+        tree.drain();
+
+        assertThat(logFile.readText()).contains("W/" + thread + ": Value is %d (can not format: ");
+    }
+
+    @Test
+    public void drain_shouldFormatMutableArgumentsAsTheyWereAtTheCall() {
+        StringBuilder state = new StringBuilder("loading");
+        Date date = new Date(0);
+
+        tree.i("State is %s since %tQ", state, date);
+        state.setLength(0);
+        state.append("loaded");
+        date.setTime(1_000);
+        tree.drain();
+
+        assertThat(logFile.readText()).contains("I/" + thread + ": State is loading since 0\n");
+    }
+
+    @Test
+    public void stop_shouldWritePublishedEvents() {
+        tree.start();
+        tree.i("Last words");
+        tree.stop();
+
+        assertThat(logFile.readText()).contains("I/" + thread + ": Last words\n");
+    }
+
+    @Test
+    public void constructor_shouldRejectCapacityWhichIsNotPowerOfTwo() {
+        try {
+            new AsyncLogTree(logFile, 6);
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        } catch (IllegalArgumentException expected) {
+            assertThat(expected).hasMessageContaining("power of two");
+        }
+    }
+}
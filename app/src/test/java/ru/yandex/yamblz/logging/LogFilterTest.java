@@ -0,0 +1,103 @@
+package ru.yandex.yamblz.logging;
+
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogFilterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MappedLogFile logFile;
+    private LogIndex logIndex;
+    private LogFilter logFilter;
+
+    @Before
+    public void beforeEachTest() {
+        logFile = new MappedLogFile(new File(temporaryFolder.getRoot(), "app.log"), 64 * 1024);
+        logIndex = new LogIndex(logFile);
+        logFilter = new LogFilter(logIndex);
+
+        logFile.append("10-19 12:00:01.000 D/main: Stetho started\n");
+        logFile.append("10-19 12:00:02.000 W/io-1: Slow disk read\n");
+        logFile.append("10-19 12:00:03.000 E/main: Stetho failed\n");
+        logFile.append("10-19 12:00:04.000 I/io-1: Settings read\n");
+        logIndex.update();
+    }
+
+    @Test
+    public void filter_shouldMatchAllConditions() {
+        LogFilter.Result result = logFilter.filter(LogQuery.ALL.withMinPriority(Log.WARN).withTag("main").withText("STETHO"));
+
+        assertThat(result.size()).isEqualTo(1);
+        assertThat(result.id(0)).isEqualTo(2);
+        assertThat(result.priority(0)).isEqualTo(Log.ERROR);
+        assertThat(result.text(0)).endsWith("Stetho failed");
+    }
+
+    @Test
+    public void filter_shouldStartFromFirstEntryOfTimeRange() {
+        LogFilter.Result result = logFilter.filter(LogQuery.ALL.withSinceTimeKey(logIndex.timeKey(2)));
+
+        assertThat(result.size()).isEqualTo(2);
+        assertThat(logFilter.lastCheckedCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void filter_shouldOnlyCheckPreviousMatchesWhenQueryIsExtended() {
+        logFilter.filter(LogQuery.ALL.withText("s"));
+        assertThat(logFilter.lastCheckedCount()).isEqualTo(4);
+
+        LogFilter.Result result = logFilter.filter(LogQuery.ALL.withText("st"));
+
+        assertThat(result.size()).isEqualTo(2);
+        assertThat(logFilter.lastCheckedCount()).isEqualTo(4);
+
+        result = logFilter.filter(LogQuery.ALL.withText("stetho f"));
+
+        assertThat(result.size()).isEqualTo(1);
+        assertThat(logFilter.lastCheckedCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void filter_shouldScanEverythingWhenQueryIsWidened() {
+        logFilter.filter(LogQuery.ALL.withText("stetho"));
+        LogFilter.Result result = logFilter.filter(LogQuery.ALL.withText("read"));
+
+        assertThat(result.size()).isEqualTo(2);
+        assertThat(logFilter.lastCheckedCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void filter_shouldOnlyCheckNewEntriesForSameQuery() {
+        LogQuery query = LogQuery.ALL.withText("stetho");
+        logFilter.filter(query);
+
+        logFile.append("10-19 12:00:05.000 D/main: Stetho stopped\n");
+        logIndex.update();
+
+        LogFilter.Result result = logFilter.filter(query);
+
+        assertThat(result.size()).isEqualTo(3);
+        assertThat(logFilter.lastCheckedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void narrows_shouldBeTrueOnlyForQueriesWithSubsetOfMatches() {
+        LogQuery query = LogQuery.ALL.withText("disk");
+
+        assertThat(query.withText("slow disk").narrows(query)).isTrue();
+        assertThat(query.withMinPriority(Log.WARN).narrows(query)).isTrue();
+        assertThat(query.withTag("main").narrows(query)).isTrue();
+        assertThat(query.withText("dis").narrows(query)).isFalse();
+        assertThat(query.narrows(query.withTag("main"))).isFalse();
+    }
+}
@@ -0,0 +1,148 @@
+package ru.yandex.yamblz.logging;
+
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Calendar;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogIndexTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MappedLogFile logFile;
+    private LogIndex logIndex;
+
+    @Before
+    public void beforeEachTest() {
+        logFile = new MappedLogFile(new File(temporaryFolder.getRoot(), "app.log"), MappedLogFile.HEADER_SIZE + 256);
+        logIndex = new LogIndex(logFile);
+    }
+
+    @Test
+    public void update_shouldIndexPriorityTagAndTime() {
+        logFile.append("10-19 12:00:01.250 D/main: First\n");
+        logFile.append("10-19 12:00:02.000 E/io-1: Second\n");
+
+        assertThat(logIndex.update()).isTrue();
+
+        assertThat(logIndex.firstId()).isEqualTo(0);
+        assertThat(logIndex.endId()).isEqualTo(2);
+        assertThat(logIndex.priority(0)).isEqualTo(Log.DEBUG);
+        assertThat(logIndex.priority(1)).isEqualTo(Log.ERROR);
+        assertThat(logIndex.tags()).containsExactly("main", "io-1");
+        assertThat(logIndex.tagId(1)).isEqualTo(logIndex.findTag("io-1"));
+        assertThat(logIndex.timeKey(1) - logIndex.timeKey(0)).isEqualTo(750);
+        assertThat(logIndex.text(1)).isEqualTo("10-19 12:00:02.000 E/io-1: Second");
+    }
+
+    @Test
+    public void update_shouldAttachContinuationLinesToPreviousEntry() {
+        logFile.append("10-19 12:00:01.000 E/main: Failed\njava.lang.IllegalStateException\n\tat Foo.bar(Foo.java:1)\n");
+
+        logIndex.update();
+
+        assertThat(logIndex.endId()).isEqualTo(1);
+        assertThat(logIndex.text(0)).isEqualTo("10-19 12:00:01.000 E/main: Failed\njava.lang.IllegalStateException\n\tat Foo.bar(Foo.java:1)");
+    }
+
+    @Test
+    public void update_shouldParseOnlyNewCompleteLines() {
+        logFile.append("10-19 12:00:01.000 D/main: First\n10-19 12:00:02.000 D/main: Sec");
+
+        logIndex.update();
+        assertThat(logIndex.endId()).isEqualTo(1);
+
+        logFile.append("ond\n");
+
+        assertThat(logIndex.update()).isTrue();
+        assertThat(logIndex.endId()).isEqualTo(2);
+        assertThat(logIndex.text(1)).isEqualTo("10-19 12:00:02.000 D/main: Second");
+        assertThat(logIndex.update()).isFalse();
+    }
+
+    @Test
+    public void update_shouldForgetOverwrittenEntriesButKeepIds() {
+        for (int line = 0; line < 10; line++) {
+            logFile.append("10-19 12:00:0" + line + ".000 D/main: Line " + line + "\n");
+
+            if (line == 4) {
+                logIndex.update();
+            }
+        }
+
+        logIndex.update();
+
+        // Every line is 34 bytes, 256 bytes keep seven of them and a part of one more.
+        assertThat(logIndex.firstId()).isEqualTo(3);
+        assertThat(logIndex.endId()).isEqualTo(10);
+        assertThat(logIndex.text(3)).endsWith("Line 3");
+        assertThat(logIndex.text(2)).isNull();
+    }
+
+    @Test
+    public void update_shouldForgetEntriesBeforeClear() {
+        logFile.append("10-19 12:00:01.000 D/main: Old\n");
+        logIndex.update();
+
+        logFile.clear();
+        logFile.append("10-19 12:00:02.000 D/main: New\n");
+        logIndex.update();
+
+        assertThat(logIndex.firstId()).isEqualTo(1);
+        assertThat(logIndex.text(1)).endsWith("New");
+    }
+
+    @Test
+    public void firstIdAtOrAfter_shouldFindEntryByTime() {
+        logFile.append("10-19 12:00:01.000 D/main: First\n");
+        logFile.append("10-19 12:00:02.000 D/main: Second\n");
+        logFile.append("10-19 12:00:03.000 D/main: Third\n");
+        logIndex.update();
+
+        assertThat(logIndex.firstIdAtOrAfter(logIndex.timeKey(1))).isEqualTo(1);
+        assertThat(logIndex.firstIdAtOrAfter(logIndex.timeKey(1) + 1)).isEqualTo(2);
+        assertThat(logIndex.firstIdAtOrAfter(logIndex.timeKey(2) + 1)).isEqualTo(3);
+    }
+
+    @Test
+    public void update_shouldKeepColonsOfThreadNameInTag() {
+        logFile.append("10-19 12:00:01.000 D/Binder:123_1: Transaction: done\n");
+
+        logIndex.update();
+
+        assertThat(logIndex.tags()).containsExactly("Binder:123_1");
+    }
+
+    @Test
+    public void timeKey_shouldGrowAcrossNewYear() {
+        logFile.append("12-31 23:59:59.000 D/main: Old year\n");
+        logFile.append("01-01 00:00:01.000 D/main: New year\n");
+        logIndex.update();
+
+        assertThat(logIndex.timeKey(1)).isGreaterThan(logIndex.timeKey(0));
+
+        final Calendar calendar = Calendar.getInstance();
+        calendar.set(2026, Calendar.DECEMBER, 31, 23, 59, 59);
+        calendar.set(Calendar.MILLISECOND, 500);
+        final long lastSecondOfYear = LogIndex.timeKey(calendar.getTimeInMillis());
+
+        assertThat(logIndex.firstIdAtOrAfter(logIndex.unwrapTimeKey(lastSecondOfYear))).isEqualTo(1);
+    }
+
+    @Test
+    public void contains_shouldIgnoreCaseOfAsciiLetters() {
+        logFile.append("10-19 12:00:01.000 D/main: Stetho Started\n");
+        logIndex.update();
+
+        assertThat(logIndex.contains(0, "stetho started".getBytes(MappedLogFile.UTF_8))).isTrue();
+        assertThat(logIndex.contains(0, "stopped".getBytes(MappedLogFile.UTF_8))).isFalse();
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.yamblz.logging;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedLogFileTest {
+
+    private static final int SIZE = MappedLogFile.HEADER_SIZE + 32;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void beforeEachTest() {
+        file = new File(temporaryFolder.getRoot(), "logs/app.log");
+    }
+
+    @Test
+    public void append_shouldBeVisibleAfterReopen() {
+        MappedLogFile logFile = new MappedLogFile(file, SIZE);
+        logFile.append("first\n");
+        logFile.append("second\n");
+
+        assertThat(new MappedLogFile(file, SIZE).readText()).isEqualTo("first\nsecond\n");
+        assertThat(file.length()).isEqualTo(SIZE);
+    }
+
+    @Test
+    public void append_shouldOverwriteOldestLinesWhenFull() {
+        MappedLogFile logFile = new MappedLogFile(file, SIZE);
+
+        for (int line = 0; line < 10; line++) {
+            logFile.append("line " + line + "\n");
+        }
+
+        // 32 bytes fit four full lines and a part of the one before them, which is skipped.
+        assertThat(logFile.readText()).isEqualTo("line 6\nline 7\nline 8\nline 9\n");
+        assertThat(new MappedLogFile(file, SIZE).readText()).isEqualTo("line 6\nline 7\nline 8\nline 9\n");
+    }
+
+    @Test
+    public void append_shouldKeepTailOfTextBiggerThanFile() {
+        MappedLogFile logFile = new MappedLogFile(file, SIZE);
+        logFile.append("0123456789012345678901234567890123456789\nend\n");
+
+        assertThat(logFile.readText()).isEqualTo("end\n");
+    }
+
+    @Test
+    public void readText_shouldStartOverIfFileHasAnotherSize() {
+        new MappedLogFile(file, SIZE).append("old\n");
+
+        assertThat(new MappedLogFile(file, SIZE * 2).readText()).isEmpty();
+    }
+
+    @Test
+    public void clear_shouldDropAllText() {
+        MappedLogFile logFile = new MappedLogFile(file, SIZE);
+        logFile.append("first\n");
+        logFile.clear();
+        logFile.append("second\n");
+
+        assertThat(new MappedLogFile(file, SIZE).readText()).isEqualTo("second\n");
+    }
+}
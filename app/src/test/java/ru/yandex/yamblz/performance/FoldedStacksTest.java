@@ -0,0 +1,62 @@
+package ru.yandex.yamblz.performance;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FoldedStacksTest {
+
+    private FoldedStacks foldedStacks;
+
+    @Before
+    public void beforeEachTest() {
+        foldedStacks = new FoldedStacks(2);
+    }
+
+    @Test
+    public void fold_shouldStartFromTheRoot() {
+        StackTraceElement[] stackTrace = {
+                new StackTraceElement("Leaf", "sleep", "Leaf.java", 10),
+                new StackTraceElement("Root", "main", "Root.java", 1),
+        };
+
+        assertThat(FoldedStacks.fold(stackTrace)).isEqualTo("Root.main:1;Leaf.sleep:10");
+    }
+
+    @Test
+    public void writeTo_shouldAggregateSameStacks() throws IOException {
+        StackTraceElement[] stackTrace = {new StackTraceElement("Root", "main", "Root.java", 1)};
+
+        foldedStacks.add(stackTrace);
+        foldedStacks.add(stackTrace);
+
+        StringWriter writer = new StringWriter();
+        foldedStacks.writeTo(writer);
+
+        assertThat(writer.toString()).isEqualTo("Root.main:1 2\n");
+        assertThat(foldedStacks.totalSamples()).isEqualTo(2);
+    }
+
+    @Test
+    public void add_shouldDropNewStacksWhenLimitIsReached() {
+        foldedStacks.add(new StackTraceElement[]{new StackTraceElement("A", "a", "A.java", 1)});
+        foldedStacks.add(new StackTraceElement[]{new StackTraceElement("B", "b", "B.java", 1)});
+        foldedStacks.add(new StackTraceElement[]{new StackTraceElement("C", "c", "C.java", 1)});
+
+        assertThat(foldedStacks.totalSamples()).isEqualTo(2);
+        assertThat(foldedStacks.droppedSamples()).isEqualTo(1);
+    }
+
+    @Test
+    public void clear_shouldRemoveAllSamples() {
+        foldedStacks.add(new StackTraceElement[]{new StackTraceElement("A", "a", "A.java", 1)});
+        foldedStacks.clear();
+
+        assertThat(foldedStacks.totalSamples()).isEqualTo(0);
+        assertThat(foldedStacks.summary(3, 3)).isEmpty();
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.yamblz.performance;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FrameTimeHistogramTest {
+
+    private static final long FRAME_INTERVAL_NANOS = 16_666_667L;
+
+    private FrameTimeHistogram histogram;
+
+    @Before
+    public void beforeEachTest() {
+        histogram = new FrameTimeHistogram();
+    }
+
+    @Test
+    public void percentileMicros_shouldReturn0IfNothingWasRecorded() {
+        assertThat(histogram.percentileMicros(50)).isEqualTo(0);
+        assertThat(histogram.maxMicros()).isEqualTo(0);
+        assertThat(histogram.totalFrames()).isEqualTo(0);
+    }
+
+    @Test
+    public void record_shouldIgnoreNonPositiveDurations() {
+        histogram.record(0, FRAME_INTERVAL_NANOS);
+        histogram.record(-1, FRAME_INTERVAL_NANOS);
+        assertThat(histogram.totalFrames()).isEqualTo(0);
+    }
+
+    @Test
+    public void percentileMicros_shouldBeWithinBucketPrecision() {
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000_000L, FRAME_INTERVAL_NANOS);
+        }
+
+        assertThat(histogram.totalFrames()).isEqualTo(100);
+        assertThat(histogram.maxMicros()).isEqualTo(100_000);
+        assertThat(histogram.percentileMicros(50)).isBetween(50_000L, 56_250L);
+        assertThat(histogram.percentileMicros(90)).isBetween(90_000L, 100_000L);
+        assertThat(histogram.percentileMicros(100)).isEqualTo(100_000);
+    }
+
+    @Test
+    public void record_shouldCountDroppedFrames() {
+        histogram.record(FRAME_INTERVAL_NANOS, FRAME_INTERVAL_NANOS);
+        assertThat(histogram.droppedFrames()).isEqualTo(0);
+
+        histogram.record(FRAME_INTERVAL_NANOS * 3, FRAME_INTERVAL_NANOS);
+        assertThat(histogram.droppedFrames()).isEqualTo(2);
+    }
+
+    @Test
+    public void reset_shouldClearEverything() {
+        histogram.record(FRAME_INTERVAL_NANOS * 3, FRAME_INTERVAL_NANOS);
+        histogram.reset();
+
+        assertThat(histogram.totalFrames()).isEqualTo(0);
+        assertThat(histogram.droppedFrames()).isEqualTo(0);
+        assertThat(histogram.maxMicros()).isEqualTo(0);
+        assertThat(histogram.percentileMicros(99)).isEqualTo(0);
+    }
+
+    @Test
+    public void bucketIndex_shouldBeMonotonicAndContainValue() {
+        int previousIndex = -1;
+
+        for (long micros = 0; micros < 5_000_000; micros += 997) {
+            final int index = FrameTimeHistogram.bucketIndex(micros);
+            assertThat(index).isGreaterThanOrEqualTo(previousIndex);
+            assertThat(FrameTimeHistogram.bucketUpperBound(index)).isGreaterThanOrEqualTo(micros);
+            previousIndex = index;
+        }
+    }
+}
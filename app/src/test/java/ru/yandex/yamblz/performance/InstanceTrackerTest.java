@@ -0,0 +1,53 @@
+package ru.yandex.yamblz.performance;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InstanceTrackerTest {
+
+    private InstanceTracker instanceTracker;
+
+    @Before
+    public void beforeEachTest() {
+        instanceTracker = new InstanceTracker();
+    }
+
+    @Test
+    public void liveCount_shouldBeZeroForUntrackedClass() {
+        assertThat(instanceTracker.liveCount(Object.class)).isEqualTo(0);
+    }
+
+    @Test
+    public void track_shouldCountInstancesPerClass() {
+        Object first = new Object();
+        Object second = new Object();
+        String third = "third";
+
+        instanceTracker.track(first);
+        instanceTracker.track(second);
+        instanceTracker.track(third);
+
+        assertThat(instanceTracker.liveCount(Object.class)).isEqualTo(2);
+        assertThat(instanceTracker.liveCount(String.class)).isEqualTo(1);
+    }
+
+    @Test
+    public void report_shouldPutClassesWithMoreLiveInstancesFirst() {
+        Object first = new Object();
+        Object second = new Object();
+        String third = "third";
+
+        instanceTracker.track(third);
+        instanceTracker.track(first);
+        instanceTracker.track(second);
+
+        assertThat(instanceTracker.report()).isEqualTo("Object: 2 live (max 2)\nString: 1 live (max 1)");
+    }
+
+    @Test
+    public void report_shouldSayNothingIsTrackedYet() {
+        assertThat(instanceTracker.report()).isEqualTo("Nothing is tracked yet");
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.yamblz.performance;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.yandex.yamblz.performance.MemorySampleBuffer.COLUMNS;
+import static ru.yandex.yamblz.performance.MemorySampleBuffer.COLUMN_GC_COUNT;
+import static ru.yandex.yamblz.performance.MemorySampleBuffer.COLUMN_JAVA_HEAP_KB;
+import static ru.yandex.yamblz.performance.MemorySampleBuffer.COLUMN_TIME_MS;
+import static ru.yandex.yamblz.performance.MemorySampleBuffer.UNKNOWN;
+
+public class MemorySampleBufferTest {
+
+    private MemorySampleBuffer buffer;
+
+    @Before
+    public void beforeEachTest() {
+        buffer = new MemorySampleBuffer(3);
+    }
+
+    @Test
+    public void record_shouldKeepSamplesFromOldestToNewest() {
+        buffer.record(1_000, 100, 10, 50, 1, 5);
+        buffer.record(2_000, 200, 20, 60, 2, 7);
+
+        assertThat(buffer.size()).isEqualTo(2);
+        assertThat(buffer.get(0, COLUMN_TIME_MS)).isEqualTo(1_000);
+        assertThat(buffer.get(1, COLUMN_JAVA_HEAP_KB)).isEqualTo(200);
+    }
+
+    @Test
+    public void record_shouldOverwriteOldestSamplesWhenFull() {
+        for (int second = 1; second <= 5; second++) {
+            buffer.record(second * 1_000, second * 100, 0, 0, 0, 0);
+        }
+
+        assertThat(buffer.size()).isEqualTo(3);
+        assertThat(buffer.get(0, COLUMN_TIME_MS)).isEqualTo(3_000);
+        assertThat(buffer.get(2, COLUMN_TIME_MS)).isEqualTo(5_000);
+        assertThat(buffer.durationMs()).isEqualTo(2_000);
+    }
+
+    @Test
+    public void change_shouldBeZeroForUnknownValues() {
+        buffer.record(1_000, 100, 0, 0, UNKNOWN, UNKNOWN);
+        buffer.record(2_000, 300, 0, 0, UNKNOWN, UNKNOWN);
+
+        assertThat(buffer.change(COLUMN_JAVA_HEAP_KB)).isEqualTo(200);
+        assertThat(buffer.change(COLUMN_GC_COUNT)).isEqualTo(0);
+    }
+
+    @Test
+    public void allocationRate_shouldCountOnlyHeapGrowth() {
+        buffer.record(0, 1_000, 0, 0, 0, 0);
+        buffer.record(1_000, 1_600, 0, 0, 0, 0);
+        // GC freed memory, it's not an allocation.
+        buffer.record(2_000, 1_200, 0, 0, 1, 3);
+
+        assertThat(buffer.allocationRateKbPerSecond()).isEqualTo(300);
+    }
+
+    @Test
+    public void clear_shouldForgetAllSamples() {
+        buffer.record(1_000, 100, 10, 50, 1, 5);
+        buffer.clear();
+
+        assertThat(buffer.size()).isEqualTo(0);
+        assertThat(buffer.allocationRateKbPerSecond()).isEqualTo(0);
+    }
+
+    @Test
+    public void writeTo_shouldBeReadBackAsSameSamples() throws IOException {
+        buffer.record(1_000, 100, 10, 50, UNKNOWN, UNKNOWN);
+        buffer.record(2_000, 90, 30, 40, 2, 7);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        buffer.writeTo(new DataOutputStream(bytes));
+
+        MemorySampleBuffer read = MemorySampleBuffer.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(read.size()).isEqualTo(2);
+
+        for (int index = 0; index < 2; index++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                assertThat(read.get(index, column)).isEqualTo(buffer.get(index, column));
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.yamblz.performance;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ru.yandex.yamblz.YamblzRobolectricUnitTestRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(YamblzRobolectricUnitTestRunner.class)
+public class StrictModeDiskReadReporterTest {
+
+    @Test
+    public void onMainThreadDiskRead_shouldCountReadOnExecutor() {
+        List<Runnable> pendingTasks = new ArrayList<>();
+        ViolationCounter violationCounter = new ViolationCounter(10);
+        StrictModeDiskReadReporter reporter = new StrictModeDiskReadReporter(violationCounter, pendingTasks::add);
+
+        reporter.onMainThreadDiskRead("Settings read", 2_000_000, new Throwable());
+        assertThat(violationCounter.report(10, 3)).isEqualTo("No violations");
+
+        pendingTasks.remove(0).run();
+        assertThat(violationCounter.report(10, 3)).startsWith("1x Settings read on the main thread");
+    }
+}
@@ -0,0 +1,132 @@
+package ru.yandex.yamblz.performance;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import ru.yandex.yamblz.YamblzRobolectricUnitTestRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@RunWith(YamblzRobolectricUnitTestRunner.class)
+public class ThreadContractTrackerTest {
+
+    interface TestView {
+
+        @AnyThread
+        void showAnywhere(String text);
+
+        void showOnMainThread(String text);
+    }
+
+    private ThreadContractTracker threadContractTracker;
+    private TestView delegate;
+    private TestView wrapped;
+
+    @Before
+    public void beforeEachTest() {
+        threadContractTracker = new ThreadContractTracker();
+        delegate = mock(TestView.class);
+        wrapped = threadContractTracker.wrap(TestView.class, delegate);
+    }
+
+    @Test
+    public void wrap_shouldForwardCalls() {
+        wrapped.showAnywhere("text");
+        verify(delegate).showAnywhere("text");
+    }
+
+    @Test
+    public void mainThreadCall_shouldBeCountedWithoutHop() {
+        wrapped.showOnMainThread("text");
+
+        ThreadContractTracker.MethodStats stats = threadContractTracker.stats(TestView.class, "showOnMainThread");
+        assertThat(stats).isNotNull();
+        assertThat(stats.mainThreadCalls()).isEqualTo(1);
+        assertThat(stats.backgroundCalls()).isEqualTo(0);
+        assertThat(stats.violations()).isEqualTo(0);
+    }
+
+    @Test
+    public void backgroundCall_shouldBeCountedPerThread() throws InterruptedException {
+        callFrom("test-caller", () -> wrapped.showAnywhere("text"));
+
+        ThreadContractTracker.MethodStats stats = threadContractTracker.stats(TestView.class, "showAnywhere");
+        assertThat(stats).isNotNull();
+        assertThat(stats.backgroundCalls()).isEqualTo(1);
+        assertThat(stats.callsFrom("test-caller")).isEqualTo(1);
+        assertThat(stats.violations()).isEqualTo(0);
+        assertThat(stats.hops()).isEqualTo(0);
+    }
+
+    @Test
+    public void callInProgress_shouldBeStatsOfBackgroundCall() throws InterruptedException {
+        AtomicReference<ThreadContractTracker.MethodStats> inProgress = new AtomicReference<>();
+        TestView recording = threadContractTracker.wrap(TestView.class, recordingView(inProgress));
+
+        callFrom("test-caller", () -> recording.showAnywhere("text"));
+
+        assertThat(inProgress.get()).isSameAs(threadContractTracker.stats(TestView.class, "showAnywhere"));
+        assertThat(threadContractTracker.callInProgress()).isNull();
+    }
+
+    @Test
+    public void callInProgress_shouldBeNullDuringMainThreadCall() {
+        AtomicReference<ThreadContractTracker.MethodStats> inProgress = new AtomicReference<>();
+        TestView recording = threadContractTracker.wrap(TestView.class, recordingView(inProgress));
+
+        recording.showAnywhere("text");
+
+        assertThat(threadContractTracker.stats(TestView.class, "showAnywhere")).isNotNull();
+        assertThat(inProgress.get()).isNull();
+    }
+
+    @Test
+    public void backgroundCallOfMethodWithoutAnyThread_shouldBeViolation() throws InterruptedException {
+        callFrom("test-caller", () -> wrapped.showOnMainThread("text"));
+
+        ThreadContractTracker.MethodStats stats = threadContractTracker.stats(TestView.class, "showOnMainThread");
+        assertThat(stats).isNotNull();
+        assertThat(stats.violations()).isEqualTo(1);
+        verify(delegate).showOnMainThread("text");
+    }
+
+    @Test
+    public void report_shouldPutMethodsWithMoreBackgroundCallsFirst() throws InterruptedException {
+        wrapped.showOnMainThread("text");
+        callFrom("test-caller", () -> wrapped.showAnywhere("text"));
+
+        assertThat(threadContractTracker.report())
+                .startsWith("TestView.showAnywhere: 0 main, 1 background [test-caller]")
+                .contains("\nTestView.showOnMainThread: 1 main, 0 background");
+    }
+
+    @Test
+    public void report_shouldSayThereAreNoCallsYet() {
+        assertThat(threadContractTracker.report()).isEqualTo("No calls yet");
+    }
+
+    private TestView recordingView(AtomicReference<ThreadContractTracker.MethodStats> inProgress) {
+        return new TestView() {
+            @Override
+            public void showAnywhere(String text) {
+                inProgress.set(threadContractTracker.callInProgress());
+            }
+
+            @Override
+            public void showOnMainThread(String text) {
+                inProgress.set(threadContractTracker.callInProgress());
+            }
+        };
+    }
+
+    private static void callFrom(String threadName, Runnable call) throws InterruptedException {
+        Thread thread = new Thread(call, threadName);
+        thread.start();
+        thread.join();
+    }
+}
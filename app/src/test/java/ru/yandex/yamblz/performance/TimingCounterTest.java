@@ -0,0 +1,58 @@
+package ru.yandex.yamblz.performance;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimingCounterTest {
+
+    @Test
+    public void record_shouldCountCallsAndMaximum() {
+        TimingCounter counter = new TimingCounter("test", 4);
+
+        counter.record(2_000_000);
+        counter.record(4_000_000);
+
+        assertThat(counter.count()).isEqualTo(2);
+        assertThat(counter.maxNanos()).isEqualTo(4_000_000);
+        assertThat(counter.report()).isEqualTo("test: 2 calls, avg 3.00 ms, max 4.00 ms");
+    }
+
+    @Test
+    public void latestMicros_shouldKeepOnlyNewestDurationsFromOldest() {
+        TimingCounter counter = new TimingCounter("test", 3);
+
+        for (int micros = 1; micros <= 5; micros++) {
+            counter.record(micros * 1000L);
+        }
+
+        assertThat(counter.latestMicros()).containsExactly(3, 4, 5);
+        assertThat(counter.count()).isEqualTo(5);
+    }
+
+    @Test
+    public void raw_shouldListLatestDurationsAfterName() {
+        TimingCounter counter = new TimingCounter("some test", 4);
+
+        counter.record(1000);
+        counter.record(25_000);
+
+        assertThat(counter.raw()).isEqualTo("some_test 1 25");
+    }
+
+    @Test
+    public void reset_shouldStartOver() {
+        TimingCounter counter = new TimingCounter("test", 2);
+        counter.record(1000);
+        counter.record(2000);
+        counter.record(3000);
+
+        counter.reset();
+        counter.record(7000);
+
+        assertThat(counter.count()).isEqualTo(1);
+        assertThat(counter.maxNanos()).isEqualTo(7000);
+        assertThat(counter.latestMicros()).containsExactly(7);
+        assertThat(counter.report()).isEqualTo("test: 1 calls, avg 0.01 ms, max 0.01 ms");
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.yamblz.performance;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ViolationCounterTest {
+
+    @Test
+    public void report_shouldCountSameStackOnceAndRankByCount() {
+        ViolationCounter counter = new ViolationCounter(10);
+
+        counter.record("DiskReadViolation", stack("ru.yandex.yamblz.App", "onCreate"));
+
+        for (int i = 0; i < 3; i++) {
+            counter.record("DiskWriteViolation", stack("ru.yandex.yamblz.ui.MainActivity", "onPause"));
+        }
+
+        assertThat(counter.report(10, 3)).isEqualTo("3x DiskWriteViolation\n"
+                + "  at ru.yandex.yamblz.ui.MainActivity.onPause(Test.java:1)\n"
+                + "1x DiskReadViolation\n"
+                + "  at ru.yandex.yamblz.App.onCreate(Test.java:1)");
+    }
+
+    @Test
+    public void report_shouldSkipFramesOfPerformanceTools() {
+        ViolationCounter counter = new ViolationCounter(10);
+        Throwable stackTrace = new Throwable();
+        stackTrace.setStackTrace(new StackTraceElement[]{
+                new StackTraceElement("android.os.StrictMode", "noteSlowCall", "Test.java", 1),
+                new StackTraceElement("ru.yandex.yamblz.performance.StrictModeDiskReadReporter", "onMainThreadDiskRead", "Test.java", 1),
+                new StackTraceElement("ru.yandex.yamblz.App", "onCreate", "Test.java", 1)
+        });
+
+        counter.record("DiskReadViolation", stackTrace);
+
+        assertThat(counter.report(10, 3)).isEqualTo("1x DiskReadViolation\n  at ru.yandex.yamblz.App.onCreate(Test.java:1)");
+    }
+
+    @Test
+    public void record_shouldCountSignaturesOverLimitAsDropped() {
+        ViolationCounter counter = new ViolationCounter(1);
+
+        counter.record("DiskReadViolation", stack("ru.yandex.yamblz.App", "onCreate"));
+        counter.record("LeakedClosableViolation", stack("okhttp3.Response", "finalize"));
+
+        assertThat(counter.report(10, 3)).isEqualTo("1x DiskReadViolation\n"
+                + "  at ru.yandex.yamblz.App.onCreate(Test.java:1)"
+                + String.format("%n1 of other kinds were not counted"));
+    }
+
+    @Test
+    public void reset_shouldForgetViolations() {
+        ViolationCounter counter = new ViolationCounter(10);
+        counter.record("DiskReadViolation", stack("ru.yandex.yamblz.App", "onCreate"));
+
+        counter.reset();
+
+        assertThat(counter.report(10, 3)).isEqualTo("No violations");
+    }
+
+    private static Throwable stack(String className, String methodName) {
+        Throwable stackTrace = new Throwable();
+        stackTrace.setStackTrace(new StackTraceElement[]{new StackTraceElement(className, methodName, "Test.java", 1)});
+        return stackTrace;
+    }
+}
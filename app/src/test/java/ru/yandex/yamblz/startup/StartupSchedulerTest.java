@@ -0,0 +1,120 @@
+package ru.yandex.yamblz.startup;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+import static ru.yandex.yamblz.startup.StartupTask.Dispatcher.BACKGROUND;
+import static ru.yandex.yamblz.startup.StartupTask.Dispatcher.MAIN_IDLE;
+
+public class StartupSchedulerTest {
+
+    private List<String> executed;
+    private List<Runnable> mainThreadCommands;
+    private StartupScheduler scheduler;
+
+    @Before
+    public void beforeEachTest() {
+        executed = new ArrayList<>();
+        mainThreadCommands = new ArrayList<>();
+
+        Executor directExecutor = Runnable::run;
+        scheduler = new StartupScheduler(directExecutor, mainThreadCommands::add);
+    }
+
+    @Test
+    public void start_shouldRunTasksAfterTheirDependencies() {
+        scheduler
+                .add(task("c", BACKGROUND, "b"))
+                .add(task("b", BACKGROUND, "a"))
+                .add(task("a", BACKGROUND))
+                .start();
+
+        assertThat(executed).containsExactly("a", "b", "c");
+        assertThat(scheduler.isFinished()).isTrue();
+    }
+
+    @Test
+    public void start_shouldDeferMainThreadTasksToIdleExecutor() {
+        scheduler
+                .add(task("settings", BACKGROUND))
+                .add(task("ui", MAIN_IDLE, "settings"))
+                .start();
+
+        assertThat(executed).containsExactly("settings");
+        assertThat(mainThreadCommands).hasSize(1);
+
+        mainThreadCommands.get(0).run();
+        assertThat(executed).containsExactly("settings", "ui");
+        assertThat(scheduler.isFinished()).isTrue();
+    }
+
+    @Test
+    public void start_shouldRunDependentsEvenIfTaskFailed() {
+        scheduler
+                .add(new StartupTask("failing", BACKGROUND, () -> {
+                    throw new IllegalStateException("test");
+                }))
+                .add(task("dependent", BACKGROUND, "failing"))
+                .start();
+
+        assertThat(executed).containsExactly("dependent");
+    }
+
+    @Test
+    public void start_shouldThrowOnUnknownDependency() {
+        scheduler.add(task("a", BACKGROUND, "unknown"));
+
+        try {
+            scheduler.start();
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        } catch (IllegalArgumentException expected) {
+            assertThat(expected.getMessage()).startsWith("Unknown dependency unknown");
+        }
+    }
+
+    @Test
+    public void start_shouldThrowOnCycle() {
+        scheduler
+                .add(task("a", BACKGROUND, "b"))
+                .add(task("b", BACKGROUND, "a"));
+
+        try {
+            scheduler.start();
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        } catch (IllegalArgumentException expected) {
+            assertThat(executed).isEmpty();
+        }
+    }
+
+    @Test
+    public void add_shouldThrowOnDuplicateName() {
+        scheduler.add(task("a", BACKGROUND));
+
+        try {
+            scheduler.add(task("a", MAIN_IDLE));
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        } catch (IllegalArgumentException expected) {
+            assertThat(expected).hasMessage("Duplicate startup task name: a");
+        }
+    }
+
+    @Test
+    public void report_shouldContainEveryTask() {
+        scheduler
+                .add(task("a", BACKGROUND))
+                .add(task("b", MAIN_IDLE))
+                .start();
+
+        assertThat(scheduler.report()).contains("a on ").contains("b: pending");
+    }
+
+    private StartupTask task(String name, StartupTask.Dispatcher dispatcher, String... dependencies) {
+        return new StartupTask(name, dispatcher, () -> executed.add(name), dependencies);
+    }
+}
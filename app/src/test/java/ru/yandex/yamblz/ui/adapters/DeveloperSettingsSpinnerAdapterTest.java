@@ -14,6 +14,7 @@ import org.assertj.core.api.Assertions;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -22,7 +23,9 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
@@ -49,10 +52,30 @@ public class DeveloperSettingsSpinnerAdapterTest {
         adapter.registerDataSetObserver(dataSetObserver);
         verifyZeroInteractions(dataSetObserver);
 
-        adapter.setSelectionOptions(emptyList());
+        adapter.setSelectionOptions(asList(option(1, "First")));
         verify(dataSetObserver).onChanged();
     }
 
+    @Test
+    public void setSelectableOptions_shouldNotNotifyObserversIfOptionsAreTheSame() {
+        adapter.setSelectionOptions(asList(option(1, "First"), option(2, "Second")));
+        DataSetObserver dataSetObserver = mock(DataSetObserver.class);
+        adapter.registerDataSetObserver(dataSetObserver);
+
+        adapter.setSelectionOptions(asList(option(1, "First"), option(2, "Second")));
+        verifyZeroInteractions(dataSetObserver);
+    }
+
+    @Test
+    public void sameOptions_shouldCompareIdsAndTitles() {
+        List<SelectionOption> options = asList(option(1, "First"), option(2, "Second"));
+
+        assertThat(DeveloperSettingsSpinnerAdapter.sameOptions(options, asList(option(1, "First"), option(2, "Second")))).isTrue();
+        assertThat(DeveloperSettingsSpinnerAdapter.sameOptions(options, asList(option(1, "First"), option(3, "Second")))).isFalse();
+        assertThat(DeveloperSettingsSpinnerAdapter.sameOptions(options, asList(option(1, "First"), option(2, "Other")))).isFalse();
+        assertThat(DeveloperSettingsSpinnerAdapter.sameOptions(options, asList(option(1, "First")))).isFalse();
+    }
+
     @Test
     public void getCount_shouldReturn0ByDefault() {
         assertThat(adapter.getCount()).isEqualTo(0);
@@ -90,18 +113,46 @@ public class DeveloperSettingsSpinnerAdapterTest {
     }
 
     @Test
-    public void getItemId_shouldReturnPositions() {
-        List<DeveloperSettingsSpinnerAdapter.SelectionOption> selectionOptions = asList(
-                mock(DeveloperSettingsSpinnerAdapter.SelectionOption.class),
-                mock(DeveloperSettingsSpinnerAdapter.SelectionOption.class),
-                mock(DeveloperSettingsSpinnerAdapter.SelectionOption.class)
-        );
+    public void getItemId_shouldReturnIdsOfOptions() {
+        adapter.setSelectionOptions(asList(option(250, "250 ms"), option(500, "500 ms"), option(1_000, "1 s")));
 
-        adapter.setSelectionOptions(selectionOptions);
+        assertThat(adapter.hasStableIds()).isTrue();
+        assertThat(adapter.getItemId(0)).isEqualTo(250);
+        assertThat(adapter.getItemId(1)).isEqualTo(500);
+        assertThat(adapter.getItemId(2)).isEqualTo(1_000);
+    }
+
+    @Test
+    public void getView_shouldRebindOnlyChangedRows() {
+        adapter.setSelectionOptions(asList(option(1, "First"), option(2, "Second"), option(3, "Third")));
+        ViewGroup container = mock(ViewGroup.class);
+        View[] views = new View[3];
+        TextView[] titleTextViews = new TextView[3];
+
+        for (int position = 0; position < views.length; position++) {
+            views[position] = mock(View.class);
+            titleTextViews[position] = mock(TextView.class);
+            when(views[position].findViewById(ru.yandex.yamblz.R.id.list_developer_settings_spinner_item_title_text_view)).thenReturn(titleTextViews[position]);
+            when(layoutInflater.inflate(ru.yandex.yamblz.R.layout.list_developer_settings_spinner_item, container, false)).thenReturn(views[position]);
+
+            adapter.getView(position, null, container);
 
-        assertThat(adapter.getItemId(0)).isEqualTo(0);
-        assertThat(adapter.getItemId(1)).isEqualTo(1);
-        assertThat(adapter.getItemId(2)).isEqualTo(2);
+            ArgumentCaptor<Object> tag = ArgumentCaptor.forClass(Object.class);
+            verify(views[position]).setTag(tag.capture());
+            when(views[position].getTag()).thenReturn(tag.getValue());
+        }
+
+        adapter.setSelectionOptions(asList(option(1, "First"), option(2, "Second (changed)"), option(3, "Third")));
+
+        for (int position = 0; position < views.length; position++) {
+            assertThat(adapter.getView(position, views[position], container)).isSameAs(views[position]);
+        }
+
+        verify(titleTextViews[0], times(1)).setText("First");
+        verify(titleTextViews[1], times(1)).setText("Second");
+        verify(titleTextViews[1], times(1)).setText("Second (changed)");
+        verify(titleTextViews[2], times(1)).setText("Third");
+        verifyNoMoreInteractions(titleTextViews);
     }
 
     @SuppressLint("SetTextI18n")
@@ -205,4 +256,11 @@ public class DeveloperSettingsSpinnerAdapterTest {
             verify(viewHolder).bindItem(selectionOptions.get(position));
         }
     }
-}
\ No newline at end of file
+
+    private static SelectionOption option(long id, String title) {
+        SelectionOption option = mock(SelectionOption.class);
+        when(option.id()).thenReturn(id);
+        when(option.title()).thenReturn(title);
+        return option;
+    }
+}
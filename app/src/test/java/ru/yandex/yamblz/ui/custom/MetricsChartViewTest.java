@@ -0,0 +1,126 @@
+package ru.yandex.yamblz.ui.custom;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.Rect;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+import ru.yandex.yamblz.YamblzRobolectricUnitTestRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+@RunWith(YamblzRobolectricUnitTestRunner.class)
+public class MetricsChartViewTest {
+
+    private MetricsChartView metricsChartView;
+    private int series;
+
+    @Before
+    public void beforeEachTest() {
+        metricsChartView = new MetricsChartView(RuntimeEnvironment.application);
+        metricsChartView.setHistoryLength(4);
+        series = metricsChartView.addSeries(Color.RED);
+    }
+
+    @Test
+    public void addPoint_shouldCountPoints() {
+        addPoint(10);
+        addPoint(20);
+
+        assertThat(metricsChartView.addedPoints()).isEqualTo(2);
+    }
+
+    @Test
+    public void addPoint_shouldGrowScaleOnlyWhenValueDoesNotFit() {
+        addPoint(100);
+        assertThat(metricsChartView.maxValue(series)).isEqualTo(150);
+
+        addPoint(120);
+        assertThat(metricsChartView.maxValue(series)).isEqualTo(150);
+
+        addPoint(200);
+        assertThat(metricsChartView.maxValue(series)).isEqualTo(300);
+    }
+
+    @Test
+    public void addPoint_shouldShrinkScaleOnceLargeValueLeavesHistory() {
+        addPoint(100);
+        addPoint(10);
+        addPoint(10);
+        addPoint(10);
+        assertThat(metricsChartView.maxValue(series)).isEqualTo(150);
+
+        addPoint(10); // Overwrites 100.
+        assertThat(metricsChartView.maxValue(series)).isEqualTo(15);
+    }
+
+    @Test
+    public void addPoint_shouldInvalidateOnlyNewSegmentIfScaleFits() {
+        RecordingChartView chartView = new RecordingChartView(RuntimeEnvironment.application);
+        chartView.setHistoryLength(4);
+        int chartSeries = chartView.addSeries(Color.RED);
+        chartView.layout(0, 0, 300, 100);
+
+        chartView.setPointValue(chartSeries, 100);
+        chartView.addPoint();
+        assertThat(chartView.invalidatedAll).isTrue();
+
+        chartView.invalidatedAll = false;
+        chartView.setPointValue(chartSeries, 50);
+        chartView.addPoint();
+        chartView.addPoint();
+
+        // Columns are 100 px apart, the segment goes from the previous column to the new one plus the gap in front of it.
+        float gap = 4 * RuntimeEnvironment.application.getResources().getDisplayMetrics().density;
+        assertThat(chartView.invalidatedAll).isFalse();
+        assertThat(chartView.invalidated).isEqualTo(new Rect(100, 0, (int) Math.ceil(200 + gap), 100));
+    }
+
+    @Test
+    public void setHistoryLength_shouldDropPoints() {
+        addPoint(10);
+        metricsChartView.setHistoryLength(8);
+
+        assertThat(metricsChartView.addedPoints()).isEqualTo(0);
+    }
+
+    @Test
+    public void setHistoryLength_shouldThrowIfHistoryIsTooShort() {
+        try {
+            metricsChartView.setHistoryLength(1);
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        } catch (IllegalArgumentException expected) {
+            assertThat(expected).hasMessage("History needs at least two points, got 1");
+        }
+    }
+
+    private void addPoint(float value) {
+        metricsChartView.setPointValue(series, value);
+        metricsChartView.addPoint();
+    }
+
+    private static class RecordingChartView extends MetricsChartView {
+
+        final Rect invalidated = new Rect();
+        boolean invalidatedAll;
+
+        RecordingChartView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void postInvalidateOnAnimation() {
+            invalidatedAll = true;
+        }
+
+        @Override
+        public void postInvalidateOnAnimation(int left, int top, int right, int bottom) {
+            invalidated.set(left, top, right, bottom);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.yamblz.ui.other;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ru.yandex.yamblz.R;
+import ru.yandex.yamblz.YamblzRobolectricUnitTestRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(YamblzRobolectricUnitTestRunner.class)
+public class AsyncViewInflaterTest {
+
+    private List<Runnable> pendingInflations;
+    private AsyncViewInflater asyncViewInflater;
+    private LayoutInflater fallbackInflater;
+    private View fallbackView;
+
+    @Before
+    public void beforeEachTest() {
+        pendingInflations = new ArrayList<>();
+        asyncViewInflater = new AsyncViewInflater(RuntimeEnvironment.application, pendingInflations::add);
+
+        fallbackInflater = mock(LayoutInflater.class);
+        fallbackView = mock(View.class);
+        when(fallbackInflater.inflate(anyInt(), any(ViewGroup.class), anyBoolean())).thenReturn(fallbackView);
+    }
+
+    @Test
+    public void obtain_shouldInflateSynchronouslyAndCountMissIfPoolIsEmpty() {
+        assertThat(asyncViewInflater.obtain(R.layout.fragment_content, fallbackInflater, null)).isSameAs(fallbackView);
+
+        verify(fallbackInflater).inflate(R.layout.fragment_content, null, false);
+        assertThat(asyncViewInflater.misses(R.layout.fragment_content)).isEqualTo(1);
+        assertThat(asyncViewInflater.hits(R.layout.fragment_content)).isEqualTo(0);
+    }
+
+    @Test
+    public void obtain_shouldInflateSynchronouslyIfPreInflationIsNotFinished() {
+        asyncViewInflater.preInflate(R.layout.fragment_content, 1);
+
+        assertThat(asyncViewInflater.obtain(R.layout.fragment_content, fallbackInflater, null)).isSameAs(fallbackView);
+        assertThat(asyncViewInflater.misses(R.layout.fragment_content)).isEqualTo(1);
+    }
+
+    @Test
+    public void obtain_shouldReturnPreInflatedViewAndCountHit() {
+        asyncViewInflater.preInflate(R.layout.fragment_content, 1);
+        runPendingInflations();
+
+        View view = asyncViewInflater.obtain(R.layout.fragment_content, fallbackInflater, null);
+
+        assertThat(view).isNotNull().isNotSameAs(fallbackView);
+        assertThat(view.getParent()).isNull();
+        assertThat(view.getLayoutParams()).isNotNull();
+        verifyZeroInteractions(fallbackInflater);
+        assertThat(asyncViewInflater.hits(R.layout.fragment_content)).isEqualTo(1);
+        assertThat(asyncViewInflater.misses(R.layout.fragment_content)).isEqualTo(0);
+    }
+
+    @Test
+    public void obtain_shouldRefillPool() {
+        asyncViewInflater.preInflate(R.layout.fragment_content, 2);
+        runPendingInflations();
+
+        asyncViewInflater.obtain(R.layout.fragment_content, fallbackInflater, null);
+        assertThat(asyncViewInflater.pooled(R.layout.fragment_content)).isEqualTo(1);
+
+        runPendingInflations();
+        assertThat(asyncViewInflater.pooled(R.layout.fragment_content)).isEqualTo(2);
+    }
+
+    @Test
+    public void preInflate_shouldNotExceedPoolSize() {
+        asyncViewInflater.preInflate(R.layout.fragment_content, 2);
+        asyncViewInflater.preInflate(R.layout.fragment_content, 2);
+        asyncViewInflater.preInflate(R.layout.fragment_content, 1);
+
+        assertThat(pendingInflations).hasSize(2);
+
+        runPendingInflations();
+        assertThat(asyncViewInflater.pooled(R.layout.fragment_content)).isEqualTo(2);
+    }
+
+    @Test
+    public void report_shouldContainCounters() {
+        asyncViewInflater.preInflate(R.layout.fragment_content, 1);
+        asyncViewInflater.obtain(R.layout.fragment_content, fallbackInflater, null);
+        runPendingInflations();
+        asyncViewInflater.obtain(R.layout.fragment_content, fallbackInflater, null);
+
+        assertThat(asyncViewInflater.report()).contains("fragment_content: 1 hits, 1 misses, 0/1 pooled");
+    }
+
+    private void runPendingInflations() {
+        List<Runnable> inflations = new ArrayList<>(pendingInflations);
+        pendingInflations.clear();
+
+        for (Runnable inflation : inflations) {
+            inflation.run();
+        }
+    }
+}
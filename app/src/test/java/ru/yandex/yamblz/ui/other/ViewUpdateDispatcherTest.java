@@ -0,0 +1,172 @@
+package ru.yandex.yamblz.ui.other;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowLooper;
+
+import ru.yandex.yamblz.YamblzRobolectricUnitTestRunner;
+import ru.yandex.yamblz.performance.AnyThread;
+import ru.yandex.yamblz.performance.ThreadContractTracker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(YamblzRobolectricUnitTestRunner.class)
+public class ViewUpdateDispatcherTest {
+
+    // Public: the tracker calls it by reflection from another package.
+    public interface TestView {
+
+        @AnyThread
+        void show(boolean value);
+    }
+
+    private ThreadContractTracker threadContractTracker;
+    private ViewUpdateDispatcher viewUpdateDispatcher;
+    private ViewUpdateDispatcher.Target target;
+
+    @Before
+    public void beforeEachTest() {
+        // Frame callbacks are run by hand.
+        ShadowLooper.pauseMainLooper();
+
+        threadContractTracker = new ThreadContractTracker();
+        viewUpdateDispatcher = new ViewUpdateDispatcher(new Handler(Looper.getMainLooper()), threadContractTracker);
+        target = mock(ViewUpdateDispatcher.Target.class);
+    }
+
+    @Test
+    public void dispatch_shouldNotApplyUpdatesBeforeFrame() {
+        viewUpdateDispatcher.dispatch(target, 1, true);
+        viewUpdateDispatcher.dispatch(target, 2, 42L);
+        viewUpdateDispatcher.dispatch(target, 3, "text");
+
+        verifyZeroInteractions(target);
+        assertThat(viewUpdateDispatcher.pendingCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void doFrame_shouldApplyAllUpdatesInOrder() {
+        viewUpdateDispatcher.dispatch(target, 1, true);
+        viewUpdateDispatcher.dispatch(target, 2, 42L);
+        viewUpdateDispatcher.dispatch(target, 3, "text");
+
+        viewUpdateDispatcher.doFrame(0);
+
+        verify(target).applyViewUpdate(1, 1, null);
+        verify(target).applyViewUpdate(2, 42, null);
+        verify(target).applyViewUpdate(3, 0, "text");
+        assertThat(viewUpdateDispatcher.pendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void dispatch_shouldCollapseUpdatesOfSameProperty() {
+        viewUpdateDispatcher.dispatch(target, 1, true);
+        viewUpdateDispatcher.dispatch(target, 1, false);
+        viewUpdateDispatcher.dispatch(target, 2, "first");
+        viewUpdateDispatcher.dispatch(target, 2, "second");
+
+        viewUpdateDispatcher.doFrame(0);
+
+        verify(target).applyViewUpdate(1, 0, null);
+        verify(target).applyViewUpdate(2, 0, "second");
+        verifyNoMoreInteractions(target);
+    }
+
+    @Test
+    public void dispatch_shouldNotCollapseUpdatesOfDifferentTargets() {
+        ViewUpdateDispatcher.Target otherTarget = mock(ViewUpdateDispatcher.Target.class);
+
+        viewUpdateDispatcher.dispatch(target, 1, true);
+        viewUpdateDispatcher.dispatch(otherTarget, 1, false);
+
+        viewUpdateDispatcher.doFrame(0);
+
+        verify(target).applyViewUpdate(1, 1, null);
+        verify(otherTarget).applyViewUpdate(1, 0, null);
+    }
+
+    @Test
+    public void cancel_shouldDropPendingUpdatesOfTarget() {
+        ViewUpdateDispatcher.Target otherTarget = mock(ViewUpdateDispatcher.Target.class);
+
+        viewUpdateDispatcher.dispatch(target, 1, true);
+        viewUpdateDispatcher.dispatch(otherTarget, 1, true);
+        viewUpdateDispatcher.cancel(target);
+
+        viewUpdateDispatcher.doFrame(0);
+
+        verifyZeroInteractions(target);
+        verify(otherTarget).applyViewUpdate(1, 1, null);
+    }
+
+    @Test
+    public void doFrame_shouldRecycleRecords() {
+        viewUpdateDispatcher.dispatch(target, 1, true);
+        viewUpdateDispatcher.dispatch(target, 2, true);
+        viewUpdateDispatcher.doFrame(0);
+
+        assertThat(viewUpdateDispatcher.pooledCount()).isEqualTo(2);
+
+        viewUpdateDispatcher.dispatch(target, 1, false);
+        assertThat(viewUpdateDispatcher.pooledCount()).isEqualTo(1);
+
+        viewUpdateDispatcher.doFrame(0);
+        assertThat(viewUpdateDispatcher.pooledCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void updatesDispatchedWhileApplying_shouldBeAppliedInNextFrame() {
+        ViewUpdateDispatcher.Target reentrantTarget = (property, value, objectValue) -> {
+            if (property == 1) {
+                viewUpdateDispatcher.dispatch(target, 2, true);
+            }
+        };
+
+        viewUpdateDispatcher.dispatch(reentrantTarget, 1, true);
+        viewUpdateDispatcher.doFrame(0);
+
+        verifyZeroInteractions(target);
+
+        viewUpdateDispatcher.doFrame(0);
+        verify(target, times(1)).applyViewUpdate(2, 1, null);
+    }
+
+    @Test
+    public void doFrame_shouldRecordHopOfUpdateQueuedByBackgroundCall() throws InterruptedException {
+        TestView view = threadContractTracker.wrap(TestView.class, value -> viewUpdateDispatcher.dispatch(target, 1, value));
+
+        Thread caller = new Thread(() -> view.show(true));
+        caller.start();
+        caller.join();
+
+        ThreadContractTracker.MethodStats stats = threadContractTracker.stats(TestView.class, "show");
+        assertThat(stats).isNotNull();
+        assertThat(stats.hops()).isEqualTo(0);
+
+        viewUpdateDispatcher.doFrame(0);
+
+        verify(target).applyViewUpdate(1, 1, null);
+        assertThat(stats.hops()).isEqualTo(1);
+    }
+
+    @Test
+    public void doFrame_shouldNotRecordHopOfUpdateQueuedOnMainThread() {
+        TestView view = threadContractTracker.wrap(TestView.class, value -> viewUpdateDispatcher.dispatch(target, 1, value));
+
+        view.show(true);
+        viewUpdateDispatcher.doFrame(0);
+
+        ThreadContractTracker.MethodStats stats = threadContractTracker.stats(TestView.class, "show");
+        assertThat(stats).isNotNull();
+        assertThat(stats.hops()).isEqualTo(0);
+    }
+}
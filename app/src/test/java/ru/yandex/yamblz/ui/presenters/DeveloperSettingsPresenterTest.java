@@ -2,12 +2,26 @@ package ru.yandex.yamblz.ui.presenters;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
 
+import java.io.File;
+
+import ru.yandex.yamblz.developer_settings.DeveloperSettings;
 import ru.yandex.yamblz.developer_settings.DeveloperSettingsModelImpl;
+import ru.yandex.yamblz.developer_settings.StrictModeProxy;
+import ru.yandex.yamblz.performance.InstanceTracker;
+import ru.yandex.yamblz.performance.MemorySampler;
 import ru.yandex.yamblz.ui.views.DeveloperSettingsView;
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -16,14 +30,21 @@ import static org.mockito.Mockito.when;
 public class DeveloperSettingsPresenterTest {
 
     private DeveloperSettingsModelImpl developerSettingsModel;
+    private InstanceTracker instanceTracker;
     private DeveloperSettingsPresenter developerSettingsPresenter;
     private DeveloperSettingsView developerSettingsView;
 
     @Before
     public void beforeEachTest() {
         developerSettingsModel = mock(DeveloperSettingsModelImpl.class);
-        developerSettingsPresenter = new DeveloperSettingsPresenter(developerSettingsModel);
+        instanceTracker = mock(InstanceTracker.class);
+        developerSettingsPresenter = new DeveloperSettingsPresenter(developerSettingsModel, instanceTracker);
         developerSettingsView = mock(DeveloperSettingsView.class);
+
+        // Tools are switched in background, here they are switched right away.
+        doAnswer(DeveloperSettingsPresenterTest::runOnApplied).when(developerSettingsModel).changeStethoState(anyBoolean(), any(Runnable.class));
+        doAnswer(DeveloperSettingsPresenterTest::runOnApplied).when(developerSettingsModel).changeLeakCanaryState(anyBoolean(), any(Runnable.class));
+        doAnswer(DeveloperSettingsPresenterTest::runOnApplied).when(developerSettingsModel).changeTinyDancerState(anyBoolean(), any(Runnable.class));
     }
 
     @Test
@@ -119,7 +140,7 @@ public class DeveloperSettingsPresenterTest {
         developerSettingsPresenter.bindView(developerSettingsView);
         developerSettingsPresenter.changeStethoState(true);
 
-        verify(developerSettingsModel, never()).changeStethoState(anyBoolean());
+        verify(developerSettingsModel, never()).changeStethoState(anyBoolean(), any(Runnable.class));
         verify(developerSettingsView, never()).showMessage(anyString());
         verify(developerSettingsView, never()).showAppNeedsToBeRestarted();
     }
@@ -131,7 +152,7 @@ public class DeveloperSettingsPresenterTest {
         developerSettingsPresenter.bindView(developerSettingsView);
         developerSettingsPresenter.changeStethoState(false);
 
-        verify(developerSettingsModel, never()).changeStethoState(anyBoolean());
+        verify(developerSettingsModel, never()).changeStethoState(anyBoolean(), any(Runnable.class));
         verify(developerSettingsView, never()).showMessage(anyString());
         verify(developerSettingsView, never()).showAppNeedsToBeRestarted();
     }
@@ -141,30 +162,32 @@ public class DeveloperSettingsPresenterTest {
         developerSettingsPresenter.bindView(developerSettingsView);
 
         developerSettingsPresenter.changeStethoState(true);
-        verify(developerSettingsModel).changeStethoState(true);
+        verify(developerSettingsModel).changeStethoState(eq(true), any(Runnable.class));
         verify(developerSettingsView).showMessage("Stetho was enabled");
         verify(developerSettingsView, never()).showAppNeedsToBeRestarted();
     }
 
     @Test
-    public void changeStethoState_shouldDisableStethoAndNotifyView() {
+    public void changeStethoState_shouldDisableStethoAndNotifyViewWithoutRestartIfStethoDoesNotRun() {
         developerSettingsPresenter.bindView(developerSettingsView);
 
         when(developerSettingsModel.isStethoEnabled()).thenReturn(true);
+        when(developerSettingsModel.isStethoRunning()).thenReturn(false);
         developerSettingsPresenter.changeStethoState(false);
-        verify(developerSettingsModel).changeStethoState(false);
+        verify(developerSettingsModel).changeStethoState(eq(false), any(Runnable.class));
         verify(developerSettingsView).showMessage("Stetho was disabled");
-        verify(developerSettingsView).showAppNeedsToBeRestarted();
+        verify(developerSettingsView, never()).showAppNeedsToBeRestarted();
     }
 
     @Test
-    public void changeStethoState_shouldDisableStethoAndNotifyViewAndAskAppRestartIfStethoWasAlreadyEnabled() {
+    public void changeStethoState_shouldDisableStethoAndNotifyViewAndAskAppRestartIfStethoRuns() {
         developerSettingsPresenter.bindView(developerSettingsView);
 
         when(developerSettingsModel.isStethoEnabled()).thenReturn(true);
+        when(developerSettingsModel.isStethoRunning()).thenReturn(true);
 
         developerSettingsPresenter.changeStethoState(false);
-        verify(developerSettingsModel).changeStethoState(false);
+        verify(developerSettingsModel).changeStethoState(eq(false), any(Runnable.class));
         verify(developerSettingsView).showMessage("Stetho was disabled");
 
         verify(developerSettingsView).showAppNeedsToBeRestarted();
@@ -177,7 +200,7 @@ public class DeveloperSettingsPresenterTest {
         developerSettingsPresenter.bindView(developerSettingsView);
         developerSettingsPresenter.changeLeakCanaryState(true);
 
-        verify(developerSettingsModel, never()).changeLeakCanaryState(anyBoolean());
+        verify(developerSettingsModel, never()).changeLeakCanaryState(anyBoolean(), any(Runnable.class));
         verify(developerSettingsView, never()).showMessage(anyString());
         verify(developerSettingsView, never()).showAppNeedsToBeRestarted();
     }
@@ -189,7 +212,7 @@ public class DeveloperSettingsPresenterTest {
         developerSettingsPresenter.bindView(developerSettingsView);
         developerSettingsPresenter.changeLeakCanaryState(false);
 
-        verify(developerSettingsModel, never()).changeLeakCanaryState(anyBoolean());
+        verify(developerSettingsModel, never()).changeLeakCanaryState(anyBoolean(), any(Runnable.class));
         verify(developerSettingsView, never()).showMessage(anyString());
         verify(developerSettingsView, never()).showAppNeedsToBeRestarted();
     }
@@ -199,9 +222,9 @@ public class DeveloperSettingsPresenterTest {
         developerSettingsPresenter.bindView(developerSettingsView);
 
         developerSettingsPresenter.changeLeakCanaryState(true);
-        verify(developerSettingsModel).changeLeakCanaryState(true);
+        verify(developerSettingsModel).changeLeakCanaryState(eq(true), any(Runnable.class));
         verify(developerSettingsView).showMessage("LeakCanary was enabled");
-        verify(developerSettingsView).showAppNeedsToBeRestarted();
+        verify(developerSettingsView, never()).showAppNeedsToBeRestarted();
     }
 
     @Test
@@ -211,9 +234,9 @@ public class DeveloperSettingsPresenterTest {
         when(developerSettingsModel.isLeakCanaryEnabled()).thenReturn(true);
 
         developerSettingsPresenter.changeLeakCanaryState(false);
-        verify(developerSettingsModel).changeLeakCanaryState(false);
+        verify(developerSettingsModel).changeLeakCanaryState(eq(false), any(Runnable.class));
         verify(developerSettingsView).showMessage("LeakCanary was disabled");
-        verify(developerSettingsView).showAppNeedsToBeRestarted();
+        verify(developerSettingsView, never()).showAppNeedsToBeRestarted();
     }
 
     @Test
@@ -223,7 +246,7 @@ public class DeveloperSettingsPresenterTest {
         developerSettingsPresenter.bindView(developerSettingsView);
         developerSettingsPresenter.changeTinyDancerState(true);
 
-        verify(developerSettingsModel, never()).changeTinyDancerState(anyBoolean());
+        verify(developerSettingsModel, never()).changeTinyDancerState(anyBoolean(), any(Runnable.class));
         verify(developerSettingsView, never()).showMessage(anyString());
         verify(developerSettingsView, never()).showAppNeedsToBeRestarted();
     }
@@ -235,7 +258,7 @@ public class DeveloperSettingsPresenterTest {
         developerSettingsPresenter.bindView(developerSettingsView);
         developerSettingsPresenter.changeTinyDancerState(false);
 
-        verify(developerSettingsModel, never()).changeTinyDancerState(anyBoolean());
+        verify(developerSettingsModel, never()).changeTinyDancerState(anyBoolean(), any(Runnable.class));
         verify(developerSettingsView, never()).showMessage(anyString());
         verify(developerSettingsView, never()).showAppNeedsToBeRestarted();
     }
@@ -245,7 +268,7 @@ public class DeveloperSettingsPresenterTest {
         developerSettingsPresenter.bindView(developerSettingsView);
 
         developerSettingsPresenter.changeTinyDancerState(true);
-        verify(developerSettingsModel).changeTinyDancerState(true);
+        verify(developerSettingsModel).changeTinyDancerState(eq(true), any(Runnable.class));
         verify(developerSettingsView).showMessage("TinyDancer was enabled");
         verify(developerSettingsView, never()).showAppNeedsToBeRestarted();
     }
@@ -256,9 +279,301 @@ public class DeveloperSettingsPresenterTest {
         developerSettingsPresenter.bindView(developerSettingsView);
 
         developerSettingsPresenter.changeTinyDancerState(false);
-        verify(developerSettingsModel).changeTinyDancerState(false);
+        verify(developerSettingsModel).changeTinyDancerState(eq(false), any(Runnable.class));
         verify(developerSettingsView).showMessage("TinyDancer was disabled");
         verify(developerSettingsView, never()).showAppNeedsToBeRestarted();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void bindView_shouldSendFrameTimeRecorderStateAndReportToTheView() {
+        when(developerSettingsModel.isFrameTimeRecorderEnabled()).thenReturn(true);
+        when(developerSettingsModel.getFrameTimeReport()).thenReturn("test report");
+
+        developerSettingsPresenter.bindView(developerSettingsView);
+        verify(developerSettingsView).changeFrameTimeRecorderState(true);
+        verify(developerSettingsView).changeFrameTimeReport("test report");
+    }
+
+    @Test
+    public void changeFrameTimeRecorderState_shouldEnableRecorderAndNotifyView() {
+        developerSettingsPresenter.bindView(developerSettingsView);
+
+        developerSettingsPresenter.changeFrameTimeRecorderState(true);
+        verify(developerSettingsModel).changeFrameTimeRecorderState(true);
+        verify(developerSettingsView).showMessage("Frame time recorder was enabled");
+        verify(developerSettingsView, never()).showAppNeedsToBeRestarted();
+    }
+
+    @Test
+    public void resetFrameTimeReport_shouldResetModelAndSendNewReportToTheView() {
+        developerSettingsPresenter.bindView(developerSettingsView);
+        when(developerSettingsModel.getFrameTimeReport()).thenReturn("empty report");
+
+        developerSettingsPresenter.resetFrameTimeReport();
+        verify(developerSettingsModel).resetFrameTimeReport();
+        verify(developerSettingsView).changeFrameTimeReport("empty report");
+    }
+
+    @Test
+    public void changeBlockDetectorState_shouldEnableDetectorAndNotifyView() {
+        developerSettingsPresenter.bindView(developerSettingsView);
+
+        developerSettingsPresenter.changeBlockDetectorState(true);
+        verify(developerSettingsModel).changeBlockDetectorState(true);
+        verify(developerSettingsView).showMessage("Block detector was enabled");
+        verify(developerSettingsView, never()).showAppNeedsToBeRestarted();
+    }
+
+    @Test
+    public void changeBlockDetectorThreshold_shouldNoOpIfThresholdIsSame() {
+        when(developerSettingsModel.getBlockDetectorThresholdMs()).thenReturn(100L);
+
+        developerSettingsPresenter.changeBlockDetectorThreshold(100);
+        verify(developerSettingsModel, never()).changeBlockDetectorThresholdMs(anyLong());
+
+        developerSettingsPresenter.changeBlockDetectorThreshold(250);
+        verify(developerSettingsModel).changeBlockDetectorThresholdMs(250);
+    }
+
+    @Test
+    public void changeMemorySamplerState_shouldEnableSamplerAndNotifyView() {
+        developerSettingsPresenter.bindView(developerSettingsView);
+
+        developerSettingsPresenter.changeMemorySamplerState(true);
+        verify(developerSettingsModel).changeMemorySamplerState(true);
+        verify(developerSettingsView).showMessage("Memory sampler was enabled");
+    }
+
+    @Test
+    public void changeMemorySamplerInterval_shouldNoOpIfIntervalIsSame() {
+        when(developerSettingsModel.getMemorySamplerIntervalMs()).thenReturn(1_000L);
+
+        developerSettingsPresenter.changeMemorySamplerInterval(1_000);
+        verify(developerSettingsModel, never()).changeMemorySamplerIntervalMs(anyLong());
+
+        developerSettingsPresenter.changeMemorySamplerInterval(250);
+        verify(developerSettingsModel).changeMemorySamplerIntervalMs(250);
+    }
+
+    @Test
+    public void refreshMemoryReport_shouldSendFreshReportToTheView() {
+        when(developerSettingsModel.getMemoryReport()).thenReturn("No samples recorded");
+        developerSettingsPresenter.bindView(developerSettingsView);
+        verify(developerSettingsView).changeMemoryReport("No samples recorded");
+
+        when(developerSettingsModel.getMemoryReport()).thenReturn("2 samples over 1 s");
+        developerSettingsPresenter.refreshMemoryReport();
+        verify(developerSettingsView).changeMemoryReport("2 samples over 1 s");
+    }
+
+    @Test
+    public void memorySamples_shouldBeStreamedToTheViewWhileItIsBound() {
+        MemorySampler.Listener viewListener = mock(MemorySampler.Listener.class);
+        when(developerSettingsView.memorySampleListener()).thenReturn(viewListener);
+
+        developerSettingsPresenter.bindView(developerSettingsView);
+        verify(developerSettingsModel).addMemorySampleListener(viewListener);
+
+        developerSettingsPresenter.unbindView(developerSettingsView);
+        verify(developerSettingsModel).removeMemorySampleListener(viewListener);
+    }
+
+    @Test
+    public void exportMemorySamples_shouldTellWhereSamplesWereExported() {
+        doAnswer(invocation -> {
+            ((DeveloperSettingsModelImpl.ExportCallback) invocation.getArguments()[0]).onExported(new File("memory_samples.bin"));
+            return null;
+        }).when(developerSettingsModel).exportMemorySamples(any(DeveloperSettingsModelImpl.ExportCallback.class));
+        developerSettingsPresenter.bindView(developerSettingsView);
+
+        developerSettingsPresenter.exportMemorySamples();
+        verify(developerSettingsView).showMessage("Memory samples were exported to memory_samples.bin");
+    }
+
+    @Test
+    public void changeMethodTracingState_shouldEnableTracingAndNotifyView() {
+        developerSettingsPresenter.bindView(developerSettingsView);
+
+        developerSettingsPresenter.changeMethodTracingState(true);
+        verify(developerSettingsModel).changeMethodTracingState(true);
+        verify(developerSettingsView).showMessage("Method tracing was enabled");
+    }
+
+    @Test
+    public void changeJankTraceFrames_shouldWarnIfFrameTimeRecorderIsDisabled() {
+        when(developerSettingsModel.isFrameTimeRecorderEnabled()).thenReturn(false);
+        developerSettingsPresenter.bindView(developerSettingsView);
+
+        developerSettingsPresenter.changeJankTraceFrames(5);
+        verify(developerSettingsModel).changeJankTraceFrames(5);
+        verify(developerSettingsView).showMessage("Janky frames are only seen while frame time recorder is enabled");
+    }
+
+    @Test
+    public void refreshMethodTracingReport_shouldSendFreshReportToTheView() {
+        when(developerSettingsModel.getMethodTracingReport()).thenReturn("No traces");
+        when(developerSettingsModel.getStrictModeReport()).thenReturn("No violations");
+        developerSettingsPresenter.bindView(developerSettingsView);
+        verify(developerSettingsView).changeMethodTracingReport("No traces");
+
+        when(developerSettingsModel.getMethodTracingReport()).thenReturn("20261019-120000-000.trace, 5120 KB");
+        developerSettingsPresenter.refreshMethodTracingReport();
+        verify(developerSettingsView).changeMethodTracingReport("20261019-120000-000.trace, 5120 KB");
+        // Only bindView sends StrictMode state, refreshing traces must not reset it.
+        verify(developerSettingsView).changeStrictModeProfile(anyInt());
+        verify(developerSettingsView).changeStrictModeReport("No violations");
+    }
+
+    @Test
+    public void changeStrictModeProfile_shouldNoOpIfProfileIsTheSame() {
+        when(developerSettingsModel.getStrictModeProfile()).thenReturn(StrictModeProxy.PROFILE_DISK);
+        developerSettingsPresenter.bindView(developerSettingsView);
+
+        developerSettingsPresenter.changeStrictModeProfile(StrictModeProxy.PROFILE_DISK);
+        verify(developerSettingsModel, never()).changeStrictModeProfile(anyInt());
+    }
+
+    @Test
+    public void changeStrictModeProfile_shouldChangeProfileAndShowMessage() {
+        when(developerSettingsModel.getStrictModeProfile()).thenReturn(StrictModeProxy.PROFILE_OFF);
+        developerSettingsPresenter.bindView(developerSettingsView);
+
+        developerSettingsPresenter.changeStrictModeProfile(StrictModeProxy.PROFILE_ALL);
+        verify(developerSettingsModel).changeStrictModeProfile(StrictModeProxy.PROFILE_ALL);
+        verify(developerSettingsView).showMessage("StrictMode was enabled");
+    }
+
+    @Test
+    public void resetStrictModeReport_shouldResetAndSendFreshReportToTheView() {
+        when(developerSettingsModel.getStrictModeReport()).thenReturn("3x DiskReadViolation");
+        developerSettingsPresenter.bindView(developerSettingsView);
+        verify(developerSettingsView).changeStrictModeReport("3x DiskReadViolation");
+
+        when(developerSettingsModel.getStrictModeReport()).thenReturn("No violations");
+        developerSettingsPresenter.resetStrictModeReport();
+        verify(developerSettingsModel).resetStrictModeReport();
+        verify(developerSettingsView).changeStrictModeReport("No violations");
+    }
+
+    @Test
+    public void bindView_shouldSubscribeToSettingsChangesAndUnbindViewShouldUnsubscribe() {
+        developerSettingsPresenter.bindView(developerSettingsView);
+        ArgumentCaptor<DeveloperSettings.Listener> listener = ArgumentCaptor.forClass(DeveloperSettings.Listener.class);
+        verify(developerSettingsModel).addSettingsListener(listener.capture());
+
+        developerSettingsPresenter.unbindView(developerSettingsView);
+        verify(developerSettingsModel).removeSettingsListener(listener.getValue());
+    }
+
+    @Test
+    public void settingsChange_shouldBeSentToTheView() {
+        developerSettingsPresenter.bindView(developerSettingsView);
+        ArgumentCaptor<DeveloperSettings.Listener> listener = ArgumentCaptor.forClass(DeveloperSettings.Listener.class);
+        verify(developerSettingsModel).addSettingsListener(listener.capture());
+
+        listener.getValue().onDeveloperSettingsChanged(new DeveloperSettings.Snapshot.Builder()
+                .setStethoEnabled(true)
+                .setTinyDancerEnabled(true)
+                .setBlockDetectorEnabled(true)
+                .setBlockDetectorThresholdMs(250)
+                .setMemorySamplerEnabled(true)
+                .setMemorySamplerIntervalMs(500)
+                .setMethodTracingEnabled(true)
+                .setMethodTracingIntervalUs(100)
+                .setMethodTracingBufferSizeMb(16)
+                .setJankTraceFrames(3)
+                .setStrictModeProfile(StrictModeProxy.PROFILE_ALL)
+                .build());
+
+        verify(developerSettingsView).changeStethoState(true);
+        verify(developerSettingsView).changeTinyDancerState(true);
+        verify(developerSettingsView).changeBlockDetectorState(true);
+        verify(developerSettingsView).changeBlockDetectorThreshold(250);
+        verify(developerSettingsView).changeMemorySamplerState(true);
+        verify(developerSettingsView).changeMemorySamplerInterval(500);
+        verify(developerSettingsView).changeMethodTracingState(true);
+        verify(developerSettingsView).changeMethodTracingInterval(100);
+        verify(developerSettingsView).changeMethodTracingBufferSize(16);
+        verify(developerSettingsView).changeJankTraceFrames(3);
+        verify(developerSettingsView).changeStrictModeProfile(StrictModeProxy.PROFILE_ALL);
+    }
+
+    @Test
+    public void persistSettings_shouldPersistModelSettings() {
+        developerSettingsPresenter.persistSettings();
+        verify(developerSettingsModel).persistSettings();
+    }
+
+    @Test
+    public void bindView_shouldSendExecutorsReportToTheView() {
+        when(developerSettingsModel.getExecutorsReport()).thenReturn("io: 1 tasks");
+
+        developerSettingsPresenter.bindView(developerSettingsView);
+        verify(developerSettingsView).changeExecutorsReport("io: 1 tasks");
+    }
+
+    @Test
+    public void refreshExecutorsReport_shouldSendFreshReportToTheView() {
+        when(developerSettingsModel.getExecutorsReport()).thenReturn("io: 1 tasks");
+        developerSettingsPresenter.bindView(developerSettingsView);
+
+        when(developerSettingsModel.getExecutorsReport()).thenReturn("io: 2 tasks");
+        developerSettingsPresenter.refreshExecutorsReport();
+        verify(developerSettingsView).changeExecutorsReport("io: 2 tasks");
+    }
+
+    @Test
+    public void changeStethoState_shouldNotifyViewOnlyAfterStethoIsSwitched() {
+        ArgumentCaptor<Runnable> onApplied = ArgumentCaptor.forClass(Runnable.class);
+        doNothing().when(developerSettingsModel).changeStethoState(anyBoolean(), any(Runnable.class));
+        developerSettingsPresenter.bindView(developerSettingsView);
+
+        developerSettingsPresenter.changeStethoState(true);
+        verify(developerSettingsModel).changeStethoState(eq(true), onApplied.capture());
+        verify(developerSettingsView, never()).showMessage(anyString());
+
+        onApplied.getValue().run();
+        verify(developerSettingsView).showMessage("Stetho was enabled");
+    }
+
+    @Test
+    public void changeLeakCanaryState_shouldNotNotifyViewIfItWasUnboundBeforeLeakCanaryIsSwitched() {
+        ArgumentCaptor<Runnable> onApplied = ArgumentCaptor.forClass(Runnable.class);
+        doNothing().when(developerSettingsModel).changeLeakCanaryState(anyBoolean(), any(Runnable.class));
+        developerSettingsPresenter.bindView(developerSettingsView);
+
+        developerSettingsPresenter.changeLeakCanaryState(true);
+        verify(developerSettingsModel).changeLeakCanaryState(eq(true), onApplied.capture());
+
+        developerSettingsPresenter.unbindView(developerSettingsView);
+        onApplied.getValue().run();
+        verify(developerSettingsView, never()).showMessage(anyString());
+    }
+
+    @Test
+    public void refreshThreadContractsReport_shouldSendFreshReportToTheView() {
+        when(developerSettingsModel.getThreadContractsReport()).thenReturn("No calls yet");
+        developerSettingsPresenter.bindView(developerSettingsView);
+        verify(developerSettingsView).changeThreadContractsReport("No calls yet");
+
+        when(developerSettingsModel.getThreadContractsReport()).thenReturn("DeveloperSettingsView.showMessage: 1 main");
+        developerSettingsPresenter.refreshThreadContractsReport();
+        verify(developerSettingsView).changeThreadContractsReport("DeveloperSettingsView.showMessage: 1 main");
+    }
+
+    @Test
+    public void refreshInstancesReport_shouldSendFreshReportToTheView() {
+        when(instanceTracker.report()).thenReturn("Nothing is tracked yet");
+        developerSettingsPresenter.bindView(developerSettingsView);
+        verify(developerSettingsView).changeInstancesReport("Nothing is tracked yet");
+
+        when(instanceTracker.report()).thenReturn("DeveloperSettingsFragment: 1 live (max 1)");
+        developerSettingsPresenter.refreshInstancesReport();
+        verify(developerSettingsView).changeInstancesReport("DeveloperSettingsFragment: 1 live (max 1)");
+    }
+
+    private static Object runOnApplied(InvocationOnMock invocation) {
+        ((Runnable) invocation.getArguments()[1]).run();
+        return null;
+    }
+}
@@ -0,0 +1,105 @@
+package ru.yandex.yamblz.ui.presenters;
+
+import android.os.Handler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ru.yandex.yamblz.logging.LogFilter;
+import ru.yandex.yamblz.logging.LogIndex;
+import ru.yandex.yamblz.performance.InstanceTracker;
+import ru.yandex.yamblz.ui.views.LogViewerView;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LogViewerPresenterTest {
+
+    private LogIndex logIndex;
+    private Handler mainThreadHandler;
+    private LogViewerPresenter logViewerPresenter;
+    private LogViewerView logViewerView;
+
+    @Before
+    public void beforeEachTest() {
+        logIndex = mock(LogIndex.class);
+        mainThreadHandler = mock(Handler.class);
+        logViewerView = mock(LogViewerView.class);
+
+        when(logIndex.tags()).thenReturn(asList("main", "io-1"));
+
+        // The first refresh runs right away, periodic ones are not scheduled.
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[0]).run();
+            return true;
+        }).when(mainThreadHandler).post(any(Runnable.class));
+
+        logViewerPresenter = new LogViewerPresenter(logIndex, Runnable::run, mainThreadHandler, mock(InstanceTracker.class));
+    }
+
+    @Test
+    public void bindView_shouldShowEntriesAndTags() {
+        logViewerPresenter.bindView(logViewerView);
+
+        verify(logViewerView).changeEntries(any(LogFilter.Result.class));
+        verify(logViewerView).changeTags(asList("main", "io-1"));
+    }
+
+    @Test
+    public void changeText_shouldShowEntriesForNewQuery() {
+        logViewerPresenter.bindView(logViewerView);
+        logViewerPresenter.changeText("Stetho");
+
+        ArgumentCaptor<LogFilter.Result> entriesCaptor = ArgumentCaptor.forClass(LogFilter.Result.class);
+        verify(logViewerView, times(2)).changeEntries(entriesCaptor.capture());
+
+        List<LogFilter.Result> shownEntries = entriesCaptor.getAllValues();
+        assertThat(shownEntries.get(1).query().text()).isEqualTo("stetho");
+    }
+
+    @Test
+    public void changeText_shouldNotRefilterSameQuery() {
+        logViewerPresenter.bindView(logViewerView);
+        logViewerPresenter.changeText("");
+
+        verify(logViewerView).changeEntries(any(LogFilter.Result.class));
+    }
+
+    @Test
+    public void shouldKeepAtMostOneRefreshPending() {
+        List<Runnable> pendingTasks = new ArrayList<>();
+        logViewerPresenter = new LogViewerPresenter(logIndex, pendingTasks::add, mainThreadHandler, mock(InstanceTracker.class));
+        logViewerPresenter.bindView(logViewerView);
+
+        // Reset of the shown state and the first refresh.
+        while (!pendingTasks.isEmpty()) {
+            pendingTasks.remove(0).run();
+        }
+
+        logViewerPresenter.changeText("Stetho");
+        logViewerPresenter.changeText("Stetho failed");
+        assertThat(pendingTasks).hasSize(1);
+
+        pendingTasks.remove(0).run();
+        logViewerPresenter.changeText("Stetho started");
+        assertThat(pendingTasks).hasSize(1);
+    }
+
+    @Test
+    public void unbindView_shouldStopRefreshing() {
+        logViewerPresenter.bindView(logViewerView);
+        logViewerPresenter.unbindView(logViewerView);
+
+        verify(mainThreadHandler).removeCallbacks(any(Runnable.class));
+    }
+}
@@ -3,17 +3,21 @@ package ru.yandex.yamblz.ui.presenters;
 import org.junit.Before;
 import org.junit.Test;
 
+import ru.yandex.yamblz.performance.InstanceTracker;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
 
 public class PresenterTest {
+    private InstanceTracker instanceTracker;
     private Presenter<Object> presenter;
     private Object view;
 
     @Before
     public void beforeEachTest() {
         view = new Object();
-        presenter = new Presenter<>();
+        instanceTracker = new InstanceTracker();
+        presenter = new Presenter<>(instanceTracker);
     }
 
     @Test
@@ -48,6 +52,21 @@ public class PresenterTest {
         assertThat(presenter.view()).isNull();
     }
 
+    @Test
+    public void unbindView_shouldTrackUnboundView() {
+        presenter.bindView(view);
+        assertThat(instanceTracker.liveCount(Object.class)).isEqualTo(0);
+
+        presenter.unbindView(view);
+        assertThat(instanceTracker.liveCount(Object.class)).isEqualTo(1);
+    }
+
+    @Test
+    public void destroy_shouldTrackPresenter() {
+        presenter.destroy();
+        assertThat(instanceTracker.liveCount(Presenter.class)).isEqualTo(1);
+    }
+
     @Test
     public void unbindView_shouldThrowIfPreviousViewIsNotSameAsExpected() {
         presenter.bindView(view);
@@ -0,0 +1,138 @@
+package ru.yandex.yamblz.startup.trace;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Single cold start trace and its compact binary format, shared by the app which writes traces
+ * and {@link StartupTraceTool} which analyzes them.
+ * <p>
+ * Format (big endian): magic int, version byte, wall clock millis long, events count byte,
+ * then for each event: event id byte and offset from the first event in microseconds int.
+ */
+public final class StartupTrace {
+
+    public static final String FILE_SUFFIX = ".trace";
+
+    public static final int APP_ATTACH = 0;
+    public static final int APP_ON_CREATE = 1;
+    public static final int APPLICATION_COMPONENT_BUILT = 2;
+    public static final int APP_ON_CREATE_END = 3;
+    public static final int MAIN_ACTIVITY_ON_CREATE = 4;
+    public static final int MAIN_ACTIVITY_INFLATED = 5;
+    public static final int MAIN_ACTIVITY_VIEW_MODIFIED = 6;
+    public static final int CONTENT_FRAGMENT_COMMITTED = 7;
+    public static final int FIRST_DRAW = 8;
+
+    public static final int EVENTS_COUNT = 9;
+
+    private static final String[] EVENT_NAMES = {
+            "App.attachBaseContext",
+            "App.onCreate",
+            "ApplicationComponent built",
+            "App.onCreate end",
+            "MainActivity.onCreate",
+            "activity_main inflated",
+            "ViewModifier.modify done",
+            "ContentFragment committed",
+            "First draw",
+    };
+
+    private static final int MAGIC = 0x59535452; // "YSTR".
+    private static final byte VERSION = 1;
+    private static final long NANOS_IN_MICRO = 1000;
+
+    private final long wallClockMillis;
+    private final int[] events;
+    private final long[] offsetsMicros;
+
+    public StartupTrace(long wallClockMillis, int[] events, long[] offsetsMicros) {
+        if (events.length != offsetsMicros.length) {
+            throw new IllegalArgumentException("Events and offsets should have same length");
+        }
+
+        this.wallClockMillis = wallClockMillis;
+        this.events = events.clone();
+        this.offsetsMicros = offsetsMicros.clone();
+    }
+
+    public static String eventName(int event) {
+        return event >= 0 && event < EVENTS_COUNT ? EVENT_NAMES[event] : "Unknown event " + event;
+    }
+
+    /**
+     * Writes first {@code count} events, timestamps are monotonic nanos and are stored relative to the first one.
+     * Arrays are not copied, so the writer can reuse preallocated buffers.
+     */
+    public static void write(DataOutput output, long wallClockMillis, int[] events, long[] timestampsNanos, int count) throws IOException {
+        if (count > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many events: " + count);
+        }
+
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeLong(wallClockMillis);
+        output.writeByte(count);
+
+        for (int i = 0; i < count; i++) {
+            output.writeByte(events[i]);
+            output.writeInt((int) ((timestampsNanos[i] - timestampsNanos[0]) / NANOS_IN_MICRO));
+        }
+    }
+
+    public static StartupTrace read(DataInput input) throws IOException {
+        final int magic = input.readInt();
+
+        if (magic != MAGIC) {
+            throw new IOException("Not a startup trace, magic = " + Integer.toHexString(magic));
+        }
+
+        final byte version = input.readByte();
+
+        if (version != VERSION) {
+            throw new IOException("Unsupported startup trace version " + version);
+        }
+
+        final long wallClockMillis = input.readLong();
+        final int count = input.readByte();
+        final int[] events = new int[count];
+        final long[] offsetsMicros = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            events[i] = input.readByte();
+            offsetsMicros[i] = input.readInt();
+        }
+
+        return new StartupTrace(wallClockMillis, events, offsetsMicros);
+    }
+
+    public long wallClockMillis() {
+        return wallClockMillis;
+    }
+
+    public int eventsCount() {
+        return events.length;
+    }
+
+    public int event(int index) {
+        return events[index];
+    }
+
+    public long offsetMicros(int index) {
+        return offsetsMicros[index];
+    }
+
+    /**
+     * @return offset of the first occurrence of the event or -1 if trace does not contain it.
+     */
+    public long offsetMicrosOf(int event) {
+        for (int i = 0; i < events.length; i++) {
+            if (events[i] == event) {
+                return offsetsMicros[i];
+            }
+        }
+
+        return -1;
+    }
+}
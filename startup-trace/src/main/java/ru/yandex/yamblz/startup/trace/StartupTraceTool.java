@@ -0,0 +1,157 @@
+package ru.yandex.yamblz.startup.trace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Command line tool which turns startup traces pulled from devices into a timeline and summary statistics.
+ * <p>
+ * Usage: {@code StartupTraceTool <trace file or directory>...}, traces are stored by the app in
+ * {@code files/startup_traces}, pull them with {@code adb pull /data/data/ru.yandex.yamblz.debug/files/startup_traces}.
+ */
+public final class StartupTraceTool {
+
+    private static final double MICROS_IN_MILLI = 1000d;
+
+    private StartupTraceTool() {
+        throw new IllegalStateException("No instances please");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: StartupTraceTool <trace file or directory>...");
+            System.exit(1);
+        }
+
+        final List<StartupTrace> traces = new ArrayList<>();
+
+        for (String arg : args) {
+            readTraces(new File(arg), traces);
+        }
+
+        System.out.print(analyze(traces));
+    }
+
+    static void readTraces(File file, List<StartupTrace> traces) throws IOException {
+        if (file.isDirectory()) {
+            final File[] children = file.listFiles();
+
+            if (children != null) {
+                Arrays.sort(children);
+
+                for (File child : children) {
+                    if (child.getName().endsWith(StartupTrace.FILE_SUFFIX)) {
+                        readTraces(child, traces);
+                    }
+                }
+            }
+
+            return;
+        }
+
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        try {
+            traces.add(StartupTrace.read(input));
+        } catch (IOException e) {
+            System.err.println("Skipping " + file + ": " + e.getMessage());
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * @return timeline of events (offsets from the process start) and durations of the phases between them,
+     * both as min / median / p90 / max / mean over all traces.
+     */
+    static String analyze(List<StartupTrace> traces) {
+        final StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.US, "%d startup traces%n", traces.size()));
+
+        if (traces.isEmpty()) {
+            return report.toString();
+        }
+
+        report.append(String.format(Locale.US, "%nTimeline, ms from %s:%n", StartupTrace.eventName(StartupTrace.APP_ATTACH)));
+        appendHeader(report);
+
+        for (int event = 0; event < StartupTrace.EVENTS_COUNT; event++) {
+            final long[] offsets = new long[traces.size()];
+            int count = 0;
+
+            for (StartupTrace trace : traces) {
+                final long offset = trace.offsetMicrosOf(event);
+
+                if (offset >= 0) {
+                    offsets[count++] = offset;
+                }
+            }
+
+            appendRow(report, StartupTrace.eventName(event), offsets, count);
+        }
+
+        report.append(String.format(Locale.US, "%nPhases, ms:%n"));
+        appendHeader(report);
+
+        for (int event = 1; event < StartupTrace.EVENTS_COUNT; event++) {
+            final long[] durations = new long[traces.size()];
+            int count = 0;
+
+            for (StartupTrace trace : traces) {
+                final long start = trace.offsetMicrosOf(event - 1);
+                final long end = trace.offsetMicrosOf(event);
+
+                if (start >= 0 && end >= 0) {
+                    durations[count++] = end - start;
+                }
+            }
+
+            appendRow(report, "-> " + StartupTrace.eventName(event), durations, count);
+        }
+
+        return report.toString();
+    }
+
+    private static void appendHeader(StringBuilder report) {
+        report.append(String.format(Locale.US, "%-32s %5s %9s %9s %9s %9s %9s%n", "", "runs", "min", "median", "p90", "max", "mean"));
+    }
+
+    private static void appendRow(StringBuilder report, String title, long[] values, int count) {
+        if (count == 0) {
+            report.append(String.format(Locale.US, "%-32s %5d%n", title, 0));
+            return;
+        }
+
+        Arrays.sort(values, 0, count);
+
+        long sum = 0;
+
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+
+        report.append(String.format(Locale.US, "%-32s %5d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                title,
+                count,
+                values[0] / MICROS_IN_MILLI,
+                percentile(values, count, 50) / MICROS_IN_MILLI,
+                percentile(values, count, 90) / MICROS_IN_MILLI,
+                values[count - 1] / MICROS_IN_MILLI,
+                sum / MICROS_IN_MILLI / count));
+    }
+
+    /**
+     * Nearest-rank percentile of the first {@code count} sorted values.
+     */
+    static long percentile(long[] sortedValues, int count, int percentile) {
+        final int rank = (int) Math.ceil(count * percentile / 100d);
+        return sortedValues[Math.max(0, rank - 1)];
+    }
+}
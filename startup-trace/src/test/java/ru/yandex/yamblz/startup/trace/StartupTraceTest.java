@@ -0,0 +1,68 @@
+package ru.yandex.yamblz.startup.trace;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class StartupTraceTest {
+
+    @Test
+    public void writeAndRead_shouldKeepEventsAndOffsetsInMicros() throws IOException {
+        int[] events = {StartupTrace.APP_ATTACH, StartupTrace.APP_ON_CREATE, StartupTrace.FIRST_DRAW, 0};
+        long[] timestamps = {5_000_000, 7_500_000, 305_000_000, 0};
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StartupTrace.write(new DataOutputStream(bytes), 42, events, timestamps, 3);
+
+        StartupTrace trace = StartupTrace.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(trace.wallClockMillis()).isEqualTo(42);
+        assertThat(trace.eventsCount()).isEqualTo(3);
+        assertThat(trace.offsetMicrosOf(StartupTrace.APP_ATTACH)).isEqualTo(0);
+        assertThat(trace.offsetMicrosOf(StartupTrace.APP_ON_CREATE)).isEqualTo(2_500);
+        assertThat(trace.offsetMicrosOf(StartupTrace.FIRST_DRAW)).isEqualTo(300_000);
+        assertThat(trace.offsetMicrosOf(StartupTrace.MAIN_ACTIVITY_ON_CREATE)).isEqualTo(-1);
+    }
+
+    @Test
+    public void read_shouldThrowOnWrongMagic() {
+        try {
+            StartupTrace.read(new DataInputStream(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5})));
+            failBecauseExceptionWasNotThrown(IOException.class);
+        } catch (IOException expected) {
+            assertThat(expected).hasMessage("Not a startup trace, magic = 1020304");
+        }
+    }
+
+    @Test
+    public void analyze_shouldReportTimelineAndPhasesOverAllRuns() {
+        int[] events = {StartupTrace.APP_ATTACH, StartupTrace.APP_ON_CREATE};
+
+        String report = StartupTraceTool.analyze(asList(
+                new StartupTrace(1, events, new long[]{0, 1_000}),
+                new StartupTrace(2, events, new long[]{0, 3_000})
+        ));
+
+        assertThat(report)
+                .startsWith("2 startup traces")
+                .contains("App.onCreate                         2       1.0       1.0       3.0       3.0       2.0")
+                .contains("-> App.onCreate                      2       1.0       1.0       3.0       3.0       2.0");
+    }
+
+    @Test
+    public void percentile_shouldUseNearestRank() {
+        long[] values = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+        assertThat(StartupTraceTool.percentile(values, 10, 50)).isEqualTo(5);
+        assertThat(StartupTraceTool.percentile(values, 10, 90)).isEqualTo(9);
+        assertThat(StartupTraceTool.percentile(values, 1, 90)).isEqualTo(1);
+    }
+}